@@ -0,0 +1,42 @@
+plugins {
+    `java-library`
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+group = "n1ql.query.generator"
+version = rootProject.version
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    api("com.google.code.gson:gson:2.10.1")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // JSON results can be diffed between releases to catch regressions
+    resultFormat.set("JSON")
+}
+
+tasks {
+    withType<JavaCompile> {
+        options.encoding = "UTF-8"
+    }
+
+    test {
+        useJUnitPlatform()
+    }
+}
@@ -0,0 +1,47 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.builder.BatchQueryGenerator;
+import n1ql.query.generator.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures batch generation of migration-style scripts, discarding the output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchGenerationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int models;
+
+    private List<QueryModel> batch;
+
+    @Setup
+    public void setUp() {
+        batch = new ArrayList<>(models);
+        for (int i = 0; i < models; i++) {
+            QueryModel model = new QueryModel();
+            model.setOperation(i % 2 == 0 ? QueryOperation.UPSERT : QueryOperation.UPDATE);
+            model.setBucket("travel-sample");
+            model.setScope("inventory");
+            model.setCollection("airline");
+            model.setDocumentKey("airline_" + i);
+            model.setDocumentValue("{\"id\": " + i + ", \"type\": \"airline\"}");
+            model.addSetClause(new SetClause("migrated", "true"));
+            model.addWhereCondition(new WhereCondition("id", WhereOperator.EQUALS, String.valueOf(i)));
+            batch.add(model);
+        }
+    }
+
+    @Benchmark
+    public BatchQueryGenerator.Result generate() throws IOException {
+        return BatchQueryGenerator.generate(batch.iterator(), Writer.nullWriter(), false);
+    }
+}
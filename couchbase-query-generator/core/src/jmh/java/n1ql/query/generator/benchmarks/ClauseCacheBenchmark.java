@@ -0,0 +1,104 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.builder.ClauseCache;
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rebuilding a SELECT with many conditions after only its LIMIT changed, the common
+ * case while paging through results: rendering every clause, reusing clauses whose inputs
+ * compare equal, and reusing clauses of an unchanged snapshot section by stamp. Clause cache
+ * hits and misses are reported as the {@code clauseHits} and {@code clauseMisses} counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClauseCacheBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int conditions;
+
+    private QueryModel model;
+    private ClauseCache inputCache;
+    private ClauseCache snapshotCache;
+    private int limit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = new QueryModel();
+        model.setBucket("travel-sample");
+        model.setScope("inventory");
+        model.setCollection("hotel");
+        model.setSelectAll(false);
+        model.setSelectFields(List.of("name", "city", "reviews"));
+        for (int i = 0; i < conditions; i++) {
+            WhereCondition condition = new WhereCondition("field" + i % 20, WhereOperator.values()[i % 6], "value " + i);
+            condition.setLogicalOperator(i % 3 == 0 ? LogicalOperator.OR : LogicalOperator.AND);
+            model.addWhereCondition(condition);
+        }
+        model.addOrderByClause(new OrderByClause("city", SortOrder.ASC));
+        model.addOrderByClause(new OrderByClause("name", SortOrder.DESC));
+        inputCache = new ClauseCache();
+        snapshotCache = new ClauseCache();
+    }
+
+    /**
+     * Clause cache hits and misses of each iteration, shown by JMH next to the score; the hit rate is
+     * {@code clauseHits / (clauseHits + clauseMisses)}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CacheCounters {
+        public long clauseHits;
+        public long clauseMisses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            clauseHits = 0;
+            clauseMisses = 0;
+        }
+
+        String record(ClauseCache cache, String query) {
+            clauseHits = cache.getHits();
+            clauseMisses = cache.getMisses();
+            return query;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStats() {
+        inputCache.resetStats();
+        snapshotCache.resetStats();
+    }
+
+    @Benchmark
+    public String uncached() {
+        model.setLimit(nextLimit());
+        return new N1QLQueryBuilder(model).build();
+    }
+
+    @Benchmark
+    public String cachedByInputs(CacheCounters counters) {
+        model.setLimit(nextLimit());
+        N1QLQueryBuilder builder = new N1QLQueryBuilder(model);
+        builder.setClauseCache(inputCache);
+        return counters.record(inputCache, builder.build());
+    }
+
+    @Benchmark
+    public String cachedBySnapshotStamps(CacheCounters counters) {
+        model.setLimit(nextLimit());
+        N1QLQueryBuilder builder = new N1QLQueryBuilder(model.snapshot());
+        builder.setClauseCache(snapshotCache);
+        return counters.record(snapshotCache, builder.build());
+    }
+
+    private int nextLimit() {
+        limit = limit % 100 + 1;
+        return limit;
+    }
+}
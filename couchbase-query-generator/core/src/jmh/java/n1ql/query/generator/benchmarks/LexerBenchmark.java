@@ -0,0 +1,66 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.lexer.N1QLLexer;
+import n1ql.query.generator.lexer.N1QLToken;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the tokenization pass that drives syntax highlighting of the query preview.
+ * <p>
+ * The largest document is about 1 MB. Besides the time per document, each run reports a
+ * {@code characters} counter that JMH normalizes by time like the score; lexing is linear when
+ * that figure stays flat from the smallest document to the largest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LexerBenchmark {
+
+    private static final String STATEMENT = """
+            SELECT DISTINCT a.name, a.country, COUNT(*) AS routes
+            FROM `travel-sample`.`inventory`.`airline` a
+            WHERE a.country = "United States" AND a.name LIKE 'A%' -- comment
+              AND ANY s IN a.schedule SATISFIES s.day = 1 END
+            GROUP BY a.name, a.country
+            ORDER BY routes DESC
+            LIMIT 100 OFFSET 20;
+            """;
+
+    /** Number of statements concatenated into the highlighted document; 3700 is about 1 MB. */
+    @Param({"1", "10", "100", "3700"})
+    public int statements;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = STATEMENT.repeat(statements);
+    }
+
+    /**
+     * Characters lexed, reported by JMH next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long characters;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            characters = 0;
+        }
+    }
+
+    @Benchmark
+    public void tokenize(Counters counters, Blackhole blackhole) {
+        N1QLLexer lexer = new N1QLLexer(text);
+        N1QLToken token;
+        while ((token = lexer.next()) != null) {
+            blackhole.consume(token);
+        }
+        counters.characters += text.length();
+    }
+}
@@ -0,0 +1,73 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.engine.ColumnStore;
+import n1ql.query.generator.engine.ExecutionResult;
+import n1ql.query.generator.engine.LocalQueryEngine;
+import n1ql.query.generator.model.*;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures local evaluation of a filtered, sorted page and of a grouped aggregate over sample
+ * documents whose columns are already built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalEngineBenchmark {
+
+    @Param({"1000", "100000"})
+    public int documents;
+
+    private ColumnStore store;
+    private QueryModel filtered;
+    private QueryModel grouped;
+
+    @Setup
+    public void setUp() {
+        List<JsonObject> docs = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            docs.add(JsonParser.parseString("{\"id\": \"airline_" + i + "\""
+                + ", \"type\": \"" + (i % 10 == 0 ? "route" : "airline") + "\""
+                + ", \"country\": \"C" + (i % 20) + "\""
+                + ", \"rating\": " + (i % 7 == 0 ? "null" : String.valueOf(i % 5))
+                + ", \"tags\": [\"t" + (i % 3) + "\", \"t" + (i % 11) + "\"]}").getAsJsonObject());
+        }
+        store = ColumnStore.of(docs, "id");
+
+        filtered = new QueryModel();
+        filtered.setBucket("travel-sample");
+        filtered.addWhereCondition(new WhereCondition("type", WhereOperator.EQUALS, "airline"));
+        filtered.addWhereCondition(new WhereCondition("rating", WhereOperator.GREATER_THAN_OR_EQUALS, "3"));
+        filtered.addWhereCondition(new WhereCondition("tags", WhereOperator.ARRAY_CONTAINS, "t1"));
+        filtered.addOrderByClause(new OrderByClause("country", SortOrder.ASC));
+        filtered.setLimit(20);
+
+        grouped = new QueryModel();
+        grouped.setBucket("travel-sample");
+        grouped.addWhereCondition(new WhereCondition("type", WhereOperator.EQUALS, "airline"));
+        grouped.setGroupByFields(new ArrayList<>(List.of("country")));
+        grouped.addAggregation(new AggregationClause(AggregateFunction.COUNT, "*", "airlines"));
+        grouped.addAggregation(new AggregationClause(AggregateFunction.AVG, "rating", "avgRating"));
+        grouped.addOrderByClause(new OrderByClause("airlines", SortOrder.DESC));
+
+        // Build the columns once so the benchmarks measure evaluation only
+        LocalQueryEngine.execute(filtered, store);
+        LocalQueryEngine.execute(grouped, store);
+    }
+
+    @Benchmark
+    public ExecutionResult filteredPage() {
+        return LocalQueryEngine.execute(filtered, store);
+    }
+
+    @Benchmark
+    public ExecutionResult groupedAggregate() {
+        return LocalQueryEngine.execute(grouped, store);
+    }
+}
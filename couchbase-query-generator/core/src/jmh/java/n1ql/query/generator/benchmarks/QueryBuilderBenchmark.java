@@ -0,0 +1,74 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures query generation for each operation with a realistically filled model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryBuilderBenchmark {
+
+    @Param({"SELECT", "INSERT", "UPDATE", "DELETE", "UPSERT"})
+    public QueryOperation operation;
+
+    @Param({"true", "false"})
+    public boolean formatOutput;
+
+    private N1QLQueryBuilder builder;
+    private final StringBuilder buffer = new StringBuilder(1024);
+
+    @Setup
+    public void setUp() {
+        QueryModel model = new QueryModel();
+        model.setOperation(operation);
+        model.setBucket("travel-sample");
+        model.setScope("inventory");
+        model.setCollection("airline");
+        model.setSelectAll(false);
+        model.setSelectFields(List.of("name", "country", "callsign", "iata", "icao"));
+        model.setDistinct(true);
+
+        model.addWhereCondition(new WhereCondition("country", WhereOperator.EQUALS, "United States"));
+        WhereCondition like = new WhereCondition("name", WhereOperator.LIKE, "A%");
+        like.setLogicalOperator(LogicalOperator.AND);
+        model.addWhereCondition(like);
+        WhereCondition between = new WhereCondition("id", WhereOperator.BETWEEN, "10");
+        between.setSecondValue("5000");
+        between.setLogicalOperator(LogicalOperator.OR);
+        model.addWhereCondition(between);
+
+        model.addOrderByClause(new OrderByClause("name", SortOrder.ASC));
+        model.addOrderByClause(new OrderByClause("country", SortOrder.DESC));
+        model.setLimit(100);
+        model.setOffset(20);
+
+        model.setDocumentKey("airline_10");
+        model.setDocumentValue("{\"name\": \"40-Mile Air\", \"country\": \"United States\"}");
+        model.addSetClause(new SetClause("callsign", "MILE-AIR"));
+        model.addSetClause(new SetClause("iata", "Q5"));
+        model.setReturningAll(true);
+
+        builder = new N1QLQueryBuilder(model);
+        builder.setFormatOutput(formatOutput);
+    }
+
+    @Benchmark
+    public String build() {
+        return builder.build();
+    }
+
+    @Benchmark
+    public StringBuilder renderReusingBuffer() throws IOException {
+        buffer.setLength(0);
+        builder.render(buffer);
+        return buffer;
+    }
+}
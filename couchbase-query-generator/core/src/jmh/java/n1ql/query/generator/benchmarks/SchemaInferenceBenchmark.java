@@ -0,0 +1,63 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.services.DocumentSchema;
+import n1ql.query.generator.services.JsonSchemaParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures schema inference over pasted samples and streamed NDJSON of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchemaInferenceBenchmark {
+
+    @Param({"100", "10000"})
+    public int documents;
+
+    private String jsonArray;
+    private byte[] ndjson;
+
+    @Setup
+    public void setUp() {
+        StringBuilder array = new StringBuilder("[");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < documents; i++) {
+            String doc = document(i);
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(doc);
+            lines.append(doc).append('\n');
+        }
+        jsonArray = array.append(']').toString();
+        ndjson = lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String document(int i) {
+        // Vary optional fields and types so the histograms have work to do
+        return "{\"id\": " + i
+                + ", \"type\": \"airline\""
+                + ", \"name\": \"Airline " + i + "\""
+                + ", \"rating\": " + (i % 3 == 0 ? "null" : String.valueOf(i % 5))
+                + (i % 2 == 0 ? ", \"iata\": \"Q" + i + "\"" : "")
+                + ", \"geo\": {\"lat\": " + (i * 0.5) + ", \"lon\": " + (-i * 0.25) + "}"
+                + ", \"tags\": [\"a\", \"b\", " + i + "]"
+                + ", \"schedule\": [{\"day\": " + (i % 7) + ", \"flight\": \"F" + i + "\"}]}";
+    }
+
+    @Benchmark
+    public DocumentSchema sampleSchema() {
+        return JsonSchemaParser.sampleSchema(jsonArray);
+    }
+
+    @Benchmark
+    public DocumentSchema inferSchemaStreaming() throws IOException {
+        return JsonSchemaParser.inferSchema(new ByteArrayInputStream(ndjson), ndjson.length, null);
+    }
+}
@@ -0,0 +1,46 @@
+package n1ql.query.generator.benchmarks;
+
+import n1ql.query.generator.builder.CompiledTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-keystroke cost of filling a template in template mode: rendering a compiled
+ * template against the regex replacement it supersedes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TemplateRenderBenchmark {
+
+    private static final String TEMPLATE = """
+            SELECT *
+            FROM `bucket`
+            WHERE type = ${type:value=document_type}
+              AND LOWER(${field:field=name}) LIKE ${pattern:value=%search_term%}
+              AND created_at >= "2024-01-01"
+            ORDER BY created_at DESC
+            LIMIT ${limit:number=50}""";
+
+    private CompiledTemplate compiled;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() {
+        compiled = CompiledTemplate.compile(TEMPLATE);
+        variables = Map.of(CompiledTemplate.KEYSPACE, "`travel-sample`.`inventory`.`hotel`",
+            "type", "hotel", "field", "city", "pattern", "%san%", "limit", "20");
+    }
+
+    @Benchmark
+    public String compiledRender() {
+        return compiled.render(variables);
+    }
+
+    @Benchmark
+    public String regexReplaceKeyspaceOnly() {
+        return TEMPLATE.replaceAll("`bucket`", "`travel-sample`.`inventory`.`hotel`");
+    }
+}
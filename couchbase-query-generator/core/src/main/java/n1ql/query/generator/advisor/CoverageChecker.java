@@ -0,0 +1,284 @@
+package n1ql.query.generator.advisor;
+
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.model.*;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks whether a query built from a {@link QueryModel} is covered by declared indexes.
+ * <p>
+ * A query is covered when, for every OR branch of its WHERE clause, some usable index holds all
+ * fields the query reads: projection, predicates, ORDER BY, GROUP BY, aggregates and HAVING.
+ * An index is usable when it is on the same keyspace, its partial condition appears among the
+ * branch's predicates, and its leading key is filtered on. When the query is not covered, the
+ * closest usable index is reported together with the fields it lacks, the SELECT list it would
+ * cover and the index definition extended with those fields.
+ */
+public final class CoverageChecker {
+
+    private static final Pattern ARRAY_KEY =
+        Pattern.compile("(?:DISTINCT |ALL )?ARRAY .* FOR \\S+ (?:IN|WITHIN) (.+) END");
+
+    private static final Pattern ALIAS = Pattern.compile("(?i)\\s+AS\\s+\\S+$");
+
+    private CoverageChecker() {
+    }
+
+    public static IndexCoverage check(QueryModel model, Collection<IndexDefinition> declared) {
+        QueryOperation operation = model.getOperation();
+        if (operation != QueryOperation.SELECT) {
+            String reason = operation == QueryOperation.INSERT || operation == QueryOperation.UPSERT
+                ? " writes by document key" : " fetches the documents it changes";
+            return result(IndexCoverage.Status.NOT_APPLICABLE, List.of(), List.of(), null, List.of(),
+                operation + reason + "; covering does not apply.");
+        }
+
+        boolean aggregating = model.hasAggregation() && !model.getAggregations().isEmpty();
+        boolean selectAll = !aggregating && (model.isSelectAll() || projection(model).isEmpty());
+
+        // Fields every branch reads, besides its own predicates
+        Set<String> shared = new LinkedHashSet<>();
+        if (aggregating) {
+            for (AggregationClause aggregation : model.getAggregations()) {
+                String field = aggregation.getField();
+                if (aggregation.isValid() && field != null && !field.isBlank() && !field.trim().equals("*")) {
+                    shared.add(normalizeField(field));
+                }
+            }
+            addFields(shared, model.getGroupByFields());
+            for (WhereCondition condition : model.getHavingConditions()) {
+                if (condition.isValid()) {
+                    shared.add(normalizeField(condition.getField()));
+                }
+            }
+        } else {
+            shared.addAll(projection(model));
+            for (OrderByClause clause : model.getOrderByClauses()) {
+                if (clause.isValid()) {
+                    shared.add(normalizeField(clause.getField()));
+                }
+            }
+        }
+
+        String keyspace = model.getKeyspace();
+        List<IndexDefinition> serving = new ArrayList<>();
+        Set<String> missing = new LinkedHashSet<>();
+        List<IndexDefinition> extended = new ArrayList<>();
+        for (List<WhereCondition> branch : IndexAdvisor.splitOrBranches(model.getWhereConditions())) {
+            Set<String> fields = new LinkedHashSet<>(shared);
+            Set<String> predicateFields = new HashSet<>();
+            Set<String> conjuncts = new HashSet<>();
+            for (WhereCondition condition : branch) {
+                String field = normalizeField(condition.getField());
+                fields.add(field);
+                predicateFields.add(field);
+                String conjunct = conjunct(condition);
+                if (conjunct != null) {
+                    conjuncts.add(conjunct);
+                }
+            }
+
+            Candidate best = null;
+            for (IndexDefinition index : declared) {
+                Candidate candidate = evaluate(index, keyspace, fields, predicateFields, conjuncts, branch);
+                if (candidate != null && (best == null || candidate.missing.size() < best.missing.size())) {
+                    best = candidate;
+                }
+            }
+            if (best == null) {
+                String scope = predicateFields.isEmpty() ? "the query" : "a WHERE branch";
+                return result(IndexCoverage.Status.NO_INDEX, serving, List.of(), null, List.of(),
+                    "No declared index serves " + scope + "; it needs a primary scan. Use Index Advice.");
+            }
+            if (!serving.contains(best.index)) {
+                serving.add(best.index);
+            }
+            missing.addAll(best.missing);
+            if (!best.missing.isEmpty()) {
+                extended.add(extend(best.index, best.missing));
+            }
+        }
+
+        String names = names(serving);
+        if (selectAll) {
+            // SELECT * always fetches; the index keys are what a covered projection may contain
+            List<String> coverable = new ArrayList<>();
+            for (IndexDefinition.Key key : serving.get(0).getKeys()) {
+                if (!key.isArray()) {
+                    coverable.add(key.expression());
+                }
+            }
+            return result(IndexCoverage.Status.NOT_COVERED, serving, List.of("*"), coverable, List.of(),
+                "SELECT * fetches every document from " + names + "; select only "
+                    + String.join(", ", coverable) + " to be covered.");
+        }
+        if (missing.isEmpty()) {
+            return result(IndexCoverage.Status.COVERED, serving, List.of(), null, List.of(),
+                "Covered by " + names + ": no document fetch.");
+        }
+
+        // Dropping projected fields is enough only if every missing field is projection-only
+        List<String> projection = null;
+        if (!aggregating) {
+            Set<String> needed = new HashSet<>(shared);
+            needed.removeAll(projection(model));
+            for (List<WhereCondition> branch : IndexAdvisor.splitOrBranches(model.getWhereConditions())) {
+                for (WhereCondition condition : branch) {
+                    needed.add(normalizeField(condition.getField()));
+                }
+            }
+            if (Collections.disjoint(needed, missing)) {
+                projection = new ArrayList<>();
+                for (String field : model.getSelectFields()) {
+                    if (field != null && !field.isBlank() && !missing.contains(normalizeField(field))) {
+                        projection.add(field.trim());
+                    }
+                }
+                if (projection.isEmpty()) {
+                    projection = null;
+                }
+            }
+        }
+
+        StringBuilder summary = new StringBuilder("Not covered: ").append(names)
+            .append(" lacks ").append(String.join(", ", missing)).append(", so each row is fetched. ");
+        if (projection != null) {
+            summary.append("Select only ").append(String.join(", ", projection)).append(", or add ");
+        } else {
+            summary.append("Add ");
+        }
+        summary.append(missing.size() == 1 ? "it" : "them").append(" as trailing index keys.");
+        return result(IndexCoverage.Status.NOT_COVERED, serving, new ArrayList<>(missing), projection, extended,
+            summary.toString());
+    }
+
+    /**
+     * A usable index and the fields it lacks for one branch.
+     */
+    private record Candidate(IndexDefinition index, List<String> missing) {
+    }
+
+    private static Candidate evaluate(IndexDefinition index, String keyspace, Set<String> fields,
+                                      Set<String> predicateFields, Set<String> conjuncts,
+                                      List<WhereCondition> branch) {
+        if (index.isPrimary() || index.getKeys().isEmpty() || !index.isOn(keyspace)) {
+            return null;
+        }
+
+        // A partial index only holds the documents matching its condition
+        Set<String> conditionFields = new HashSet<>();
+        if (index.getCondition() != null) {
+            List<String> parts = Arrays.asList(IndexDefinition.normalize(index.getCondition()).split(" AND "));
+            if (!conjuncts.containsAll(parts)) {
+                return null;
+            }
+            // Predicates implied by the condition need no key of their own
+            for (WhereCondition condition : branch) {
+                if (parts.contains(conjunct(condition))) {
+                    conditionFields.add(normalizeField(condition.getField()));
+                }
+            }
+        }
+
+        // The scan needs a predicate on the leading key
+        List<String> keys = new ArrayList<>();
+        List<String> arrayFields = new ArrayList<>();
+        for (IndexDefinition.Key key : index.getKeys()) {
+            String normalized = IndexDefinition.normalize(key.expression());
+            Matcher array = ARRAY_KEY.matcher(normalized);
+            if (array.matches()) {
+                arrayFields.add(array.group(1));
+            } else {
+                keys.add(normalized);
+            }
+        }
+        String leading = IndexDefinition.normalize(index.getKeys().get(0).expression());
+        Matcher leadingArray = ARRAY_KEY.matcher(leading);
+        if (!predicateFields.contains(leadingArray.matches() ? leadingArray.group(1) : leading)) {
+            return null;
+        }
+
+        // Array keys only locate entries; covering an ANY predicate needs the whole array as a key
+        List<String> missing = new ArrayList<>();
+        for (String field : fields) {
+            if (!conditionFields.contains(field) && !isCovered(field, keys)) {
+                missing.add(field);
+            }
+        }
+        return new Candidate(index, missing);
+    }
+
+    private static boolean isCovered(String field, List<String> keys) {
+        if (field.equalsIgnoreCase("META().id")) {
+            return true;
+        }
+        for (String key : keys) {
+            if (field.equals(key) || field.startsWith(key + ".") || field.startsWith(key + "[")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the normalized text of a simple comparison, for matching partial-index conditions.
+     */
+    private static String conjunct(WhereCondition condition) {
+        return switch (condition.getOperator()) {
+            case EQUALS, NOT_EQUALS, GREATER_THAN, LESS_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN_OR_EQUALS ->
+                condition.isSubquery() ? null : IndexDefinition.normalize(
+                    N1QLQueryBuilder.formatFieldName(condition.getField()) + " " + condition.getOperator().getSql()
+                        + " " + N1QLQueryBuilder.formatValue(condition.getValue()));
+            default -> null;
+        };
+    }
+
+    private static IndexDefinition extend(IndexDefinition index, Collection<String> missing) {
+        List<IndexDefinition.Key> keys = new ArrayList<>(index.getKeys());
+        for (String field : missing) {
+            keys.add(new IndexDefinition.Key(N1QLQueryBuilder.formatFieldName(field), false));
+        }
+        return new IndexDefinition(index.getName(), index.getKeyspace(), keys, index.getCondition());
+    }
+
+    /**
+     * Returns the normalized SELECT list, without aliases and {@code *}.
+     */
+    private static Set<String> projection(QueryModel model) {
+        Set<String> fields = new LinkedHashSet<>();
+        addFields(fields, model.getSelectFields());
+        fields.remove("*");
+        return fields;
+    }
+
+    private static void addFields(Set<String> target, List<String> fields) {
+        if (fields != null) {
+            for (String field : fields) {
+                if (field != null && !field.isBlank()) {
+                    target.add(normalizeField(field));
+                }
+            }
+        }
+    }
+
+    private static String normalizeField(String field) {
+        return IndexDefinition.normalize(ALIAS.matcher(field.trim()).replaceFirst(""));
+    }
+
+    private static String names(List<IndexDefinition> indexes) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (IndexDefinition index : indexes) {
+            joiner.add(index.getName());
+        }
+        return joiner.toString();
+    }
+
+    private static IndexCoverage result(IndexCoverage.Status status, List<IndexDefinition> indexes, List<String> missing,
+                                        List<String> projection, List<IndexDefinition> suggested, String summary) {
+        return new IndexCoverage(status, new ArrayList<>(indexes), new ArrayList<>(missing), projection,
+            new ArrayList<>(suggested), summary);
+    }
+}
@@ -0,0 +1,71 @@
+package n1ql.query.generator.advisor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of {@link IndexAdvisor#advise}: the indexes to create, the declared indexes that
+ * already serve the query, and explanatory notes.
+ */
+public final class IndexAdvice {
+
+    private final List<IndexDefinition> recommendations;
+    private final List<IndexDefinition> servingIndexes;
+    private final List<String> notes;
+
+    IndexAdvice(List<IndexDefinition> recommendations, List<IndexDefinition> servingIndexes, List<String> notes) {
+        this.recommendations = Collections.unmodifiableList(recommendations);
+        this.servingIndexes = Collections.unmodifiableList(servingIndexes);
+        this.notes = Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * Returns the indexes that should be created, one per part of the query no declared index serves.
+     */
+    public List<IndexDefinition> getRecommendations() {
+        return recommendations;
+    }
+
+    /**
+     * Returns the declared indexes that already serve (parts of) the query.
+     */
+    public List<IndexDefinition> getServingIndexes() {
+        return servingIndexes;
+    }
+
+    public List<String> getNotes() {
+        return notes;
+    }
+
+    /**
+     * Returns true if declared indexes serve the whole query and nothing needs to be created.
+     */
+    public boolean isServedByExisting() {
+        return recommendations.isEmpty() && !servingIndexes.isEmpty();
+    }
+
+    /**
+     * Returns the advice as a N1QL script: notes as comments, then the CREATE INDEX statements.
+     */
+    public String toScript() {
+        StringBuilder sb = new StringBuilder();
+        for (String note : notes) {
+            sb.append("-- ").append(note).append('\n');
+        }
+        for (IndexDefinition index : servingIndexes) {
+            sb.append("-- Served by existing index: ").append(index.toCreateStatement()).append('\n');
+        }
+        if (sb.length() > 0 && !recommendations.isEmpty()) {
+            sb.append('\n');
+        }
+        for (IndexDefinition index : recommendations) {
+            sb.append(index.toCreateStatement()).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toScript();
+    }
+}
@@ -0,0 +1,417 @@
+package n1ql.query.generator.advisor;
+
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.model.*;
+
+import java.util.*;
+
+/**
+ * Offline GSI index advisor for the queries built from a {@link QueryModel}.
+ * <p>
+ * Each AND-connected group of WHERE conditions (one per OR branch) gets a composite index whose
+ * keys follow the usual order: equality predicates first, then the ORDER BY or GROUP BY keys
+ * when the index can deliver that order, then range predicates, then predicates that can only
+ * be filtered on the index. Equality on a document-type field becomes a partial-index condition,
+ * {@code ARRAY_CONTAINS} an array index key, and a short SELECT list is appended so the index
+ * covers the query. Declared indexes whose leading keys already serve a branch are reported
+ * instead of a new definition.
+ * <p>
+ * The planner only scans an index whose leading key the WHERE clause filters on. When a branch
+ * filters on none of the keys, so that the index would lead with an ORDER BY or GROUP BY key,
+ * the advice notes the {@code IS NOT MISSING} predicate the query needs, and no declared index
+ * is reported as serving it, in line with {@link CoverageChecker}.
+ */
+public final class IndexAdvisor {
+
+    // Fields conventionally holding the document type, which suit partial indexes
+    private static final Set<String> TYPE_FIELDS = Set.of("type", "_type", "doctype", "documenttype");
+
+    // Longest projection that is appended to the index keys to make it covering
+    private static final int MAX_COVERING_FIELDS = 4;
+
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private IndexAdvisor() {
+    }
+
+    /**
+     * Proposes indexes for the query, assuming no indexes exist yet.
+     */
+    public static IndexAdvice advise(QueryModel model) {
+        return advise(model, List.of());
+    }
+
+    /**
+     * Proposes indexes for the query, reporting declared indexes that already serve it.
+     * @param declared Indexes that exist or are declared in the project; other keyspaces are ignored
+     */
+    public static IndexAdvice advise(QueryModel model, Collection<IndexDefinition> declared) {
+        List<IndexDefinition> recommendations = new ArrayList<>();
+        List<IndexDefinition> serving = new ArrayList<>();
+        List<String> notes = new ArrayList<>();
+
+        QueryOperation operation = model.getOperation();
+        if (operation == QueryOperation.INSERT || operation == QueryOperation.UPSERT) {
+            notes.add(operation + " writes by document key and needs no index.");
+            return new IndexAdvice(recommendations, serving, notes);
+        }
+
+        String keyspace = model.getKeyspace();
+        List<List<WhereCondition>> branches = splitOrBranches(model.getWhereConditions());
+        if (branches.size() > 1) {
+            notes.add("The WHERE clause has " + branches.size() + " OR branches; a UnionScan needs an index for each.");
+        }
+
+        for (List<WhereCondition> branch : branches) {
+            Proposal proposal = propose(model, keyspace, branch, notes);
+            if (proposal == null) {
+                continue;
+            }
+            IndexDefinition existing = findServing(proposal, keyspace, declared);
+            if (proposal.unfilteredKey != null) {
+                String key = proposal.unfilteredKey;
+                notes.add((existing != null ? existing.getName() : proposal.definition.getName())
+                    + " is only used if the WHERE clause filters on " + key + ", e.g. with " + key
+                    + " IS NOT MISSING, which also skips documents without it.");
+                if (existing == null && !containsSameKeys(recommendations, proposal.definition)) {
+                    recommendations.add(proposal.definition);
+                }
+            } else if (existing != null) {
+                if (!serving.contains(existing)) {
+                    serving.add(existing);
+                }
+            } else if (!containsSameKeys(recommendations, proposal.definition)) {
+                recommendations.add(proposal.definition);
+            }
+        }
+        return new IndexAdvice(recommendations, serving, notes);
+    }
+
+    /**
+     * Splits the valid conditions into AND groups. The builder joins each condition to the next
+     * with its own logical operator, and AND binds tighter than OR.
+     */
+    public static List<List<WhereCondition>> splitOrBranches(List<WhereCondition> conditions) {
+        List<List<WhereCondition>> branches = new ArrayList<>();
+        List<WhereCondition> current = new ArrayList<>();
+        WhereCondition previous = null;
+        if (conditions != null) {
+            for (WhereCondition condition : conditions) {
+                if (!condition.isValid()) {
+                    continue;
+                }
+                if (previous != null && previous.getLogicalOperator() == LogicalOperator.OR) {
+                    branches.add(current);
+                    current = new ArrayList<>();
+                }
+                current.add(condition);
+                previous = condition;
+            }
+        }
+        branches.add(current);
+        return branches;
+    }
+
+    /**
+     * A proposed index, with what a declared index must match to serve the same scans.
+     */
+    private static final class Proposal {
+        IndexDefinition definition;
+        Set<String> equalityKeys = new HashSet<>();
+        Set<String> partialKeys = new HashSet<>();
+        String nextKey; // first key after the equality keys, if any
+        String unfilteredKey; // leading key when no predicate of the branch is on it
+    }
+
+    private static Proposal propose(QueryModel model, String keyspace, List<WhereCondition> branch, List<String> notes) {
+        boolean select = model.getOperation() == QueryOperation.SELECT;
+        boolean aggregating = select && model.hasAggregation() && !model.getAggregations().isEmpty();
+
+        List<String> partialConditions = new ArrayList<>();
+        List<String> partialFields = new ArrayList<>();
+        KeyList equality = new KeyList();
+        KeyList range = new KeyList();
+        KeyList filter = new KeyList();
+        String arrayField = null;
+
+        for (WhereCondition condition : branch) {
+            String field = N1QLQueryBuilder.formatFieldName(condition.getField());
+            switch (condition.getOperator()) {
+                case EQUALS -> {
+                    if (!condition.isSubquery() && isTypeField(condition.getField())) {
+                        partialConditions.add(field + " = " + N1QLQueryBuilder.formatValue(condition.getValue()));
+                        partialFields.add(field);
+                    } else {
+                        equality.add(field, false);
+                    }
+                }
+                case IN, IS_NULL -> equality.add(field, false);
+                case ARRAY_CONTAINS -> {
+                    if (arrayField == null) {
+                        arrayField = field;
+                    } else {
+                        filter.add(field, false);
+                        notes.add("Only one array key can be indexed; " + field + " is filtered after the scan.");
+                    }
+                }
+                case GREATER_THAN, LESS_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN_OR_EQUALS, BETWEEN,
+                     IS_NOT_NULL, NOT_EQUALS -> range.add(field, false);
+                case LIKE -> {
+                    if (hasLiteralPrefix(condition.getValue())) {
+                        range.add(field, false);
+                    } else {
+                        filter.add(field, false);
+                        notes.add("LIKE on " + field + " starts with a wildcard, so it cannot narrow the index scan.");
+                    }
+                }
+                case NOT_LIKE, NOT_IN, CONTAINS -> filter.add(field, false);
+            }
+        }
+        if (arrayField != null) {
+            equality.add("DISTINCT ARRAY v FOR v IN " + arrayField + " END", false);
+        }
+
+        // Keys that let the index return rows in the requested order
+        KeyList order = new KeyList();
+        if (aggregating) {
+            for (String field : model.getGroupByFields()) {
+                if (field != null && !field.isBlank()) {
+                    order.add(N1QLQueryBuilder.formatFieldName(field), false);
+                }
+            }
+        } else if (select) {
+            for (OrderByClause clause : model.getOrderByClauses()) {
+                if (clause.isValid()) {
+                    order.add(N1QLQueryBuilder.formatFieldName(clause.getField()), clause.getSortOrder() == SortOrder.DESC);
+                }
+            }
+        }
+
+        KeyList keys = new KeyList();
+        keys.addAll(equality);
+        // Sorting keys stay ahead of range keys only if the range is on the first of them
+        if (range.isEmpty() || (!order.isEmpty() && range.size() == 1
+                && range.normalized(0).equals(order.normalized(0)))) {
+            keys.addAll(order);
+            keys.addAll(range);
+        } else {
+            keys.addAll(range);
+            keys.addAll(order);
+            if (!order.isEmpty()) {
+                notes.add("Range predicates precede the " + (aggregating ? "GROUP BY" : "ORDER BY")
+                    + " keys, so the query still sorts its results.");
+            }
+        }
+        keys.addAll(filter);
+
+        if (keys.isEmpty()) {
+            if (partialFields.isEmpty()) {
+                notes.add("No predicate or sort key to index: the query scans the whole keyspace"
+                    + " and can only use a primary index.");
+                return null;
+            }
+            // A type-only filter: index the type field itself rather than a partial index
+            for (String field : partialFields) {
+                keys.add(field, false);
+            }
+            partialConditions.clear();
+            partialFields.clear();
+        }
+
+        // Covering: also index the projected fields so the query never fetches documents
+        if (select) {
+            KeyList projection = new KeyList();
+            if (aggregating) {
+                for (AggregationClause aggregation : model.getAggregations()) {
+                    String field = aggregation.getField();
+                    if (aggregation.isValid() && field != null && !field.isBlank() && !field.trim().equals("*")) {
+                        projection.add(N1QLQueryBuilder.formatFieldName(field), false);
+                    }
+                }
+            } else if (!model.isSelectAll()) {
+                for (String field : model.getSelectFields()) {
+                    if (field != null && !field.isBlank() && !field.trim().equals("*")
+                            && !IndexDefinition.normalize(field).equalsIgnoreCase("META().id")) {
+                        projection.add(N1QLQueryBuilder.formatFieldName(field), false);
+                    }
+                }
+            }
+            projection.removeAll(keys);
+            if (projection.size() <= MAX_COVERING_FIELDS) {
+                keys.addAll(projection);
+            } else {
+                notes.add("The projection has " + projection.size() + " unindexed fields; "
+                    + "the query fetches documents instead of being covered.");
+            }
+        }
+
+        Proposal proposal = new Proposal();
+        String condition = partialConditions.isEmpty() ? null : String.join(" AND ", partialConditions);
+        proposal.definition = new IndexDefinition(indexName(model, keys, partialConditions), keyspace, keys.keys, condition);
+        proposal.equalityKeys.addAll(equality.normalized);
+        for (String field : partialFields) {
+            proposal.partialKeys.add(IndexDefinition.normalize(field));
+        }
+        proposal.nextKey = keys.size() > equality.size() ? keys.normalized(equality.size()) : null;
+        if (equality.isEmpty() && range.isEmpty() && !order.isEmpty()) {
+            Set<String> filtered = new HashSet<>();
+            for (WhereCondition predicate : branch) {
+                filtered.add(IndexDefinition.normalize(N1QLQueryBuilder.formatFieldName(predicate.getField())));
+            }
+            if (!filtered.contains(order.normalized(0))) {
+                proposal.unfilteredKey = order.keys.get(0).expression();
+            }
+        }
+        return proposal;
+    }
+
+    /**
+     * Returns a declared index on the same keyspace whose leading keys serve the proposal's scans,
+     * or null. The equality keys may come in any order; the next key must match exactly.
+     */
+    private static IndexDefinition findServing(Proposal proposal, String keyspace, Collection<IndexDefinition> declared) {
+        String condition = proposal.definition.getCondition();
+        for (IndexDefinition index : declared) {
+            if (index.isPrimary() || !index.isOn(keyspace)) {
+                continue;
+            }
+
+            Set<String> leading = new HashSet<>(proposal.equalityKeys);
+            if (index.getCondition() == null) {
+                // Without the partial condition the type field has to be a leading key instead
+                leading.addAll(proposal.partialKeys);
+            } else if (condition == null
+                    || !IndexDefinition.normalize(index.getCondition()).equals(IndexDefinition.normalize(condition))) {
+                continue;
+            }
+
+            List<IndexDefinition.Key> keys = index.getKeys();
+            if (keys.size() < leading.size()) {
+                continue;
+            }
+            Set<String> prefix = new HashSet<>();
+            for (int i = 0; i < leading.size(); i++) {
+                prefix.add(IndexDefinition.normalize(keys.get(i).expression()));
+            }
+            if (!prefix.equals(leading)) {
+                continue;
+            }
+            if (proposal.nextKey != null && (keys.size() == leading.size()
+                    || !IndexDefinition.normalize(keys.get(leading.size()).expression()).equals(proposal.nextKey))) {
+                continue;
+            }
+            return index;
+        }
+        return null;
+    }
+
+    private static boolean containsSameKeys(List<IndexDefinition> indexes, IndexDefinition candidate) {
+        for (IndexDefinition index : indexes) {
+            if (index.getKeys().equals(candidate.getKeys()) && Objects.equals(index.getCondition(), candidate.getCondition())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTypeField(String field) {
+        return TYPE_FIELDS.contains(field.replace("`", "").trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns true if a LIKE pattern starts with a literal, so it maps to an index range.
+     */
+    private static boolean hasLiteralPrefix(String pattern) {
+        String p = pattern.trim();
+        if (p.length() >= 2 && (p.charAt(0) == '"' || p.charAt(0) == '\'')) {
+            p = p.substring(1);
+        }
+        return !p.isEmpty() && p.charAt(0) != '%' && p.charAt(0) != '_';
+    }
+
+    /**
+     * Derives a name such as {@code idx_hotel_city_name} from the collection and the leading keys.
+     */
+    private static String indexName(QueryModel model, KeyList keys, List<String> partialConditions) {
+        String collection = model.getCollection();
+        String bucket = model.getBucket();
+        String base = collection != null && !collection.isBlank() ? collection
+            : bucket != null && !bucket.isBlank() ? bucket : "bucket";
+
+        StringBuilder name = new StringBuilder("idx_");
+        appendIdentifier(name, base);
+        if (!partialConditions.isEmpty()) {
+            // idx_landmark_type_hotel_city: include the type value for partial indexes
+            String condition = partialConditions.get(0);
+            appendIdentifier(name.append('_'), condition.substring(condition.indexOf('=') + 1));
+        }
+        for (int i = 0; i < keys.size() && i < 3; i++) {
+            String expression = keys.keys.get(i).expression();
+            if (expression.startsWith("DISTINCT ARRAY v FOR v IN ")) {
+                expression = expression.substring("DISTINCT ARRAY v FOR v IN ".length(), expression.length() - " END".length());
+            }
+            appendIdentifier(name.append('_'), expression);
+        }
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name.toString();
+    }
+
+    private static void appendIdentifier(StringBuilder sb, String text) {
+        boolean underscore = sb.length() > 0 && sb.charAt(sb.length() - 1) == '_';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                sb.append(Character.toLowerCase(c));
+                underscore = false;
+            } else if (!underscore) {
+                sb.append('_');
+                underscore = true;
+            }
+        }
+        while (sb.length() > 0 && sb.charAt(sb.length() - 1) == '_') {
+            sb.setLength(sb.length() - 1);
+        }
+    }
+
+    /**
+     * Ordered index keys without duplicates, compared in normalized form.
+     */
+    private static final class KeyList {
+        final List<IndexDefinition.Key> keys = new ArrayList<>();
+        final List<String> normalized = new ArrayList<>();
+
+        void add(String expression, boolean descending) {
+            String n = IndexDefinition.normalize(expression);
+            if (!normalized.contains(n)) {
+                keys.add(new IndexDefinition.Key(expression, descending));
+                normalized.add(n);
+            }
+        }
+
+        void addAll(KeyList other) {
+            for (int i = 0; i < other.size(); i++) {
+                add(other.keys.get(i).expression(), other.keys.get(i).descending());
+            }
+        }
+
+        void removeAll(KeyList other) {
+            for (int i = size() - 1; i >= 0; i--) {
+                if (other.normalized.contains(normalized.get(i))) {
+                    keys.remove(i);
+                    normalized.remove(i);
+                }
+            }
+        }
+
+        String normalized(int index) {
+            return normalized.get(index);
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        boolean isEmpty() {
+            return keys.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package n1ql.query.generator.advisor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Whether declared indexes cover a query, i.e. answer it from the index alone without fetching
+ * documents, and if not, the smallest change that would.
+ */
+public final class IndexCoverage {
+
+    public enum Status {
+        /** Every OR branch is answered from an index without a fetch. */
+        COVERED,
+        /** A declared index serves the query, but the query fetches documents. */
+        NOT_COVERED,
+        /** No declared index can serve the query. */
+        NO_INDEX,
+        /** The statement always reads or writes whole documents (INSERT, UPDATE, ...). */
+        NOT_APPLICABLE
+    }
+
+    private final Status status;
+    private final List<IndexDefinition> indexes;
+    private final List<String> missingFields;
+    private final List<String> suggestedProjection;
+    private final List<IndexDefinition> suggestedIndexes;
+    private final String summary;
+
+    IndexCoverage(Status status, List<IndexDefinition> indexes, List<String> missingFields,
+                  List<String> suggestedProjection, List<IndexDefinition> suggestedIndexes, String summary) {
+        this.status = status;
+        this.indexes = Collections.unmodifiableList(indexes);
+        this.missingFields = Collections.unmodifiableList(missingFields);
+        this.suggestedProjection = suggestedProjection != null ? Collections.unmodifiableList(suggestedProjection) : null;
+        this.suggestedIndexes = Collections.unmodifiableList(suggestedIndexes);
+        this.summary = summary;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isCovered() {
+        return status == Status.COVERED;
+    }
+
+    /**
+     * Returns the covering indexes, or the closest serving ones if the query is not covered.
+     */
+    public List<IndexDefinition> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Returns the fields the query reads that the serving indexes lack.
+     */
+    public List<String> getMissingFields() {
+        return missingFields;
+    }
+
+    /**
+     * Returns a SELECT list the serving indexes cover, or null if trimming the projection is not
+     * enough to make the query covered.
+     */
+    public List<String> getSuggestedProjection() {
+        return suggestedProjection;
+    }
+
+    /**
+     * Returns serving indexes extended with the missing fields as trailing keys.
+     */
+    public List<IndexDefinition> getSuggestedIndexes() {
+        return suggestedIndexes;
+    }
+
+    /**
+     * Returns a one-line description for display.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return summary;
+    }
+}
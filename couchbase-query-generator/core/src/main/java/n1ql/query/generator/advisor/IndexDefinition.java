@@ -0,0 +1,380 @@
+package n1ql.query.generator.advisor;
+
+import n1ql.query.generator.lexer.N1QLLexer;
+import n1ql.query.generator.lexer.N1QLReservedWords;
+import n1ql.query.generator.lexer.N1QLToken;
+import n1ql.query.generator.lexer.N1QLTokenType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable GSI index definition: name, keyspace, index keys and optional partial-index
+ * condition. Definitions are either proposed by {@link IndexAdvisor} or parsed from the
+ * {@code CREATE INDEX} statements a project already declares.
+ */
+public final class IndexDefinition {
+
+    /**
+     * One index key.
+     * @param expression The key expression as written, e.g. {@code name} or
+     *                   {@code DISTINCT ARRAY v FOR v IN tags END}
+     * @param descending Whether the key is declared {@code DESC}
+     */
+    public record Key(String expression, boolean descending) {
+
+        public boolean isArray() {
+            String upper = expression.trim().toUpperCase(Locale.ROOT);
+            return upper.startsWith("DISTINCT ARRAY") || upper.startsWith("ALL ARRAY") || upper.startsWith("ARRAY");
+        }
+
+        @Override
+        public String toString() {
+            return descending ? expression + " DESC" : expression;
+        }
+    }
+
+    private final String name;
+    private final String keyspace;
+    private final List<Key> keys;
+    private final String condition;
+    private final boolean primary;
+
+    /**
+     * @param keyspace The keyspace as it appears after {@code ON}
+     * @param condition The partial-index condition without {@code WHERE}, or null
+     */
+    public IndexDefinition(String name, String keyspace, List<Key> keys, String condition) {
+        this(name, keyspace, keys, condition, false);
+    }
+
+    private IndexDefinition(String name, String keyspace, List<Key> keys, String condition, boolean primary) {
+        this.name = name;
+        this.keyspace = keyspace;
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.condition = condition == null || condition.isBlank() ? null : condition.trim();
+        this.primary = primary;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    /**
+     * Returns true if this index is built on the given keyspace, treating {@code b} and
+     * {@code `b`.`_default`.`_default`} as the same keyspace.
+     */
+    public boolean isOn(String keyspace) {
+        return normalizeKeyspace(this.keyspace).equals(normalizeKeyspace(keyspace));
+    }
+
+    /**
+     * Returns the {@code CREATE INDEX} statement for this definition.
+     */
+    public String toCreateStatement() {
+        StringBuilder sb = new StringBuilder();
+        if (primary) {
+            sb.append("CREATE PRIMARY INDEX ");
+            if (name != null) {
+                sb.append(quote(name)).append(' ');
+            }
+            return sb.append("ON ").append(keyspace).toString();
+        }
+        sb.append("CREATE INDEX ").append(quote(name)).append(" ON ").append(keyspace).append('(');
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(keys.get(i));
+        }
+        sb.append(')');
+        if (condition != null) {
+            sb.append(" WHERE ").append(condition);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCreateStatement();
+    }
+
+    /**
+     * Parses a {@code CREATE [PRIMARY] INDEX} statement. {@code IF NOT EXISTS}, {@code INCLUDE
+     * MISSING}, {@code PARTITION BY}, {@code USING} and {@code WITH} are accepted and ignored.
+     * @throws IllegalArgumentException If the text is not a CREATE INDEX statement
+     */
+    public static IndexDefinition parse(String statement) {
+        List<N1QLToken> tokens = new ArrayList<>();
+        for (N1QLToken token : N1QLLexer.tokenize(statement)) {
+            if (!token.getType().isTrivia()) {
+                tokens.add(token);
+            }
+        }
+        Parser parser = new Parser(statement, tokens);
+        return parser.parse();
+    }
+
+    /**
+     * Parses a script of {@code CREATE INDEX} statements separated by semicolons. Comments and
+     * blank statements are skipped.
+     * @throws IllegalArgumentException If a statement is not a CREATE INDEX statement
+     */
+    public static List<IndexDefinition> parseScript(String script) {
+        List<IndexDefinition> indexes = new ArrayList<>();
+        int start = 0;
+        boolean blank = true;
+        for (N1QLToken token : N1QLLexer.tokenize(script)) {
+            if (token.getType() == N1QLTokenType.PUNCTUATION && script.charAt(token.getStart()) == ';') {
+                if (!blank) {
+                    indexes.add(parse(script.substring(start, token.getStart())));
+                }
+                start = token.getEnd();
+                blank = true;
+            } else if (!token.getType().isTrivia()) {
+                blank = false;
+            }
+        }
+        if (!blank) {
+            indexes.add(parse(script.substring(start)));
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns an expression in a canonical form for comparison: backticks removed, keywords,
+     * reserved words and function names upper-cased, whitespace only between adjacent words.
+     */
+    static String normalize(String expression) {
+        StringBuilder sb = new StringBuilder(expression.length());
+        boolean lastWasWord = false;
+        for (N1QLToken token : N1QLLexer.tokenize(expression)) {
+            N1QLTokenType type = token.getType();
+            if (type.isTrivia()) {
+                continue;
+            }
+            String text = token.getText(expression);
+            boolean word = false;
+            switch (type) {
+                case QUOTED_IDENTIFIER -> {
+                    text = text.length() >= 2 ? text.substring(1, text.length() - 1) : text;
+                    word = true;
+                }
+                case KEYWORD, FUNCTION -> {
+                    text = text.toUpperCase(Locale.ROOT);
+                    word = true;
+                }
+                case IDENTIFIER -> {
+                    // Unquoted reserved words (ARRAY, FOR, ...) can't be field names
+                    if (N1QLReservedWords.isReserved(text)) {
+                        text = text.toUpperCase(Locale.ROOT);
+                    }
+                    word = true;
+                }
+                case NUMBER, PARAMETER -> word = true;
+                default -> {
+                }
+            }
+            if (word && lastWasWord) {
+                sb.append(' ');
+            }
+            sb.append(text);
+            lastWasWord = word;
+        }
+        return sb.toString();
+    }
+
+    private static String normalizeKeyspace(String keyspace) {
+        String normalized = normalize(keyspace);
+        if (normalized.endsWith("._default._default")) {
+            normalized = normalized.substring(0, normalized.length() - "._default._default".length());
+        }
+        return normalized;
+    }
+
+    private static String quote(String name) {
+        return name.startsWith("`") ? name : "`" + name + "`";
+    }
+
+    /**
+     * Recursive-descent reader over the significant tokens of one statement.
+     */
+    private static final class Parser {
+        private final String text;
+        private final List<N1QLToken> tokens;
+        private int pos;
+
+        Parser(String text, List<N1QLToken> tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+
+        IndexDefinition parse() {
+            expectWord("CREATE");
+            boolean primary = acceptWord("PRIMARY");
+            expectWord("INDEX");
+
+            String name = null;
+            if (acceptWord("IF")) {
+                expectWord("NOT");
+                expectWord("EXISTS");
+            }
+            if (!peekWord("ON")) {
+                name = unquote(next().getText(text));
+            }
+            if (!primary && name == null) {
+                throw error("index name");
+            }
+            if (acceptWord("IF")) {
+                expectWord("NOT");
+                expectWord("EXISTS");
+            }
+            expectWord("ON");
+
+            // Keyspace: everything up to the key list, or to the end for a primary index
+            int keyspaceStart = pos;
+            while (pos < tokens.size() && !peekText("(") && !peekWord("USING") && !peekWord("WITH")
+                    && !peekText(";")) {
+                pos++;
+            }
+            if (pos == keyspaceStart) {
+                throw error("keyspace");
+            }
+            String keyspace = range(keyspaceStart, pos);
+
+            if (primary) {
+                return new IndexDefinition(name, keyspace, List.of(), null, true);
+            }
+
+            expectText("(");
+            List<Key> keys = new ArrayList<>();
+            int keyStart = pos;
+            int depth = 0;
+            while (true) {
+                if (pos >= tokens.size()) {
+                    throw error("')'");
+                }
+                String t = tokens.get(pos).getText(text);
+                if (depth == 0 && (t.equals(",") || t.equals(")"))) {
+                    keys.add(parseKey(keyStart, pos));
+                    pos++;
+                    if (t.equals(")")) {
+                        break;
+                    }
+                    keyStart = pos;
+                    continue;
+                }
+                if (t.equals("(") || t.equals("[") || t.equals("{")) {
+                    depth++;
+                } else if (t.equals(")") || t.equals("]") || t.equals("}")) {
+                    depth--;
+                }
+                pos++;
+            }
+
+            // Optional clauses; only WHERE matters for matching queries
+            String condition = null;
+            while (pos < tokens.size() && !peekText(";")) {
+                if (acceptWord("WHERE")) {
+                    int conditionStart = pos;
+                    while (pos < tokens.size() && !peekWord("USING") && !peekWord("WITH") && !peekText(";")) {
+                        pos++;
+                    }
+                    condition = range(conditionStart, pos);
+                } else {
+                    pos++;
+                }
+            }
+            return new IndexDefinition(name, keyspace, keys, condition);
+        }
+
+        private Key parseKey(int start, int end) {
+            if (start >= end) {
+                throw error("index key");
+            }
+            // INCLUDE MISSING on the leading key only changes which documents are indexed
+            if (end - start > 2 && wordAt(end - 2, "INCLUDE") && wordAt(end - 1, "MISSING")) {
+                end -= 2;
+            }
+            boolean descending = false;
+            if (end - start > 1 && (wordAt(end - 1, "ASC") || wordAt(end - 1, "DESC"))) {
+                descending = wordAt(end - 1, "DESC");
+                end--;
+            }
+            return new Key(range(start, end), descending);
+        }
+
+        private String range(int start, int end) {
+            return text.substring(tokens.get(start).getStart(), tokens.get(end - 1).getEnd());
+        }
+
+        private N1QLToken next() {
+            if (pos >= tokens.size()) {
+                throw error("more input");
+            }
+            return tokens.get(pos++);
+        }
+
+        private boolean wordAt(int index, String word) {
+            return index < tokens.size() && tokens.get(index).getText(text).equalsIgnoreCase(word);
+        }
+
+        private boolean peekWord(String word) {
+            return wordAt(pos, word);
+        }
+
+        private boolean peekText(String t) {
+            return pos < tokens.size() && tokens.get(pos).getText(text).equals(t);
+        }
+
+        private boolean acceptWord(String word) {
+            if (peekWord(word)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectWord(String word) {
+            if (!acceptWord(word)) {
+                throw error(word);
+            }
+        }
+
+        private void expectText(String t) {
+            if (!peekText(t)) {
+                throw error("'" + t + "'");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(String expected) {
+            String found = pos < tokens.size() ? "'" + tokens.get(pos).getText(text) + "'" : "end of statement";
+            return new IllegalArgumentException("Expected " + expected + " but found " + found
+                + " in index definition: " + text);
+        }
+
+        private static String unquote(String name) {
+            return name.length() >= 2 && name.startsWith("`") && name.endsWith("`")
+                ? name.substring(1, name.length() - 1) : name;
+        }
+    }
+}
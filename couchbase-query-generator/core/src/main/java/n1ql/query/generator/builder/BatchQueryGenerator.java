@@ -0,0 +1,200 @@
+package n1ql.query.generator.builder;
+
+import n1ql.query.generator.model.QueryModel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.*;
+
+/**
+ * Generates N1QL for large numbers of {@link QueryModel}s, e.g. for data-migration scripts.
+ * <p>
+ * Models are pulled from the source in windows; each window is rendered on the common fork-join
+ * pool while the previous one is written out, so the output keeps the input order and memory
+ * stays bounded by two windows however long the source is. Workers render batches of statements
+ * into a per-thread buffer that is reused across batches.
+ */
+public final class BatchQueryGenerator {
+
+    private static final int WINDOW_SIZE = 4096;
+    private static final int BATCH_SIZE = 64;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(16 << 10));
+
+    private BatchQueryGenerator() {
+    }
+
+    /**
+     * Throughput figures for one generation run.
+     * @param queries Number of statements written
+     * @param characters Number of characters written, including separators
+     * @param elapsedNanos Wall-clock time spent, including writing
+     */
+    public record Result(long queries, long characters, long elapsedNanos) {
+
+        public double queriesPerSecond() {
+            return elapsedNanos == 0 ? 0 : queries * 1e9 / elapsedNanos;
+        }
+
+        public double charactersPerSecond() {
+            return elapsedNanos == 0 ? 0 : characters * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d queries (%,d chars) in %,d ms: %,.0f queries/s",
+                queries, characters, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), queriesPerSecond());
+        }
+    }
+
+    /**
+     * Generates a script file with one statement per model, terminated by semicolons.
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If writing fails
+     * @throws IllegalArgumentException If a model cannot be rendered
+     */
+    public static Result generate(Iterable<? extends QueryModel> models, Path file, boolean formatOutput)
+            throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return generate(models.iterator(), out, formatOutput);
+        }
+    }
+
+    /**
+     * Writes one statement per model to {@code out}, in source order. The writer is not closed.
+     * @param models Consumed on the calling thread only, so it need not be thread-safe
+     * @param formatOutput Render multi-line statements separated by blank lines
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If writing fails
+     * @throws IllegalArgumentException If a model cannot be rendered
+     */
+    public static Result generate(Iterator<? extends QueryModel> models, Writer out, boolean formatOutput)
+            throws IOException {
+        long start = System.nanoTime();
+        long queries = 0;
+        long characters = 0;
+
+        RenderTask pending = submitWindow(models, 0, formatOutput);
+        while (pending != null) {
+            int windowSize = pending.models.length;
+            RenderTask next = submitWindow(models, queries + windowSize, formatOutput);
+
+            String[] rendered = await(pending, next);
+            for (String chunk : rendered) {
+                out.write(chunk);
+                characters += chunk.length();
+            }
+            queries += windowSize;
+            pending = next;
+        }
+        out.flush();
+
+        return new Result(queries, characters, System.nanoTime() - start);
+    }
+
+    /**
+     * Pulls the next window from the source and starts rendering it; returns null at the end.
+     */
+    private static RenderTask submitWindow(Iterator<? extends QueryModel> models, long firstIndex,
+                                           boolean formatOutput) {
+        QueryModel[] window = new QueryModel[WINDOW_SIZE];
+        int count = 0;
+        while (count < WINDOW_SIZE && models.hasNext()) {
+            window[count++] = models.next();
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (count < WINDOW_SIZE) {
+            window = Arrays.copyOf(window, count);
+        }
+
+        String[] chunks = new String[(count + BATCH_SIZE - 1) / BATCH_SIZE];
+        RenderTask task = new RenderTask(window, chunks, firstIndex, 0, chunks.length, formatOutput);
+        ForkJoinPool.commonPool().execute(task);
+        return task;
+    }
+
+    private static String[] await(RenderTask pending, RenderTask next) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            if (next != null) {
+                next.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Query generation cancelled");
+        } catch (ExecutionException e) {
+            if (next != null) {
+                next.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Renders a range of batches of one window, splitting in half until a single batch is left.
+     * The result is the window's chunks, one per batch, in order.
+     */
+    @SuppressWarnings("serial")
+    private static final class RenderTask extends RecursiveTask<String[]> {
+        private final QueryModel[] models;
+        private final String[] chunks;
+        private final long firstIndex;
+        private final int from;
+        private final int to;
+        private final boolean formatOutput;
+
+        private RenderTask(QueryModel[] models, String[] chunks, long firstIndex, int from, int to,
+                           boolean formatOutput) {
+            this.models = models;
+            this.chunks = chunks;
+            this.firstIndex = firstIndex;
+            this.from = from;
+            this.to = to;
+            this.formatOutput = formatOutput;
+        }
+
+        @Override
+        protected String[] compute() {
+            if (to - from == 1) {
+                chunks[from] = renderBatch(from * BATCH_SIZE, Math.min(models.length, (from + 1) * BATCH_SIZE));
+                return chunks;
+            }
+            int mid = (from + to) >>> 1;
+            RenderTask left = new RenderTask(models, chunks, firstIndex, from, mid, formatOutput);
+            left.fork();
+            new RenderTask(models, chunks, firstIndex, mid, to, formatOutput).compute();
+            left.join();
+            return chunks;
+        }
+
+        private String renderBatch(int start, int end) {
+            StringBuilder buffer = BUFFER.get();
+            buffer.setLength(0);
+            for (int i = start; i < end; i++) {
+                try {
+                    N1QLQueryBuilder builder = new N1QLQueryBuilder(models[i]);
+                    builder.setFormatOutput(formatOutput);
+                    builder.render(buffer);
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Cannot render query model #" + (firstIndex + i), e);
+                }
+                buffer.append(";\n");
+                if (formatOutput) {
+                    buffer.append('\n');
+                }
+            }
+            return buffer.toString();
+        }
+    }
+}
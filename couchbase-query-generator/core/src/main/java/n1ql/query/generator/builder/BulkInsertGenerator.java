@@ -0,0 +1,259 @@
+package n1ql.query.generator.builder;
+
+import n1ql.query.generator.model.QueryModel;
+import n1ql.query.generator.model.QueryOperation;
+import n1ql.query.generator.services.JsonSchemaParser;
+
+import com.google.gson.JsonElement;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates multi-row {@code INSERT} or {@code UPSERT} statements from a stream of documents,
+ * e.g. to load test fixtures from an NDJSON export.
+ * <p>
+ * Each statement carries up to {@code batchSize} {@code (key, value)} pairs, so loading N
+ * documents takes N / batchSize round trips instead of N. Documents are read and written one
+ * statement at a time; memory is bounded by a single batch however large the source is.
+ */
+public final class BulkInsertGenerator {
+
+    /** Rows per statement when none is given. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private BulkInsertGenerator() {
+    }
+
+    /**
+     * Figures for one generation run.
+     * @param documents Number of documents written as rows
+     * @param statements Number of statements written
+     * @param characters Number of characters written, including separators
+     * @param elapsedNanos Wall-clock time spent, including reading the source
+     */
+    public record Result(long documents, long statements, long characters, long elapsedNanos) {
+
+        public double documentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : documents * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d documents in %,d statements (%,d chars) in %,d ms: %,.0f documents/s",
+                documents, statements, characters, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), documentsPerSecond());
+        }
+    }
+
+    /**
+     * Generates a script file from a JSON array, NDJSON or concatenated JSON file.
+     * @param target Supplies the operation (INSERT or UPSERT) and the keyspace
+     * @param keyExpression Document key template, as for the stream overload
+     * @param listener Progress callback, may be null
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If reading or writing fails, or the source is not valid JSON
+     * @throws IllegalArgumentException If the model is not an INSERT or UPSERT, or a document
+     *                                  has no value for a key field
+     */
+    public static Result generate(QueryModel target, String keyExpression, int batchSize, Path source, Path file,
+                                  boolean formatOutput, JsonSchemaParser.ProgressListener listener) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return generate(target, keyExpression, batchSize, in, Files.size(source), out, formatOutput, listener);
+        }
+    }
+
+    /**
+     * Writes one statement per batch of documents to {@code out}, in source order. Neither
+     * stream is closed.
+     * @param keyExpression Template for each document's key: text with {@code ${field.path}}
+     *                      references to the document's fields and {@code ${#}} for its 1-based
+     *                      position, e.g. {@code airline_${id}}. Null or blank generates
+     *                      {@code UUID()} keys. An expression without references is only
+     *                      accepted for a single document, as every document would get its key.
+     * @param batchSize Rows per statement
+     * @param totalBytes The input size for progress reporting, or -1 if unknown
+     * @param formatOutput Put each row on its own line and separate statements by blank lines
+     */
+    public static Result generate(QueryModel target, String keyExpression, int batchSize, InputStream in,
+                                  long totalBytes, Writer out, boolean formatOutput,
+                                  JsonSchemaParser.ProgressListener listener) throws IOException {
+        QueryOperation operation = target.getOperation();
+        if (operation != QueryOperation.INSERT && operation != QueryOperation.UPSERT) {
+            throw new IllegalArgumentException("Bulk generation needs an INSERT or UPSERT, not " + operation);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+
+        long start = System.nanoTime();
+        String header = operation.getKeyword() + " INTO " + target.getKeyspace()
+            + (formatOutput ? "\n(KEY, VALUE)\nVALUES " : " (KEY, VALUE) VALUES ");
+        String rowSeparator = formatOutput ? ",\n       " : ", ";
+        KeyTemplate key = KeyTemplate.parse(keyExpression);
+
+        StatementWriter writer = new StatementWriter(out, header, rowSeparator, formatOutput, batchSize);
+        try {
+            JsonSchemaParser.forEachDocument(in, totalBytes, listener, document -> {
+                try {
+                    writer.add(key.apply(document, writer.documents + 1), document);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        out.flush();
+
+        return new Result(writer.documents, writer.statements, writer.characters, System.nanoTime() - start);
+    }
+
+    /**
+     * Accumulates the rows of the current statement and writes it out when the batch is full.
+     */
+    private static final class StatementWriter {
+        private final Writer out;
+        private final String header;
+        private final String rowSeparator;
+        private final boolean formatOutput;
+        private final int batchSize;
+        private final StringBuilder statement = new StringBuilder(16 << 10);
+        private int rows;
+        private long documents;
+        private long statements;
+        private long characters;
+
+        StatementWriter(Writer out, String header, String rowSeparator, boolean formatOutput, int batchSize) {
+            this.out = out;
+            this.header = header;
+            this.rowSeparator = rowSeparator;
+            this.formatOutput = formatOutput;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * @param key The document key, or null for a generated UUID
+         */
+        void add(String key, JsonElement document) throws IOException {
+            statement.append(rows == 0 ? header : rowSeparator).append('(');
+            if (key != null) {
+                N1QLQueryBuilder.appendQuoted(statement, key);
+            } else {
+                statement.append("UUID()");
+            }
+            statement.append(", ").append(document.toString()).append(')');
+            documents++;
+            if (++rows == batchSize) {
+                finish();
+            }
+        }
+
+        void finish() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            statement.append(";\n");
+            if (formatOutput) {
+                statement.append('\n');
+            }
+            out.append(statement);
+            characters += statement.length();
+            statements++;
+            statement.setLength(0);
+            rows = 0;
+        }
+    }
+
+    /**
+     * A parsed key expression: literal text, field references and the document number.
+     */
+    private static final class KeyTemplate {
+        // Literal Strings, String[] field paths, and null for the document number
+        private final List<Object> parts;
+        // Literal text only: the same key for every document
+        private final boolean fixed;
+
+        private KeyTemplate(List<Object> parts) {
+            this.parts = parts;
+            this.fixed = parts != null && parts.stream().allMatch(part -> part instanceof String);
+        }
+
+        static KeyTemplate parse(String expression) {
+            if (expression == null || expression.isBlank()) {
+                return new KeyTemplate(null);
+            }
+            List<Object> parts = new ArrayList<>();
+            int from = 0;
+            while (from < expression.length()) {
+                int open = expression.indexOf("${", from);
+                if (open < 0) {
+                    parts.add(expression.substring(from));
+                    break;
+                }
+                int close = expression.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed ${ in key expression: " + expression);
+                }
+                if (open > from) {
+                    parts.add(expression.substring(from, open));
+                }
+                String reference = expression.substring(open + 2, close).trim();
+                if (reference.isEmpty()) {
+                    throw new IllegalArgumentException("Empty ${} in key expression: " + expression);
+                }
+                parts.add(reference.equals("#") ? null : reference.replace("`", "").split("\\."));
+                from = close + 1;
+            }
+            return new KeyTemplate(parts);
+        }
+
+        /**
+         * Returns the document's key, or null if keys are generated by the server.
+         * @throws IllegalArgumentException If a second document would get the same fixed key
+         */
+        String apply(JsonElement document, long number) {
+            if (parts == null) {
+                return null;
+            }
+            if (fixed && number > 1) {
+                throw new IllegalArgumentException("Key expression \"" + parts.get(0) + "\" gives every document"
+                    + " the same key; add ${field} or ${#}, or leave it empty for UUID() keys");
+            }
+            StringBuilder key = new StringBuilder();
+            for (Object part : parts) {
+                if (part == null) {
+                    key.append(number);
+                } else if (part instanceof String text) {
+                    key.append(text);
+                } else {
+                    String[] path = (String[]) part;
+                    JsonElement value = find(document, path);
+                    if (value == null || !value.isJsonPrimitive()) {
+                        throw new IllegalArgumentException("Document #" + number + " has no scalar value for key field "
+                            + String.join(".", path));
+                    }
+                    key.append(value.getAsString());
+                }
+            }
+            return key.toString();
+        }
+
+        private static JsonElement find(JsonElement document, String[] path) {
+            JsonElement current = document;
+            for (String name : path) {
+                if (current == null || !current.isJsonObject()) {
+                    return null;
+                }
+                current = current.getAsJsonObject().get(name);
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package n1ql.query.generator.builder;
+
+import n1ql.query.generator.model.AggregationClause;
+import n1ql.query.generator.model.OrderByClause;
+import n1ql.query.generator.model.QueryModel;
+import n1ql.query.generator.model.QueryModel.Section;
+import n1ql.query.generator.model.SetClause;
+import n1ql.query.generator.model.WhereCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rendered clause fragments kept between builds, so a build re-renders only the clauses whose
+ * inputs changed and splices in the rest.
+ * <p>
+ * Each clause keeps its latest fragment together with the values it was rendered from: the
+ * conditions, sort keys, fields and flags the clause reads, plus the output options. A build
+ * reuses the fragment when its inputs hash and compare equal to those values. Builds of {@link
+ * QueryModel#snapshot() snapshots} first compare the stamps of the sections the clause reads,
+ * which skips hashing the inputs while those sections are unchanged.
+ * <p>
+ * Methods are synchronized so a cache can be shared by renders that overlap.
+ */
+public final class ClauseCache {
+
+    /**
+     * Clauses whose fragments are cached.
+     */
+    public enum Clause {
+        /** The projection after {@code SELECT}, including {@code DISTINCT} and keyset sort values. */
+        SELECT_LIST(Section.PROJECTION, Section.AGGREGATION, Section.ORDER_BY, Section.PAGINATION),
+        WHERE(Section.WHERE),
+        /** {@code WHERE} with the seek predicate of a keyset page. */
+        KEYSET_WHERE(Section.WHERE, Section.ORDER_BY, Section.PAGINATION),
+        GROUP_BY(Section.AGGREGATION),
+        HAVING(Section.AGGREGATION),
+        ORDER_BY(Section.ORDER_BY, Section.AGGREGATION, Section.PAGINATION),
+        SET(Section.SET),
+        RETURNING(Section.RETURNING);
+
+        private final Section[] sections;
+
+        Clause(Section... sections) {
+            this.sections = sections;
+        }
+    }
+
+    private static final int CLAUSES = Clause.values().length;
+
+    private final long[][] stamps = new long[CLAUSES][];
+    private final Object[][] inputs = new Object[CLAUSES][];
+    private final int[] hashes = new int[CLAUSES];
+    private final String[] fragments = new String[CLAUSES];
+
+    private final long[] stampHits = new long[CLAUSES];
+    private final long[] inputHits = new long[CLAUSES];
+    private final long[] misses = new long[CLAUSES];
+
+    /**
+     * Returns the fragment last rendered for the clause if it was rendered from the same inputs,
+     * otherwise null.
+     * @param model The model being rendered
+     * @param inputs Values the clause is rendered from; lists are compared element by element
+     */
+    synchronized String get(Clause clause, QueryModel model, Object[] inputs) {
+        int i = clause.ordinal();
+        long[] stamps = stamps(clause, model);
+        if (fragments[i] == null) {
+            misses[i]++;
+            return null;
+        }
+        if (stamps != null && Arrays.equals(this.stamps[i], stamps) && sameFlags(this.inputs[i], inputs)) {
+            stampHits[i]++;
+            return fragments[i];
+        }
+        if (hashes[i] == Arrays.hashCode(inputs) && Arrays.equals(this.inputs[i], inputs)) {
+            // Same values under new stamps, e.g. a field edited and changed back
+            this.stamps[i] = stamps;
+            inputHits[i]++;
+            return fragments[i];
+        }
+        misses[i]++;
+        return null;
+    }
+
+    /**
+     * Keeps the fragment rendered from {@code inputs}, copying them so later changes to the
+     * model's conditions and clauses don't alter the cached key.
+     */
+    synchronized void put(Clause clause, QueryModel model, Object[] inputs, String fragment) {
+        int i = clause.ordinal();
+        Object[] copy = new Object[inputs.length];
+        for (int j = 0; j < inputs.length; j++) {
+            copy[j] = copyInput(inputs[j]);
+        }
+        this.stamps[i] = stamps(clause, model);
+        this.inputs[i] = copy;
+        this.hashes[i] = Arrays.hashCode(copy);
+        this.fragments[i] = fragment;
+    }
+
+    /**
+     * Returns the stamps of the sections the clause reads, or null unless the model is a
+     * snapshot: a mutable model's stamps don't see changes made through its lists.
+     */
+    private static long[] stamps(Clause clause, QueryModel model) {
+        if (!model.isSnapshot()) {
+            return null;
+        }
+        long[] stamps = new long[clause.sections.length];
+        for (int j = 0; j < stamps.length; j++) {
+            stamps[j] = model.getSectionStamp(clause.sections[j]);
+        }
+        return stamps;
+    }
+
+    /**
+     * Compares the inputs that aren't lists, such as output options, which no stamp covers.
+     */
+    private static boolean sameFlags(Object[] cached, Object[] inputs) {
+        if (cached.length != inputs.length) {
+            return false;
+        }
+        for (int j = 0; j < inputs.length; j++) {
+            if (!(inputs[j] instanceof List) && !Objects.equals(cached[j], inputs[j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object copyInput(Object input) {
+        if (!(input instanceof List<?> list)) {
+            // Strings, booleans and enums are immutable
+            return input;
+        }
+        List<Object> copy = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (element instanceof WhereCondition condition) {
+                copy.add(new WhereCondition(condition));
+            } else if (element instanceof OrderByClause orderBy) {
+                copy.add(new OrderByClause(orderBy));
+            } else if (element instanceof AggregationClause aggregation) {
+                copy.add(new AggregationClause(aggregation));
+            } else if (element instanceof SetClause set) {
+                copy.add(new SetClause(set));
+            } else {
+                copy.add(element);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Returns how often the clause's fragment was reused, by either stamps or inputs.
+     */
+    public synchronized long getHits(Clause clause) {
+        return stampHits[clause.ordinal()] + inputHits[clause.ordinal()];
+    }
+
+    /**
+     * Returns how often the clause was rendered.
+     */
+    public synchronized long getMisses(Clause clause) {
+        return misses[clause.ordinal()];
+    }
+
+    /**
+     * Returns how often any clause's fragment was reused.
+     */
+    public synchronized long getHits() {
+        long hits = 0;
+        for (int i = 0; i < CLAUSES; i++) {
+            hits += stampHits[i] + inputHits[i];
+        }
+        return hits;
+    }
+
+    /**
+     * Returns how often any clause was rendered.
+     */
+    public synchronized long getMisses() {
+        long total = 0;
+        for (long count : misses) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the fraction of lookups for the clause that reused its fragment, or 0 if it was
+     * never looked up.
+     */
+    public synchronized double getHitRate(Clause clause) {
+        long hits = getHits(clause);
+        long lookups = hits + misses[clause.ordinal()];
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Resets the hit and miss counts, keeping the fragments.
+     */
+    public synchronized void resetStats() {
+        Arrays.fill(stampHits, 0);
+        Arrays.fill(inputHits, 0);
+        Arrays.fill(misses, 0);
+    }
+
+    /**
+     * Drops all fragments.
+     */
+    public synchronized void clear() {
+        Arrays.fill(stamps, null);
+        Arrays.fill(inputs, null);
+        Arrays.fill(fragments, null);
+    }
+
+    /**
+     * Returns the hit rate of each clause looked up so far, with hits split into stamp and
+     * input matches.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("ClauseCache[");
+        boolean first = true;
+        for (Clause clause : Clause.values()) {
+            int i = clause.ordinal();
+            long lookups = stampHits[i] + inputHits[i] + misses[i];
+            if (lookups == 0) {
+                continue;
+            }
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(String.format("%s %.1f%% (%,d stamp + %,d input hits / %,d)",
+                clause, getHitRate(clause) * 100, stampHits[i], inputHits[i], lookups));
+        }
+        return sb.append(']').toString();
+    }
+}
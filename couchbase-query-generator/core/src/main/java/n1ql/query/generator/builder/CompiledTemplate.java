@@ -0,0 +1,209 @@
+package n1ql.query.generator.builder;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * A query template body compiled into a list of literal text and typed placeholder segments,
+ * so rendering is one pass of appends however often the variables change.
+ * <p>
+ * Placeholders are written {@code ${name}}, {@code ${name:type}} or {@code ${name:type=default}},
+ * where the type is one of {@link PlaceholderType} and defaults to {@code value}. The legacy
+ * {@code `bucket`} marker is the {@value #KEYSPACE} placeholder.
+ */
+public final class CompiledTemplate {
+
+    /** Name of the keyspace placeholder, filled from the keyspace fields. */
+    public static final String KEYSPACE = "keyspace";
+
+    private static final String LEGACY_KEYSPACE = "`bucket`";
+
+    /**
+     * How a variable's value is written into the query.
+     */
+    public enum PlaceholderType {
+        /** A keyspace path; each dotted part is escaped with backticks unless already escaped. */
+        KEYSPACE,
+        /** A field path, escaped as the builder writes field names. */
+        FIELD,
+        /** A literal as the builder writes WHERE values: strings quoted, numbers as-is. */
+        VALUE,
+        /** A number, written as-is; anything else leaves the placeholder unfilled. */
+        NUMBER;
+
+        /**
+         * Returns the value as written into the query, or null if it doesn't fit the type.
+         */
+        String format(String value) {
+            return switch (this) {
+                case KEYSPACE -> formatKeyspace(value);
+                case FIELD -> N1QLQueryBuilder.formatFieldName(value);
+                case VALUE -> N1QLQueryBuilder.formatValue(value);
+                case NUMBER -> isNumber(value) ? value : null;
+            };
+        }
+
+        static PlaceholderType parse(String name) {
+            for (PlaceholderType type : values()) {
+                if (type.name().equalsIgnoreCase(name)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A variable referenced by the template.
+     * @param defaultValue Value used while the variable is unset, or null
+     */
+    public record Placeholder(String name, PlaceholderType type, String defaultValue) {
+    }
+
+    // Literal text when placeholder is null, otherwise the placeholder as written in the template
+    private record Segment(String text, Placeholder placeholder) {
+    }
+
+    private final String source;
+    private final Segment[] segments;
+    private final List<Placeholder> placeholders;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments.toArray(new Segment[0]);
+        Map<String, Placeholder> byName = new LinkedHashMap<>();
+        int length = 0;
+        for (Segment segment : segments) {
+            if (segment.placeholder == null) {
+                length += segment.text.length();
+            } else {
+                byName.putIfAbsent(segment.placeholder.name(), segment.placeholder);
+            }
+        }
+        this.placeholders = List.copyOf(byName.values());
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a template body. Text that looks like a placeholder but doesn't parse as one
+     * (unknown type, unclosed brace) is kept as literal text.
+     */
+    public static CompiledTemplate compile(String template) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            if (template.startsWith(LEGACY_KEYSPACE, i)) {
+                flush(literal, segments);
+                segments.add(new Segment(LEGACY_KEYSPACE, new Placeholder(KEYSPACE, PlaceholderType.KEYSPACE, null)));
+                i += LEGACY_KEYSPACE.length();
+                continue;
+            }
+            if (template.startsWith("${", i)) {
+                int close = template.indexOf('}', i + 2);
+                Placeholder placeholder = close < 0 ? null : parsePlaceholder(template.substring(i + 2, close));
+                if (placeholder != null) {
+                    flush(literal, segments);
+                    segments.add(new Segment(template.substring(i, close + 1), placeholder));
+                    i = close + 1;
+                    continue;
+                }
+            }
+            literal.append(template.charAt(i++));
+        }
+        flush(literal, segments);
+        return new CompiledTemplate(template, segments);
+    }
+
+    private static void flush(StringBuilder literal, List<Segment> segments) {
+        if (literal.length() > 0) {
+            segments.add(new Segment(literal.toString(), null));
+            literal.setLength(0);
+        }
+    }
+
+    /**
+     * Parses {@code name[:type][=default]}, or returns null if it isn't a placeholder.
+     */
+    private static Placeholder parsePlaceholder(String body) {
+        String defaultValue = null;
+        int equals = body.indexOf('=');
+        if (equals >= 0) {
+            defaultValue = body.substring(equals + 1);
+            body = body.substring(0, equals);
+        }
+        String name = body.trim();
+        PlaceholderType type = name.equals(KEYSPACE) ? PlaceholderType.KEYSPACE : PlaceholderType.VALUE;
+        int colon = body.indexOf(':');
+        if (colon >= 0) {
+            name = body.substring(0, colon).trim();
+            type = PlaceholderType.parse(body.substring(colon + 1).trim());
+        }
+        if (type == null || name.isEmpty() || !name.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '_')) {
+            return null;
+        }
+        return new Placeholder(name, type, defaultValue);
+    }
+
+    /**
+     * Returns the template body this was compiled from.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the variables referenced, in order of first use, including the keyspace.
+     */
+    public List<Placeholder> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Renders the template. A placeholder whose variable is unset or blank takes its default;
+     * without one, or when the value doesn't fit the placeholder's type, it is left as written.
+     * @param variables Raw values by placeholder name
+     */
+    public String render(Map<String, String> variables) {
+        StringBuilder sb = new StringBuilder(literalLength + 64);
+        for (Segment segment : segments) {
+            Placeholder placeholder = segment.placeholder;
+            if (placeholder == null) {
+                sb.append(segment.text);
+                continue;
+            }
+            String value = variables.get(placeholder.name());
+            if (value == null || value.isBlank()) {
+                value = placeholder.defaultValue();
+            }
+            String formatted = value != null ? placeholder.type().format(value) : null;
+            sb.append(formatted != null ? formatted : segment.text);
+        }
+        return sb.toString();
+    }
+
+    private static String formatKeyspace(String keyspace) {
+        if (keyspace.indexOf('`') >= 0) {
+            return keyspace;
+        }
+        StringBuilder sb = new StringBuilder(keyspace.length() + 8);
+        for (String part : keyspace.split("\\.", -1)) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append('`').append(part).append('`');
+        }
+        return sb.toString();
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            // Unlike Double, rejects NaN, Infinity, hex and type suffixes
+            new BigDecimal(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package n1ql.query.generator.builder;
+
+import n1ql.query.generator.model.OrderByClause;
+import n1ql.query.generator.model.QueryModel;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Next-page plumbing for keyset ("seek") pagination.
+ * <p>
+ * A keyset SELECT sorts by its ORDER BY fields plus {@code META().id} and also returns the
+ * document key as {@value #ID_ALIAS} and each sort value as {@code _keyset_0}, {@code _keyset_1}
+ * and so on. The last row of a page is the cursor for the next one: {@link #nextPage} copies the
+ * model with that row's sort values and key filled in, and the builder turns them into a
+ * predicate that skips everything up to and including that row. Unlike OFFSET, the cost of a page
+ * doesn't grow with its depth.
+ * <p>
+ * Sort values are returned wrapped as {@code {"value": ...}}, because N1QL drops a MISSING member
+ * from a row: an empty object marks a MISSING sort value, so a row without the member is an
+ * error rather than a guess. NULL and MISSING cursor values are valid and sort first.
+ */
+public final class KeysetPagination {
+
+    /** Alias under which keyset queries return {@code META().id}. */
+    public static final String ID_ALIAS = "_keyset_id";
+
+    /** Member of the object that holds a sort value, absent if the value is MISSING. */
+    public static final String VALUE_MEMBER = "value";
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * Returns the alias under which keyset queries return the value of the sort key at {@code index}.
+     */
+    public static String sortAlias(int index) {
+        return "_keyset_" + index;
+    }
+
+    /**
+     * Returns the ORDER BY clauses that take part in the cursor, i.e. the valid ones.
+     */
+    public static List<OrderByClause> sortClauses(QueryModel model) {
+        List<OrderByClause> clauses = new ArrayList<>();
+        for (OrderByClause clause : model.getOrderByClauses()) {
+            if (clause.isValid()) {
+                clauses.add(clause);
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * Returns a copy of {@code model} that selects the page after {@code lastRow}.
+     * @param lastRow The last row of the current page, as returned by the query
+     * @throws IllegalArgumentException If the row lacks {@value #ID_ALIAS} or a sort value member
+     */
+    public static QueryModel nextPage(QueryModel model, JsonObject lastRow) {
+        JsonElement id = lastRow.get(ID_ALIAS);
+        if (id == null || !id.isJsonPrimitive()) {
+            throw new IllegalArgumentException("Row has no " + ID_ALIAS + " member");
+        }
+
+        List<OrderByClause> clauses = sortClauses(model);
+        List<String> afterValues = new ArrayList<>(clauses.size());
+        for (int i = 0; i < clauses.size(); i++) {
+            JsonElement sortValue = lastRow.get(sortAlias(i));
+            if (sortValue == null || !sortValue.isJsonObject()) {
+                throw new IllegalArgumentException("Row has no " + sortAlias(i) + " member for "
+                    + clauses.get(i).getField());
+            }
+            JsonElement value = sortValue.getAsJsonObject().get(VALUE_MEMBER);
+            afterValues.add(value != null ? value.toString() : null);
+        }
+
+        QueryModel next = new QueryModel(model);
+        next.setKeysetPagination(true);
+        next.setKeysetAfterValues(afterValues);
+        next.setKeysetAfterId(id.getAsString());
+        return next;
+    }
+}
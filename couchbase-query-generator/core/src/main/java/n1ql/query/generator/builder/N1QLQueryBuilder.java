@@ -0,0 +1,1180 @@
+package n1ql.query.generator.builder;
+
+import n1ql.query.generator.lexer.N1QLReservedWords;
+import n1ql.query.generator.model.*;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Main query builder that delegates to operation-specific builders.
+ * <p>
+ * Queries are rendered straight into an {@link Appendable}, so callers that generate many
+ * statements can reuse one buffer; {@link #build()} is a convenience that renders into a new
+ * {@code StringBuilder}.
+ * <p>
+ * With a {@link ParameterStyle} other than {@code INLINE}, literal values in conditions, SET
+ * clauses and inserted documents become placeholders and are collected as parameters, so the
+ * statement text only depends on the shape of the query.
+ * <p>
+ * Given a {@link ClauseCache}, inline renders reuse the fragments of clauses whose inputs are
+ * unchanged since the last build, so editing one clause of a query with many conditions only
+ * re-renders that clause.
+ */
+public class N1QLQueryBuilder {
+
+    // Returned by toLiteral for values that are expressions rather than literals
+    private static final Object NOT_LITERAL = new Object();
+
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+
+    private final QueryModel model;
+    private boolean formatOutput = true;
+    private ParameterStyle parameterStyle = ParameterStyle.INLINE;
+    private ClauseCache clauseCache;
+
+    // Placeholders bound during the current render, in order; null when inlining literals
+    private Map<String, Object> bindings;
+
+    public N1QLQueryBuilder(QueryModel model) {
+        this.model = model;
+    }
+
+    public void setFormatOutput(boolean formatOutput) {
+        this.formatOutput = formatOutput;
+    }
+
+    public void setParameterStyle(ParameterStyle parameterStyle) {
+        this.parameterStyle = parameterStyle != null ? parameterStyle : ParameterStyle.INLINE;
+    }
+
+    /**
+     * Sets the cache of clause fragments to reuse, or null to render every clause.
+     */
+    public void setClauseCache(ClauseCache clauseCache) {
+        this.clauseCache = clauseCache;
+    }
+
+    /**
+     * Builds the N1QL query string based on the model configuration.
+     */
+    public String build() {
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            render(sb);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds the statement with placeholders for literal values, together with the values bound
+     * to them. With {@code INLINE} style the statement has no placeholders.
+     */
+    public ParameterizedQuery buildParameterized() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            render(sb, parameters);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ParameterizedQuery(sb.toString(), parameterStyle, parameters);
+    }
+
+    /**
+     * Returns a field name as the builder writes it, escaped with backticks if necessary.
+     */
+    public static String formatFieldName(String field) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendFieldName(sb, field);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a WHERE value as the builder writes it inline (quoted string, number, etc.).
+     */
+    public static String formatValue(String value) {
+        if (value == null) {
+            return "NULL";
+        }
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendValue(sb, value, 0, value.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the JSON value a WHERE value denotes, as bound to a placeholder: a number, boolean,
+     * null, JSON object or array, or a string. Returns null for function calls and expressions.
+     */
+    public static JsonElement toJsonValue(String value) {
+        if (value == null) {
+            return JsonNull.INSTANCE;
+        }
+        Object literal = toLiteral(value, 0, value.length());
+        return literal != NOT_LITERAL ? toJson(literal) : null;
+    }
+
+    /**
+     * Returns the JSON array an IN list denotes, or null if an item is an expression.
+     */
+    public static JsonElement toJsonList(String value) {
+        if (value == null) {
+            return new JsonArray();
+        }
+        Object literal = toListLiteral(value);
+        return literal != NOT_LITERAL ? toJson(literal) : null;
+    }
+
+    /**
+     * Writes the N1QL query for the model configuration to {@code out}. Values bound to
+     * placeholders are discarded; use {@link #render(Appendable, Map)} to collect them.
+     */
+    public void render(Appendable out) throws IOException {
+        render(out, null);
+    }
+
+    /**
+     * Writes the N1QL query for the model configuration to {@code out}.
+     * @param parameters Receives the placeholder bindings in statement order, may be null
+     */
+    public void render(Appendable out, Map<String, Object> parameters) throws IOException {
+        if (model == null) {
+            out.append("-- No query model provided");
+            return;
+        }
+
+        bindings = parameterStyle != ParameterStyle.INLINE ? new LinkedHashMap<>() : null;
+        try {
+            switch (model.getOperation()) {
+                case SELECT -> renderSelectQuery(out);
+                case INSERT -> renderInsertQuery(out, "INSERT INTO ");
+                case UPDATE -> renderUpdateQuery(out);
+                case DELETE -> renderDeleteQuery(out);
+                case UPSERT -> renderInsertQuery(out, "UPSERT INTO ");
+            }
+            if (parameters != null && bindings != null) {
+                parameters.putAll(bindings);
+            }
+        } finally {
+            bindings = null;
+        }
+    }
+
+    private void renderSelectQuery(Appendable out) throws IOException {
+        // Check if we have aggregations
+        boolean aggregating = model.hasAggregation() && !model.getAggregations().isEmpty();
+
+        // Grouped rows have no document key to seek on, so they keep LIMIT/OFFSET
+        boolean keyset = model.isKeysetPagination() && !aggregating;
+
+        // SELECT clause
+        out.append("SELECT ");
+        appendCached(out, ClauseCache.Clause.SELECT_LIST, o -> appendSelectList(o, aggregating, keyset),
+            model.isDistinct(), model.isSelectAll(), aggregating, keyset,
+            model.getSelectFields(), model.getGroupByFields(), model.getAggregations(),
+            keyset ? model.getOrderByClauses() : List.of());
+
+        // FROM clause
+        appendNewLineOrSpace(out);
+        out.append("FROM ");
+        appendKeyspace(out);
+
+        // WHERE clause
+        if (keyset && hasKeysetCursor()) {
+            appendCached(out, ClauseCache.Clause.KEYSET_WHERE, this::appendKeysetWhereClause,
+                model.getWhereConditions(), model.getOrderByClauses(),
+                model.getKeysetAfterValues(), model.getKeysetAfterId());
+        } else {
+            appendWhereClause(out);
+        }
+
+        // GROUP BY clause
+        appendCached(out, ClauseCache.Clause.GROUP_BY, this::appendGroupByClause, model.getGroupByFields());
+
+        // HAVING clause
+        appendCached(out, ClauseCache.Clause.HAVING, o -> appendConditions(o, "HAVING ", model.getHavingConditions()),
+            model.getHavingConditions());
+
+        // ORDER BY clause
+        appendCached(out, ClauseCache.Clause.ORDER_BY, o -> appendOrderByClause(o, keyset),
+            model.getOrderByClauses(), keyset);
+
+        // LIMIT and OFFSET (the keyset predicate replaces OFFSET)
+        appendLimitOffset(out, keyset);
+    }
+
+    private void appendSelectList(Appendable out, boolean aggregating, boolean keyset) throws IOException {
+        if (model.isDistinct()) {
+            out.append("DISTINCT ");
+        }
+
+        if (aggregating) {
+            // GROUP BY fields first, then the aggregation functions
+            boolean first = true;
+            for (String field : model.getGroupByFields()) {
+                first = appendSeparator(out, first);
+                appendFieldName(out, field);
+            }
+
+            for (AggregationClause agg : model.getAggregations()) {
+                if (agg.isValid()) {
+                    first = appendSeparator(out, first);
+                    agg.appendSql(out);
+                }
+            }
+        } else if (model.isSelectAll() || model.getSelectFields().isEmpty()) {
+            out.append('*');
+        } else {
+            appendFieldList(out, model.getSelectFields());
+        }
+        if (keyset) {
+            // The client reads the next page's cursor from the last row
+            out.append(", META().id AS ").append(KeysetPagination.ID_ALIAS);
+            List<OrderByClause> sortClauses = KeysetPagination.sortClauses(model);
+            for (int i = 0; i < sortClauses.size(); i++) {
+                out.append(", {\"").append(KeysetPagination.VALUE_MEMBER).append("\": ");
+                appendFieldName(out, sortClauses.get(i).getField());
+                out.append("} AS ").append(KeysetPagination.sortAlias(i));
+            }
+        }
+    }
+
+    /**
+     * INSERT and UPSERT share the same shape and differ only in the leading keyword.
+     */
+    private void renderInsertQuery(Appendable out, String keyword) throws IOException {
+        out.append(keyword);
+        appendKeyspace(out);
+
+        // Document key and value
+        appendNewLineOrSpace(out);
+        out.append("(KEY, VALUE)");
+        appendNewLineOrSpace(out);
+        out.append("VALUES (");
+
+        String key = model.getDocumentKey();
+        if (key == null || key.isEmpty()) {
+            out.append("UUID()");
+        } else if (bindings != null) {
+            appendParameter(out, "key", key);
+        } else {
+            appendQuoted(out, key, 0, key.length());
+        }
+
+        out.append(", ");
+
+        String value = model.getDocumentValue();
+        JsonElement document = bindings != null && value != null ? parseJson(value) : null;
+        if (value == null || value.isEmpty()) {
+            out.append("{}");
+        } else if (document != null) {
+            appendParameter(out, "value", document);
+        } else {
+            out.append(value);
+        }
+
+        out.append(')');
+
+        // RETURNING clause
+        appendReturningClause(out);
+    }
+
+    private void renderUpdateQuery(Appendable out) throws IOException {
+        out.append("UPDATE ");
+        appendKeyspace(out);
+
+        // SET clause
+        appendCached(out, ClauseCache.Clause.SET, this::appendSetClause, model.getSetClauses());
+
+        // WHERE clause (important for UPDATE!)
+        appendWhereClause(out);
+
+        // RETURNING clause
+        appendReturningClause(out);
+    }
+
+    private void appendSetClause(Appendable out) throws IOException {
+        if (model.getSetClauses().isEmpty()) {
+            return;
+        }
+        appendNewLineOrSpace(out);
+        out.append("SET ");
+
+        boolean first = true;
+        for (SetClause clause : model.getSetClauses()) {
+            if (!clause.isValid()) {
+                continue;
+            }
+            first = appendSeparator(out, first);
+            appendFieldName(out, clause.getField());
+            out.append(" = ");
+            if (clause.isExpression()) {
+                out.append(clause.getValue());
+            } else {
+                appendValue(out, clause.getField(), clause.getValue());
+            }
+        }
+    }
+
+    private void renderDeleteQuery(Appendable out) throws IOException {
+        out.append("DELETE FROM ");
+        appendKeyspace(out);
+
+        // WHERE clause (important for DELETE!)
+        appendWhereClause(out);
+
+        // RETURNING clause
+        appendReturningClause(out);
+    }
+
+    /**
+     * Writes the fully qualified keyspace, matching {@link QueryModel#getKeyspace()}.
+     */
+    private void appendKeyspace(Appendable out) throws IOException {
+        String bucket = model.getBucket();
+        String scope = model.getScope();
+        String collection = model.getCollection();
+
+        out.append('`').append(bucket != null ? bucket : "bucket").append('`');
+
+        if (!isBlank(scope)) {
+            out.append(".`").append(scope).append('`');
+            if (!isBlank(collection)) {
+                out.append(".`").append(collection).append('`');
+            }
+        } else if (!isBlank(collection)) {
+            out.append(".`_default`.`").append(collection).append('`');
+        }
+    }
+
+    private void appendWhereClause(Appendable out) throws IOException {
+        appendCached(out, ClauseCache.Clause.WHERE, o -> appendConditions(o, "WHERE ", model.getWhereConditions()),
+            model.getWhereConditions());
+    }
+
+    /**
+     * Writes a clause from the cache if it was last rendered from the same inputs, otherwise
+     * renders and caches it. Only inline renders are cached, as placeholder numbering depends
+     * on the clauses before.
+     * @param inputs Everything the clause is rendered from besides the output format
+     */
+    private void appendCached(Appendable out, ClauseCache.Clause clause, ClauseRenderer renderer, Object... inputs)
+            throws IOException {
+        if (clauseCache == null || bindings != null) {
+            renderer.render(out);
+            return;
+        }
+        Object[] key = Arrays.copyOf(inputs, inputs.length + 1);
+        key[inputs.length] = formatOutput;
+        String fragment = clauseCache.get(clause, model, key);
+        if (fragment == null) {
+            StringBuilder sb = new StringBuilder();
+            renderer.render(sb);
+            fragment = sb.toString();
+            clauseCache.put(clause, model, key, fragment);
+        }
+        out.append(fragment);
+    }
+
+    @FunctionalInterface
+    private interface ClauseRenderer {
+        void render(Appendable out) throws IOException;
+    }
+
+    /**
+     * Writes a WHERE or HAVING clause; each condition is joined to the previous valid one by
+     * that condition's logical operator.
+     */
+    private void appendConditions(Appendable out, String keyword, List<WhereCondition> conditions) throws IOException {
+        if (countValid(conditions) > 0) {
+            appendNewLineOrSpace(out);
+            out.append(keyword);
+            appendJoinedConditions(out, conditions);
+        }
+    }
+
+    private void appendJoinedConditions(Appendable out, List<WhereCondition> conditions) throws IOException {
+        WhereCondition previous = null;
+        for (WhereCondition condition : conditions) {
+            if (!condition.isValid()) {
+                continue;
+            }
+            if (previous != null) {
+                out.append(' ').append(previous.getLogicalOperator().getSql()).append(' ');
+            }
+            appendCondition(out, condition);
+            previous = condition;
+        }
+    }
+
+    private static int countValid(List<WhereCondition> conditions) {
+        int count = 0;
+        if (conditions != null) {
+            for (WhereCondition condition : conditions) {
+                if (condition.isValid()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean hasKeysetCursor() {
+        String afterId = model.getKeysetAfterId();
+        return afterId != null && !afterId.isEmpty()
+            && model.getKeysetAfterValues().size() >= KeysetPagination.sortClauses(model).size();
+    }
+
+    /**
+     * Writes the WHERE clause of a follow-up keyset page: the user's conditions, then a seek
+     * predicate that only admits rows sorting after the previous page's last row. For
+     * {@code ORDER BY a ASC, b DESC} with the implicit {@code META().id} tie-break this is
+     * <pre>
+     * a &gt;= $a AND (a &gt; $a OR (a = $a AND (b &lt; $b OR b IS NOT VALUED OR (b = $b AND META().id &gt; $id))))
+     * </pre>
+     * where the leading bound on the first sort key lets an index range scan start at the
+     * cursor instead of skipping rows. N1QL sorts MISSING first, then NULL, then other values, so
+     * a descending key is followed by its NULL and MISSING rows, and a NULL or MISSING cursor
+     * value is matched with {@code IS NULL} or {@code IS MISSING} and gets no leading bound.
+     */
+    private void appendKeysetWhereClause(Appendable out) throws IOException {
+        appendNewLineOrSpace(out);
+        out.append("WHERE ");
+
+        List<WhereCondition> conditions = model.getWhereConditions();
+        int count = countValid(conditions);
+        if (count > 0) {
+            // Parenthesize so an OR among the user's conditions can't escape the seek predicate
+            if (count > 1) {
+                out.append('(');
+            }
+            appendJoinedConditions(out, conditions);
+            if (count > 1) {
+                out.append(')');
+            }
+            out.append(" AND ");
+        }
+
+        List<OrderByClause> sortClauses = KeysetPagination.sortClauses(model);
+        List<String> afterValues = model.getKeysetAfterValues();
+
+        // Each cursor value appears several times; render its literal or placeholder once
+        String[] fields = new String[sortClauses.size()];
+        String[] values = new String[sortClauses.size()]; // null for a NULL or MISSING value
+        boolean[] missing = new boolean[sortClauses.size()];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            String field = sortClauses.get(i).getField();
+            sb.setLength(0);
+            appendFieldName(sb, field);
+            fields[i] = sb.toString();
+            String value = afterValues.get(i);
+            missing[i] = value == null;
+            if (value != null && !isNullValue(value)) {
+                sb.setLength(0);
+                appendCursorValue(sb, "last_" + field, value);
+                values[i] = sb.toString();
+            }
+        }
+        sb.setLength(0);
+        appendString(sb, "last_id", model.getKeysetAfterId());
+        String afterId = sb.toString();
+
+        if (fields.length > 0 && values[0] != null && sortClauses.get(0).getSortOrder() != SortOrder.DESC) {
+            out.append(fields[0]).append(" >= ").append(values[0]).append(" AND ");
+        }
+        int parentheses = 0;
+        for (int i = 0; i < fields.length; i++) {
+            String after = sortsAfter(fields[i], values[i], missing[i], sortClauses.get(i).getSortOrder() != SortOrder.DESC);
+            if (after != null) {
+                out.append('(').append(after).append(" OR ");
+                parentheses++;
+            }
+            out.append('(').append(fields[i])
+                .append(values[i] != null ? " = " + values[i] : missing[i] ? " IS MISSING" : " IS NULL").append(" AND ");
+            parentheses++;
+        }
+        out.append("META().id > ").append(afterId);
+        for (int i = 0; i < parentheses; i++) {
+            out.append(')');
+        }
+    }
+
+    /**
+     * Returns a predicate admitting the values of {@code field} that sort after the cursor value,
+     * or null if none do.
+     * @param value The rendered cursor value, or null if it is NULL or MISSING
+     */
+    private static String sortsAfter(String field, String value, boolean missing, boolean ascending) {
+        if (ascending) {
+            return value != null ? field + " > " + value : field + (missing ? " IS NOT MISSING" : " IS VALUED");
+        }
+        if (value != null) {
+            return field + " < " + value + " OR " + field + " IS NOT VALUED";
+        }
+        return missing ? null : field + " IS MISSING";
+    }
+
+    /**
+     * Returns true if a cursor value is NULL, given as JSON or as a WHERE-style value.
+     */
+    private static boolean isNullValue(String value) {
+        JsonElement json = parseJsonValue(value);
+        return json != null ? json.isJsonNull() : value.trim().equalsIgnoreCase("null");
+    }
+
+    /**
+     * Writes a cursor value given as JSON, or as a WHERE-style value if it isn't valid JSON.
+     */
+    private void appendCursorValue(Appendable out, String name, String value) throws IOException {
+        JsonElement json = parseJsonValue(value);
+        if (json == null) {
+            appendValue(out, name, value);
+        } else if (bindings != null) {
+            appendParameter(out, name, json);
+        } else {
+            out.append(json.toString());
+        }
+    }
+
+    private void appendCondition(Appendable out, WhereCondition condition) throws IOException {
+        WhereOperator op = condition.getOperator();
+        String field = condition.getField();
+
+        switch (op) {
+            case IS_NULL, IS_NOT_NULL -> {
+                appendFieldName(out, condition.getField());
+                out.append(' ').append(op.getSql());
+            }
+            case BETWEEN -> {
+                appendFieldName(out, condition.getField());
+                out.append(" BETWEEN ");
+                appendValue(out, field, condition.getValue());
+                out.append(" AND ");
+                appendValue(out, field, condition.getSecondValue());
+            }
+            case IN, NOT_IN -> {
+                appendFieldName(out, condition.getField());
+                out.append(' ').append(op.getSql()).append(' ');
+                if (condition.isSubquery()) {
+                    out.append('(').append(condition.getSubquery()).append(')');
+                } else {
+                    appendInList(out, field, condition.getValue());
+                }
+            }
+            case LIKE, NOT_LIKE -> {
+                appendFieldName(out, condition.getField());
+                out.append(' ').append(op.getSql()).append(' ');
+                appendString(out, field, condition.getValue());
+            }
+            case ARRAY_CONTAINS -> {
+                // ANY v IN field SATISFIES v = value END
+                out.append("ANY v IN ");
+                appendFieldName(out, condition.getField());
+                out.append(" SATISFIES v = ");
+                appendValue(out, field, condition.getValue());
+                out.append(" END");
+            }
+            case CONTAINS -> {
+                out.append("CONTAINS(");
+                appendFieldName(out, condition.getField());
+                out.append(", ");
+                appendString(out, field, condition.getValue());
+                out.append(')');
+            }
+            default -> {
+                appendFieldName(out, condition.getField());
+                out.append(' ').append(op.getSql()).append(' ');
+                if (condition.isSubquery()) {
+                    out.append('(').append(condition.getSubquery()).append(')');
+                } else {
+                    appendValue(out, field, condition.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the ORDER BY clause; keyset pages add {@code META().id} as a unique tie-break.
+     */
+    private void appendOrderByClause(Appendable out, boolean keyset) throws IOException {
+        boolean first = true;
+        for (OrderByClause clause : model.getOrderByClauses()) {
+            if (!clause.isValid()) {
+                continue;
+            }
+            if (first) {
+                appendNewLineOrSpace(out);
+                out.append("ORDER BY ");
+                first = false;
+            } else {
+                out.append(", ");
+            }
+            appendFieldName(out, clause.getField());
+            out.append(' ').append(clause.getSortOrder().getSql());
+        }
+        if (keyset) {
+            if (first) {
+                appendNewLineOrSpace(out);
+                out.append("ORDER BY ");
+            } else {
+                out.append(", ");
+            }
+            out.append("META().id ASC");
+        }
+    }
+
+    private void appendGroupByClause(Appendable out) throws IOException {
+        List<String> groupByFields = model.getGroupByFields();
+
+        if (groupByFields == null || groupByFields.isEmpty()) {
+            return;
+        }
+
+        appendNewLineOrSpace(out);
+        out.append("GROUP BY ");
+        appendFieldList(out, groupByFields);
+    }
+
+    private void appendLimitOffset(Appendable out, boolean keyset) throws IOException {
+        Integer limit = model.getLimit();
+        Integer offset = keyset ? null : model.getOffset();
+
+        if (limit != null && limit > 0) {
+            appendNewLineOrSpace(out);
+            out.append("LIMIT ");
+            appendInt(out, limit);
+        }
+
+        if (offset != null && offset > 0) {
+            if (limit == null) {
+                appendNewLineOrSpace(out);
+            } else {
+                out.append(' ');
+            }
+            out.append("OFFSET ");
+            appendInt(out, offset);
+        }
+    }
+
+    private void appendReturningClause(Appendable out) throws IOException {
+        appendCached(out, ClauseCache.Clause.RETURNING, this::appendReturningFields,
+            model.isReturningAll(), model.getReturningFields());
+    }
+
+    private void appendReturningFields(Appendable out) throws IOException {
+        if (model.isReturningAll()) {
+            appendNewLineOrSpace(out);
+            out.append("RETURNING *");
+        } else if (!model.getReturningFields().isEmpty()) {
+            appendNewLineOrSpace(out);
+            out.append("RETURNING ");
+            appendFieldList(out, model.getReturningFields());
+        }
+    }
+
+    private void appendNewLineOrSpace(Appendable out) throws IOException {
+        out.append(formatOutput ? '\n' : ' ');
+    }
+
+    /**
+     * Writes ", " before every element but the first; returns the new value of {@code first}.
+     */
+    private static boolean appendSeparator(Appendable out, boolean first) throws IOException {
+        if (!first) {
+            out.append(", ");
+        }
+        return false;
+    }
+
+    private void appendFieldList(Appendable out, List<String> fields) throws IOException {
+        boolean first = true;
+        for (String field : fields) {
+            first = appendSeparator(out, first);
+            appendFieldName(out, field);
+        }
+    }
+
+    /**
+     * Writes a non-negative int without going through {@code Integer.toString}.
+     */
+    private static void appendInt(Appendable out, int value) throws IOException {
+        if (value >= 10) {
+            appendInt(out, value / 10);
+        }
+        out.append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Writes a field name, escaped with backticks if necessary.
+     */
+    private static void appendFieldName(Appendable out, String field) throws IOException {
+        if (field == null) {
+            return;
+        }
+        int start = trimStart(field, 0, field.length());
+        int end = trimEnd(field, start, field.length());
+
+        // Don't escape if it's already escaped, a wildcard, or contains dots (nested field)
+        if ((start < end && field.charAt(start) == '`')
+                || (end - start == 1 && field.charAt(start) == '*')
+                || indexOf(field, '.', start, end) >= 0) {
+            out.append(field, start, end);
+            return;
+        }
+
+        // Don't escape if it's a function call
+        if (indexOf(field, '(', start, end) >= 0 && indexOf(field, ')', start, end) >= 0) {
+            out.append(field, start, end);
+            return;
+        }
+
+        // Escape if contains special characters or is a reserved word
+        if (needsEscaping(field, start, end)) {
+            out.append('`').append(field, start, end).append('`');
+        } else {
+            out.append(field, start, end);
+        }
+    }
+
+    private static boolean needsEscaping(String field, int start, int end) {
+        // Check for special characters
+        if (!isPlainIdentifier(field, start, end)) {
+            return true;
+        }
+
+        // Check for N1QL reserved words
+        return N1QLReservedWords.isReserved(field, start, end);
+    }
+
+    /**
+     * Matches {@code [a-zA-Z_][a-zA-Z0-9_]*} over the given range.
+     */
+    private static boolean isPlainIdentifier(String field, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        char first = field.charAt(start);
+        if (!isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = field.charAt(i);
+            if (!isLetter(c) && !isDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Writes a value for N1QL (adds quotes for strings, etc.), or a placeholder bound to it.
+     * @param field The field the value is compared with or assigned to, used to name placeholders
+     */
+    private void appendValue(Appendable out, String field, String value) throws IOException {
+        if (value == null) {
+            out.append("NULL");
+            return;
+        }
+        if (bindings != null) {
+            Object literal = toLiteral(value, 0, value.length());
+            if (literal != NOT_LITERAL && literal != JsonNull.INSTANCE) {
+                appendParameter(out, field, literal);
+                return;
+            }
+        }
+        appendValue(out, value, 0, value.length());
+    }
+
+    private static void appendValue(Appendable out, String value, int from, int to) throws IOException {
+        int start = trimStart(value, from, to);
+        int end = trimEnd(value, start, to);
+        int length = end - start;
+
+        // Check if it's a number
+        if (isNumber(value, start, end)) {
+            out.append(value, start, end);
+            return;
+        }
+
+        // Check if it's a boolean
+        if (length == 4 && value.regionMatches(true, start, "true", 0, 4)) {
+            out.append("true");
+            return;
+        }
+        if (length == 5 && value.regionMatches(true, start, "false", 0, 5)) {
+            out.append("false");
+            return;
+        }
+
+        // Check if it's NULL
+        if (length == 4 && value.regionMatches(true, start, "null", 0, 4)) {
+            out.append("NULL");
+            return;
+        }
+
+        // Check if it's already a JSON object or array
+        if (length > 0) {
+            char first = value.charAt(start);
+            char last = value.charAt(end - 1);
+            if ((first == '{' && last == '}') || (first == '[' && last == ']')) {
+                out.append(value, start, end);
+                return;
+            }
+        }
+
+        // Check if it's a function call or expression
+        if (indexOf(value, '(', start, end) >= 0 && indexOf(value, ')', start, end) >= 0) {
+            out.append(value, start, end);
+            return;
+        }
+
+        // Otherwise, treat as string
+        appendQuoted(out, value, start, end);
+    }
+
+    /**
+     * Matches {@code -?\d+(\.\d+)?} over the given range.
+     */
+    private static boolean isNumber(String value, int start, int end) {
+        int i = start;
+        if (i < end && value.charAt(i) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+        }
+        if (i == digits) {
+            return false;
+        }
+        if (i == end) {
+            return true;
+        }
+        if (value.charAt(i) != '.') {
+            return false;
+        }
+        int fraction = ++i;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i > fraction && i == end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Converts a value to the literal it denotes, following the same rules as
+     * {@link #appendValue(Appendable, String, int, int)}: a Long or BigDecimal for numbers, a
+     * Boolean, JsonNull for NULL, a JsonElement for JSON objects and arrays, and a String for
+     * anything else. Returns NOT_LITERAL for function calls, expressions and malformed JSON.
+     */
+    private static Object toLiteral(String value, int from, int to) {
+        int start = trimStart(value, from, to);
+        int end = trimEnd(value, start, to);
+        int length = end - start;
+
+        if (isNumber(value, start, end)) {
+            String number = value.substring(start, end);
+            if (indexOf(value, '.', start, end) < 0 && length < 19) {
+                return Long.parseLong(number);
+            }
+            return new BigDecimal(number);
+        }
+        if (length == 4 && value.regionMatches(true, start, "true", 0, 4)) {
+            return Boolean.TRUE;
+        }
+        if (length == 5 && value.regionMatches(true, start, "false", 0, 5)) {
+            return Boolean.FALSE;
+        }
+        if (length == 4 && value.regionMatches(true, start, "null", 0, 4)) {
+            return JsonNull.INSTANCE;
+        }
+        if (length > 0) {
+            char first = value.charAt(start);
+            char last = value.charAt(end - 1);
+            if ((first == '{' && last == '}') || (first == '[' && last == ']')) {
+                JsonElement json = parseJson(value.substring(start, end));
+                return json != null ? json : NOT_LITERAL;
+            }
+        }
+        if (indexOf(value, '(', start, end) >= 0 && indexOf(value, ')', start, end) >= 0) {
+            return NOT_LITERAL;
+        }
+        return value.substring(start, end);
+    }
+
+    /**
+     * Parses a strict JSON object or array, returning null if the text is not one. Lenient
+     * parsing would accept {@code [name]}, which N1QL reads as a field reference, not a string.
+     */
+    private static JsonElement parseJson(String text) {
+        JsonElement json = parseJsonValue(text);
+        return json != null && (json.isJsonObject() || json.isJsonArray()) ? json : null;
+    }
+
+    /**
+     * Parses a strict JSON value of any type, returning null if the text is not valid JSON.
+     */
+    private static JsonElement parseJsonValue(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            JsonReader reader = new JsonReader(new StringReader(text));
+            JsonElement json = JSON_ELEMENT.read(reader);
+            return reader.peek() == JsonToken.END_DOCUMENT ? json : null;
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a comma-separated list for IN clause, or a placeholder bound to the whole list.
+     */
+    private void appendInList(Appendable out, String field, String value) throws IOException {
+        if (bindings != null && value != null) {
+            Object list = toListLiteral(value);
+            if (list != NOT_LITERAL) {
+                appendParameter(out, field, list);
+                return;
+            }
+        }
+        appendInList(out, value);
+    }
+
+    private static void appendInList(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("[]");
+            return;
+        }
+
+        // If it's already an array, write as-is
+        int start = trimStart(value, 0, value.length());
+        int end = trimEnd(value, start, value.length());
+        if (end - start >= 2 && value.charAt(start) == '[' && value.charAt(end - 1) == ']') {
+            out.append(value, start, end);
+            return;
+        }
+
+        out.append('[');
+        int limit = listLimit(value);
+        int from = 0;
+        while (limit >= 0) {
+            int comma = indexOf(value, ',', from, limit);
+            int to = comma >= 0 ? comma : limit;
+            if (from > 0) {
+                out.append(", ");
+            }
+            appendValue(out, value, from, to);
+            if (comma < 0) {
+                break;
+            }
+            from = comma + 1;
+        }
+        out.append(']');
+    }
+
+    /**
+     * Converts an IN list to a JSON array, or returns NOT_LITERAL if an item is an expression.
+     */
+    private static Object toListLiteral(String value) {
+        int start = trimStart(value, 0, value.length());
+        int end = trimEnd(value, start, value.length());
+        if (end - start >= 2 && value.charAt(start) == '[' && value.charAt(end - 1) == ']') {
+            JsonElement json = parseJson(value.substring(start, end));
+            return json != null ? json : NOT_LITERAL;
+        }
+
+        JsonArray items = new JsonArray();
+        int limit = listLimit(value);
+        int from = 0;
+        while (limit >= 0) {
+            int comma = indexOf(value, ',', from, limit);
+            int to = comma >= 0 ? comma : limit;
+            Object item = toLiteral(value, from, to);
+            if (item == NOT_LITERAL) {
+                return NOT_LITERAL;
+            }
+            items.add(toJson(item));
+            if (comma < 0) {
+                break;
+            }
+            from = comma + 1;
+        }
+        return items;
+    }
+
+    /**
+     * Returns where comma-separated list items end, or -1 if there are none. Like String.split,
+     * a trailing run of empty items is dropped.
+     */
+    private static int listLimit(String value) {
+        if (value.indexOf(',') < 0) {
+            return value.length();
+        }
+        int limit = value.length();
+        while (limit > 0 && value.charAt(limit - 1) == ',') {
+            limit--;
+        }
+        return limit > 0 ? limit : -1;
+    }
+
+    private static JsonElement toJson(Object literal) {
+        if (literal instanceof JsonElement json) {
+            return json;
+        }
+        if (literal instanceof Boolean bool) {
+            return new JsonPrimitive(bool);
+        }
+        if (literal instanceof Number number) {
+            return new JsonPrimitive(number);
+        }
+        return new JsonPrimitive((String) literal);
+    }
+
+    /**
+     * Writes a value that is always a string (LIKE patterns, CONTAINS), or a placeholder.
+     */
+    private void appendString(Appendable out, String field, String value) throws IOException {
+        if (bindings != null) {
+            appendParameter(out, field, value != null ? value : "");
+        } else {
+            appendQuoted(out, value);
+        }
+    }
+
+    /**
+     * Writes the next placeholder and binds {@code value} to it. Named placeholders are derived
+     * from the field name and made unique with a numeric suffix.
+     */
+    private void appendParameter(Appendable out, String field, Object value) throws IOException {
+        String name;
+        if (parameterStyle == ParameterStyle.POSITIONAL) {
+            name = "$" + (bindings.size() + 1);
+        } else {
+            String base = "$" + parameterName(field);
+            name = base;
+            for (int suffix = 2; bindings.containsKey(name); suffix++) {
+                name = base + "_" + suffix;
+            }
+        }
+        bindings.put(name, value);
+        out.append(name);
+    }
+
+    /**
+     * Turns a field path such as {@code `address`.city} into an identifier ({@code address_city}).
+     */
+    private static String parameterName(String field) {
+        StringBuilder name = new StringBuilder();
+        if (field != null) {
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (isLetter(c) || isDigit(c) || c == '_') {
+                    name.append(c);
+                } else if (c != '`' && name.length() > 0 && name.charAt(name.length() - 1) != '_') {
+                    name.append('_');
+                }
+            }
+        }
+        while (name.length() > 0 && name.charAt(name.length() - 1) == '_') {
+            name.setLength(name.length() - 1);
+        }
+        if (name.length() == 0) {
+            return "value";
+        }
+        if (isDigit(name.charAt(0))) {
+            name.insert(0, 'p');
+        }
+        return name.toString();
+    }
+
+    /**
+     * Writes a double-quoted N1QL string literal; null is written as an empty string.
+     */
+    static void appendQuoted(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("\"\"");
+            return;
+        }
+        appendQuoted(out, value, 0, value.length());
+    }
+
+    /**
+     * Writes the given range as a double-quoted string literal, escaping special characters.
+     */
+    private static void appendQuoted(Appendable out, String value, int start, int end) throws IOException {
+        out.append('"');
+        int run = start;
+        for (int i = start; i < end; i++) {
+            String escape = switch (value.charAt(i)) {
+                case '\\' -> "\\\\";
+                case '"' -> "\\\"";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> null;
+            };
+            if (escape != null) {
+                out.append(value, run, i).append(escape);
+                run = i + 1;
+            }
+        }
+        out.append(value, run, end).append('"');
+    }
+
+    private static int trimStart(String s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String s, int start, int end) {
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int indexOf(String s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || trimStart(s, 0, s.length()) == s.length();
+    }
+}
@@ -0,0 +1,25 @@
+package n1ql.query.generator.builder;
+
+/**
+ * How literal values are written into generated statements.
+ */
+public enum ParameterStyle {
+    INLINE("Inline literals"),
+    POSITIONAL("Positional ($1, $2, ...)"),
+    NAMED("Named ($field)");
+
+    private final String displayName;
+
+    ParameterStyle(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
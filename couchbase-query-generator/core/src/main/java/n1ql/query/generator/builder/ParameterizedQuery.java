@@ -0,0 +1,92 @@
+package n1ql.query.generator.builder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A statement with {@code $1} / {@code $name} placeholders and the values bound to them.
+ * <p>
+ * The statement text only depends on the shape of the query, not on the literal values, so the
+ * query service can prepare and cache it once and re-execute it with different parameters.
+ */
+public final class ParameterizedQuery {
+
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().setPrettyPrinting().create();
+
+    private final String statement;
+    private final ParameterStyle style;
+    private final Map<String, Object> parameters;
+
+    public ParameterizedQuery(String statement, ParameterStyle style, Map<String, Object> parameters) {
+        this.statement = statement;
+        this.style = style;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public ParameterStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Returns the bound values keyed by placeholder ({@code $1} or {@code $name}), in the order
+     * the placeholders appear in the statement.
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the bound values in placeholder order, as passed in the {@code args} request field.
+     */
+    public List<Object> getArgs() {
+        return new ArrayList<>(parameters.values());
+    }
+
+    /**
+     * Formats the parameters as the query service REST API expects them: an {@code args} array
+     * for positional placeholders, or one {@code $name} field per named placeholder.
+     */
+    public String formatParameters() {
+        JsonObject json = new JsonObject();
+        addParameters(json);
+        return GSON.toJson(json);
+    }
+
+    /**
+     * Returns a complete query service request body with the statement and its parameters.
+     */
+    public String toRequestJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("statement", statement);
+        addParameters(json);
+        return GSON.toJson(json);
+    }
+
+    private void addParameters(JsonObject json) {
+        if (style == ParameterStyle.POSITIONAL) {
+            json.add("args", GSON.toJsonTree(getArgs()));
+        } else {
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                JsonElement value = GSON.toJsonTree(parameter.getValue());
+                json.add(parameter.getKey(), value);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return statement;
+    }
+}
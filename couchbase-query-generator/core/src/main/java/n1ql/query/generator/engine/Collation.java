@@ -0,0 +1,121 @@
+package n1ql.query.generator.engine;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * N1QL value ordering: MISSING &lt; NULL &lt; false &lt; true &lt; numbers &lt; strings &lt; arrays &lt;
+ * objects. A Java null stands for MISSING.
+ */
+final class Collation {
+
+    private Collation() {
+    }
+
+    static int compare(JsonElement a, JsonElement b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        return switch (rankA) {
+            case 2 -> Boolean.compare(a.getAsBoolean(), b.getAsBoolean());
+            case 3 -> compareNumbers(a.getAsJsonPrimitive(), b.getAsJsonPrimitive());
+            case 4 -> a.getAsString().compareTo(b.getAsString());
+            case 5 -> compareArrays(a.getAsJsonArray(), b.getAsJsonArray());
+            case 6 -> compareObjects(a.getAsJsonObject(), b.getAsJsonObject());
+            default -> 0;
+        };
+    }
+
+    /**
+     * Returns true if neither value is MISSING or NULL, i.e. a comparison between them is not
+     * itself MISSING or NULL.
+     */
+    static boolean comparable(JsonElement a, JsonElement b) {
+        return isValue(a) && isValue(b);
+    }
+
+    static boolean isValue(JsonElement value) {
+        return value != null && !value.isJsonNull();
+    }
+
+    static boolean isNumber(JsonElement value) {
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber();
+    }
+
+    static boolean isString(JsonElement value) {
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString();
+    }
+
+    private static int rank(JsonElement value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value.isJsonNull()) {
+            return 1;
+        }
+        if (value.isJsonArray()) {
+            return 5;
+        }
+        if (value.isJsonObject()) {
+            return 6;
+        }
+        JsonPrimitive primitive = value.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return 2;
+        }
+        return primitive.isNumber() ? 3 : 4;
+    }
+
+    private static int compareNumbers(JsonPrimitive a, JsonPrimitive b) {
+        double x = a.getAsDouble();
+        double y = b.getAsDouble();
+        // Doubles lose precision beyond 2^53; fall back to exact comparison for ties
+        return x != y ? Double.compare(x, y) : a.getAsBigDecimal().compareTo(b.getAsBigDecimal());
+    }
+
+    private static int compareArrays(JsonArray a, JsonArray b) {
+        int n = Math.min(a.size(), b.size());
+        for (int i = 0; i < n; i++) {
+            int c = compare(a.get(i), b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /**
+     * Objects compare by size, then by their sorted member names, then by the values in that
+     * member order.
+     */
+    private static int compareObjects(JsonObject a, JsonObject b) {
+        if (a.size() != b.size()) {
+            return Integer.compare(a.size(), b.size());
+        }
+        List<String> namesA = new ArrayList<>(a.keySet());
+        List<String> namesB = new ArrayList<>(b.keySet());
+        Collections.sort(namesA);
+        Collections.sort(namesB);
+        for (int i = 0; i < namesA.size(); i++) {
+            int c = namesA.get(i).compareTo(namesB.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        for (String name : namesA) {
+            int c = compare(a.get(name), b.get(name));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,110 @@
+package n1ql.query.generator.engine;
+
+import n1ql.query.generator.services.JsonSchemaParser;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sample documents held in memory for {@link LocalQueryEngine}.
+ * <p>
+ * Documents are kept whole for projection; every field a query filters, groups or sorts on is
+ * additionally extracted once into a column, an array holding that field's value for each row,
+ * so predicates scan a flat array instead of walking each document's tree. Columns are built on
+ * first use and reused by later queries over the same store.
+ */
+public final class ColumnStore {
+
+    private final JsonObject[] documents;
+    private final String[] ids;
+    private final Map<String, JsonElement[]> columns = new ConcurrentHashMap<>();
+
+    private ColumnStore(JsonObject[] documents, String[] ids) {
+        this.documents = documents;
+        this.ids = ids;
+    }
+
+    /**
+     * Creates a store over the given documents.
+     * @param keyField Field holding each document's key, used for {@code META().id}; null or a
+     *                 document without it falls back to the row number
+     */
+    public static ColumnStore of(List<JsonObject> documents, String keyField) {
+        FieldPath key = keyField != null && !keyField.isBlank() ? FieldPath.parse(keyField) : null;
+        JsonObject[] rows = documents.toArray(new JsonObject[0]);
+        String[] ids = new String[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            JsonElement value = key != null ? key.get(rows[i]) : null;
+            ids[i] = value != null && value.isJsonPrimitive() ? value.getAsString() : Integer.toString(i + 1);
+        }
+        return new ColumnStore(rows, ids);
+    }
+
+    /**
+     * Loads a JSON array of documents or NDJSON. Values that are not objects are skipped.
+     * @param listener Progress callback, may be null
+     * @throws java.io.InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If reading fails or the file is not valid JSON
+     */
+    public static ColumnStore load(Path file, String keyField, JsonSchemaParser.ProgressListener listener)
+            throws IOException {
+        List<JsonObject> documents = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            JsonSchemaParser.forEachDocument(in, Files.size(file), listener, document -> {
+                if (document.isJsonObject()) {
+                    documents.add(document.getAsJsonObject());
+                }
+            });
+        }
+        return of(documents, keyField);
+    }
+
+    /**
+     * Returns the number of documents.
+     */
+    public int size() {
+        return documents.length;
+    }
+
+    /**
+     * Returns the key of a row's document.
+     */
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public JsonObject getDocument(int row) {
+        return documents[row];
+    }
+
+    /**
+     * Returns the values of a field for every row; null entries are MISSING. The array is
+     * shared and must not be modified.
+     */
+    JsonElement[] column(FieldPath field) {
+        return columns.computeIfAbsent(field.text(), text -> {
+            JsonElement[] values = new JsonElement[documents.length];
+            for (int i = 0; i < documents.length; i++) {
+                values[i] = field.isDocumentKey() ? new JsonPrimitive(ids[i]) : field.get(documents[i]);
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Returns the number of columns extracted so far.
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+}
@@ -0,0 +1,32 @@
+package n1ql.query.generator.engine;
+
+import com.google.gson.JsonObject;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of running a query on sample data.
+ * @param rows Result rows; empty for UPDATE and DELETE, which only report what they would change
+ * @param rowsScanned Documents examined
+ * @param rowsMatched Documents passing the WHERE clause (and keyset cursor)
+ * @param rowsReturned Rows after grouping, HAVING, DISTINCT, OFFSET and LIMIT
+ * @param elapsedNanos Wall-clock time spent, including building columns on first use
+ */
+public record ExecutionResult(List<JsonObject> rows, long rowsScanned, long rowsMatched, long rowsReturned,
+                              long elapsedNanos) {
+
+    /**
+     * Returns the fraction of scanned documents that matched.
+     */
+    public double selectivity() {
+        return rowsScanned == 0 ? 0 : (double) rowsMatched / rowsScanned;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows scanned, %,d matched (%.1f%%), %,d returned in %,.1f ms",
+            rowsScanned, rowsMatched, selectivity() * 100, rowsReturned,
+            elapsedNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
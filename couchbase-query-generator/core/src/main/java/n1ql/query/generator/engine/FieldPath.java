@@ -0,0 +1,150 @@
+package n1ql.query.generator.engine;
+
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A field reference as the builder writes it: dotted names, backtick-quoted names and array
+ * subscripts such as {@code `order`.items[0].sku}, or {@code META().id}.
+ */
+final class FieldPath {
+
+    private final String text;
+    // String member names and Integer subscripts; empty for META().id
+    private final Object[] steps;
+    private final boolean documentKey;
+
+    private FieldPath(String text, Object[] steps, boolean documentKey) {
+        this.text = text;
+        this.steps = steps;
+        this.documentKey = documentKey;
+    }
+
+    /**
+     * Parses a field as entered in the model, after the builder's own formatting.
+     * @throws UnsupportedOperationException If the field is a function call or expression
+     */
+    static FieldPath parse(String field) {
+        String text = N1QLQueryBuilder.formatFieldName(field);
+        if (text.replace(" ", "").toUpperCase(Locale.ROOT).equals("META().ID")) {
+            return new FieldPath(text, new Object[0], true);
+        }
+
+        List<Object> steps = new ArrayList<>();
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '`') {
+                int close = text.indexOf('`', i + 1);
+                if (close < 0) {
+                    throw unsupported(field);
+                }
+                steps.add(text.substring(i + 1, close));
+                i = close + 1;
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+                        || text.charAt(i) == '$')) {
+                    i++;
+                }
+                steps.add(text.substring(start, i));
+            } else {
+                throw unsupported(field);
+            }
+
+            // Subscripts, then a dot before the next member
+            while (i < n && text.charAt(i) == '[') {
+                int close = text.indexOf(']', i);
+                if (close < 0) {
+                    throw unsupported(field);
+                }
+                try {
+                    steps.add(Integer.parseInt(text.substring(i + 1, close).trim()));
+                } catch (NumberFormatException e) {
+                    throw unsupported(field);
+                }
+                i = close + 1;
+            }
+            if (i < n) {
+                if (text.charAt(i) != '.' || i + 1 == n) {
+                    throw unsupported(field);
+                }
+                i++;
+            }
+        }
+        if (steps.isEmpty()) {
+            throw unsupported(field);
+        }
+        return new FieldPath(text, steps.toArray(), false);
+    }
+
+    private static UnsupportedOperationException unsupported(String field) {
+        return new UnsupportedOperationException("Only field paths can be evaluated locally, not: " + field);
+    }
+
+    /**
+     * Returns the field as the builder writes it, which identifies its column.
+     */
+    String text() {
+        return text;
+    }
+
+    boolean isDocumentKey() {
+        return documentKey;
+    }
+
+    /**
+     * Returns the name N1QL gives the field in a result row: its last member name, or null for
+     * a trailing subscript, which gets a positional {@code $n} name.
+     */
+    String resultName() {
+        if (documentKey) {
+            return "id";
+        }
+        Object last = steps[steps.length - 1];
+        return last instanceof String name ? name : null;
+    }
+
+    /**
+     * Returns the value at this path, or null if it is MISSING.
+     */
+    JsonElement get(JsonObject document) {
+        JsonElement current = document;
+        for (Object step : steps) {
+            if (step instanceof String name) {
+                if (!current.isJsonObject()) {
+                    return null;
+                }
+                current = current.getAsJsonObject().get(name);
+            } else {
+                if (!current.isJsonArray()) {
+                    return null;
+                }
+                JsonArray array = current.getAsJsonArray();
+                int index = (Integer) step;
+                // Negative subscripts count from the end, as in N1QL
+                if (index < 0) {
+                    index += array.size();
+                }
+                current = index >= 0 && index < array.size() ? array.get(index) : null;
+            }
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
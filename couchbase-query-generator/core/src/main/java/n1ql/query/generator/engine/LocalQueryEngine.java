@@ -0,0 +1,725 @@
+package n1ql.query.generator.engine;
+
+import n1ql.query.generator.advisor.IndexAdvisor;
+import n1ql.query.generator.builder.KeysetPagination;
+import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.model.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a {@link QueryModel} against sample documents in memory, to check what a query returns
+ * before it reaches a cluster.
+ * <p>
+ * The model is evaluated directly, with the semantics of the statement the builder generates
+ * from it: every {@link WhereOperator}, AND/OR precedence, N1QL collation and MISSING/NULL
+ * handling, GROUP BY with every {@link AggregateFunction}, HAVING, ORDER BY, DISTINCT,
+ * LIMIT/OFFSET and keyset cursors. WHERE is evaluated a column at a time: each condition scans
+ * its field's column only for the rows still passing its AND group. Function calls, expressions
+ * and subqueries are not evaluated and raise {@link UnsupportedOperationException}.
+ */
+public final class LocalQueryEngine {
+
+    private static final Pattern AGGREGATE_CALL =
+        Pattern.compile("(?i)(COUNT|SUM|AVG|MIN|MAX|ARRAY_AGG)\\s*\\(\\s*(DISTINCT\\s+)?(.*?)\\s*\\)");
+
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+
+    private LocalQueryEngine() {
+    }
+
+    /**
+     * Runs the query. UPDATE and DELETE only report how many documents they would change.
+     * @throws UnsupportedOperationException If the model uses something that can only be
+     *                                       evaluated by a server, or is an INSERT or UPSERT
+     */
+    public static ExecutionResult execute(QueryModel model, ColumnStore store) {
+        long start = System.nanoTime();
+        QueryOperation operation = model.getOperation();
+        if (operation == QueryOperation.INSERT || operation == QueryOperation.UPSERT) {
+            throw new UnsupportedOperationException(operation + " only writes documents; there is nothing to read");
+        }
+
+        boolean select = operation == QueryOperation.SELECT;
+        boolean aggregating = select && model.hasAggregation() && !model.getAggregations().isEmpty();
+        boolean keyset = select && model.isKeysetPagination() && !aggregating;
+
+        BitSet matched = filter(model.getWhereConditions(), store);
+        if (keyset && hasKeysetCursor(model)) {
+            applyKeysetCursor(model, store, matched);
+        }
+        int matchedCount = matched.cardinality();
+
+        List<JsonObject> rows;
+        if (!select) {
+            rows = List.of();
+        } else if (aggregating) {
+            rows = aggregate(model, store, matched);
+        } else {
+            rows = select(model, store, matched, keyset);
+        }
+        return new ExecutionResult(rows, store.size(), matchedCount, rows.size(), System.nanoTime() - start);
+    }
+
+
+    /**
+     * Returns the rows matching the conditions. Each AND group narrows its own candidate set,
+     * skipping rows an earlier group already matched; the groups' results are OR-ed.
+     */
+    private static BitSet filter(List<WhereCondition> conditions, ColumnStore store) {
+        int size = store.size();
+        BitSet matched = new BitSet(size);
+        for (List<WhereCondition> branch : IndexAdvisor.splitOrBranches(conditions)) {
+            // Compile the whole group first so unsupported conditions fail before any scan
+            List<JsonElement[]> columns = new ArrayList<>();
+            List<Predicate<JsonElement>> predicates = new ArrayList<>();
+            for (WhereCondition condition : branch) {
+                columns.add(store.column(FieldPath.parse(condition.getField())));
+                predicates.add(compile(condition));
+            }
+
+            BitSet rows = new BitSet(size);
+            rows.set(0, size);
+            rows.andNot(matched);
+            for (int c = 0; c < predicates.size() && !rows.isEmpty(); c++) {
+                JsonElement[] column = columns.get(c);
+                Predicate<JsonElement> predicate = predicates.get(c);
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    if (!predicate.test(column[row])) {
+                        rows.clear(row);
+                    }
+                }
+            }
+            matched.or(rows);
+        }
+        return matched;
+    }
+
+    /**
+     * Compiles a condition into a test on the field's value (null for MISSING). A comparison
+     * with MISSING or NULL is never true, as in N1QL.
+     */
+    private static Predicate<JsonElement> compile(WhereCondition condition) {
+        if (condition.isSubquery()) {
+            throw new UnsupportedOperationException("Subqueries can't be evaluated locally: " + condition.getSubquery());
+        }
+        WhereOperator operator = condition.getOperator();
+        String value = condition.getValue();
+        return switch (operator) {
+            case EQUALS -> compare(value, c -> c == 0);
+            case NOT_EQUALS -> compare(value, c -> c != 0);
+            case GREATER_THAN -> compare(value, c -> c > 0);
+            case LESS_THAN -> compare(value, c -> c < 0);
+            case GREATER_THAN_OR_EQUALS -> compare(value, c -> c >= 0);
+            case LESS_THAN_OR_EQUALS -> compare(value, c -> c <= 0);
+            case BETWEEN -> {
+                Predicate<JsonElement> low = compare(value, c -> c >= 0);
+                Predicate<JsonElement> high = compare(condition.getSecondValue(), c -> c <= 0);
+                yield v -> low.test(v) && high.test(v);
+            }
+            case LIKE, NOT_LIKE -> {
+                Pattern pattern = likePattern(value != null ? value : "");
+                boolean negate = operator == WhereOperator.NOT_LIKE;
+                yield v -> Collation.isString(v) && pattern.matcher(v.getAsString()).matches() != negate;
+            }
+            case IN, NOT_IN -> {
+                JsonElement list = N1QLQueryBuilder.toJsonList(value);
+                if (list == null || !list.isJsonArray()) {
+                    throw unsupported(value);
+                }
+                JsonArray items = list.getAsJsonArray();
+                boolean negate = operator == WhereOperator.NOT_IN;
+                yield v -> Collation.isValue(v) && contains(items, v) != negate;
+            }
+            case IS_NULL -> v -> v != null && v.isJsonNull();
+            case IS_NOT_NULL -> Collation::isValue;
+            case CONTAINS -> {
+                String text = value != null ? value : "";
+                yield v -> Collation.isString(v) && v.getAsString().contains(text);
+            }
+            case ARRAY_CONTAINS -> {
+                JsonElement element = literal(value);
+                yield v -> v != null && v.isJsonArray() && contains(v.getAsJsonArray(), element);
+            }
+        };
+    }
+
+    private interface ComparisonTest {
+        boolean test(int comparison);
+    }
+
+    private static Predicate<JsonElement> compare(String value, ComparisonTest test) {
+        JsonElement operand = literal(value);
+        return v -> Collation.comparable(v, operand) && test.test(Collation.compare(v, operand));
+    }
+
+    private static boolean contains(JsonArray items, JsonElement value) {
+        for (JsonElement item : items) {
+            if (Collation.comparable(item, value) && Collation.compare(item, value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates a LIKE pattern: {@code %} matches any run of characters, {@code _} any single
+     * character, and a backslash escapes the next character.
+     */
+    private static Pattern likePattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '\\' && i + 1 < like.length()) {
+                literal.append(like.charAt(++i));
+                continue;
+            }
+            if (c != '%' && c != '_') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            regex.append(c == '%' ? ".*" : ".");
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Returns the value a WHERE value denotes, as the builder would write it.
+     */
+    private static JsonElement literal(String value) {
+        JsonElement literal = N1QLQueryBuilder.toJsonValue(value);
+        if (literal == null) {
+            throw unsupported(value);
+        }
+        return literal;
+    }
+
+    private static UnsupportedOperationException unsupported(String expression) {
+        return new UnsupportedOperationException("Expressions can't be evaluated locally: " + expression);
+    }
+
+
+    private static boolean hasKeysetCursor(QueryModel model) {
+        String afterId = model.getKeysetAfterId();
+        return afterId != null && !afterId.isEmpty()
+            && model.getKeysetAfterValues().size() >= KeysetPagination.sortClauses(model).size();
+    }
+
+    /**
+     * Keeps only rows sorting after the cursor, like the seek predicate the builder writes. NULL
+     * and MISSING take part in the comparison, in collation order.
+     */
+    private static void applyKeysetCursor(QueryModel model, ColumnStore store, BitSet rows) {
+        List<OrderByClause> clauses = KeysetPagination.sortClauses(model);
+        JsonElement[][] columns = new JsonElement[clauses.size()][];
+        JsonElement[] after = new JsonElement[clauses.size()];
+        boolean[] ascending = new boolean[clauses.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = store.column(FieldPath.parse(clauses.get(i).getField()));
+            after[i] = cursorValue(model.getKeysetAfterValues().get(i));
+            ascending[i] = clauses.get(i).getSortOrder() != SortOrder.DESC;
+        }
+        String afterId = model.getKeysetAfterId();
+
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (!isAfter(columns, after, ascending, row, store.getId(row), afterId)) {
+                rows.clear(row);
+            }
+        }
+    }
+
+    private static boolean isAfter(JsonElement[][] columns, JsonElement[] after, boolean[] ascending,
+                                   int row, String id, String afterId) {
+        for (int i = 0; i < columns.length; i++) {
+            int c = Collation.compare(columns[i][row], after[i]);
+            if (c != 0) {
+                return ascending[i] ? c > 0 : c < 0;
+            }
+        }
+        return id.compareTo(afterId) > 0;
+    }
+
+    /**
+     * Parses a cursor value given as JSON, or as a WHERE-style value if it isn't valid JSON.
+     * A null value stands for MISSING.
+     */
+    private static JsonElement cursorValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            JsonReader reader = new JsonReader(new StringReader(value));
+            JsonElement json = JSON_ELEMENT.read(reader);
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return json;
+            }
+        } catch (IOException | JsonParseException e) {
+            // Not JSON; fall through
+        }
+        return literal(value);
+    }
+
+
+    private static List<JsonObject> select(QueryModel model, ColumnStore store, BitSet matched, boolean keyset) {
+        Integer[] order = new Integer[matched.cardinality()];
+        int n = 0;
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            order[n++] = row;
+        }
+
+        List<OrderByClause> clauses = KeysetPagination.sortClauses(model);
+        if (!clauses.isEmpty() || keyset) {
+            JsonElement[][] columns = new JsonElement[clauses.size()][];
+            boolean[] descending = new boolean[clauses.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = store.column(FieldPath.parse(clauses.get(i).getField()));
+                descending[i] = clauses.get(i).getSortOrder() == SortOrder.DESC;
+            }
+            Arrays.sort(order, (a, b) -> {
+                for (int i = 0; i < columns.length; i++) {
+                    int c = Collation.compare(columns[i][a], columns[i][b]);
+                    if (c != 0) {
+                        return descending[i] ? -c : c;
+                    }
+                }
+                // Keyset queries break ties on the document key
+                return keyset ? store.getId(a).compareTo(store.getId(b)) : 0;
+            });
+        }
+
+        Projection projection = Projection.of(model, keyset);
+        int offset = keyset || model.getOffset() == null ? 0 : Math.max(model.getOffset(), 0);
+        int limit = model.getLimit() != null && model.getLimit() > 0 ? model.getLimit() : Integer.MAX_VALUE;
+
+        List<JsonObject> rows = new ArrayList<>();
+        if (!model.isDistinct()) {
+            // Only rows that are returned get projected
+            for (int i = offset; i < order.length && rows.size() < limit; i++) {
+                rows.add(projection.apply(store, order[i]));
+            }
+            return rows;
+        }
+        Set<JsonObject> distinct = new LinkedHashSet<>();
+        for (int i = 0; i < order.length && distinct.size() < (long) offset + limit; i++) {
+            distinct.add(projection.apply(store, order[i]));
+        }
+        return page(new ArrayList<>(distinct), offset, limit);
+    }
+
+    /**
+     * The SELECT list of a non-aggregating query.
+     */
+    private record Projection(List<FieldPath> fields, List<String> names, String keyspaceAlias, boolean keyset,
+                              List<FieldPath> sortFields) {
+
+        static Projection of(QueryModel model, boolean keyset) {
+            List<FieldPath> fields = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            if (!model.isSelectAll()) {
+                int unnamed = 0;
+                for (String field : model.getSelectFields()) {
+                    FieldPath path = FieldPath.parse(field);
+                    String name = path.resultName();
+                    fields.add(path);
+                    names.add(name != null ? name : "$" + ++unnamed);
+                }
+            }
+            String alias = model.getCollection() != null && !model.getCollection().isBlank() ? model.getCollection()
+                : model.getBucket() != null ? model.getBucket() : "bucket";
+            List<FieldPath> sortFields = new ArrayList<>();
+            if (keyset) {
+                for (OrderByClause clause : KeysetPagination.sortClauses(model)) {
+                    sortFields.add(FieldPath.parse(clause.getField()));
+                }
+            }
+            return new Projection(fields, names, alias, keyset, sortFields);
+        }
+
+        JsonObject apply(ColumnStore store, int row) {
+            JsonObject result = new JsonObject();
+            JsonObject document = store.getDocument(row);
+            if (fields.isEmpty()) {
+                // SELECT * nests each document under the keyspace name
+                result.add(keyspaceAlias, document.deepCopy());
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                FieldPath field = fields.get(i);
+                JsonElement value = field.isDocumentKey() ? new JsonPrimitive(store.getId(row)) : field.get(document);
+                if (value != null) {
+                    result.add(names.get(i), value.deepCopy());
+                }
+            }
+            if (keyset) {
+                result.addProperty(KeysetPagination.ID_ALIAS, store.getId(row));
+                for (int i = 0; i < sortFields.size(); i++) {
+                    // Like {"value": field} in N1QL: the member is left out if the field is MISSING
+                    JsonObject sortValue = new JsonObject();
+                    JsonElement value = sortFields.get(i).get(document);
+                    if (value != null) {
+                        sortValue.add(KeysetPagination.VALUE_MEMBER, value.deepCopy());
+                    }
+                    result.add(KeysetPagination.sortAlias(i), sortValue);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static <T> List<T> page(List<T> rows, int offset, int limit) {
+        if (offset >= rows.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(rows.subList(offset, (int) Math.min(rows.size(), (long) offset + limit)));
+    }
+
+
+    /**
+     * One aggregate to compute per group.
+     * @param field The argument, or null for {@code COUNT(*)}
+     * @param call The call in canonical form, for matching HAVING and ORDER BY references
+     * @param name The result name, or null for aggregates only HAVING or ORDER BY refer to
+     */
+    private record AggregateSpec(AggregateFunction function, FieldPath field, String call, String name) {
+    }
+
+    /**
+     * The grouping keys and aggregates of a query, and how HAVING and ORDER BY refer to them:
+     * a reference resolves to a slot, a GROUP BY field index or {@code groupFields.size()} plus
+     * an aggregate index.
+     */
+    private static final class GroupPlan {
+        final List<FieldPath> groupFields = new ArrayList<>();
+        final List<AggregateSpec> aggregates = new ArrayList<>();
+        final Map<String, Integer> aliases = new HashMap<>();
+        final int projected;
+
+        GroupPlan(QueryModel model) {
+            for (String field : model.getGroupByFields()) {
+                if (field != null && !field.isBlank()) {
+                    groupFields.add(FieldPath.parse(field));
+                }
+            }
+            for (AggregationClause aggregation : model.getAggregations()) {
+                if (!aggregation.isValid()) {
+                    continue;
+                }
+                String alias = aggregation.getAlias() != null && !aggregation.getAlias().isBlank()
+                    ? aggregation.getAlias().trim() : null;
+                aggregates.add(spec(aggregation.getFunction(), aggregation.getField(), alias));
+                if (alias != null) {
+                    aliases.put(alias, aggregates.size() - 1);
+                }
+            }
+            projected = aggregates.size();
+        }
+
+        private static AggregateSpec spec(AggregateFunction function, String field, String name) {
+            boolean star = field == null || field.isBlank() || field.trim().equals("*");
+            if (star && function != AggregateFunction.COUNT) {
+                throw new UnsupportedOperationException(function.getSql() + " needs a field");
+            }
+            FieldPath path = star ? null : FieldPath.parse(field);
+            return new AggregateSpec(function, path, canonicalCall(function, path), name);
+        }
+
+        private static String canonicalCall(AggregateFunction function, FieldPath field) {
+            return function.name() + "(" + (field != null ? field.text().replace("`", "") : "*") + ")";
+        }
+
+        int resolve(String reference) {
+            String trimmed = reference.trim();
+            Integer alias = aliases.get(trimmed);
+            if (alias != null) {
+                return groupFields.size() + alias;
+            }
+
+            Matcher call = AGGREGATE_CALL.matcher(trimmed);
+            if (call.matches()) {
+                AggregateFunction function = function(call.group(1), call.group(2) != null);
+                AggregateSpec spec = spec(function, call.group(3), null);
+                for (int i = 0; i < aggregates.size(); i++) {
+                    if (aggregates.get(i).call().equals(spec.call())) {
+                        return groupFields.size() + i;
+                    }
+                }
+                // Computed for HAVING or ORDER BY only, not projected
+                aggregates.add(spec);
+                return groupFields.size() + aggregates.size() - 1;
+            }
+
+            String text = FieldPath.parse(trimmed).text();
+            for (int i = 0; i < groupFields.size(); i++) {
+                if (groupFields.get(i).text().equals(text)) {
+                    return i;
+                }
+            }
+            throw new UnsupportedOperationException(
+                reference + " is neither a GROUP BY field nor an aggregate of the query");
+        }
+
+        private static AggregateFunction function(String name, boolean distinct) {
+            AggregateFunction function = AggregateFunction.valueOf(name.toUpperCase(Locale.ROOT));
+            if (!distinct) {
+                return function;
+            }
+            return switch (function) {
+                case COUNT -> AggregateFunction.COUNT_DISTINCT;
+                case ARRAY_AGG -> AggregateFunction.ARRAY_AGG_DISTINCT;
+                default -> throw new UnsupportedOperationException(name + "(DISTINCT ...) is not supported locally");
+            };
+        }
+    }
+
+    /**
+     * Groups the matched rows, then applies HAVING, ORDER BY, DISTINCT, OFFSET and LIMIT to the
+     * groups. Each group is an array of slots: its key values followed by its aggregate results.
+     */
+    private static List<JsonObject> aggregate(QueryModel model, ColumnStore store, BitSet matched) {
+        GroupPlan plan = new GroupPlan(model);
+
+        // Resolve references before grouping, as they may add aggregates
+        List<List<WhereCondition>> having = IndexAdvisor.splitOrBranches(model.getHavingConditions());
+        List<List<Integer>> havingSlots = new ArrayList<>();
+        List<List<Predicate<JsonElement>>> havingTests = new ArrayList<>();
+        for (List<WhereCondition> branch : having) {
+            List<Integer> slots = new ArrayList<>();
+            List<Predicate<JsonElement>> tests = new ArrayList<>();
+            for (WhereCondition condition : branch) {
+                slots.add(plan.resolve(condition.getField()));
+                tests.add(compile(condition));
+            }
+            havingSlots.add(slots);
+            havingTests.add(tests);
+        }
+        List<OrderByClause> clauses = KeysetPagination.sortClauses(model);
+        int[] orderSlots = new int[clauses.size()];
+        for (int i = 0; i < orderSlots.length; i++) {
+            orderSlots[i] = plan.resolve(clauses.get(i).getField());
+        }
+
+        int keyCount = plan.groupFields.size();
+        JsonElement[][] keyColumns = new JsonElement[keyCount][];
+        for (int i = 0; i < keyCount; i++) {
+            keyColumns[i] = store.column(plan.groupFields.get(i));
+        }
+        JsonElement[][] argumentColumns = new JsonElement[plan.aggregates.size()][];
+        for (int i = 0; i < argumentColumns.length; i++) {
+            FieldPath field = plan.aggregates.get(i).field();
+            argumentColumns[i] = field != null ? store.column(field) : null;
+        }
+
+        Map<List<JsonElement>, Accumulator[]> groups = new LinkedHashMap<>();
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            JsonElement[] key = new JsonElement[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                key[i] = keyColumns[i][row];
+            }
+            Accumulator[] accumulators = groups.computeIfAbsent(Arrays.asList(key), k -> accumulators(plan));
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].add(argumentColumns[i] != null ? argumentColumns[i][row] : JsonNull.INSTANCE);
+            }
+        }
+        // Aggregates without GROUP BY yield one row even when nothing matched
+        if (keyCount == 0 && groups.isEmpty()) {
+            groups.put(List.of(), accumulators(plan));
+        }
+
+        List<JsonElement[]> results = new ArrayList<>();
+        for (Map.Entry<List<JsonElement>, Accumulator[]> group : groups.entrySet()) {
+            Accumulator[] accumulators = group.getValue();
+            JsonElement[] slots = new JsonElement[keyCount + accumulators.length];
+            for (int i = 0; i < keyCount; i++) {
+                slots[i] = group.getKey().get(i);
+            }
+            for (int i = 0; i < accumulators.length; i++) {
+                slots[keyCount + i] = accumulators[i].result();
+            }
+            if (model.getHavingConditions().isEmpty() || passes(slots, havingSlots, havingTests)) {
+                results.add(slots);
+            }
+        }
+
+        if (orderSlots.length > 0) {
+            results.sort((a, b) -> {
+                for (int i = 0; i < orderSlots.length; i++) {
+                    int c = Collation.compare(a[orderSlots[i]], b[orderSlots[i]]);
+                    if (c != 0) {
+                        return clauses.get(i).getSortOrder() == SortOrder.DESC ? -c : c;
+                    }
+                }
+                return 0;
+            });
+        }
+
+        Collection<JsonObject> rows = model.isDistinct() ? new LinkedHashSet<>() : new ArrayList<>();
+        for (JsonElement[] slots : results) {
+            rows.add(project(plan, slots));
+        }
+        int offset = model.getOffset() != null ? Math.max(model.getOffset(), 0) : 0;
+        int limit = model.getLimit() != null && model.getLimit() > 0 ? model.getLimit() : Integer.MAX_VALUE;
+        return page(new ArrayList<>(rows), offset, limit);
+    }
+
+    private static Accumulator[] accumulators(GroupPlan plan) {
+        Accumulator[] accumulators = new Accumulator[plan.aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            AggregateSpec spec = plan.aggregates.get(i);
+            accumulators[i] = new Accumulator(spec.function(), spec.field() == null);
+        }
+        return accumulators;
+    }
+
+    private static boolean passes(JsonElement[] slots, List<List<Integer>> branchSlots,
+                                  List<List<Predicate<JsonElement>>> branchTests) {
+        for (int b = 0; b < branchSlots.size(); b++) {
+            List<Integer> slotIndexes = branchSlots.get(b);
+            List<Predicate<JsonElement>> tests = branchTests.get(b);
+            boolean all = true;
+            for (int i = 0; i < tests.size() && all; i++) {
+                all = tests.get(i).test(slots[slotIndexes.get(i)]);
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a result row: GROUP BY fields, then the projected aggregates, in SELECT order.
+     * Unnamed terms are called {@code $1}, {@code $2}, ... and MISSING values are omitted.
+     */
+    private static JsonObject project(GroupPlan plan, JsonElement[] slots) {
+        JsonObject row = new JsonObject();
+        int unnamed = 0;
+        for (int i = 0; i < plan.groupFields.size(); i++) {
+            String name = plan.groupFields.get(i).resultName();
+            if (name == null) {
+                name = "$" + ++unnamed;
+            }
+            if (slots[i] != null) {
+                row.add(name, slots[i].deepCopy());
+            }
+        }
+        // Aggregates added for HAVING or ORDER BY come after the projected ones
+        for (int i = 0; i < plan.projected; i++) {
+            AggregateSpec spec = plan.aggregates.get(i);
+            String name = spec.name() != null ? spec.name() : "$" + ++unnamed;
+            JsonElement value = slots[plan.groupFields.size() + i];
+            if (value != null) {
+                row.add(name, value.deepCopy());
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Running state of one aggregate over one group. MISSING and NULL arguments are ignored,
+     * except that {@code COUNT(*)} counts every row and ARRAY_AGG keeps NULLs.
+     */
+    private static final class Accumulator {
+        private final AggregateFunction function;
+        private final boolean star;
+        private long count;
+        private BigDecimal sum = BigDecimal.ZERO;
+        private JsonElement extreme;
+        private JsonArray values;
+        private Set<JsonElement> distinct;
+
+        Accumulator(AggregateFunction function, boolean star) {
+            this.function = function;
+            this.star = star;
+        }
+
+        void add(JsonElement value) {
+            switch (function) {
+                case COUNT -> {
+                    if (star || Collation.isValue(value)) {
+                        count++;
+                    }
+                }
+                case COUNT_DISTINCT -> {
+                    if (Collation.isValue(value)) {
+                        distinct().add(value);
+                    }
+                }
+                case SUM, AVG -> {
+                    if (Collation.isNumber(value)) {
+                        sum = sum.add(value.getAsBigDecimal());
+                        count++;
+                    }
+                }
+                case MIN, MAX -> {
+                    if (Collation.isValue(value)) {
+                        int c = extreme == null ? 0 : Collation.compare(value, extreme);
+                        if (extreme == null || (function == AggregateFunction.MIN ? c < 0 : c > 0)) {
+                            extreme = value;
+                        }
+                    }
+                }
+                case ARRAY_AGG -> {
+                    if (value != null) {
+                        values().add(value);
+                    }
+                }
+                case ARRAY_AGG_DISTINCT -> {
+                    if (value != null && distinct().add(value)) {
+                        values().add(value);
+                    }
+                }
+            }
+        }
+
+        JsonElement result() {
+            return switch (function) {
+                case COUNT -> new JsonPrimitive(count);
+                case COUNT_DISTINCT -> new JsonPrimitive(distinct == null ? 0 : distinct.size());
+                case SUM -> count == 0 ? JsonNull.INSTANCE : new JsonPrimitive(sum);
+                case AVG -> count == 0 ? JsonNull.INSTANCE
+                    : new JsonPrimitive(sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64));
+                case MIN, MAX -> extreme != null ? extreme : JsonNull.INSTANCE;
+                case ARRAY_AGG, ARRAY_AGG_DISTINCT -> values != null ? values : JsonNull.INSTANCE;
+            };
+        }
+
+        private Set<JsonElement> distinct() {
+            if (distinct == null) {
+                distinct = new HashSet<>();
+            }
+            return distinct;
+        }
+
+        private JsonArray values() {
+            if (values == null) {
+                values = new JsonArray();
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package n1ql.query.generator.lexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single-pass tokenizer for N1QL text.
+ * Every character of the input belongs to exactly one token, so the token stream
+ * covers the text without gaps and each character is examined a constant number of times.
+ */
+public final class N1QLLexer {
+
+    private static final Set<String> KEYWORDS;
+    private static final Set<String> FUNCTIONS;
+    private static final int MAX_WORD_LENGTH;
+
+    static {
+        Set<String> keywords = new HashSet<>();
+        Collections.addAll(keywords,
+            // DML Keywords
+            "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "IN", "LIKE", "BETWEEN", "IS",
+            "NULL", "TRUE", "FALSE", "AS", "ORDER", "BY", "ASC", "DESC", "LIMIT", "OFFSET",
+            "GROUP", "HAVING", "DISTINCT", "ALL", "JOIN", "LEFT", "RIGHT", "INNER", "OUTER", "ON",
+            "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE", "UPSERT", "MERGE", "RETURNING",
+            "KEY", "VALUE", "USE", "KEYS", "NEST", "UNNEST", "LET", "LETTING", "WITH",
+            "UNION", "INTERSECT", "EXCEPT", "ANY", "EVERY", "SATISFIES", "END",
+            "WHEN", "THEN", "ELSE", "CASE", "EXISTS", "MISSING", "CONTAINS");
+        KEYWORDS = Collections.unmodifiableSet(keywords);
+
+        Set<String> functions = new HashSet<>();
+        Collections.addAll(functions,
+            // Aggregate Functions
+            "COUNT", "SUM", "AVG", "MIN", "MAX", "ARRAY_AGG", "ARRAY_LENGTH", "ARRAY_CONCAT",
+            "ARRAY_CONTAINS", "ARRAY_DISTINCT", "ARRAY_FLATTEN",
+            // String Functions
+            "LOWER", "UPPER", "TRIM", "LTRIM", "RTRIM", "LENGTH", "SUBSTR", "CONCAT", "REPLACE",
+            "SPLIT", "REGEXP_LIKE", "REGEXP_CONTAINS",
+            // Type Functions
+            "TYPE", "TOSTRING", "TONUMBER", "TOBOOLEAN", "TOARRAY", "TOOBJECT",
+            // Date Functions
+            "NOW_STR", "NOW_MILLIS", "DATE_ADD_STR", "DATE_DIFF_STR", "DATE_PART_STR",
+            "STR_TO_MILLIS", "MILLIS_TO_STR",
+            // Other Functions
+            "META", "UUID", "IFNULL", "IFMISSING", "IFMISSINGORNULL", "COALESCE", "NULLIF",
+            "OBJECT_LENGTH", "OBJECT_NAMES", "OBJECT_VALUES", "OBJECT_PAIRS");
+        FUNCTIONS = Collections.unmodifiableSet(functions);
+
+        int max = 0;
+        for (String word : keywords) {
+            max = Math.max(max, word.length());
+        }
+        for (String word : functions) {
+            max = Math.max(max, word.length());
+        }
+        MAX_WORD_LENGTH = max;
+    }
+
+    private final CharSequence text;
+    private final int end;
+    private int pos;
+
+    public N1QLLexer(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    /**
+     * Creates a lexer over the range [start, end) of the given text.
+     * Token offsets are always reported relative to the whole text.
+     */
+    public N1QLLexer(CharSequence text, int start, int end) {
+        this.text = text;
+        this.pos = start;
+        this.end = end;
+    }
+
+    /**
+     * Tokenizes the whole text.
+     */
+    public static List<N1QLToken> tokenize(CharSequence text) {
+        List<N1QLToken> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        N1QLLexer lexer = new N1QLLexer(text);
+        N1QLToken token;
+        while ((token = lexer.next()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    public static Set<String> getKeywords() {
+        return KEYWORDS;
+    }
+
+    public static Set<String> getFunctions() {
+        return FUNCTIONS;
+    }
+
+    /**
+     * Returns the next token, or null once the end of the range is reached.
+     */
+    public N1QLToken next() {
+        if (pos >= end) {
+            return null;
+        }
+
+        int start = pos;
+        char c = text.charAt(pos);
+        char next = peek(1);
+
+        if (Character.isWhitespace(c)) {
+            pos++;
+            while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return new N1QLToken(N1QLTokenType.WHITESPACE, start, pos);
+        }
+
+        // Single-line comments: -- or //
+        if ((c == '-' && next == '-') || (c == '/' && next == '/')) {
+            pos += 2;
+            while (pos < end && text.charAt(pos) != '\n') {
+                pos++;
+            }
+            return new N1QLToken(N1QLTokenType.LINE_COMMENT, start, pos);
+        }
+
+        // Multi-line comments: /* */ (unterminated comments run to the end)
+        if (c == '/' && next == '*') {
+            pos += 2;
+            while (pos < end && !(text.charAt(pos) == '*' && peek(1) == '/')) {
+                pos++;
+            }
+            pos = Math.min(end, pos + 2);
+            return new N1QLToken(N1QLTokenType.BLOCK_COMMENT, start, pos);
+        }
+
+        if (c == '"' || c == '\'') {
+            scanQuoted(c, true);
+            return new N1QLToken(N1QLTokenType.STRING, start, pos);
+        }
+
+        // Backtick-quoted identifiers (bucket/scope/collection names)
+        if (c == '`') {
+            scanQuoted(c, false);
+            return new N1QLToken(N1QLTokenType.QUOTED_IDENTIFIER, start, pos);
+        }
+
+        if (isDigit(c) || (c == '.' && isDigit(next))) {
+            scanNumber();
+            return new N1QLToken(N1QLTokenType.NUMBER, start, pos);
+        }
+
+        // Query parameters: positional $1 or named $name
+        if (c == '$' && isIdentifierPart(next)) {
+            pos++;
+            while (pos < end && isIdentifierPart(text.charAt(pos))) {
+                pos++;
+            }
+            return new N1QLToken(N1QLTokenType.PARAMETER, start, pos);
+        }
+
+        if (isIdentifierStart(c)) {
+            pos++;
+            while (pos < end && isIdentifierPart(text.charAt(pos))) {
+                pos++;
+            }
+            return new N1QLToken(classifyWord(start, pos), start, pos);
+        }
+
+        if (isOperatorChar(c)) {
+            pos++;
+            if ((c == '!' || c == '<' || c == '>' || c == '=') && next == '=') {
+                pos++;
+            } else if (c == '<' && next == '>') {
+                pos++;
+            } else if (c == '|' && next == '|') {
+                pos++;
+            }
+            return new N1QLToken(N1QLTokenType.OPERATOR, start, pos);
+        }
+
+        pos++;
+        return new N1QLToken(N1QLTokenType.PUNCTUATION, start, pos);
+    }
+
+    private char peek(int offset) {
+        int index = pos + offset;
+        return index < end ? text.charAt(index) : 0;
+    }
+
+    private void scanQuoted(char quote, boolean backslashEscapes) {
+        pos++;
+        while (pos < end) {
+            char c = text.charAt(pos);
+            if (backslashEscapes && c == '\\') {
+                pos = Math.min(end, pos + 2);
+                continue;
+            }
+            pos++;
+            if (c == quote) {
+                // A doubled quote is an escaped quote, not the end of the literal
+                if (pos < end && text.charAt(pos) == quote) {
+                    pos++;
+                    continue;
+                }
+                return;
+            }
+        }
+    }
+
+    private void scanNumber() {
+        while (pos < end && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < end && text.charAt(pos) == '.' && isDigit(peek(1))) {
+            pos++;
+            while (pos < end && isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (pos < end && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            int mark = pos;
+            pos++;
+            if (pos < end && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                pos++;
+            }
+            if (pos < end && isDigit(text.charAt(pos))) {
+                while (pos < end && isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            } else {
+                pos = mark;
+            }
+        }
+    }
+
+    private N1QLTokenType classifyWord(int start, int wordEnd) {
+        if (wordEnd - start > MAX_WORD_LENGTH) {
+            return N1QLTokenType.IDENTIFIER;
+        }
+
+        String word = text.subSequence(start, wordEnd).toString().toUpperCase(Locale.ROOT);
+        if (FUNCTIONS.contains(word) && isFollowedByParenthesis(wordEnd)) {
+            return N1QLTokenType.FUNCTION;
+        }
+        if (KEYWORDS.contains(word)) {
+            return N1QLTokenType.KEYWORD;
+        }
+        return N1QLTokenType.IDENTIFIER;
+    }
+
+    private boolean isFollowedByParenthesis(int from) {
+        // The skipped whitespace becomes the next token, so this look-ahead stays linear overall
+        int i = from;
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i < end && text.charAt(i) == '(';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c == '=' || c == '!' || c == '<' || c == '>' || c == '+' || c == '-'
+            || c == '*' || c == '/' || c == '%' || c == '|';
+    }
+}
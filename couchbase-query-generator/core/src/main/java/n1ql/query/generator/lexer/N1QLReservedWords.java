@@ -0,0 +1,171 @@
+package n1ql.query.generator.lexer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The complete table of N1QL reserved words, which must be escaped with backticks when used as
+ * identifiers.
+ * <p>
+ * Lookups are case-insensitive and run over a range of a {@link CharSequence}, so checking a field
+ * name neither copies nor case-folds it. The words are stored in a perfect hash table: a seed is
+ * chosen at class initialization so that no two words share a slot, and a lookup hashes the range
+ * once and compares against at most one candidate.
+ */
+public final class N1QLReservedWords {
+
+    private static final String[] WORDS = {
+        "ADVISE", "ALL", "ALTER", "ANALYZE", "AND", "ANY", "ARRAY", "AS", "ASC", "AT",
+        "BEGIN", "BETWEEN", "BINARY", "BOOLEAN", "BREAK", "BUCKET", "BUILD", "BY",
+        "CALL", "CASE", "CAST", "CLUSTER", "COLLATE", "COLLECTION", "COMMIT", "COMMITTED",
+        "CONNECT", "CONTINUE", "CORRELATED", "COVER", "CREATE", "CURRENT",
+        "DATABASE", "DATASET", "DATASTORE", "DECLARE", "DECREMENT", "DEFAULT", "DELETE",
+        "DERIVED", "DESC", "DESCRIBE", "DISTINCT", "DO", "DROP",
+        "EACH", "ELEMENT", "ELSE", "END", "EVERY", "EXCEPT", "EXCLUDE", "EXECUTE", "EXISTS",
+        "EXPLAIN",
+        "FALSE", "FETCH", "FILTER", "FIRST", "FLATTEN", "FLATTEN_KEYS", "FLUSH", "FOLLOWING",
+        "FOR", "FORCE", "FROM", "FTS", "FUNCTION",
+        "GOLANG", "GRANT", "GROUP", "GROUPS", "GSI",
+        "HASH", "HAVING",
+        "IF", "IGNORE", "ILIKE", "IN", "INCLUDE", "INCREMENT", "INDEX", "INFER", "INLINE",
+        "INNER", "INSERT", "INTERSECT", "INTO", "IS", "ISOLATION",
+        "JAVASCRIPT", "JOIN",
+        "KEY", "KEYS", "KEYSPACE", "KNOWN",
+        "LANGUAGE", "LAST", "LATERAL", "LEFT", "LET", "LETTING", "LEVEL", "LIKE", "LIMIT", "LSM",
+        "MAP", "MAPPING", "MATCHED", "MATERIALIZED", "MERGE", "MINUS", "MISSING",
+        "NAMESPACE", "NAMESPACE_ID", "NEST", "NL", "NO", "NOT", "NOT_A_TOKEN", "NTH_VALUE",
+        "NULL", "NULLS", "NUMBER",
+        "OBJECT", "OFFSET", "ON", "OPTION", "OPTIONS", "OR", "ORDER", "OTHERS", "OUTER", "OVER",
+        "PARSE", "PARTITION", "PASSWORD", "PATH", "POOL", "PRECEDING", "PREPARE", "PRIMARY",
+        "PRIVATE", "PRIVILEGE", "PROBE", "PROCEDURE", "PUBLIC",
+        "RANGE", "RAW", "REALM", "REDUCE", "RENAME", "RESPECT", "RETURN", "RETURNING", "REVOKE",
+        "RIGHT", "ROLE", "ROLLBACK", "ROW", "ROWS",
+        "SATISFIES", "SAVEPOINT", "SCHEMA", "SCOPE", "SELECT", "SELF", "SEMI", "SET", "SHOW",
+        "SOME", "START", "STATISTICS", "STRING", "SYSTEM",
+        "THEN", "TIES", "TO", "TRAN", "TRANSACTION", "TRIGGER", "TRUE", "TRUNCATE",
+        "UNBOUNDED", "UNDER", "UNION", "UNIQUE", "UNKNOWN", "UNNEST", "UNSET", "UPDATE", "UPSERT",
+        "USE", "USER", "USING",
+        "VALIDATE", "VALUE", "VALUED", "VALUES", "VIA", "VIEW",
+        "WHEN", "WHERE", "WHILE", "WINDOW", "WITH", "WITHIN", "WORK",
+        "XOR"
+    };
+
+    private static final Set<String> WORD_SET =
+        Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(WORDS)));
+
+    /** Returned by {@link #hash} for characters that cannot occur in a reserved word. */
+    private static final int NOT_ASCII_LETTER = -1;
+
+    private static final int MIN_LENGTH;
+    private static final int MAX_LENGTH;
+    private static final int SEED;
+    private static final int MASK;
+    private static final String[] TABLE;
+
+    static {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (String word : WORDS) {
+            min = Math.min(min, word.length());
+            max = Math.max(max, word.length());
+        }
+        MIN_LENGTH = min;
+        MAX_LENGTH = max;
+
+        // Search for a collision-free seed, growing the table if none turns up quickly
+        int size = Integer.highestOneBit(WORDS.length) * 4;
+        int seed;
+        while ((seed = findSeed(size)) == 0) {
+            size *= 2;
+        }
+        SEED = seed;
+        MASK = size - 1;
+        TABLE = new String[size];
+        for (String word : WORDS) {
+            TABLE[hash(word, 0, word.length(), seed) & MASK] = word;
+        }
+    }
+
+    private N1QLReservedWords() {
+    }
+
+    /**
+     * Returns all reserved words in upper case, sorted.
+     */
+    public static Set<String> getWords() {
+        return WORD_SET;
+    }
+
+    /**
+     * Returns true if the whole sequence is a reserved word, ignoring case.
+     */
+    public static boolean isReserved(CharSequence word) {
+        return isReserved(word, 0, word.length());
+    }
+
+    /**
+     * Returns true if {@code text[start, end)} is a reserved word, ignoring case.
+     */
+    public static boolean isReserved(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return false;
+        }
+        int hash = hash(text, start, end, SEED);
+        if (hash == NOT_ASCII_LETTER) {
+            return false;
+        }
+        String candidate = TABLE[hash & MASK];
+        if (candidate == null || candidate.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (upper(text.charAt(start + i)) != candidate.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first seed that places every word in its own slot, or 0 if none is found.
+     */
+    private static int findSeed(int size) {
+        boolean[] used = new boolean[size];
+        for (int seed = 1; seed < 10_000; seed++) {
+            Arrays.fill(used, false);
+            boolean collision = false;
+            for (String word : WORDS) {
+                int slot = hash(word, 0, word.length(), seed) & (size - 1);
+                if (used[slot]) {
+                    collision = true;
+                    break;
+                }
+                used[slot] = true;
+            }
+            if (!collision) {
+                return seed;
+            }
+        }
+        return 0;
+    }
+
+    private static int hash(CharSequence text, int start, int end, int seed) {
+        int h = seed * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            char c = upper(text.charAt(i));
+            if ((c < 'A' || c > 'Z') && c != '_') {
+                return NOT_ASCII_LETTER;
+            }
+            h = (h ^ c) * 0x01000193;
+        }
+        h ^= h >>> 15;
+        return (h * 0x2C1B3C6D) & 0x7FFFFFFF;
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
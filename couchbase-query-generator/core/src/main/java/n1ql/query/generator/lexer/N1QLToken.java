@@ -0,0 +1,44 @@
+package n1ql.query.generator.lexer;
+
+/**
+ * Represents a single token as a half-open range [start, end) of the lexed text.
+ */
+public final class N1QLToken {
+    private final N1QLTokenType type;
+    private final int start;
+    private final int end;
+
+    public N1QLToken(N1QLTokenType type, int start, int end) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+    }
+
+    public N1QLTokenType getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLength() {
+        return end - start;
+    }
+
+    /**
+     * Returns the token text from the source it was lexed from.
+     */
+    public String getText(CharSequence source) {
+        return source.subSequence(start, end).toString();
+    }
+
+    @Override
+    public String toString() {
+        return type + "[" + start + ", " + end + ")";
+    }
+}
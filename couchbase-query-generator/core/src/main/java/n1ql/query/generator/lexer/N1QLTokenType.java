@@ -0,0 +1,27 @@
+package n1ql.query.generator.lexer;
+
+/**
+ * Enum representing the token categories produced by {@link N1QLLexer}.
+ */
+public enum N1QLTokenType {
+    WHITESPACE,
+    LINE_COMMENT,
+    BLOCK_COMMENT,
+    STRING,
+    QUOTED_IDENTIFIER,
+    NUMBER,
+    PARAMETER,
+    KEYWORD,
+    FUNCTION,
+    IDENTIFIER,
+    OPERATOR,
+    PUNCTUATION;
+
+    public boolean isComment() {
+        return this == LINE_COMMENT || this == BLOCK_COMMENT;
+    }
+
+    public boolean isTrivia() {
+        return this == WHITESPACE || isComment();
+    }
+}
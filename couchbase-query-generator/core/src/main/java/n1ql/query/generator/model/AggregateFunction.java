@@ -1,5 +1,8 @@
 package n1ql.query.generator.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * Enum representing N1QL aggregate functions.
  */
@@ -38,18 +41,34 @@ public enum AggregateFunction {
      * Formats the function call with the given field.
      */
     public String format(String field) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendCall(sb, field);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the function call with the given field to {@code out}.
+     */
+    public void appendCall(Appendable out, String field) throws IOException {
         if (this == COUNT && (field == null || field.isEmpty() || field.equals("*"))) {
-            return "COUNT(*)";
+            out.append("COUNT(*)");
+            return;
         }
         
         if (this == COUNT_DISTINCT) {
-            return "COUNT(DISTINCT " + field + ")";
+            out.append("COUNT(DISTINCT ").append(field).append(')');
+            return;
         }
         
         if (this == ARRAY_AGG_DISTINCT) {
-            return "ARRAY_AGG(DISTINCT " + field + ")";
+            out.append("ARRAY_AGG(DISTINCT ").append(field).append(')');
+            return;
         }
         
-        return sql + "(" + (field != null && !field.isEmpty() ? field : "*") + ")";
+        out.append(sql).append('(').append(field != null && !field.isEmpty() ? field : "*").append(')');
     }
 }
@@ -1,5 +1,9 @@
 package n1ql.query.generator.model;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
 /**
  * Represents an aggregation clause (SELECT with aggregate function).
  */
@@ -23,6 +27,10 @@ public class AggregationClause {
         this.alias = alias;
     }
 
+    public AggregationClause(AggregationClause other) {
+        this(other.function, other.field, other.alias);
+    }
+
     public AggregateFunction getFunction() {
         return function;
     }
@@ -60,12 +68,44 @@ public class AggregationClause {
         }
 
         StringBuilder sb = new StringBuilder();
-        sb.append(function.format(field));
+        try {
+            appendSql(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the SQL representation of this aggregation to {@code out}; writes nothing if invalid.
+     */
+    public void appendSql(Appendable out) throws IOException {
+        if (!isValid()) {
+            return;
+        }
+
+        function.appendCall(out, field);
 
         if (alias != null && !alias.trim().isEmpty()) {
-            sb.append(" AS ").append(alias.trim());
+            out.append(" AS ").append(alias.trim());
         }
+    }
 
-        return sb.toString();
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AggregationClause other)) {
+            return false;
+        }
+        return function == other.function
+            && Objects.equals(field, other.field)
+            && Objects.equals(alias, other.alias);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(function, field, alias);
     }
 }
@@ -1,5 +1,7 @@
 package n1ql.query.generator.model;
 
+import java.util.Objects;
+
 /**
  * Represents an ORDER BY clause in a query.
  */
@@ -16,6 +18,10 @@ public class OrderByClause {
         this.sortOrder = sortOrder;
     }
 
+    public OrderByClause(OrderByClause other) {
+        this(other.field, other.sortOrder);
+    }
+
     public String getField() {
         return field;
     }
@@ -35,4 +41,20 @@ public class OrderByClause {
     public boolean isValid() {
         return field != null && !field.trim().isEmpty();
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OrderByClause other)) {
+            return false;
+        }
+        return sortOrder == other.sortOrder && Objects.equals(field, other.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, sortOrder);
+    }
 }
@@ -2,7 +2,10 @@ package n1ql.query.generator.model;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Represents an entry in the query history.
@@ -16,6 +19,10 @@ public class QueryHistoryEntry {
     private String bucket;
     private LocalDateTime timestamp;
     private boolean favorite;
+    private List<String> variants = new ArrayList<>();
+    // Expands the variants on first request; null once they are expanded
+    private Supplier<List<String>> variantLoader;
+    private int variantCount;
 
     public QueryHistoryEntry() {
         this.id = UUID.randomUUID().toString();
@@ -79,6 +86,39 @@ public class QueryHistoryEntry {
         this.favorite = favorite;
     }
 
+    /**
+     * Returns earlier runs of the same query shape with other literal values, most recent first.
+     */
+    public List<String> getVariants() {
+        if (variantLoader != null) {
+            variants = variantLoader.get();
+            variantLoader = null;
+        }
+        return variants;
+    }
+
+    public void setVariants(List<String> variants) {
+        this.variants = variants;
+        this.variantLoader = null;
+    }
+
+    /**
+     * Sets variants that are only expanded when {@link #getVariants()} is first called, such as
+     * for a tooltip, so listing entries doesn't build every variant's text.
+     * @param count The number of variants, shown before they are expanded
+     */
+    public void setVariants(int count, Supplier<List<String>> loader) {
+        this.variantCount = count;
+        this.variantLoader = loader;
+    }
+
+    /**
+     * Returns the number of variants without expanding them.
+     */
+    public int getVariantCount() {
+        return variantLoader != null ? variantCount : variants.size();
+    }
+
     public void toggleFavorite() {
         this.favorite = !this.favorite;
     }
@@ -103,9 +143,10 @@ public class QueryHistoryEntry {
 
     @Override
     public String toString() {
-        return String.format("[%s] %s - %s", 
+        return String.format("[%s] %s - %s%s", 
             operation != null ? operation.getKeyword() : "?",
             bucket != null ? bucket : "?",
-            getFormattedTimestamp());
+            getFormattedTimestamp(),
+            getVariantCount() == 0 ? "" : " (+" + getVariantCount() + (getVariantCount() == 1 ? " variant)" : " variants)"));
     }
 }
@@ -0,0 +1,524 @@
+package n1ql.query.generator.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Main model class representing a complete N1QL query configuration.
+ * <p>
+ * Every setter stamps the {@link Section} it changes, so {@link #snapshot()} can hand out
+ * immutable copies that share unchanged sections with the previous snapshot, and consumers can
+ * ask which sections differ between two snapshots. Lists passed to setters are owned by the
+ * model afterwards; changes made through the returned lists are not tracked.
+ */
+public class QueryModel {
+
+    /**
+     * Parts of the model that change together and map to one clause or group of clauses.
+     */
+    public enum Section {
+        OPERATION,
+        KEYSPACE,
+        /** SELECT list, SELECT * and DISTINCT. */
+        PROJECTION,
+        WHERE,
+        /** Aggregations, GROUP BY fields and HAVING conditions. */
+        AGGREGATION,
+        ORDER_BY,
+        /** LIMIT, OFFSET and the keyset cursor. */
+        PAGINATION,
+        /** Document key and value of INSERT and UPSERT. */
+        DOCUMENT,
+        SET,
+        RETURNING
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+
+    // Stamps are unique across all models, so an equal stamp means the section is unchanged
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    private final long[] stamps = new long[SECTIONS.length];
+    private final boolean snapshot;
+    // The last snapshot taken of this model, whose unchanged sections the next one shares
+    private QueryModel lastSnapshot;
+
+    // Common fields
+    private QueryOperation operation;
+    private String bucket;
+    private String scope;
+    private String collection;
+    
+    // SELECT specific
+    private List<String> selectFields;
+    private boolean selectAll;
+    private boolean distinct;
+    
+    // WHERE clause
+    private List<WhereCondition> whereConditions;
+    
+    // ORDER BY
+    private List<OrderByClause> orderByClauses;
+    
+    // Aggregation (GROUP BY, HAVING)
+    private List<AggregationClause> aggregations;
+    private List<String> groupByFields;
+    private List<WhereCondition> havingConditions;
+    
+    // LIMIT and OFFSET
+    private Integer limit;
+    private Integer offset;
+    
+    // Keyset pagination: seek past the last row of the previous page instead of OFFSET
+    private boolean keysetPagination;
+    private List<String> keysetAfterValues; // JSON values of the ORDER BY fields, null if MISSING
+    private String keysetAfterId;
+    
+    // INSERT/UPSERT specific
+    private String documentKey;
+    private String documentValue; // JSON string
+    
+    // UPDATE specific
+    private List<SetClause> setClauses;
+    
+    // Returning clause
+    private boolean returningAll;
+    private List<String> returningFields;
+
+    public QueryModel() {
+        this.operation = QueryOperation.SELECT;
+        this.selectFields = new ArrayList<>();
+        this.whereConditions = new ArrayList<>();
+        this.orderByClauses = new ArrayList<>();
+        this.aggregations = new ArrayList<>();
+        this.groupByFields = new ArrayList<>();
+        this.havingConditions = new ArrayList<>();
+        this.setClauses = new ArrayList<>();
+        this.returningFields = new ArrayList<>();
+        this.keysetAfterValues = new ArrayList<>();
+        this.selectAll = true;
+        this.snapshot = false;
+        for (Section section : SECTIONS) {
+            touch(section);
+        }
+    }
+
+    /**
+     * Creates a snapshot of another model. Lists are copied so the snapshot can be
+     * rendered on a background thread while the UI keeps updating the original.
+     */
+    public QueryModel(QueryModel other) {
+        this.operation = other.operation;
+        this.bucket = other.bucket;
+        this.scope = other.scope;
+        this.collection = other.collection;
+        this.selectFields = new ArrayList<>(other.selectFields);
+        this.selectAll = other.selectAll;
+        this.distinct = other.distinct;
+        this.whereConditions = new ArrayList<>(other.whereConditions);
+        this.orderByClauses = new ArrayList<>(other.orderByClauses);
+        this.aggregations = new ArrayList<>(other.aggregations);
+        this.groupByFields = new ArrayList<>(other.groupByFields);
+        this.havingConditions = new ArrayList<>(other.havingConditions);
+        this.limit = other.limit;
+        this.offset = other.offset;
+        this.keysetPagination = other.keysetPagination;
+        this.keysetAfterValues = new ArrayList<>(other.keysetAfterValues);
+        this.keysetAfterId = other.keysetAfterId;
+        this.documentKey = other.documentKey;
+        this.documentValue = other.documentValue;
+        this.setClauses = new ArrayList<>(other.setClauses);
+        this.returningAll = other.returningAll;
+        this.returningFields = new ArrayList<>(other.returningFields);
+        this.snapshot = false;
+        System.arraycopy(other.stamps, 0, this.stamps, 0, stamps.length);
+    }
+
+    /**
+     * Creates an immutable snapshot of {@code source}, reusing the lists of {@code previous}
+     * for sections whose stamps match.
+     */
+    private QueryModel(QueryModel source, QueryModel previous) {
+        System.arraycopy(source.stamps, 0, this.stamps, 0, stamps.length);
+        this.snapshot = true;
+        this.operation = source.operation;
+        this.bucket = source.bucket;
+        this.scope = source.scope;
+        this.collection = source.collection;
+        this.selectAll = source.selectAll;
+        this.distinct = source.distinct;
+        this.limit = source.limit;
+        this.offset = source.offset;
+        this.keysetPagination = source.keysetPagination;
+        this.keysetAfterId = source.keysetAfterId;
+        this.documentKey = source.documentKey;
+        this.documentValue = source.documentValue;
+        this.returningAll = source.returningAll;
+
+        boolean projection = isShared(Section.PROJECTION, previous);
+        boolean where = isShared(Section.WHERE, previous);
+        boolean aggregation = isShared(Section.AGGREGATION, previous);
+        boolean pagination = isShared(Section.PAGINATION, previous);
+        this.selectFields = projection ? previous.selectFields : frozen(source.selectFields);
+        this.whereConditions = where ? previous.whereConditions : frozen(source.whereConditions);
+        this.orderByClauses = isShared(Section.ORDER_BY, previous) ? previous.orderByClauses : frozen(source.orderByClauses);
+        this.aggregations = aggregation ? previous.aggregations : frozen(source.aggregations);
+        this.groupByFields = aggregation ? previous.groupByFields : frozen(source.groupByFields);
+        this.havingConditions = aggregation ? previous.havingConditions : frozen(source.havingConditions);
+        this.keysetAfterValues = pagination ? previous.keysetAfterValues : frozen(source.keysetAfterValues);
+        this.setClauses = isShared(Section.SET, previous) ? previous.setClauses : frozen(source.setClauses);
+        this.returningFields = isShared(Section.RETURNING, previous) ? previous.returningFields : frozen(source.returningFields);
+    }
+
+    private boolean isShared(Section section, QueryModel previous) {
+        return previous != null && previous.stamps[section.ordinal()] == stamps[section.ordinal()];
+    }
+
+    private static <T> List<T> frozen(List<T> list) {
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    /**
+     * Returns an immutable copy of the current state that can be handed to background threads.
+     * Sections unchanged since the previous snapshot share its lists, so taking a snapshot after
+     * a small edit copies only the edited section. A snapshot returns itself.
+     */
+    public QueryModel snapshot() {
+        if (snapshot) {
+            return this;
+        }
+        QueryModel previous = lastSnapshot;
+        if (previous != null && Arrays.equals(previous.stamps, stamps)) {
+            return previous;
+        }
+        lastSnapshot = new QueryModel(this, previous);
+        return lastSnapshot;
+    }
+
+    /**
+     * Returns true if this is an immutable snapshot; its setters throw.
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the stamp of a section's last change. Stamps are unique across models, so two
+     * models with the same stamp for a section hold the same values for it, as long as neither
+     * was changed through the lists its getters return.
+     */
+    public long getSectionStamp(Section section) {
+        return stamps[section.ordinal()];
+    }
+
+    /**
+     * Returns the sections that differ from {@code previous}, or all of them if it is null.
+     */
+    public EnumSet<Section> getChangedSections(QueryModel previous) {
+        EnumSet<Section> changed = EnumSet.noneOf(Section.class);
+        for (Section section : SECTIONS) {
+            if (previous == null || previous.stamps[section.ordinal()] != stamps[section.ordinal()]) {
+                changed.add(section);
+            }
+        }
+        return changed;
+    }
+
+    private void touch(Section section) {
+        if (snapshot) {
+            throw new UnsupportedOperationException("Query model snapshots are immutable");
+        }
+        stamps[section.ordinal()] = STAMPS.incrementAndGet();
+    }
+
+    // Getters and Setters
+    public QueryOperation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(QueryOperation operation) {
+        touch(Section.OPERATION);
+        this.operation = operation;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        touch(Section.KEYSPACE);
+        this.bucket = bucket;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        touch(Section.KEYSPACE);
+        this.scope = scope;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        touch(Section.KEYSPACE);
+        this.collection = collection;
+    }
+
+    public List<String> getSelectFields() {
+        return selectFields;
+    }
+
+    public void setSelectFields(List<String> selectFields) {
+        touch(Section.PROJECTION);
+        this.selectFields = selectFields;
+    }
+
+    public boolean isSelectAll() {
+        return selectAll;
+    }
+
+    public void setSelectAll(boolean selectAll) {
+        touch(Section.PROJECTION);
+        this.selectAll = selectAll;
+    }
+
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(boolean distinct) {
+        touch(Section.PROJECTION);
+        this.distinct = distinct;
+    }
+
+    public List<WhereCondition> getWhereConditions() {
+        return whereConditions;
+    }
+
+    public void setWhereConditions(List<WhereCondition> whereConditions) {
+        touch(Section.WHERE);
+        this.whereConditions = whereConditions;
+    }
+
+    public void addWhereCondition(WhereCondition condition) {
+        touch(Section.WHERE);
+        this.whereConditions.add(condition);
+    }
+
+    public void removeWhereCondition(int index) {
+        if (index >= 0 && index < whereConditions.size()) {
+            touch(Section.WHERE);
+            whereConditions.remove(index);
+        }
+    }
+
+    public List<OrderByClause> getOrderByClauses() {
+        return orderByClauses;
+    }
+
+    public void setOrderByClauses(List<OrderByClause> orderByClauses) {
+        touch(Section.ORDER_BY);
+        this.orderByClauses = orderByClauses;
+    }
+
+    public void addOrderByClause(OrderByClause clause) {
+        touch(Section.ORDER_BY);
+        this.orderByClauses.add(clause);
+    }
+
+    public List<AggregationClause> getAggregations() {
+        return aggregations;
+    }
+
+    public void setAggregations(List<AggregationClause> aggregations) {
+        touch(Section.AGGREGATION);
+        this.aggregations = aggregations;
+    }
+
+    public void addAggregation(AggregationClause aggregation) {
+        touch(Section.AGGREGATION);
+        this.aggregations.add(aggregation);
+    }
+
+    public List<String> getGroupByFields() {
+        return groupByFields;
+    }
+
+    public void setGroupByFields(List<String> groupByFields) {
+        touch(Section.AGGREGATION);
+        this.groupByFields = groupByFields;
+    }
+
+    public List<WhereCondition> getHavingConditions() {
+        return havingConditions;
+    }
+
+    public void setHavingConditions(List<WhereCondition> havingConditions) {
+        touch(Section.AGGREGATION);
+        this.havingConditions = havingConditions;
+    }
+
+    public boolean hasAggregation() {
+        return !aggregations.isEmpty() || !groupByFields.isEmpty();
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        touch(Section.PAGINATION);
+        this.limit = limit;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        touch(Section.PAGINATION);
+        this.offset = offset;
+    }
+
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    public void setKeysetPagination(boolean keysetPagination) {
+        touch(Section.PAGINATION);
+        this.keysetPagination = keysetPagination;
+    }
+
+    /**
+     * Returns the ORDER BY values of the last row of the previous page, as JSON, one per valid
+     * ORDER BY clause; a null element stands for a MISSING value. Empty for the first page.
+     */
+    public List<String> getKeysetAfterValues() {
+        return keysetAfterValues;
+    }
+
+    public void setKeysetAfterValues(List<String> keysetAfterValues) {
+        touch(Section.PAGINATION);
+        this.keysetAfterValues = keysetAfterValues;
+    }
+
+    /**
+     * Returns the document key of the last row of the previous page; null for the first page.
+     */
+    public String getKeysetAfterId() {
+        return keysetAfterId;
+    }
+
+    public void setKeysetAfterId(String keysetAfterId) {
+        touch(Section.PAGINATION);
+        this.keysetAfterId = keysetAfterId;
+    }
+
+    public String getDocumentKey() {
+        return documentKey;
+    }
+
+    public void setDocumentKey(String documentKey) {
+        touch(Section.DOCUMENT);
+        this.documentKey = documentKey;
+    }
+
+    public String getDocumentValue() {
+        return documentValue;
+    }
+
+    public void setDocumentValue(String documentValue) {
+        touch(Section.DOCUMENT);
+        this.documentValue = documentValue;
+    }
+
+    public List<SetClause> getSetClauses() {
+        return setClauses;
+    }
+
+    public void setSetClauses(List<SetClause> setClauses) {
+        touch(Section.SET);
+        this.setClauses = setClauses;
+    }
+
+    public void addSetClause(SetClause clause) {
+        touch(Section.SET);
+        this.setClauses.add(clause);
+    }
+
+    public boolean isReturningAll() {
+        return returningAll;
+    }
+
+    public void setReturningAll(boolean returningAll) {
+        touch(Section.RETURNING);
+        this.returningAll = returningAll;
+    }
+
+    public List<String> getReturningFields() {
+        return returningFields;
+    }
+
+    public void setReturningFields(List<String> returningFields) {
+        touch(Section.RETURNING);
+        this.returningFields = returningFields;
+    }
+
+    /**
+     * Returns the fully qualified keyspace name (bucket.scope.collection or just bucket).
+     */
+    public String getKeyspace() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("`").append(bucket != null ? bucket : "bucket").append("`");
+        
+        if (scope != null && !scope.trim().isEmpty()) {
+            sb.append(".`").append(scope).append("`");
+            if (collection != null && !collection.trim().isEmpty()) {
+                sb.append(".`").append(collection).append("`");
+            }
+        } else if (collection != null && !collection.trim().isEmpty()) {
+            sb.append(".`_default`.`").append(collection).append("`");
+        }
+        
+        return sb.toString();
+    }
+
+    /**
+     * Resets the model to default state.
+     */
+    public void reset() {
+        for (Section section : SECTIONS) {
+            touch(section);
+        }
+        this.operation = QueryOperation.SELECT;
+        this.bucket = null;
+        this.scope = null;
+        this.collection = null;
+        this.selectFields.clear();
+        this.selectAll = true;
+        this.distinct = false;
+        this.whereConditions.clear();
+        this.orderByClauses.clear();
+        this.aggregations.clear();
+        this.groupByFields.clear();
+        this.havingConditions.clear();
+        this.limit = null;
+        this.offset = null;
+        this.keysetPagination = false;
+        this.keysetAfterValues.clear();
+        this.keysetAfterId = null;
+        this.documentKey = null;
+        this.documentValue = null;
+        this.setClauses.clear();
+        this.returningAll = false;
+        this.returningFields.clear();
+    }
+}
@@ -1,5 +1,7 @@
 package n1ql.query.generator.model;
 
+import java.util.Objects;
+
 /**
  * Represents a SET clause for UPDATE operations.
  */
@@ -18,6 +20,11 @@ public class SetClause {
         this.value = value;
     }
 
+    public SetClause(SetClause other) {
+        this(other.field, other.value);
+        this.isExpression = other.isExpression;
+    }
+
     public String getField() {
         return field;
     }
@@ -46,4 +53,22 @@ public class SetClause {
         return field != null && !field.trim().isEmpty() 
             && value != null && !value.trim().isEmpty();
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SetClause other)) {
+            return false;
+        }
+        return isExpression == other.isExpression
+            && Objects.equals(field, other.field)
+            && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, value, isExpression);
+    }
 }
@@ -1,5 +1,7 @@
 package n1ql.query.generator.model;
 
+import java.util.Objects;
+
 /**
  * Represents a single WHERE condition in a query.
  */
@@ -25,6 +27,16 @@ public class WhereCondition {
         this.value = value;
     }
 
+    public WhereCondition(WhereCondition other) {
+        this.field = other.field;
+        this.operator = other.operator;
+        this.value = other.value;
+        this.secondValue = other.secondValue;
+        this.logicalOperator = other.logicalOperator;
+        this.isSubquery = other.isSubquery;
+        this.subquery = other.subquery;
+    }
+
     public String getField() {
         return field;
     }
@@ -98,4 +110,26 @@ public class WhereCondition {
         }
         return value != null && !value.trim().isEmpty();
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WhereCondition other)) {
+            return false;
+        }
+        return isSubquery == other.isSubquery
+            && operator == other.operator
+            && logicalOperator == other.logicalOperator
+            && Objects.equals(field, other.field)
+            && Objects.equals(value, other.value)
+            && Objects.equals(secondValue, other.secondValue)
+            && Objects.equals(subquery, other.subquery);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, operator, value, secondValue, logicalOperator, isSubquery, subquery);
+    }
 }
@@ -0,0 +1,199 @@
+package n1ql.query.generator.services;
+
+import java.util.*;
+
+/**
+ * Schema merged from a sample of documents: for each field path, how many documents
+ * contain it and how often each JSON type was seen there.
+ * <p>
+ * Schemas built from disjoint document sets can be combined with {@link #merge}, which is
+ * how samples are inferred in parallel. Paths keep the order in which they were first seen.
+ */
+public class DocumentSchema {
+
+    static final String[] TYPES = {"null", "object", "array", "boolean", "number", "string"};
+
+    private final Map<String, FieldStats> fields = new LinkedHashMap<>();
+    // Paths already counted for the current document, so repeated array elements count once
+    private final Set<String> seenInDocument = new HashSet<>();
+    private long documentCount = 0;
+
+    /**
+     * Statistics for a single field path.
+     */
+    public static final class FieldStats {
+        private final String path;
+        private final long[] typeCounts = new long[TYPES.length];
+        private long occurrences;
+
+        private FieldStats(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Number of documents in which the path appears at least once.
+         */
+        public long getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * Number of values seen at this path with the given type (values inside arrays count individually).
+         */
+        public long getTypeCount(String type) {
+            int index = typeIndex(type);
+            return index >= 0 ? typeCounts[index] : 0;
+        }
+
+        /**
+         * Type counts in descending order of frequency, omitting types never seen.
+         */
+        public Map<String, Long> getTypeHistogram() {
+            Integer[] order = new Integer[TYPES.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(typeCounts[b], typeCounts[a]));
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i : order) {
+                if (typeCounts[i] > 0) {
+                    histogram.put(TYPES[i], typeCounts[i]);
+                }
+            }
+            return histogram;
+        }
+
+        /**
+         * The single non-null type seen, "mixed" if several were seen, or "null" if only nulls were.
+         */
+        public String getType() {
+            String type = null;
+            for (int i = 1; i < TYPES.length; i++) {
+                if (typeCounts[i] > 0) {
+                    if (type != null) {
+                        return "mixed";
+                    }
+                    type = TYPES[i];
+                }
+            }
+            return type != null ? type : "null";
+        }
+
+        /**
+         * Fraction of values at this path that are null.
+         */
+        public double getNullRatio() {
+            long total = 0;
+            for (long count : typeCounts) {
+                total += count;
+            }
+            return total == 0 ? 0 : (double) typeCounts[0] / total;
+        }
+
+        private void merge(FieldStats other) {
+            occurrences += other.occurrences;
+            for (int i = 0; i < typeCounts.length; i++) {
+                typeCounts[i] += other.typeCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Starts a new document; subsequent {@link #record} calls belong to it.
+     */
+    void beginDocument() {
+        documentCount++;
+        seenInDocument.clear();
+    }
+
+    /**
+     * Records a value of the given type at a path of the current document.
+     */
+    void record(String path, String type) {
+        FieldStats stats = fields.computeIfAbsent(path, FieldStats::new);
+        int index = typeIndex(type);
+        if (index >= 0) {
+            stats.typeCounts[index]++;
+        }
+        if (seenInDocument.add(path)) {
+            stats.occurrences++;
+        }
+    }
+
+    /**
+     * Adds the statistics of another schema, built from different documents, into this one.
+     */
+    public DocumentSchema merge(DocumentSchema other) {
+        documentCount += other.documentCount;
+        for (FieldStats theirs : other.fields.values()) {
+            fields.computeIfAbsent(theirs.path, FieldStats::new).merge(theirs);
+        }
+        return this;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Returns field statistics in discovery order.
+     */
+    public Collection<FieldStats> getFields() {
+        return Collections.unmodifiableCollection(fields.values());
+    }
+
+    public FieldStats getField(String path) {
+        return fields.get(path);
+    }
+
+    /**
+     * Fraction of documents containing the path.
+     */
+    public double getPresence(String path) {
+        FieldStats stats = fields.get(path);
+        return stats == null || documentCount == 0 ? 0 : (double) stats.occurrences / documentCount;
+    }
+
+    /**
+     * Fraction of documents missing the path entirely.
+     */
+    public double getMissingRatio(String path) {
+        return 1 - getPresence(path);
+    }
+
+    /**
+     * Returns field paths ordered by how many documents contain them, most common first,
+     * then alphabetically.
+     */
+    public List<String> getPathsByFrequency() {
+        return fields.values().stream()
+            .sorted(Comparator.comparingLong((FieldStats f) -> f.occurrences).reversed()
+                .thenComparing(FieldStats::getPath))
+            .map(FieldStats::getPath)
+            .toList();
+    }
+
+    /**
+     * Returns field paths mapped to their merged type (see {@link FieldStats#getType()}), in discovery order.
+     */
+    public Map<String, String> toTypeMap() {
+        Map<String, String> types = new LinkedHashMap<>();
+        for (FieldStats stats : fields.values()) {
+            types.put(stats.path, stats.getType());
+        }
+        return types;
+    }
+
+    private static int typeIndex(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
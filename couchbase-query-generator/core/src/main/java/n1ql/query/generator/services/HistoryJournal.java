@@ -0,0 +1,551 @@
+package n1ql.query.generator.services;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, length-prefixed binary journal for query history.
+ * <p>
+ * Record layout: {@code [int recordLength][byte type][int headerLength][header][int headerCrc][body]},
+ * where {@code recordLength} counts every byte after itself. Only ADD records carry a body
+ * (the UTF-8 query text). Opening the journal replays headers only and skips bodies, so
+ * startup cost depends on the number of entries, not on the size of the stored queries.
+ * Bodies are read on demand with {@link #readQuery(Entry)}, which may be called from any thread;
+ * the other methods must not overlap each other.
+ * <p>
+ * A torn or corrupt tail (e.g. after a crash mid-write) is truncated on open. Once superseded
+ * records outnumber live entries the journal rewrites itself with one ADD record per entry.
+ * <p>
+ * ADD headers end with the entry's {@link QueryShape} fingerprint, its literal variants and a
+ * CRC of the body, which is checked whenever the body is read. Readers skip trailing header
+ * fields they don't know, so records written before these fields existed still load; their
+ * shape is computed from the body when first needed, and compaction adds the missing fields.
+ */
+public final class HistoryJournal implements Closeable {
+
+    private static final int MAGIC = 0x4E31_5148; // "N1QH"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+
+    private static final byte ADD = 1;
+    private static final byte TOUCH = 2;
+    private static final byte FAVORITE = 3;
+    private static final byte REMOVE = 4;
+    private static final byte CLEAR = 5;
+
+    // Compaction kicks in once this many superseded records have accumulated and they outnumber live entries
+    private static final int MIN_DEAD_RECORDS_FOR_COMPACTION = 1000;
+    // writeUTF takes at most 65535 bytes, and a char encodes to at most 3
+    private static final int MAX_VARIANT_LENGTH = 65535 / 3;
+
+    private final Path file;
+    private FileChannel channel;
+    private final LinkedHashMap<String, Entry> live = new LinkedHashMap<>();
+    private int deadRecords = 0;
+
+    /**
+     * Header of a live history entry. The query body stays on disk until requested.
+     */
+    public static final class Entry {
+        private final String id;
+        private final long queryHash;
+        private final Long shapeHash;
+        private final List<String> variants;
+        private final Integer bodyCrc;
+        private final String operation;
+        private final String bucket;
+        private long timestamp;
+        private boolean favorite;
+        private long bodyOffset;
+        private int bodyLength;
+
+        private Entry(String id, long queryHash, Long shapeHash, List<String> variants, Integer bodyCrc,
+                      String operation, String bucket, long timestamp, boolean favorite, long bodyOffset,
+                      int bodyLength) {
+            this.id = id;
+            this.queryHash = queryHash;
+            this.shapeHash = shapeHash;
+            this.variants = Collections.unmodifiableList(variants);
+            this.bodyCrc = bodyCrc;
+            this.operation = operation;
+            this.bucket = bucket;
+            this.timestamp = timestamp;
+            this.favorite = favorite;
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getQueryHash() {
+            return queryHash;
+        }
+
+        /**
+         * Returns the {@link QueryShape} fingerprint, or null for records written without one.
+         */
+        public Long getShapeHash() {
+            return shapeHash;
+        }
+
+        /**
+         * Returns earlier literal variants of the query, as {@link QueryShape#joinLiterals} text.
+         */
+        public List<String> getVariants() {
+            return variants;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        /**
+         * Epoch milliseconds of the last add or touch.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isFavorite() {
+            return favorite;
+        }
+    }
+
+    private HistoryJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens (or creates) the journal and replays its headers.
+     */
+    public static HistoryJournal open(Path file) throws IOException {
+        HistoryJournal journal = new HistoryJournal(file);
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        journal.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal.replay();
+        return journal;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the query text, used for duplicate detection without loading bodies.
+     */
+    public static long queryHash(String query) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < query.length(); i++) {
+            hash ^= query.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns live entries ordered from least to most recently added or touched.
+     */
+    public List<Entry> getEntries() {
+        return new ArrayList<>(live.values());
+    }
+
+    public int size() {
+        return live.size();
+    }
+
+    public Entry append(String id, String query, String operation, String bucket,
+                        long timestamp, boolean favorite) {
+        return append(id, query, List.of(), operation, bucket, timestamp, favorite);
+    }
+
+    /**
+     * Appends an entry; an existing entry with the same id is replaced in place.
+     * @param variants Earlier literal variants, as {@link QueryShape#joinLiterals} text
+     */
+    public Entry append(String id, String query, List<String> variants, String operation, String bucket,
+                        long timestamp, boolean favorite) {
+        byte[] body = query.getBytes(StandardCharsets.UTF_8);
+        long hash = queryHash(query);
+        long shapeHash = QueryShape.of(query).getFingerprint();
+        List<String> storedVariants = storableVariants(variants);
+        int bodyCrc = crc(body);
+        long bodyOffset = writeRecord(ADD, out -> writeAddHeader(out, id, hash, shapeHash, storedVariants, bodyCrc,
+            operation, bucket, timestamp, favorite), body);
+
+        Entry entry = new Entry(id, hash, shapeHash, storedVariants, bodyCrc, operation, bucket, timestamp, favorite,
+            bodyOffset, body.length);
+        if (live.put(id, entry) != null) {
+            deadRecords++;
+        }
+        return entry;
+    }
+
+    public void touch(String id, long timestamp) {
+        Entry entry = live.remove(id);
+        if (entry == null) {
+            return;
+        }
+        writeRecord(TOUCH, out -> {
+            out.writeUTF(id);
+            out.writeLong(timestamp);
+        }, null);
+        entry.timestamp = timestamp;
+        live.put(id, entry);
+        deadRecords++;
+        compactIfNeeded();
+    }
+
+    public void setFavorite(String id, boolean favorite) {
+        Entry entry = live.get(id);
+        if (entry == null) {
+            return;
+        }
+        writeRecord(FAVORITE, out -> {
+            out.writeUTF(id);
+            out.writeBoolean(favorite);
+        }, null);
+        entry.favorite = favorite;
+        deadRecords++;
+        compactIfNeeded();
+    }
+
+    public void remove(String id) {
+        if (!live.containsKey(id)) {
+            return;
+        }
+        writeRecord(REMOVE, out -> out.writeUTF(id), null);
+        live.remove(id);
+        deadRecords += 2;
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes all entries, or only non-favorites when {@code keepFavorites} is set.
+     */
+    public void clear(boolean keepFavorites) {
+        writeRecord(CLEAR, out -> out.writeBoolean(keepFavorites), null);
+        int before = live.size();
+        live.values().removeIf(e -> !keepFavorites || !e.favorite);
+        deadRecords += 1 + before - live.size();
+        compactIfNeeded();
+    }
+
+    /**
+     * Reads the query body of a live entry from disk.
+     * @throws UncheckedIOException If the body can't be read or doesn't match its checksum
+     */
+    public synchronized String readQuery(Entry entry) {
+        try {
+            return new String(readBody(entry), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read history journal " + file, e);
+        }
+    }
+
+    /**
+     * Rewrites the journal with one ADD record per live entry, dropping superseded records.
+     */
+    public synchronized void compact() {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            List<byte[]> bodies = new ArrayList<>(live.size());
+            long[] shapes = new long[live.size()];
+            int[] crcs = new int[live.size()];
+            int n = 0;
+            for (Entry entry : live.values()) {
+                byte[] body = readBody(entry);
+                bodies.add(body);
+                // Older records gain their shape and body CRC here, as the body is at hand
+                shapes[n] = entry.shapeHash != null ? entry.shapeHash
+                    : QueryShape.of(new String(body, StandardCharsets.UTF_8)).getFingerprint();
+                crcs[n++] = entry.bodyCrc != null ? entry.bodyCrc : crc(body);
+            }
+
+            long[] offsets = new long[bodies.size()];
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFileHeader(out);
+                int i = 0;
+                for (Entry entry : live.values()) {
+                    long shapeHash = shapes[i];
+                    int bodyCrc = crcs[i];
+                    offsets[i] = writeRecord(out, ADD, o -> writeAddHeader(o, entry.id, entry.queryHash, shapeHash,
+                        entry.variants, bodyCrc, entry.operation, entry.bucket, entry.timestamp, entry.favorite),
+                        bodies.get(i));
+                    i++;
+                }
+                out.force(true);
+            }
+
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            int i = 0;
+            for (Map.Entry<String, Entry> e : live.entrySet()) {
+                Entry entry = e.getValue();
+                Entry compacted = entry.shapeHash != null && entry.bodyCrc != null ? entry : new Entry(entry.id,
+                    entry.queryHash, shapes[i], entry.variants, crcs[i], entry.operation, entry.bucket,
+                    entry.timestamp, entry.favorite, 0, entry.bodyLength);
+                compacted.bodyOffset = offsets[i++];
+                e.setValue(compacted);
+            }
+            deadRecords = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact history journal " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deadRecords >= MIN_DEAD_RECORDS_FOR_COMPACTION && deadRecords > live.size()) {
+            compact();
+        }
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        if (size < FILE_HEADER_SIZE) {
+            channel.truncate(0);
+            writeFileHeader(channel);
+            return;
+        }
+
+        ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        readFully(fileHeader, 0);
+        fileHeader.flip();
+        if (fileHeader.getInt() != MAGIC || fileHeader.getInt() != VERSION) {
+            throw new IOException("Not a query history journal: " + file);
+        }
+
+        long position = FILE_HEADER_SIZE;
+        ByteBuffer prefix = ByteBuffer.allocate(9);
+        while (position < size) {
+            // Anything that doesn't parse as a complete record is a torn tail
+            if (size - position < 9) {
+                break;
+            }
+            prefix.clear();
+            readFully(prefix, position);
+            prefix.flip();
+            int recordLength = prefix.getInt();
+            byte type = prefix.get();
+            int headerLength = prefix.getInt();
+            long recordEnd = position + 4 + recordLength;
+            int bodyLength = recordLength - 1 - 4 - headerLength - 4;
+            if (recordLength < 9 || headerLength < 0 || bodyLength < 0 || recordEnd > size) {
+                break;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(headerLength + 4);
+            readFully(header, position + 9);
+            header.flip();
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(header.array(), 0, headerLength);
+            if ((int) crc.getValue() != header.getInt(headerLength)) {
+                break;
+            }
+
+            long bodyOffset = position + 9 + headerLength + 4;
+            apply(type, new DataInputStream(new ByteArrayInputStream(header.array(), 0, headerLength)),
+                bodyOffset, bodyLength);
+            position = recordEnd;
+        }
+
+        if (position < size) {
+            channel.truncate(position);
+        }
+    }
+
+    private void apply(byte type, DataInputStream in, long bodyOffset, int bodyLength) throws IOException {
+        switch (type) {
+            case ADD -> {
+                String id = in.readUTF();
+                long hash = in.readLong();
+                String operation = in.readUTF();
+                String bucket = in.readUTF();
+                long timestamp = in.readLong();
+                boolean favorite = in.readBoolean();
+                Long shapeHash = null;
+                List<String> variants = new ArrayList<>();
+                Integer bodyCrc = null;
+                if (in.available() > 0) {
+                    shapeHash = in.readLong();
+                    int count = in.readUnsignedShort();
+                    for (int i = 0; i < count; i++) {
+                        variants.add(in.readUTF());
+                    }
+                }
+                if (in.available() > 0) {
+                    bodyCrc = in.readInt();
+                }
+                Entry entry = new Entry(id, hash, shapeHash, variants, bodyCrc, operation.isEmpty() ? null : operation,
+                    bucket.isEmpty() ? null : bucket, timestamp, favorite, bodyOffset, bodyLength);
+                if (live.put(id, entry) != null) {
+                    deadRecords++;
+                }
+            }
+            case TOUCH -> {
+                String id = in.readUTF();
+                long timestamp = in.readLong();
+                Entry entry = live.remove(id);
+                if (entry != null) {
+                    entry.timestamp = timestamp;
+                    live.put(id, entry);
+                }
+                deadRecords++;
+            }
+            case FAVORITE -> {
+                Entry entry = live.get(in.readUTF());
+                boolean favorite = in.readBoolean();
+                if (entry != null) {
+                    entry.favorite = favorite;
+                }
+                deadRecords++;
+            }
+            case REMOVE -> {
+                live.remove(in.readUTF());
+                deadRecords += 2;
+            }
+            case CLEAR -> {
+                boolean keepFavorites = in.readBoolean();
+                int before = live.size();
+                live.values().removeIf(e -> !keepFavorites || !e.favorite);
+                deadRecords += 1 + before - live.size();
+            }
+            default -> deadRecords++; // Unknown record types from newer versions are skipped
+        }
+    }
+
+    private static void writeAddHeader(DataOutputStream out, String id, long hash, long shapeHash,
+                                       List<String> variants, int bodyCrc, String operation, String bucket,
+                                       long timestamp, boolean favorite) throws IOException {
+        out.writeUTF(id);
+        out.writeLong(hash);
+        out.writeUTF(operation != null ? operation : "");
+        out.writeUTF(bucket != null ? bucket : "");
+        out.writeLong(timestamp);
+        out.writeBoolean(favorite);
+        out.writeLong(shapeHash);
+        out.writeShort(variants.size());
+        for (String variant : variants) {
+            out.writeUTF(variant);
+        }
+        out.writeInt(bodyCrc);
+    }
+
+    /**
+     * Drops variants too long for a header field.
+     */
+    private static List<String> storableVariants(List<String> variants) {
+        List<String> stored = new ArrayList<>();
+        for (String variant : variants) {
+            if (variant.length() <= MAX_VARIANT_LENGTH && stored.size() < 0xFFFF) {
+                stored.add(variant);
+            }
+        }
+        return stored;
+    }
+
+    @FunctionalInterface
+    private interface HeaderWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private synchronized long writeRecord(byte type, HeaderWriter header, byte[] body) {
+        try {
+            return writeRecord(channel, type, header, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to history journal " + file, e);
+        }
+    }
+
+    /**
+     * Appends a record at the end of the channel and returns the offset of its body.
+     */
+    private static long writeRecord(FileChannel target, byte type, HeaderWriter header, byte[] body)
+            throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(64);
+        header.write(new DataOutputStream(headerBytes));
+        byte[] headerArray = headerBytes.toByteArray();
+        int bodyLength = body != null ? body.length : 0;
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(headerArray);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 4 + headerArray.length + 4 + bodyLength);
+        buffer.putInt(1 + 4 + headerArray.length + 4 + bodyLength);
+        buffer.put(type);
+        buffer.putInt(headerArray.length);
+        buffer.put(headerArray);
+        buffer.putInt((int) crc.getValue());
+        if (body != null) {
+            buffer.put(body);
+        }
+        buffer.flip();
+
+        long position = target.size();
+        long bodyOffset = position + 4 + 1 + 4 + headerArray.length + 4;
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+        return bodyOffset;
+    }
+
+    private static void writeFileHeader(FileChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).flip();
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads an entry's body, checking it against the CRC in its header if the record has one.
+     */
+    private byte[] readBody(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.bodyLength);
+        readFully(buffer, entry.bodyOffset);
+        if (entry.bodyCrc != null && entry.bodyCrc != crc(buffer.array())) {
+            throw new IOException("Corrupt query body for history entry " + entry.id);
+        }
+        return buffer.array();
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of history journal " + file);
+            }
+            position += read;
+        }
+    }
+}
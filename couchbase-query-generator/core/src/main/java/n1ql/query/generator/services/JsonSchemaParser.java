@@ -0,0 +1,528 @@
+package n1ql.query.generator.services;
+
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Parses JSON documents to extract field paths for autocomplete suggestions.
+ * <p>
+ * Field extraction streams tokens through a {@link JsonReader} rather than building a DOM,
+ * so memory use is bounded by nesting depth and the number of distinct paths, not input size.
+ * Paths from every array element are merged.
+ * <p>
+ * Multi-document samples produce a {@link DocumentSchema} with per-path occurrence counts
+ * and type histograms; in-memory samples are split into documents and inferred in parallel.
+ */
+public class JsonSchemaParser {
+
+    // Progress is reported roughly once per this many bytes read
+    private static final long PROGRESS_INTERVAL_BYTES = 1 << 20;
+    // Documents per fork-join leaf when sampling in parallel
+    private static final int SAMPLE_BATCH_SIZE = 256;
+
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+
+    /**
+     * Receives progress while a stream is being inferred. Called on the parsing thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    /**
+     * Extracts all field paths from a JSON string.
+     * @param json The JSON string to parse
+     * @return A sorted list of field paths (e.g., "name", "address.city", "tags[0]")
+     */
+    public static List<String> extractFieldPaths(String json) {
+        Set<String> fields = new TreeSet<>();
+        
+        if (json == null || json.trim().isEmpty()) {
+            return new ArrayList<>(fields);
+        }
+        
+        SchemaWalker walker = walk(json);
+        if (walker == null) {
+            // Invalid JSON, return empty list
+            return new ArrayList<>();
+        }
+        fields.addAll(walker.schema.toTypeMap().keySet());
+        
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Extracts all field names (without paths) from a JSON string.
+     * @param json The JSON string to parse
+     * @return A sorted list of field names
+     */
+    public static List<String> extractFieldNames(String json) {
+        Set<String> fields = new TreeSet<>();
+        
+        if (json == null || json.trim().isEmpty()) {
+            return new ArrayList<>(fields);
+        }
+        
+        SchemaWalker walker = walk(json);
+        if (walker == null) {
+            return new ArrayList<>();
+        }
+        fields.addAll(walker.names);
+        
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Extracts field paths along with their detected types.
+     * @param json The JSON string to parse
+     * @return A map of field paths to their JSON types
+     */
+    public static Map<String, String> extractFieldsWithTypes(String json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        
+        if (json == null || json.trim().isEmpty()) {
+            return fields;
+        }
+        
+        SchemaWalker walker = walk(json);
+        if (walker == null) {
+            return new LinkedHashMap<>();
+        }
+        fields.putAll(walker.schema.toTypeMap());
+        
+        return fields;
+    }
+
+    /**
+     * Infers field paths and types from a JSON stream, such as a large export file.
+     * Types that differ between documents are reported as "mixed"; null only counts when
+     * no other type was seen.
+     * @see #inferSchema(InputStream, long, ProgressListener)
+     * @return A map of field paths to their JSON types, in discovery order
+     */
+    public static Map<String, String> inferFieldsWithTypes(InputStream in, long totalBytes,
+                                                           ProgressListener listener) throws IOException {
+        return inferSchema(in, totalBytes, listener).toTypeMap();
+    }
+
+    /**
+     * Infers a multi-document schema from a JSON stream with bounded memory.
+     * Accepts a single document, a top-level array of documents (each element is treated as a
+     * document), or concatenated / newline-delimited documents.
+     * @param in The UTF-8 encoded input; not closed by this method
+     * @param totalBytes The input size for progress reporting, or -1 if unknown
+     * @param listener Progress callback, may be null
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If reading fails or the input is not valid JSON
+     */
+    public static DocumentSchema inferSchema(InputStream in, long totalBytes,
+                                             ProgressListener listener) throws IOException {
+        ProgressInputStream progress = new ProgressInputStream(in, totalBytes, listener);
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(progress, StandardCharsets.UTF_8)));
+        reader.setLenient(true);
+
+        SchemaWalker walker = new SchemaWalker(reader, new DocumentSchema());
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        walker.document();
+                    }
+                    reader.endArray();
+                } else {
+                    walker.document();
+                }
+            }
+        } catch (IllegalStateException e) {
+            throw new MalformedJsonException(e.getMessage());
+        }
+        progress.report();
+        return walker.schema;
+    }
+
+    /**
+     * Reads every document of a JSON stream, in the same formats as {@link #inferSchema}.
+     * @param in The UTF-8 encoded input; not closed by this method
+     * @param totalBytes The input size for progress reporting, or -1 if unknown
+     * @param listener Progress callback, may be null
+     * @param action Receives each document in order
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If reading fails or the input is not valid JSON
+     */
+    public static void forEachDocument(InputStream in, long totalBytes, ProgressListener listener,
+                                       Consumer<JsonElement> action) throws IOException {
+        ProgressInputStream progress = new ProgressInputStream(in, totalBytes, listener);
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(progress, StandardCharsets.UTF_8)));
+        reader.setLenient(true);
+
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        action.accept(JSON_ELEMENT.read(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    action.accept(JSON_ELEMENT.read(reader));
+                }
+            }
+        } catch (IllegalStateException | JsonParseException e) {
+            throw new MalformedJsonException(e.getMessage());
+        }
+        progress.report();
+    }
+
+    /**
+     * Infers a multi-document schema from text holding a JSON array of documents, NDJSON, or a
+     * single document. Documents are located with a lightweight bracket scan and then parsed in
+     * parallel on the common fork-join pool.
+     * @param json The sample text
+     * @return The merged schema, or null if the text is not valid JSON
+     */
+    public static DocumentSchema sampleSchema(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return null;
+        }
+        int[] bounds = splitDocuments(json);
+        if (bounds == null) {
+            return null;
+        }
+        try {
+            return ForkJoinPool.commonPool().invoke(new SampleTask(json, bounds, 0, bounds.length / 2));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns start/end offset pairs of the top-level documents in the text: the elements of a
+     * top-level array, or each concatenated value otherwise. Returns null if brackets or
+     * strings are unbalanced.
+     */
+    static int[] splitDocuments(CharSequence text) {
+        int[] bounds = new int[16];
+        int count = 0;
+        int i = skipWhitespace(text, 0);
+        boolean array = i < text.length() && text.charAt(i) == '[';
+        if (array) {
+            i = skipWhitespace(text, i + 1);
+            if (i < text.length() && text.charAt(i) == ']') {
+                return skipWhitespace(text, i + 1) == text.length() ? new int[0] : null;
+            }
+        }
+
+        while (i < text.length()) {
+            int end = valueEnd(text, i);
+            if (end < 0) {
+                return null;
+            }
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = i;
+            bounds[count++] = end;
+            i = skipWhitespace(text, end);
+
+            if (array) {
+                if (i >= text.length()) {
+                    return null;
+                }
+                char c = text.charAt(i);
+                if (c == ']') {
+                    return skipWhitespace(text, i + 1) == text.length() ? Arrays.copyOf(bounds, count) : null;
+                }
+                if (c != ',') {
+                    return null;
+                }
+                i = skipWhitespace(text, i + 1);
+            }
+        }
+        return array ? null : Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Returns the offset just past the value starting at {@code start}, or -1 if it is unterminated.
+     */
+    private static int valueEnd(CharSequence text, int start) {
+        char first = text.charAt(start);
+        if (first != '{' && first != '[' && first != '"') {
+            // Scalar: runs up to the next structural character or whitespace
+            int i = start;
+            while (i < text.length() && ",]}".indexOf(text.charAt(i)) < 0 && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+                if (depth < 0) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Infers the schema of a range of documents, splitting large ranges in half and merging
+     * the results in document order.
+     */
+    @SuppressWarnings("serial")
+    private static final class SampleTask extends RecursiveTask<DocumentSchema> {
+        private final String text;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+
+        private SampleTask(String text, int[] bounds, int from, int to) {
+            this.text = text;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DocumentSchema compute() {
+            if (to - from <= SAMPLE_BATCH_SIZE) {
+                DocumentSchema schema = new DocumentSchema();
+                for (int doc = from; doc < to; doc++) {
+                    String json = text.substring(bounds[2 * doc], bounds[2 * doc + 1]);
+                    SchemaWalker walker = walk(json, schema);
+                    if (walker == null) {
+                        throw new IllegalArgumentException("Invalid JSON document at offset " + bounds[2 * doc]);
+                    }
+                }
+                return schema;
+            }
+            int mid = (from + to) >>> 1;
+            SampleTask left = new SampleTask(text, bounds, from, mid);
+            left.fork();
+            DocumentSchema right = new SampleTask(text, bounds, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Streams a single JSON value from a string, returning null if it isn't valid JSON.
+     */
+    private static SchemaWalker walk(String json) {
+        return walk(json, new DocumentSchema());
+    }
+
+    private static SchemaWalker walk(String json, DocumentSchema schema) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        // Lenient like JsonParser.parseString, which isValidJson uses
+        reader.setLenient(true);
+        SchemaWalker walker = new SchemaWalker(reader, schema);
+        try {
+            walker.document();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                return null;
+            }
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+        return walker;
+    }
+
+    /**
+     * Walks one document at a time from a reader, recording every path it sees into a schema.
+     */
+    private static final class SchemaWalker {
+        private final JsonReader reader;
+        private final DocumentSchema schema;
+        private final Set<String> names = new HashSet<>();
+
+        private SchemaWalker(JsonReader reader, DocumentSchema schema) {
+            this.reader = reader;
+            this.schema = schema;
+        }
+
+        private void document() throws IOException {
+            schema.beginDocument();
+            value("");
+        }
+
+        private void value(String prefix) throws IOException {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        String path = prefix.isEmpty() ? name : prefix + "." + name;
+                        names.add(name);
+                        schema.record(path, getJsonType(reader.peek()));
+                        value(path);
+                    }
+                    reader.endObject();
+                }
+                case BEGIN_ARRAY -> {
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        schema.record(prefix + "[]", "array");
+                    }
+                    // Every element contributes to the same [0] representative path
+                    while (reader.hasNext()) {
+                        value(prefix + "[0]");
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Counts bytes as they are consumed, reporting progress and honouring interruption.
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final long totalBytes;
+        private final ProgressListener listener;
+        private long bytesRead;
+        private long nextReport = PROGRESS_INTERVAL_BYTES;
+
+        private ProgressInputStream(InputStream in, long totalBytes, ProgressListener listener) {
+            super(in);
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        private void advance(int n) throws IOException {
+            bytesRead += n;
+            if (bytesRead >= nextReport) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Reading cancelled");
+                }
+                report();
+                nextReport = bytesRead + PROGRESS_INTERVAL_BYTES;
+            }
+        }
+
+        private void report() {
+            if (listener != null) {
+                listener.onProgress(bytesRead, totalBytes);
+            }
+        }
+    }
+
+    private static String getJsonType(JsonToken token) {
+        return switch (token) {
+            case NULL -> "null";
+            case BEGIN_OBJECT -> "object";
+            case BEGIN_ARRAY -> "array";
+            case BOOLEAN -> "boolean";
+            case NUMBER -> "number";
+            case STRING -> "string";
+            default -> "unknown";
+        };
+    }
+
+    /**
+     * Validates if the given string is valid JSON.
+     * @param json The string to validate
+     * @return true if valid JSON, false otherwise
+     */
+    public static boolean isValidJson(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return false;
+        }
+        try {
+            JsonParser.parseString(json);
+            return true;
+        } catch (JsonSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Formats JSON with indentation.
+     * @param json The JSON string to format
+     * @return Formatted JSON or original string if invalid
+     */
+    public static String formatJson(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return json;
+        }
+        try {
+            JsonElement element = JsonParser.parseString(json);
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            return gson.toJson(element);
+        } catch (JsonSyntaxException e) {
+            return json;
+        }
+    }
+
+    /**
+     * Minifies JSON by removing whitespace.
+     * @param json The JSON string to minify
+     * @return Minified JSON or original string if invalid
+     */
+    public static String minifyJson(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return json;
+        }
+        try {
+            JsonElement element = JsonParser.parseString(json);
+            return new Gson().toJson(element);
+        } catch (JsonSyntaxException e) {
+            return json;
+        }
+    }
+}
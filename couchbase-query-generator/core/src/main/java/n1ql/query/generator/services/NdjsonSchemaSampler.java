@@ -0,0 +1,233 @@
+package n1ql.query.generator.services;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Infers a {@link DocumentSchema} from NDJSON / JSON-lines exports (e.g. cbexport lines format)
+ * without reading them onto the heap.
+ * <p>
+ * The file is split into chunks that end on line boundaries; each chunk is memory-mapped and
+ * inferred on the common fork-join pool, and the per-chunk schemas are merged in file order.
+ * Other files, such as JSON arrays (cbexport list format) or pretty-printed documents, can't be
+ * split at lines, so they are streamed sequentially instead.
+ */
+public final class NdjsonSchemaSampler {
+
+    private static final long CHUNK_SIZE = 16L << 20;
+    private static final int BOUNDARY_SCAN_BUFFER = 64 << 10;
+
+    private NdjsonSchemaSampler() {
+    }
+
+    /**
+     * Infers the schema of every document in the file.
+     * @param file A JSON-lines file, or a JSON document / array of documents
+     * @param listener Progress callback, may be null; called from worker threads
+     * @throws InterruptedIOException If the calling thread is interrupted
+     * @throws IOException If reading fails or a document is not valid JSON
+     */
+    public static DocumentSchema sample(Path file, JsonSchemaParser.ProgressListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!isJsonLines(channel, size)) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                    return JsonSchemaParser.inferSchema(in, size, listener);
+                }
+            }
+
+            long[] boundaries = chunkBoundaries(channel, size);
+            AtomicBoolean cancelled = new AtomicBoolean();
+            AtomicLong bytesDone = new AtomicLong();
+            ChunkTask task = new ChunkTask(channel, boundaries, 0, boundaries.length - 1, cancelled, bytesDone,
+                size, listener);
+
+            Future<DocumentSchema> result = ForkJoinPool.commonPool().submit(task);
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                cancelled.set(true);
+                result.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Schema inference cancelled");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException unchecked) {
+                    throw new IOException(unchecked.getMessage() + ": " + unchecked.getCause().getMessage(),
+                        unchecked.getCause());
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the first line of the file holds one complete JSON object, as in JSON
+     * lines. A document that continues past its first line can't be split at newlines.
+     */
+    private static boolean isJsonLines(FileChannel channel, long size) throws IOException {
+        long limit = Math.min(size, CHUNK_SIZE);
+        long end = nextLineStart(channel, 0, limit, ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER));
+        if (end >= limit) {
+            // A single line, or a first line too long to be worth splitting after
+            return false;
+        }
+        ByteBuffer line = ByteBuffer.allocate((int) end);
+        while (line.hasRemaining() && channel.read(line, line.position()) > 0) {
+            // Fill the buffer
+        }
+        String text = new String(line.array(), 0, line.position(), StandardCharsets.UTF_8).strip();
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1).strip();
+        }
+        if (!text.startsWith("{")) {
+            return false;
+        }
+        try {
+            return JsonParser.parseString(text).isJsonObject();
+        } catch (JsonParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns chunk start offsets followed by the file size. Each chunk ends just after a newline.
+     */
+    static long[] chunkBoundaries(FileChannel channel, long size) throws IOException {
+        long[] boundaries = new long[(int) Math.min(Integer.MAX_VALUE - 8, size / CHUNK_SIZE + 2)];
+        int count = 0;
+        boundaries[count++] = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER);
+        long start = 0;
+        while (size - start > CHUNK_SIZE) {
+            long end = nextLineStart(channel, start + CHUNK_SIZE, size, buffer);
+            if (end >= size) {
+                break;
+            }
+            boundaries[count++] = end;
+            start = end;
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Infers a range of chunks, splitting in half and merging in file order.
+     */
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveTask<DocumentSchema> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean cancelled;
+        private final AtomicLong bytesDone;
+        private final long totalBytes;
+        private final JsonSchemaParser.ProgressListener listener;
+
+        private ChunkTask(FileChannel channel, long[] boundaries, int from, int to, AtomicBoolean cancelled,
+                          AtomicLong bytesDone, long totalBytes, JsonSchemaParser.ProgressListener listener) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+            this.cancelled = cancelled;
+            this.bytesDone = bytesDone;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        @Override
+        protected DocumentSchema compute() {
+            if (to - from == 1) {
+                return inferChunk(boundaries[from], boundaries[to]);
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, boundaries, from, mid, cancelled, bytesDone, totalBytes, listener);
+            left.fork();
+            DocumentSchema right = new ChunkTask(channel, boundaries, mid, to, cancelled, bytesDone, totalBytes,
+                listener).compute();
+            return left.join().merge(right);
+        }
+
+        private DocumentSchema inferChunk(long start, long end) {
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+            try {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                DocumentSchema schema = JsonSchemaParser.inferSchema(new ByteBufferInputStream(chunk), -1, null);
+                long done = bytesDone.addAndGet(end - start);
+                if (listener != null) {
+                    listener.onProgress(done, totalBytes);
+                }
+                return schema;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Invalid JSON between offsets " + start + " and " + end, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a (memory-mapped) buffer as a stream without copying it onto the heap.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
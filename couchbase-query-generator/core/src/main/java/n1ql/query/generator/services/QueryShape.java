@@ -0,0 +1,149 @@
+package n1ql.query.generator.services;
+
+import n1ql.query.generator.lexer.N1QLLexer;
+import n1ql.query.generator.lexer.N1QLToken;
+import n1ql.query.generator.lexer.N1QLTokenType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The shape of a query: its text with literal values replaced by {@code ?}, so queries that
+ * differ only in values, whitespace, comments, keyword case or identifier quoting share a shape.
+ * <p>
+ * Strings, numbers, booleans and placeholders are literals; strings used as object keys are
+ * structure. {@code NULL} and {@code MISSING} stay, as they change what a query means. The
+ * normalized text is hashed into a 64-bit fingerprint for constant-time grouping.
+ */
+public final class QueryShape {
+
+    private final String normalized;
+    private final long fingerprint;
+    private final List<String> literals;
+
+    private QueryShape(String normalized, List<String> literals) {
+        this.normalized = normalized;
+        this.fingerprint = HistoryJournal.queryHash(normalized);
+        this.literals = Collections.unmodifiableList(literals);
+    }
+
+    public static QueryShape of(String query) {
+        List<N1QLToken> tokens = significantTokens(query);
+        StringBuilder sb = new StringBuilder(query.length());
+        List<String> literals = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            N1QLToken token = tokens.get(i);
+            String text = token.getText(query);
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            if (isLiteral(query, tokens, i)) {
+                sb.append('?');
+                literals.add(text);
+                continue;
+            }
+            switch (token.getType()) {
+                case QUOTED_IDENTIFIER -> sb.append(text, 1, Math.max(1, text.length() - 1));
+                case KEYWORD, FUNCTION -> sb.append(text.toUpperCase(Locale.ROOT));
+                default -> sb.append(text);
+            }
+        }
+        return new QueryShape(sb.toString(), literals);
+    }
+
+    /**
+     * Returns the query with literals replaced by {@code ?} and tokens separated by single spaces.
+     */
+    public String getNormalized() {
+        return normalized;
+    }
+
+    /**
+     * Returns the 64-bit hash of the normalized text.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the literal values in order of appearance, as written in the query.
+     */
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    /**
+     * Returns {@code query} with its literals replaced by {@code literals}, keeping its layout.
+     * @return The new text, or null if {@code literals} doesn't match the query's literal count
+     */
+    public static String withLiterals(String query, List<String> literals) {
+        List<N1QLToken> tokens = significantTokens(query);
+        StringBuilder sb = new StringBuilder(query.length());
+        int copied = 0;
+        int next = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!isLiteral(query, tokens, i)) {
+                continue;
+            }
+            if (next == literals.size()) {
+                return null;
+            }
+            N1QLToken token = tokens.get(i);
+            sb.append(query, copied, token.getStart()).append(literals.get(next++));
+            copied = token.getEnd();
+        }
+        if (next != literals.size()) {
+            return null;
+        }
+        return sb.append(query, copied, query.length()).toString();
+    }
+
+    /**
+     * Encodes literals as one string, e.g. for storing a variant of a query compactly.
+     */
+    public static String joinLiterals(List<String> literals) {
+        return String.join(" ", literals);
+    }
+
+    /**
+     * Decodes literals encoded by {@link #joinLiterals}.
+     */
+    public static List<String> splitLiterals(String joined) {
+        List<String> literals = new ArrayList<>();
+        for (N1QLToken token : significantTokens(joined)) {
+            literals.add(token.getText(joined));
+        }
+        return literals;
+    }
+
+    private static List<N1QLToken> significantTokens(String query) {
+        List<N1QLToken> tokens = new ArrayList<>();
+        for (N1QLToken token : N1QLLexer.tokenize(query)) {
+            if (!token.getType().isTrivia()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isLiteral(String query, List<N1QLToken> tokens, int index) {
+        N1QLToken token = tokens.get(index);
+        return switch (token.getType()) {
+            case NUMBER, PARAMETER -> true;
+            // An object key names a field rather than holding a value
+            case STRING -> index + 1 >= tokens.size() || !tokens.get(index + 1).getText(query).equals(":");
+            case KEYWORD -> {
+                String word = token.getText(query);
+                yield word.equalsIgnoreCase("TRUE") || word.equalsIgnoreCase("FALSE");
+            }
+            default -> false;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+}
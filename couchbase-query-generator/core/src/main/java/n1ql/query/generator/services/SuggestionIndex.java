@@ -0,0 +1,345 @@
+package n1ql.query.generator.services;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable, case-insensitive index over field suggestions, built once per schema import
+ * and shared by every autocomplete field.
+ * <p>
+ * Prefix lookups binary-search the case-folded suggestions in sorted order (a flattened
+ * prefix trie: every completion of a prefix is one contiguous range). Substring lookups
+ * intersect sorted posting lists of the query's bigrams/trigrams and verify the few
+ * remaining candidates. Results are ranked prefix matches first, then matches
+ * at a path segment start (after '.', '[' or '_'), then other substrings; within a tier the
+ * order the suggestions were given in is kept, so callers can pass them most relevant first.
+ * Only the best {@code limit} hits per tier are kept, so large candidate sets are never sorted.
+ */
+public final class SuggestionIndex {
+
+    public static final SuggestionIndex EMPTY = new SuggestionIndex(List.of());
+
+    private final String[] suggestions;
+    private final String[] folded;
+    // Suggestion ids ordered by folded text
+    private final int[] sorted;
+    // Sorted suggestion ids per bigram/trigram of the folded text
+    private final Map<Long, int[]> postings;
+
+    private SuggestionIndex(List<String> source) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        for (String suggestion : source) {
+            if (suggestion != null && !suggestion.isEmpty()) {
+                unique.add(suggestion);
+            }
+        }
+        suggestions = unique.toArray(new String[0]);
+        folded = new String[suggestions.length];
+        for (int i = 0; i < suggestions.length; i++) {
+            folded[i] = suggestions[i].toLowerCase(Locale.ROOT);
+        }
+
+        Integer[] order = new Integer[suggestions.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> folded[i]));
+        sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = order[i];
+        }
+
+        // Ids are visited in increasing order, so every posting list comes out sorted
+        Map<Long, PostingsBuilder> building = new HashMap<>();
+        for (int id = 0; id < folded.length; id++) {
+            String text = folded[id];
+            for (int i = 0; i + 2 <= text.length(); i++) {
+                building.computeIfAbsent(gram(text, i, 2), g -> new PostingsBuilder()).add(id);
+                if (i + 3 <= text.length()) {
+                    building.computeIfAbsent(gram(text, i, 3), g -> new PostingsBuilder()).add(id);
+                }
+            }
+        }
+        postings = new HashMap<>(building.size() * 2);
+        building.forEach((gram, builder) -> postings.put(gram, Arrays.copyOf(builder.ids, builder.size)));
+    }
+
+    private static final class PostingsBuilder {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Packs two or three chars into a key; the length bit keeps bigrams and trigrams apart.
+     */
+    private static long gram(String text, int start, int length) {
+        long key = length == 3 ? 1L << 48 : 0;
+        for (int i = 0; i < length; i++) {
+            key |= (long) text.charAt(start + i) << (16 * i);
+        }
+        return key;
+    }
+
+    /**
+     * Builds an index over the given suggestions, most relevant first. Duplicates are dropped.
+     */
+    public static SuggestionIndex of(List<String> suggestions) {
+        return suggestions == null || suggestions.isEmpty() ? EMPTY : new SuggestionIndex(suggestions);
+    }
+
+    public int size() {
+        return suggestions.length;
+    }
+
+    public boolean isEmpty() {
+        return suggestions.length == 0;
+    }
+
+    /**
+     * Returns all suggestions in their original order.
+     */
+    public List<String> getSuggestions() {
+        return List.of(suggestions);
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions containing the input (ignoring case), best first.
+     */
+    public List<String> search(String input, int limit) {
+        List<String> results = new ArrayList<>();
+        if (input == null || input.isEmpty() || limit <= 0 || isEmpty()) {
+            return results;
+        }
+        String query = input.toLowerCase(Locale.ROOT);
+
+        // Tier 0: prefix matches are one contiguous range of the sorted suggestions
+        int lo = lowerBound(sorted.length, i -> comparePrefix(folded[sorted[i]], 0, query));
+        int hi = upperBound(lo, sorted.length, i -> comparePrefix(folded[sorted[i]], 0, query));
+        TopK prefixHits = new TopK(limit);
+        for (int i = lo; i < hi; i++) {
+            prefixHits.offer(sorted[i]);
+        }
+        prefixHits.drainTo(results, suggestions);
+        if (results.size() >= limit) {
+            return results;
+        }
+
+        // Tiers 1 and 2: substring matches among the candidates sharing all of the query's grams
+        BitSet excluded = new BitSet(suggestions.length);
+        for (int i = lo; i < hi; i++) {
+            excluded.set(sorted[i]);
+        }
+        int remaining = limit - results.size();
+        TopK segmentHits = new TopK(remaining);
+        TopK otherHits = new TopK(remaining);
+        // Candidates come in increasing id (rank) order, so stop once segment matches fill the list
+        int segmentLimit = remaining;
+        forEachCandidate(query, id -> {
+            if (!excluded.get(id)) {
+                int tier = substringTier(folded[id], query);
+                if (tier == 1) {
+                    segmentHits.offer(id);
+                } else if (tier == 2) {
+                    otherHits.offer(id);
+                }
+            }
+            return segmentHits.size < segmentLimit;
+        });
+        segmentHits.drainTo(results, suggestions);
+        remaining = limit - results.size();
+        if (remaining > 0) {
+            otherHits.drainTo(results, suggestions, remaining);
+        }
+        return results;
+    }
+
+    /**
+     * Visits, in increasing order, ids that may contain the query: the intersection of its gram
+     * postings, or every id for single-character queries. Stops when the visitor returns false.
+     */
+    private void forEachCandidate(String query, IntPredicate visitor) {
+        if (query.length() == 1) {
+            for (int id = 0; id < suggestions.length; id++) {
+                if (!visitor.test(id)) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        List<int[]> lists = new ArrayList<>();
+        if (query.length() == 2) {
+            lists.add(postings.get(gram(query, 0, 2)));
+        }
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            lists.add(postings.get(gram(query, i, 3)));
+        }
+        if (lists.contains(null)) {
+            return;
+        }
+
+        // Drive the intersection from the rarest gram
+        lists.sort(Comparator.comparingInt(ids -> ids.length));
+        int[] smallest = lists.get(0);
+        outer:
+        for (int id : smallest) {
+            for (int j = 1; j < lists.size(); j++) {
+                if (Arrays.binarySearch(lists.get(j), id) < 0) {
+                    continue outer;
+                }
+            }
+            if (!visitor.test(id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns 1 if the query occurs at a path segment start, 2 if only elsewhere, 0 if not at all.
+     */
+    private static int substringTier(String text, String query) {
+        int tier = 0;
+        for (int index = text.indexOf(query, 1); index >= 0; index = text.indexOf(query, index + 1)) {
+            if (isSegmentStart(text, index)) {
+                return 1;
+            }
+            tier = 2;
+        }
+        return tier;
+    }
+
+    private static boolean isSegmentStart(String text, int offset) {
+        char before = text.charAt(offset - 1);
+        return before == '.' || before == '[' || before == '_' || before == '`';
+    }
+
+    /**
+     * Compares the text starting at {@code offset} with the query, treating it as equal when
+     * the query is a prefix of it.
+     */
+    private static int comparePrefix(String text, int offset, String query) {
+        int length = Math.min(text.length() - offset, query.length());
+        for (int k = 0; k < length; k++) {
+            int diff = text.charAt(offset + k) - query.charAt(k);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return text.length() - offset < query.length() ? -1 : 0;
+    }
+
+    private interface Probe {
+        int compare(int index);
+    }
+
+    private static int lowerBound(int size, Probe probe) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probe.compare(mid) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int upperBound(int from, int size, Probe probe) {
+        int lo = from;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probe.compare(mid) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Keeps the {@code k} smallest ids offered (lower id means higher rank) in a bounded max-heap.
+     */
+    private static final class TopK {
+        private final int[] heap;
+        private int size;
+
+        private TopK(int k) {
+            this.heap = new int[k];
+        }
+
+        private void offer(int id) {
+            if (heap.length == 0) {
+                return;
+            }
+            if (size < heap.length) {
+                heap[size] = id;
+                siftUp(size++);
+            } else if (id < heap[0]) {
+                heap[0] = id;
+                siftDown(0);
+            }
+        }
+
+        private void drainTo(List<String> results, String[] suggestions) {
+            drainTo(results, suggestions, size);
+        }
+
+        private void drainTo(List<String> results, String[] suggestions, int max) {
+            int[] ids = Arrays.copyOf(heap, size);
+            Arrays.sort(ids);
+            for (int i = 0; i < Math.min(max, ids.length); i++) {
+                results.add(suggestions[ids[i]]);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= heap[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && heap[left] > heap[largest]) {
+                    largest = left;
+                }
+                if (right < size && heap[right] > heap[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
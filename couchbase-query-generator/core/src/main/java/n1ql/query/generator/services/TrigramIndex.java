@@ -0,0 +1,282 @@
+package n1ql.query.generator.services;
+
+import java.util.*;
+
+/**
+ * Incrementally maintained trigram inverted index for case-insensitive substring search.
+ * <p>
+ * Each document has one or more weighted text fields. Queries are split on whitespace into
+ * terms that must all occur (in any field); candidates come from intersecting the posting
+ * lists of each term's trigrams and are then verified against the stored lowercase text.
+ * Two-character terms use a parallel bigram index. Postings are sorted int arrays of
+ * document ids, so memory stays proportional to the number of distinct grams per document
+ * rather than to boxed set entries.
+ */
+public class TrigramIndex<K> {
+
+    private static final int[] EMPTY = new int[0];
+    // Distinguishes bigram keys from trigram keys in the shared postings map
+    private static final long BIGRAM_MARKER = 1L << 48;
+
+    private final double[] fieldWeights;
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<K, Integer> idsByKey = new HashMap<>();
+    private final List<Document<K>> documents = new ArrayList<>();
+    private int liveCount = 0;
+
+    /**
+     * @param fieldWeights Weight of a match in each field, in the order fields are passed to {@link #put}
+     */
+    public TrigramIndex(double... fieldWeights) {
+        if (fieldWeights.length == 0) {
+            throw new IllegalArgumentException("At least one field weight is required");
+        }
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * A search hit with its match quality (higher is better).
+     */
+    public static final class Match<K> {
+        private final K key;
+        private final double quality;
+
+        private Match(K key, double quality) {
+            this.key = key;
+            this.quality = quality;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public double getQuality() {
+            return quality;
+        }
+    }
+
+    private static final class Document<K> {
+        private final K key;
+        private final String[] fields;
+
+        private Document(K key, String[] fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Growable sorted list of document ids. Ids are assigned in increasing order,
+     * so appends keep it sorted; removed documents are filtered out lazily.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /**
+     * Adds or replaces the document for the given key.
+     */
+    public void put(K key, String... fields) {
+        remove(key);
+
+        String[] lowered = new String[fieldWeights.length];
+        for (int i = 0; i < lowered.length; i++) {
+            String field = i < fields.length ? fields[i] : null;
+            lowered[i] = field != null ? field.toLowerCase(Locale.ROOT) : "";
+        }
+
+        int id = documents.size();
+        documents.add(new Document<>(key, lowered));
+        idsByKey.put(key, id);
+        liveCount++;
+
+        Set<Long> seen = new HashSet<>();
+        for (String field : lowered) {
+            for (int i = 0; i + 2 <= field.length(); i++) {
+                long bigram = bigram(field, i);
+                if (seen.add(bigram)) {
+                    postings.computeIfAbsent(bigram, t -> new Postings()).add(id);
+                }
+                if (i + 3 <= field.length()) {
+                    long trigram = trigram(field, i);
+                    if (seen.add(trigram)) {
+                        postings.computeIfAbsent(trigram, t -> new Postings()).add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the document for the given key, if present.
+     */
+    public void remove(K key) {
+        Integer id = idsByKey.remove(key);
+        if (id == null) {
+            return;
+        }
+        documents.set(id, null);
+        liveCount--;
+
+        // Compact once tombstones dominate, keeping postings proportional to live documents
+        if (documents.size() > 64 && liveCount < documents.size() / 2) {
+            compact();
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        idsByKey.clear();
+        documents.clear();
+        liveCount = 0;
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Returns documents containing every whitespace-separated term of the query, unordered.
+     */
+    public List<Match<K>> search(String query) {
+        List<Match<K>> matches = new ArrayList<>();
+        String[] terms = splitTerms(query);
+        if (terms.length == 0) {
+            return matches;
+        }
+
+        int[] candidates = candidates(terms);
+        for (int id : candidates) {
+            Document<K> doc = documents.get(id);
+            if (doc == null) {
+                continue;
+            }
+            double quality = 0;
+            for (String term : terms) {
+                double termQuality = termQuality(doc, term);
+                if (termQuality == 0) {
+                    quality = 0;
+                    break;
+                }
+                quality += termQuality;
+            }
+            if (quality > 0) {
+                matches.add(new Match<>(doc.key, quality));
+            }
+        }
+        return matches;
+    }
+
+    private int[] candidates(String[] terms) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            if (term.length() == 2) {
+                Postings list = postings.get(bigram(term, 0));
+                if (list == null) {
+                    return EMPTY;
+                }
+                lists.add(list);
+            }
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                Postings list = postings.get(trigram(term, i));
+                if (list == null) {
+                    return EMPTY;
+                }
+                lists.add(list);
+            }
+        }
+
+        if (lists.isEmpty()) {
+            // Only single-character terms: verify every live document
+            int[] all = new int[liveCount];
+            int n = 0;
+            for (int id = 0; id < documents.size(); id++) {
+                if (documents.get(id) != null) {
+                    all[n++] = id;
+                }
+            }
+            return all;
+        }
+
+        // Drive the intersection from the rarest trigram
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        Postings smallest = lists.get(0);
+        int[] result = new int[smallest.size];
+        int n = 0;
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue outer;
+                }
+            }
+            result[n++] = id;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private double termQuality(Document<K> doc, String term) {
+        double best = 0;
+        for (int f = 0; f < doc.fields.length; f++) {
+            String field = doc.fields[f];
+            int index = field.indexOf(term);
+            if (index < 0) {
+                continue;
+            }
+            // Word-start matches rank above mid-word ones, whole words above both
+            boolean wordStart = index == 0 || !Character.isLetterOrDigit(field.charAt(index - 1));
+            int endIndex = index + term.length();
+            boolean wordEnd = endIndex == field.length() || !Character.isLetterOrDigit(field.charAt(endIndex));
+            double score = 1 + (wordStart ? 1 : 0) + (wordStart && wordEnd ? 1 : 0);
+            best = Math.max(best, score * fieldWeights[f]);
+        }
+        return best;
+    }
+
+    private void compact() {
+        List<Document<K>> live = new ArrayList<>(liveCount);
+        for (Document<K> doc : documents) {
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+
+        postings.clear();
+        idsByKey.clear();
+        documents.clear();
+        liveCount = 0;
+        for (Document<K> doc : live) {
+            // Fields are already lowercased; lowercasing again is a no-op
+            put(doc.key, doc.fields);
+        }
+    }
+
+    private static String[] splitTerms(String query) {
+        if (query == null) {
+            return new String[0];
+        }
+        String trimmed = query.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    private static long bigram(String s, int i) {
+        return BIGRAM_MARKER | ((long) s.charAt(i) << 16) | s.charAt(i + 1);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,112 @@
+package n1ql.query.generator.lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that lexing stays linear on documents of about 1 MB, including input that makes a
+ * scanner look far ahead: unterminated literals and comments, escapes and very long words. A
+ * quadratic scan of 1 MB takes minutes, so the timeout alone catches a regression; the timing
+ * test also compares a document with one four times its size.
+ */
+@Timeout(30)
+class N1QLLexerTest {
+
+    private static final int SIZE = 1 << 20;
+
+    private static final String STATEMENT = """
+            SELECT DISTINCT a.name, a.country, COUNT(*) AS routes
+            FROM `travel-sample`.`inventory`.`airline` a
+            WHERE a.country = "United States" AND a.name LIKE 'A%' -- comment
+              AND ANY s IN a.schedule SATISFIES s.day = 1 END
+            GROUP BY a.name, a.country
+            ORDER BY routes DESC
+            LIMIT 100 OFFSET 20;
+            """;
+
+    @Test
+    void repeatedStatementsGiveRepeatedTokens() {
+        int repeats = SIZE / STATEMENT.length();
+        List<N1QLToken> one = N1QLLexer.tokenize(STATEMENT);
+        List<N1QLToken> many = N1QLLexer.tokenize(STATEMENT.repeat(repeats));
+
+        assertEquals((long) one.size() * repeats, many.size());
+        N1QLToken last = many.get(many.size() - 1);
+        assertEquals(STATEMENT.length() * repeats, last.getEnd());
+    }
+
+    @Test
+    void unterminatedStringIsOneToken() {
+        assertSingleToken("\"" + "ab\\\"''".repeat(SIZE / 6), N1QLTokenType.STRING);
+    }
+
+    @Test
+    void unterminatedBlockCommentIsOneToken() {
+        assertSingleToken("/*" + "* /".repeat(SIZE / 3), N1QLTokenType.BLOCK_COMMENT);
+    }
+
+    @Test
+    void unterminatedQuotedIdentifierIsOneToken() {
+        // Doubled backticks are escapes, so every pair keeps the identifier open
+        assertSingleToken("`" + "a``".repeat(SIZE / 3), N1QLTokenType.QUOTED_IDENTIFIER);
+    }
+
+    @Test
+    void longWordIsOneToken() {
+        assertSingleToken("select".repeat(SIZE / 6), N1QLTokenType.IDENTIFIER);
+    }
+
+    @Test
+    void quadruplingTheInputRoughlyQuadruplesTheTime() {
+        String quarter = pathological(SIZE / 4);
+        String full = pathological(SIZE);
+        // Warm up so both sizes run fully compiled code
+        for (int i = 0; i < 20; i++) {
+            lexNanos(quarter);
+            lexNanos(full);
+        }
+        // The fastest of several runs filters out GC pauses and scheduling noise
+        long quarterNanos = Long.MAX_VALUE;
+        long fullNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            quarterNanos = Math.min(quarterNanos, lexNanos(quarter));
+            fullNanos = Math.min(fullNanos, lexNanos(full));
+        }
+        // Linear would be 4 and quadratic 16; the bound leaves room for noisy machines
+        double ratio = (double) fullNanos / quarterNanos;
+        assertTrue(ratio < 8, "Lexing four times the input took " + ratio + " times as long");
+    }
+
+    private static void assertSingleToken(String text, N1QLTokenType type) {
+        List<N1QLToken> tokens = N1QLLexer.tokenize(text);
+        assertEquals(1, tokens.size());
+        assertEquals(type, tokens.get(0).getType());
+        assertEquals(text.length(), tokens.get(0).getEnd());
+    }
+
+    /**
+     * Returns about {@code size} characters of statements mixed with short unterminated-looking
+     * fragments that are closed again, so scanning restarts often.
+     */
+    private static String pathological(int size) {
+        String unit = STATEMENT + "\"x\\\"y\" `a``b` /* * / */ 'it''s' " + "w".repeat(200) + "\n";
+        return unit.repeat(Math.max(1, size / unit.length()));
+    }
+
+    private static long lexNanos(String text) {
+        long start = System.nanoTime();
+        N1QLLexer lexer = new N1QLLexer(text);
+        int count = 0;
+        while (lexer.next() != null) {
+            count++;
+        }
+        long nanos = System.nanoTime() - start;
+        assertTrue(count > 0);
+        return nanos;
+    }
+}
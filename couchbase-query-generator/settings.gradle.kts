@@ -1 +1,4 @@
 rootProject.name = "couchbase-query-generator"
+
+// Platform-free builder, model, lexer and schema inference, usable outside the IDE
+include("core")
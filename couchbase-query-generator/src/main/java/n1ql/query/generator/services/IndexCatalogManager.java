@@ -0,0 +1,122 @@
+package n1ql.query.generator.services;
+
+import n1ql.query.generator.advisor.IndexDefinition;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Project service holding the project's declared GSI indexes, as a script of CREATE INDEX
+ * statements, for index advice and covering checks.
+ */
+@Service(Service.Level.PROJECT)
+@State(
+    name = "N1QLIndexCatalog",
+    storages = @Storage("n1ql-index-catalog.xml")
+)
+public final class IndexCatalogManager implements PersistentStateComponent<IndexCatalogManager.State> {
+
+    private State myState = new State();
+    private final List<Runnable> listeners = new ArrayList<>();
+    // Parsed from the script on first use; the script is validated before it is stored
+    private List<IndexDefinition> indexes;
+
+    public static IndexCatalogManager getInstance(Project project) {
+        return project.getService(IndexCatalogManager.class);
+    }
+
+    public static class State {
+        public String script = "";
+    }
+
+    @Override
+    public @Nullable State getState() {
+        return myState;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        XmlSerializerUtil.copyBean(state, myState);
+        indexes = null;
+    }
+
+    /**
+     * Returns the catalog script as entered, including comments.
+     */
+    public String getScript() {
+        return myState.script != null ? myState.script : "";
+    }
+
+    /**
+     * Replaces the catalog.
+     * @throws IllegalArgumentException If a statement is not a CREATE INDEX statement; the
+     *                                  catalog is left unchanged
+     */
+    public void setScript(String script) {
+        List<IndexDefinition> parsed = IndexDefinition.parseScript(script);
+        myState.script = script;
+        indexes = Collections.unmodifiableList(parsed);
+        notifyListeners();
+    }
+
+    /**
+     * Returns the declared indexes. Statements that no longer parse (e.g. edited by hand in
+     * the settings file) are skipped.
+     */
+    public List<IndexDefinition> getIndexes() {
+        if (indexes == null) {
+            List<IndexDefinition> parsed;
+            try {
+                parsed = IndexDefinition.parseScript(getScript());
+            } catch (IllegalArgumentException e) {
+                parsed = parseLeniently(getScript());
+            }
+            indexes = Collections.unmodifiableList(parsed);
+        }
+        return indexes;
+    }
+
+    private static List<IndexDefinition> parseLeniently(String script) {
+        List<IndexDefinition> parsed = new ArrayList<>();
+        for (String statement : script.split(";")) {
+            if (statement.isBlank()) {
+                continue;
+            }
+            try {
+                parsed.addAll(IndexDefinition.parseScript(statement));
+            } catch (IllegalArgumentException e) {
+                // Skip the broken statement and keep the rest of the catalog usable
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Adds a listener to be notified when the catalog changes.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     */
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
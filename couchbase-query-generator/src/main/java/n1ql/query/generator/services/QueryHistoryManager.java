@@ -2,7 +2,10 @@ package n1ql.query.generator.services;
 
 import n1ql.query.generator.model.QueryHistoryEntry;
 import n1ql.query.generator.model.QueryOperation;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.components.State;
@@ -11,30 +14,67 @@ import com.intellij.util.xmlb.XmlSerializerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing query history with persistence.
+ * <p>
+ * History is stored either in the XML state (default) or, when journal storage is enabled,
+ * in an append-only {@link HistoryJournal} next to it. In journal mode only entry headers are
+ * loaded at startup; query text is then read on a pooled thread, and entries still loading are
+ * listed without it.
+ * <p>
+ * Entries are keyed by {@link QueryShape}: re-running a query with different literal values
+ * updates the existing entry and keeps the previous values as one of its recent variants.
  */
 @Service(Service.Level.APP)
 @State(
     name = "N1QLQueryHistory",
     storages = @Storage("n1ql-query-history.xml")
 )
-public final class QueryHistoryManager implements PersistentStateComponent<QueryHistoryManager.State> {
+public final class QueryHistoryManager implements PersistentStateComponent<QueryHistoryManager.State>, Disposable {
 
-    private static final int MAX_HISTORY_SIZE = 100;
+    public static final int DEFAULT_MAX_HISTORY_SIZE = 100;
+    // Bounds of the history size setting
+    public static final int MIN_HISTORY_SIZE = 10;
+    public static final int MAX_HISTORY_SIZE = 1_000_000;
+    // Search ranking: match quality (1-3 per term) plus recency (0-1) plus a favorite boost
+    private static final double RECENCY_WEIGHT = 1.0;
+    private static final double FAVORITE_BOOST = 1.5;
+    private static final String JOURNAL_FILE_NAME = "n1ql-query-history.journal";
+    // Earlier literal variants kept per entry
+    private static final int MAX_VARIANTS = 10;
     private State myState = new State();
     private final List<Runnable> listeners = new ArrayList<>();
 
+    // In-memory indexes over the history; the persisted XML list is rebuilt only when saved
+    private final Map<Long, IndexedEntry> byShape = new HashMap<>();
+    private final Map<String, IndexedEntry> byId = new HashMap<>();
+    private final TreeMap<Long, IndexedEntry> byRecency = new TreeMap<>();
+    private final TreeMap<Long, IndexedEntry> nonFavoritesByRecency = new TreeMap<>();
+    private final TrigramIndex<IndexedEntry> searchIndex = new TrigramIndex<>(1.0, 0.5);
+    private long sequence = 0;
+    private boolean stateDirty = false;
+    // Built on first search so journal-backed startup doesn't read every query body
+    private boolean searchIndexStale = true;
+    private HistoryJournal journal;
+
     public static QueryHistoryManager getInstance() {
         return ApplicationManager.getApplication().getService(QueryHistoryManager.class);
     }
 
     public static class State {
         public List<HistoryEntryState> entries = new ArrayList<>();
+        public int maxHistorySize = DEFAULT_MAX_HISTORY_SIZE;
+        // When set, entries live in the history journal and the list above stays empty
+        public boolean journalStorage = false;
     }
 
     public static class HistoryEntryState {
@@ -44,6 +84,8 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
         public String bucket;
         public String timestamp;
         public boolean favorite;
+        // Literals of earlier variants, most recent first, each encoded by QueryShape.joinLiterals
+        public List<String> variants = new ArrayList<>();
 
         public HistoryEntryState() {}
 
@@ -54,6 +96,9 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
             this.bucket = entry.getBucket();
             this.timestamp = entry.getTimestamp() != null ? entry.getTimestamp().toString() : null;
             this.favorite = entry.isFavorite();
+            for (String variant : entry.getVariants()) {
+                this.variants.add(QueryShape.joinLiterals(QueryShape.of(variant).getLiterals()));
+            }
         }
 
         public QueryHistoryEntry toEntry() {
@@ -64,18 +109,260 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
             entry.setBucket(bucket);
             entry.setTimestamp(timestamp != null ? LocalDateTime.parse(timestamp) : LocalDateTime.now());
             entry.setFavorite(favorite);
+            // Variants are stored as literals and need the query text to expand, which lexes it
+            String text = query;
+            List<String> literals = text != null ? List.copyOf(variants) : List.of();
+            entry.setVariants(literals.size(), () -> {
+                List<String> texts = new ArrayList<>();
+                for (String variant : literals) {
+                    String expanded = QueryShape.withLiterals(text, QueryShape.splitLiterals(variant));
+                    if (expanded != null) {
+                        texts.add(expanded);
+                    }
+                }
+                return texts;
+            });
             return entry;
         }
     }
 
+    /**
+     * Index node wrapping an entry with its recency position. In journal mode the
+     * query text is loaded in the background from the journal record.
+     */
+    private final class IndexedEntry {
+        private final HistoryEntryState state;
+        private final long shapeHash;
+        private HistoryJournal.Entry record;
+        private long sequence;
+        // Entry handed out for display, rebuilt only after this entry changes
+        private QueryHistoryEntry view;
+        // Normalized text of the shape, computed when a fingerprint match needs confirming
+        private String normalized;
+
+        private IndexedEntry(HistoryEntryState state) {
+            this.state = state;
+            this.shapeHash = QueryShape.of(state.query).getFingerprint();
+        }
+
+        private IndexedEntry(HistoryJournal.Entry record) {
+            this.state = new HistoryEntryState();
+            this.state.id = record.getId();
+            this.state.operation = record.getOperation();
+            this.state.bucket = record.getBucket();
+            this.state.timestamp = fromEpochMillis(record.getTimestamp()).toString();
+            this.state.favorite = record.isFavorite();
+            this.state.variants = new ArrayList<>(record.getVariants());
+            this.record = record;
+            // Records written before shapes were stored are fingerprinted from their body
+            this.shapeHash = record.getShapeHash() != null ? record.getShapeHash()
+                : QueryShape.of(query()).getFingerprint();
+        }
+
+        /**
+         * Returns the query text, reading it from the journal if the background load hasn't
+         * reached this entry yet.
+         */
+        private String query() {
+            if (state.query == null && record != null) {
+                state.query = journal.readQuery(record);
+                view = null;
+            }
+            return state.query;
+        }
+
+        private String normalized() {
+            if (normalized == null) {
+                normalized = QueryShape.of(query()).getNormalized();
+            }
+            return normalized;
+        }
+
+        private QueryHistoryEntry toEntry() {
+            if (view == null) {
+                view = state.toEntry();
+            }
+            return view;
+        }
+    }
+
     @Override
     public @Nullable State getState() {
+        if (stateDirty) {
+            myState.entries = journal != null ? new ArrayList<>() : byRecency.descendingMap().values().stream()
+                .map(e -> e.state)
+                .collect(Collectors.toCollection(ArrayList::new));
+            stateDirty = false;
+        }
         return myState;
     }
 
     @Override
     public void loadState(@NotNull State state) {
         XmlSerializerUtil.copyBean(state, myState);
+        closeJournal();
+        if (myState.journalStorage) {
+            try {
+                journal = HistoryJournal.open(getJournalPath());
+            } catch (IOException | UncheckedIOException e) {
+                // Unreadable journal: keep whatever the XML state holds
+                myState.journalStorage = false;
+            }
+        }
+        rebuildIndex();
+        if (journal != null) {
+            loadQueriesInBackground();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        closeJournal();
+    }
+
+    private void rebuildIndex() {
+        byShape.clear();
+        byId.clear();
+        byRecency.clear();
+        nonFavoritesByRecency.clear();
+        searchIndex.clear();
+        searchIndexStale = true;
+        sequence = 0;
+
+        if (journal != null) {
+            // Journal entries are replayed oldest first
+            for (HistoryJournal.Entry record : journal.getEntries()) {
+                try {
+                    index(new IndexedEntry(record));
+                } catch (UncheckedIOException e) {
+                    // Record written before shapes were stored whose body can't be read: leave it unlisted
+                }
+            }
+        } else {
+            // Persisted entries are most-recent first; index oldest first so sequence grows with recency
+            List<HistoryEntryState> entries = myState.entries;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                HistoryEntryState state = entries.get(i);
+                if (state.query == null) {
+                    continue;
+                }
+                QueryShape shape = QueryShape.of(state.query);
+                IndexedEntry existing = findByShape(shape);
+                if (existing == null) {
+                    index(new IndexedEntry(state));
+                    continue;
+                }
+                // Saved before entries were grouped by shape: fold the newer one into the older
+                unindex(existing);
+                mergeVariant(existing, state.query, shape);
+                for (String variant : state.variants) {
+                    addVariant(existing.state, variant);
+                }
+                existing.state.timestamp = state.timestamp;
+                existing.state.favorite |= state.favorite;
+                index(existing);
+            }
+        }
+        if (myState.maxHistorySize <= 0) {
+            myState.maxHistorySize = DEFAULT_MAX_HISTORY_SIZE;
+        } else {
+            // Saved by a version without bounds, or edited by hand
+            myState.maxHistorySize = Math.max(MIN_HISTORY_SIZE, Math.min(MAX_HISTORY_SIZE, myState.maxHistorySize));
+        }
+        trimHistory();
+        stateDirty = true;
+    }
+
+    private IndexedEntry findByShape(QueryShape shape) {
+        IndexedEntry entry = byShape.get(shape.getFingerprint());
+        if (entry == null || entry.state.query == null) {
+            // Bodies still loading from the journal are matched on the stored fingerprint alone
+            // rather than read here, which is usually the EDT
+            return entry;
+        }
+        // Fingerprints are 64-bit, but confirm against the normalized text before grouping
+        return shape.getNormalized().equals(entry.normalized()) ? entry : null;
+    }
+
+    /**
+     * Makes {@code query} the entry's text, keeping the literals it replaces as a variant.
+     * If the entry's body hasn't been loaded from the journal yet, the replaced literals
+     * aren't known and no variant is kept for them.
+     * @return True if the literals changed
+     */
+    private boolean mergeVariant(IndexedEntry entry, String query, QueryShape shape) {
+        if (entry.state.query == null) {
+            entry.state.variants.remove(QueryShape.joinLiterals(shape.getLiterals()));
+            entry.state.query = query;
+            entry.view = null;
+            return true;
+        }
+        String previous = QueryShape.joinLiterals(QueryShape.of(entry.state.query).getLiterals());
+        String current = QueryShape.joinLiterals(shape.getLiterals());
+        if (previous.equals(current)) {
+            return false;
+        }
+        entry.state.variants.remove(current);
+        addVariant(entry.state, previous);
+        entry.state.query = query;
+        return true;
+    }
+
+    private static void addVariant(HistoryEntryState state, String variant) {
+        state.variants.remove(variant);
+        state.variants.add(0, variant);
+        if (state.variants.size() > MAX_VARIANTS) {
+            state.variants.subList(MAX_VARIANTS, state.variants.size()).clear();
+        }
+    }
+
+    private void add(IndexedEntry entry) {
+        index(entry);
+        if (!searchIndexStale) {
+            searchIndex.put(entry, entry.query(), entry.state.bucket);
+        }
+    }
+
+    private void forget(IndexedEntry entry) {
+        unindex(entry);
+        searchIndex.remove(entry);
+        journaled(() -> journal.remove(entry.state.id));
+    }
+
+    private void ensureSearchIndex() {
+        if (searchIndexStale) {
+            searchIndex.clear();
+            for (IndexedEntry entry : byRecency.values()) {
+                // Entries still loading are indexed once their text arrives
+                if (entry.state.query != null) {
+                    searchIndex.put(entry, entry.state.query, entry.state.bucket);
+                }
+            }
+            searchIndexStale = false;
+        }
+    }
+
+    private void index(IndexedEntry entry) {
+        // Entries are re-indexed after every change but a favorite toggle or a loaded query
+        entry.view = null;
+        entry.sequence = ++sequence;
+        byShape.putIfAbsent(entry.shapeHash, entry);
+        if (entry.state.id != null) {
+            byId.put(entry.state.id, entry);
+        }
+        byRecency.put(entry.sequence, entry);
+        if (!entry.state.favorite) {
+            nonFavoritesByRecency.put(entry.sequence, entry);
+        }
+    }
+
+    private void unindex(IndexedEntry entry) {
+        byShape.remove(entry.shapeHash, entry);
+        if (entry.state.id != null) {
+            byId.remove(entry.state.id);
+        }
+        byRecency.remove(entry.sequence);
+        nonFavoritesByRecency.remove(entry.sequence);
     }
 
     /**
@@ -86,20 +373,41 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
             return;
         }
 
-        // Check for duplicate (same query in recent history)
-        for (HistoryEntryState existing : myState.entries) {
-            if (existing.query != null && existing.query.equals(query)) {
-                // Move to top instead of adding duplicate
-                myState.entries.remove(existing);
-                existing.timestamp = LocalDateTime.now().toString();
-                myState.entries.add(0, existing);
-                notifyListeners();
-                return;
+        // Check for a query of the same shape already in history
+        QueryShape shape = QueryShape.of(query);
+        IndexedEntry existing = findByShape(shape);
+        if (existing != null) {
+            // Move to top instead of adding duplicate, taking the new literals if they differ
+            LocalDateTime now = LocalDateTime.now();
+            unindex(existing);
+            boolean changed = mergeVariant(existing, query, shape);
+            existing.state.timestamp = now.toString();
+            index(existing);
+            stateDirty = true;
+            if (changed) {
+                if (!searchIndexStale) {
+                    searchIndex.remove(existing);
+                    searchIndex.put(existing, query, existing.state.bucket);
+                }
+                // Remove first so the re-added record replays at the top
+                journaled(() -> {
+                    journal.remove(existing.state.id);
+                    existing.record = journal.append(existing.state.id, query, existing.state.variants,
+                        existing.state.operation, existing.state.bucket, toEpochMillis(now), existing.state.favorite);
+                });
+            } else {
+                journaled(() -> journal.touch(existing.state.id, toEpochMillis(now)));
             }
+            notifyListeners();
+            return;
         }
 
         QueryHistoryEntry entry = new QueryHistoryEntry(query, operation, bucket);
-        myState.entries.add(0, new HistoryEntryState(entry));
+        IndexedEntry indexed = new IndexedEntry(new HistoryEntryState(entry));
+        add(indexed);
+        stateDirty = true;
+        journaled(() -> indexed.record = journal.append(entry.getId(), query, indexed.state.operation,
+            bucket, toEpochMillis(entry.getTimestamp()), false));
 
         // Trim to max size (keep favorites)
         trimHistory();
@@ -107,29 +415,87 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
     }
 
     private void trimHistory() {
-        if (myState.entries.size() > MAX_HISTORY_SIZE) {
-            // Keep favorites and most recent
-            List<HistoryEntryState> favorites = myState.entries.stream()
-                .filter(e -> e.favorite)
-                .collect(Collectors.toList());
-            
-            List<HistoryEntryState> nonFavorites = myState.entries.stream()
-                .filter(e -> !e.favorite)
-                .limit(MAX_HISTORY_SIZE - favorites.size())
-                .collect(Collectors.toList());
+        // Evict the oldest non-favorites until favorites plus the rest fit the capacity
+        while (byRecency.size() > myState.maxHistorySize && !nonFavoritesByRecency.isEmpty()) {
+            forget(nonFavoritesByRecency.firstEntry().getValue());
+            stateDirty = true;
+        }
+    }
+
+    /**
+     * Gets the maximum number of entries kept (favorites are never evicted).
+     */
+    public int getMaxHistorySize() {
+        return myState.maxHistorySize;
+    }
 
-            myState.entries.clear();
-            myState.entries.addAll(favorites);
-            myState.entries.addAll(nonFavorites);
+    /**
+     * Sets the maximum number of entries kept, evicting the oldest non-favorites if needed.
+     * @throws IllegalArgumentException If the size is outside {@value #MIN_HISTORY_SIZE} to {@value #MAX_HISTORY_SIZE}
+     */
+    public void setMaxHistorySize(int maxHistorySize) {
+        if (maxHistorySize < MIN_HISTORY_SIZE || maxHistorySize > MAX_HISTORY_SIZE) {
+            throw new IllegalArgumentException("History size must be between " + MIN_HISTORY_SIZE
+                + " and " + MAX_HISTORY_SIZE + ": " + maxHistorySize);
+        }
+        myState.maxHistorySize = maxHistorySize;
+        int before = byRecency.size();
+        trimHistory();
+        if (byRecency.size() != before) {
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Returns true if history is stored in the append-only journal rather than the XML state.
+     */
+    public boolean isJournalStorage() {
+        return journal != null;
+    }
+
+    /**
+     * Switches between XML and journal storage, migrating existing entries.
+     */
+    public void setJournalStorage(boolean enabled) {
+        if (enabled == (journal != null)) {
+            return;
         }
+        if (enabled) {
+            try {
+                journal = HistoryJournal.open(getJournalPath());
+                // Start from the in-memory history, oldest first
+                journal.clear(false);
+                for (IndexedEntry entry : byRecency.values()) {
+                    entry.record = journal.append(entry.state.id, entry.query(), entry.state.variants, entry.state.operation,
+                        entry.state.bucket, entry.state.timestamp != null
+                            ? toEpochMillis(LocalDateTime.parse(entry.state.timestamp)) : System.currentTimeMillis(),
+                        entry.state.favorite);
+                }
+                journal.compact();
+            } catch (IOException | UncheckedIOException e) {
+                closeJournal();
+                throw new IllegalStateException("Failed to enable history journal", e);
+            }
+        } else {
+            fallBackToXml();
+        }
+        myState.journalStorage = journal != null;
+        stateDirty = true;
+    }
+
+    /**
+     * Gets the number of entries in history.
+     */
+    public int size() {
+        return byRecency.size();
     }
 
     /**
      * Gets all history entries.
      */
     public List<QueryHistoryEntry> getHistory() {
-        return myState.entries.stream()
-            .map(HistoryEntryState::toEntry)
+        return byRecency.descendingMap().values().stream()
+            .map(IndexedEntry::toEntry)
             .collect(Collectors.toList());
     }
 
@@ -137,25 +503,39 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
      * Gets favorite entries only.
      */
     public List<QueryHistoryEntry> getFavorites() {
-        return myState.entries.stream()
-            .filter(e -> e.favorite)
-            .map(HistoryEntryState::toEntry)
+        return byRecency.descendingMap().values().stream()
+            .filter(e -> e.state.favorite)
+            .map(IndexedEntry::toEntry)
             .collect(Collectors.toList());
     }
 
     /**
-     * Searches history by query content.
+     * Searches history by query content and bucket.
+     * Every whitespace-separated term must match; results are ranked by match quality,
+     * recency and favorite status.
      */
     public List<QueryHistoryEntry> search(String searchTerm) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getHistory();
         }
-        
-        String lower = searchTerm.toLowerCase();
-        return myState.entries.stream()
-            .filter(e -> (e.query != null && e.query.toLowerCase().contains(lower)) ||
-                        (e.bucket != null && e.bucket.toLowerCase().contains(lower)))
-            .map(HistoryEntryState::toEntry)
+        if (byRecency.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long oldest = byRecency.firstKey();
+        double span = Math.max(1, byRecency.lastKey() - oldest);
+        ensureSearchIndex();
+        List<TrigramIndex.Match<IndexedEntry>> matches = searchIndex.search(searchTerm);
+        Map<IndexedEntry, Double> scores = new HashMap<>();
+        for (TrigramIndex.Match<IndexedEntry> match : matches) {
+            IndexedEntry e = match.getKey();
+            double recency = (e.sequence - oldest) / span;
+            scores.put(e, match.getQuality() + RECENCY_WEIGHT * recency + (e.state.favorite ? FAVORITE_BOOST : 0));
+        }
+
+        return scores.entrySet().stream()
+            .sorted(Map.Entry.<IndexedEntry, Double>comparingByValue().reversed())
+            .map(e -> e.getKey().toEntry())
             .collect(Collectors.toList());
     }
 
@@ -163,20 +543,32 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
      * Toggles favorite status for an entry.
      */
     public void toggleFavorite(String id) {
-        for (HistoryEntryState entry : myState.entries) {
-            if (entry.id != null && entry.id.equals(id)) {
-                entry.favorite = !entry.favorite;
-                notifyListeners();
-                break;
-            }
+        IndexedEntry entry = byId.get(id);
+        if (entry == null) {
+            return;
         }
+
+        entry.state.favorite = !entry.state.favorite;
+        entry.view = null;
+        if (entry.state.favorite) {
+            nonFavoritesByRecency.remove(entry.sequence);
+        } else {
+            nonFavoritesByRecency.put(entry.sequence, entry);
+        }
+        stateDirty = true;
+        journaled(() -> journal.setFavorite(id, entry.state.favorite));
+        notifyListeners();
     }
 
     /**
      * Removes an entry from history.
      */
     public void removeEntry(String id) {
-        myState.entries.removeIf(e -> e.id != null && e.id.equals(id));
+        IndexedEntry entry = byId.get(id);
+        if (entry != null) {
+            forget(entry);
+            stateDirty = true;
+        }
         notifyListeners();
     }
 
@@ -184,7 +576,12 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
      * Clears all non-favorite history.
      */
     public void clearHistory() {
-        myState.entries.removeIf(e -> !e.favorite);
+        for (IndexedEntry entry : new ArrayList<>(nonFavoritesByRecency.values())) {
+            unindex(entry);
+            searchIndex.remove(entry);
+        }
+        stateDirty = true;
+        journaled(() -> journal.clear(true));
         notifyListeners();
     }
 
@@ -192,7 +589,13 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
      * Clears all history including favorites.
      */
     public void clearAllHistory() {
-        myState.entries.clear();
+        byShape.clear();
+        byId.clear();
+        byRecency.clear();
+        nonFavoritesByRecency.clear();
+        searchIndex.clear();
+        stateDirty = true;
+        journaled(() -> journal.clear(false));
         notifyListeners();
     }
 
@@ -210,6 +613,116 @@ public final class QueryHistoryManager implements PersistentStateComponent<Query
         listeners.remove(listener);
     }
 
+    /**
+     * Applies a change to the journal, if enabled. If the journal can't be written the
+     * history falls back to XML storage so nothing recorded in memory is lost on save.
+     */
+    private void journaled(Runnable change) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            change.run();
+        } catch (UncheckedIOException e) {
+            fallBackToXml();
+            myState.journalStorage = false;
+            stateDirty = true;
+        }
+    }
+
+    private void fallBackToXml() {
+        for (IndexedEntry entry : byRecency.values()) {
+            try {
+                entry.query();
+            } catch (UncheckedIOException e) {
+                // Body is unreadable; the entry is dropped below
+            }
+            entry.record = null;
+        }
+        closeJournal();
+        for (IndexedEntry entry : new ArrayList<>(byRecency.values())) {
+            if (entry.state.query == null) {
+                unindex(entry);
+                searchIndex.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Reads the query text of journal entries on a pooled thread, most recent first, so listing
+     * and searching history doesn't read the journal on the event dispatch thread.
+     */
+    private void loadQueriesInBackground() {
+        HistoryJournal source = journal;
+        List<IndexedEntry> pending = new ArrayList<>();
+        List<HistoryJournal.Entry> records = new ArrayList<>();
+        for (IndexedEntry entry : byRecency.descendingMap().values()) {
+            if (entry.state.query == null && entry.record != null) {
+                pending.add(entry);
+                records.add(entry.record);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Application application = ApplicationManager.getApplication();
+        application.executeOnPooledThread(() -> {
+            String[] queries = new String[records.size()];
+            boolean[] unreadable = new boolean[records.size()];
+            for (int i = 0; i < queries.length; i++) {
+                try {
+                    queries[i] = source.readQuery(records.get(i));
+                } catch (UncheckedIOException e) {
+                    unreadable[i] = true;
+                }
+            }
+            application.invokeLater(() -> {
+                if (journal != source) {
+                    return; // Storage was switched while loading
+                }
+                for (int i = 0; i < queries.length; i++) {
+                    IndexedEntry entry = pending.get(i);
+                    if (entry.state.query != null || entry.record != records.get(i) || byId.get(entry.state.id) != entry) {
+                        continue; // Loaded on demand, re-added or removed meanwhile
+                    }
+                    if (unreadable[i]) {
+                        // Corrupt or truncated body: drop the entry rather than list it as loading forever
+                        forget(entry);
+                        stateDirty = true;
+                    } else {
+                        entry.state.query = queries[i];
+                        entry.view = null;
+                    }
+                }
+                searchIndexStale = true;
+                notifyListeners();
+            });
+        });
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                // Appends are already on disk; nothing to recover
+            }
+            journal = null;
+        }
+    }
+
+    private static Path getJournalPath() {
+        return Path.of(PathManager.getConfigPath(), JOURNAL_FILE_NAME);
+    }
+
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
     private void notifyListeners() {
         for (Runnable listener : listeners) {
             listener.run();
@@ -23,9 +23,14 @@ import java.util.stream.Collectors;
 )
 public final class TemplatesManager implements PersistentStateComponent<TemplatesManager.State> {
 
+    // Search ranking: match quality plus a boost for frequently used templates
+    private static final double USAGE_WEIGHT = 0.5;
+
     private State myState = new State();
     private final List<Runnable> listeners = new ArrayList<>();
     private boolean builtInTemplatesLoaded = false;
+    private final TrigramIndex<TemplateState> searchIndex = new TrigramIndex<>(1.0, 0.6, 0.3);
+    private boolean searchIndexStale = true;
 
     public static TemplatesManager getInstance() {
         return ApplicationManager.getApplication().getService(TemplatesManager.class);
@@ -77,6 +82,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
     @Override
     public void loadState(@NotNull State state) {
         XmlSerializerUtil.copyBean(state, myState);
+        searchIndexStale = true;
     }
 
     /**
@@ -98,7 +104,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
     private void loadBuiltInTemplates() {
         List<QueryTemplate> builtIns = createBuiltInTemplates();
         for (QueryTemplate template : builtIns) {
-            myState.templates.add(new TemplateState(template));
+            addState(new TemplateState(template));
         }
     }
 
@@ -108,7 +114,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
         // SELECT Templates
         templates.add(new QueryTemplate(
             "Basic SELECT",
-            "SELECT *\nFROM `bucket`\nWHERE type = \"document_type\"\nLIMIT 100",
+            "SELECT *\nFROM `bucket`\nWHERE type = ${type:value=document_type}\nLIMIT ${limit:number=100}",
             "Simple SELECT with type filter",
             "SELECT",
             true
@@ -116,15 +122,18 @@ public final class TemplatesManager implements PersistentStateComponent<Template
 
         templates.add(new QueryTemplate(
             "Pagination Query",
-            "SELECT *\nFROM `bucket`\nWHERE type = \"document_type\"\nORDER BY created_at DESC\nLIMIT 20 OFFSET 0",
-            "Paginated results with sorting",
+            "SELECT *, META().id AS _keyset_id\nFROM `bucket`\nWHERE type = \"document_type\"\n"
+                + "  AND created_at <= $last_created_at\n"
+                + "  AND (created_at < $last_created_at OR (created_at = $last_created_at AND META().id > $last_id))\n"
+                + "ORDER BY created_at DESC, META().id ASC\nLIMIT 20",
+            "Keyset pagination: pass the last row's created_at and _keyset_id for the next page",
             "SELECT",
             true
         ));
 
         templates.add(new QueryTemplate(
             "Search by Field",
-            "SELECT *\nFROM `bucket`\nWHERE type = \"document_type\"\n  AND LOWER(name) LIKE \"%search_term%\"\nLIMIT 50",
+            "SELECT *\nFROM `bucket`\nWHERE type = ${type:value=document_type}\n  AND LOWER(${field:field=name}) LIKE ${pattern:value=%search_term%}\nLIMIT 50",
             "Case-insensitive search",
             "SELECT",
             true
@@ -199,7 +208,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
         // DELETE Templates
         templates.add(new QueryTemplate(
             "Delete by ID",
-            "DELETE FROM `bucket`\nWHERE META().id = \"document_id\"\nRETURNING *",
+            "DELETE FROM `bucket`\nWHERE META().id = ${id:value=document_id}\nRETURNING *",
             "Delete a specific document by ID",
             "DELETE",
             true
@@ -264,7 +273,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
      */
     public void addTemplate(String name, String query, String description, String category) {
         QueryTemplate template = new QueryTemplate(name, query, description, category, false);
-        myState.templates.add(new TemplateState(template));
+        addState(new TemplateState(template));
         notifyListeners();
     }
 
@@ -278,6 +287,7 @@ public final class TemplatesManager implements PersistentStateComponent<Template
                 state.query = query;
                 state.description = description;
                 state.category = category;
+                indexTemplate(state);
                 notifyListeners();
                 break;
             }
@@ -288,10 +298,61 @@ public final class TemplatesManager implements PersistentStateComponent<Template
      * Deletes a custom template.
      */
     public void deleteTemplate(String id) {
-        myState.templates.removeIf(t -> t.id != null && t.id.equals(id) && !t.builtIn);
+        myState.templates.removeIf(t -> {
+            boolean remove = t.id != null && t.id.equals(id) && !t.builtIn;
+            if (remove) {
+                searchIndex.remove(t);
+            }
+            return remove;
+        });
         notifyListeners();
     }
 
+    /**
+     * Searches templates by name, description and category.
+     * Every whitespace-separated term must match; results are ranked by match quality and usage.
+     */
+    public List<QueryTemplate> search(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return getAllTemplates();
+        }
+        ensureBuiltInTemplates();
+        ensureSearchIndex();
+
+        Map<TemplateState, Double> scores = new HashMap<>();
+        for (TrigramIndex.Match<TemplateState> match : searchIndex.search(searchTerm)) {
+            TemplateState state = match.getKey();
+            scores.put(state, match.getQuality() + USAGE_WEIGHT * Math.log1p(state.useCount));
+        }
+
+        return scores.entrySet().stream()
+            .sorted(Map.Entry.<TemplateState, Double>comparingByValue().reversed())
+            .map(e -> e.getKey().toTemplate())
+            .collect(Collectors.toList());
+    }
+
+    private void addState(TemplateState state) {
+        myState.templates.add(state);
+        indexTemplate(state);
+    }
+
+    private void indexTemplate(TemplateState state) {
+        if (!searchIndexStale) {
+            searchIndex.put(state, state.name, state.description, state.category);
+        }
+    }
+
+    private void ensureSearchIndex() {
+        if (!searchIndexStale) {
+            return;
+        }
+        searchIndex.clear();
+        for (TemplateState state : myState.templates) {
+            searchIndex.put(state, state.name, state.description, state.category);
+        }
+        searchIndexStale = false;
+    }
+
     /**
      * Records template usage.
      */
@@ -1,18 +1,33 @@
 package n1ql.query.generator.ui;
 
+import n1ql.query.generator.advisor.CoverageChecker;
+import n1ql.query.generator.advisor.IndexCoverage;
+import n1ql.query.generator.advisor.IndexDefinition;
+import n1ql.query.generator.builder.ClauseCache;
+import n1ql.query.generator.builder.CompiledTemplate;
 import n1ql.query.generator.builder.N1QLQueryBuilder;
+import n1ql.query.generator.builder.ParameterStyle;
+import n1ql.query.generator.builder.ParameterizedQuery;
+import n1ql.query.generator.lexer.N1QLLexer;
+import n1ql.query.generator.lexer.N1QLToken;
 import n1ql.query.generator.model.*;
+import n1ql.query.generator.services.IndexCatalogManager;
 import n1ql.query.generator.services.QueryHistoryManager;
+import n1ql.query.generator.services.SuggestionIndex;
 import n1ql.query.generator.ui.components.*;
 import n1ql.query.generator.ui.highlighting.N1QLSyntaxHighlighter;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
 import com.intellij.util.ui.JBUI;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -23,12 +38,22 @@ import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Main panel for the N1QL Query Generator tool window.
  */
-public class QueryBuilderPanel {
+public class QueryBuilderPanel implements Disposable {
+    
+    // Quiet period after the last keystroke before the preview is regenerated
+    private static final int PREVIEW_DEBOUNCE_MS = 150;
+    // Entered in "After values" for a sort value the cursor row lacked
+    private static final String MISSING_CURSOR_VALUE = "MISSING";
     
     private final Project project;
     private final QueryModel model;
@@ -40,7 +65,7 @@ public class QueryBuilderPanel {
     private JBTextField collectionField;
     
     // Field suggestions from JSON import
-    private List<String> fieldSuggestions = new ArrayList<>();
+    private SuggestionIndex fieldSuggestions = SuggestionIndex.EMPTY;
     
     // Operation selector
     private ComboBox<QueryOperation> operationCombo;
@@ -58,6 +83,9 @@ public class QueryBuilderPanel {
     private OrderByPanel orderByPanel;
     private JBTextField limitField;
     private JBTextField offsetField;
+    private JBCheckBox keysetCheckbox;
+    private JBTextField keysetAfterValuesField;
+    private JBTextField keysetAfterIdField;
     
     // INSERT/UPSERT components
     private JBTextField documentKeyField;
@@ -78,10 +106,25 @@ public class QueryBuilderPanel {
     private JTextPane queryPreviewPane;
     private JPanel queryPreviewPanel;
     private N1QLSyntaxHighlighter syntaxHighlighter;
+    private final QueryPreviewScheduler<RenderedPreview> previewScheduler;
     
     // Format checkbox
     private JBCheckBox formatCheckbox;
     
+    // Literal handling: inline values or prepared-statement placeholders
+    private ComboBox<ParameterStyle> parameterStyleCombo;
+    private JBTextArea parametersArea;
+    private JBScrollPane parametersScrollPane;
+    
+    // Covering status of the query against the project's declared indexes
+    private final IndexCatalogManager indexCatalog;
+    // Kept so the same instance can be unregistered from the project-level catalog
+    private final Runnable catalogListener = this::updateQueryPreview;
+    private JBLabel coverageLabel;
+    
+    // Sample documents loaded for local runs, kept across dialog openings
+    private final SampleRunDialog.Sample sample = new SampleRunDialog.Sample();
+    
     // Side panels
     private JTabbedPane sideTabPane;
     private QueryHistoryPanel historyPanel;
@@ -90,21 +133,32 @@ public class QueryBuilderPanel {
     private boolean sidePanelVisible = false; // Hidden by default
     
     // Template mode tracking
-    private String loadedTemplateQuery = null;  // Store the loaded template
+    private CompiledTemplate loadedTemplate = null;  // The loaded template, compiled once
     private boolean isTemplateMode = false;      // Flag to indicate template is active
+    private final Map<String, String> templateVariables = new HashMap<>();  // Kept across templates by name
+    private JPanel templateVariablesPanel;
     
     // Manual edit tracking
     private boolean isManuallyEdited = false;    // Track if user edited query directly
     private boolean isUpdatingPreview = false;   // Prevent DocumentListener triggering during updates
+    
+    // Sections whose inputs changed since they were last read into the model
+    private final EnumSet<QueryModel.Section> dirtySections = EnumSet.allOf(QueryModel.Section.class);
+    // Rendered clauses of the previous preview, reused for unchanged sections
+    private final ClauseCache clauseCache = new ClauseCache();
 
     public QueryBuilderPanel(Project project) {
         this.project = project;
         this.model = new QueryModel();
+        this.indexCatalog = IndexCatalogManager.getInstance(project);
         this.mainPanel = new JBPanel<>(new BorderLayout());
         this.syntaxHighlighter = new N1QLSyntaxHighlighter();
+        this.previewScheduler = new QueryPreviewScheduler<>(
+            PREVIEW_DEBOUNCE_MS, this::snapshotPreview, this::applyPreview);
         
         initializeUI();
-        updateQueryPreview();
+        indexCatalog.addListener(catalogListener);
+        previewScheduler.flush();
     }
 
     private void initializeUI() {
@@ -162,6 +216,12 @@ public class QueryBuilderPanel {
         contentPanel.add(createOperationCardsPanel());
         contentPanel.add(Box.createVerticalStrut(10));
         
+        // Variables of the loaded template, shown in template mode only
+        templateVariablesPanel = new JPanel(new GridBagLayout());
+        templateVariablesPanel.setBorder(createTitledBorder("Template Variables"));
+        templateVariablesPanel.setVisible(false);
+        contentPanel.add(templateVariablesPanel);
+        
         // Query preview with syntax highlighting
         contentPanel.add(createQueryPreviewPanel());
         contentPanel.add(Box.createVerticalStrut(10));
@@ -233,7 +293,7 @@ public class QueryBuilderPanel {
         gbc.gridx = 1; gbc.weightx = 1;
         bucketField = new JBTextField();
         bucketField.setToolTipText("Enter the bucket name (required)");
-        bucketField.getDocument().addDocumentListener(createUpdateListener());
+        bucketField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.KEYSPACE));
         panel.add(bucketField, gbc);
         
         // Scope
@@ -242,7 +302,7 @@ public class QueryBuilderPanel {
         gbc.gridx = 1; gbc.weightx = 1;
         scopeField = new JBTextField();
         scopeField.setToolTipText("Enter the scope name (optional, leave empty for default)");
-        scopeField.getDocument().addDocumentListener(createUpdateListener());
+        scopeField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.KEYSPACE));
         panel.add(scopeField, gbc);
         
         // Collection
@@ -251,7 +311,7 @@ public class QueryBuilderPanel {
         gbc.gridx = 1; gbc.weightx = 1;
         collectionField = new JBTextField();
         collectionField.setToolTipText("Enter the collection name (optional, leave empty for default)");
-        collectionField.getDocument().addDocumentListener(createUpdateListener());
+        collectionField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.KEYSPACE));
         panel.add(collectionField, gbc);
         
         // JSON Import button
@@ -269,7 +329,8 @@ public class QueryBuilderPanel {
     private void showJsonImportDialog() {
         JsonImportDialog dialog = new JsonImportDialog(mainPanel);
         if (dialog.showAndGet() && dialog.hasValidFields()) {
-            fieldSuggestions = dialog.getExtractedFields();
+            // Built once and shared by every autocomplete field
+            fieldSuggestions = SuggestionIndex.of(dialog.getExtractedFields());
             
             // Update all components with new suggestions
             updateFieldSuggestions();
@@ -285,7 +346,7 @@ public class QueryBuilderPanel {
      * Propagates field suggestions to all relevant UI components.
      */
     private void updateFieldSuggestions() {
-        if (fieldSuggestions == null || fieldSuggestions.isEmpty()) {
+        if (fieldSuggestions.isEmpty()) {
             return;
         }
         
@@ -334,6 +395,8 @@ public class QueryBuilderPanel {
                 exitTemplateMode(); // Exit template mode when operation changes
                 model.setOperation(selected);
                 cardLayout.show(operationCardsPanel, selected.name());
+                // Each operation has its own WHERE and RETURNING inputs
+                dirtySections.addAll(EnumSet.allOf(QueryModel.Section.class));
                 updateQueryPreview();
             }
         });
@@ -375,17 +438,15 @@ public class QueryBuilderPanel {
         gbc.gridx = 0; gbc.gridy = 0; gbc.weightx = 0;
         selectAllCheckbox = new JBCheckBox("SELECT *", true);
         selectAllCheckbox.addActionListener(e -> {
-            model.setSelectAll(selectAllCheckbox.isSelected());
             fieldsField.setEnabled(!selectAllCheckbox.isSelected());
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.PROJECTION);
         });
         fieldsPanel.add(selectAllCheckbox, gbc);
         
         gbc.gridx = 1;
         distinctCheckbox = new JBCheckBox("DISTINCT");
         distinctCheckbox.addActionListener(e -> {
-            model.setDistinct(distinctCheckbox.isSelected());
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.PROJECTION);
         });
         fieldsPanel.add(distinctCheckbox, gbc);
         
@@ -393,7 +454,7 @@ public class QueryBuilderPanel {
         fieldsField = new AutocompleteTextField(20);
         fieldsField.setToolTipText("Enter comma-separated field names (e.g., name, email, age). Press ↓ for suggestions.");
         fieldsField.setEnabled(false);
-        fieldsField.getDocument().addDocumentListener(createUpdateListener());
+        fieldsField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.PROJECTION));
         fieldsPanel.add(fieldsField, gbc);
         
         panel.add(fieldsPanel);
@@ -402,7 +463,7 @@ public class QueryBuilderPanel {
         // WHERE section
         whereClausePanel = new WhereClausePanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.WHERE);
         });
         panel.add(whereClausePanel);
         panel.add(Box.createVerticalStrut(10));
@@ -410,7 +471,7 @@ public class QueryBuilderPanel {
         // Aggregation section (NEW)
         aggregationPanel = new AggregationPanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.AGGREGATION);
         });
         panel.add(aggregationPanel);
         panel.add(Box.createVerticalStrut(10));
@@ -418,27 +479,56 @@ public class QueryBuilderPanel {
         // ORDER BY section
         orderByPanel = new OrderByPanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.ORDER_BY);
         });
         panel.add(orderByPanel);
         panel.add(Box.createVerticalStrut(10));
         
         // LIMIT/OFFSET section
-        JPanel limitPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        JPanel limitPanel = new JPanel();
+        limitPanel.setLayout(new BoxLayout(limitPanel, BoxLayout.Y_AXIS));
         limitPanel.setBorder(createTitledBorder("Pagination"));
-        limitPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 70));
+        limitPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 110));
         
-        limitPanel.add(new JBLabel("LIMIT:"));
+        JPanel offsetRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        offsetRow.add(new JBLabel("LIMIT:"));
         limitField = new JBTextField(8);
         limitField.setToolTipText("Maximum number of results");
-        limitField.getDocument().addDocumentListener(createUpdateListener());
-        limitPanel.add(limitField);
+        limitField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.PAGINATION));
+        offsetRow.add(limitField);
         
-        limitPanel.add(new JBLabel("OFFSET:"));
+        offsetRow.add(new JBLabel("OFFSET:"));
         offsetField = new JBTextField(8);
         offsetField.setToolTipText("Number of results to skip");
-        offsetField.getDocument().addDocumentListener(createUpdateListener());
-        limitPanel.add(offsetField);
+        offsetField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.PAGINATION));
+        offsetRow.add(offsetField);
+        
+        // Keyset pagination: seek past the previous page's last row instead of skipping rows
+        keysetCheckbox = new JBCheckBox("Keyset (seek)");
+        keysetCheckbox.setToolTipText("Page by the ORDER BY fields and META().id instead of OFFSET");
+        keysetCheckbox.addActionListener(e -> {
+            updateKeysetFieldsEnabled();
+            exitTemplateMode();
+            sectionChanged(QueryModel.Section.PAGINATION);
+        });
+        offsetRow.add(keysetCheckbox);
+        limitPanel.add(offsetRow);
+        
+        JPanel cursorRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        cursorRow.add(new JBLabel("After values:"));
+        keysetAfterValuesField = new JBTextField(16);
+        keysetAfterValuesField.setToolTipText("JSON array with the \"value\" of each _keyset_N member of the last row, "
+            + "or MISSING where it has none, e.g. [\"Paris\", 42] or [\"Paris\", MISSING]");
+        keysetAfterValuesField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.PAGINATION));
+        cursorRow.add(keysetAfterValuesField);
+        
+        cursorRow.add(new JBLabel("After ID:"));
+        keysetAfterIdField = new JBTextField(12);
+        keysetAfterIdField.setToolTipText("_keyset_id of the last row; leave empty for the first page");
+        keysetAfterIdField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.PAGINATION));
+        cursorRow.add(keysetAfterIdField);
+        limitPanel.add(cursorRow);
+        updateKeysetFieldsEnabled();
         
         panel.add(limitPanel);
         
@@ -463,7 +553,7 @@ public class QueryBuilderPanel {
         gbc.gridx = 1; gbc.weightx = 1;
         documentKeyField = new JBTextField();
         documentKeyField.setToolTipText("Leave empty to use UUID()");
-        documentKeyField.getDocument().addDocumentListener(createUpdateListener());
+        documentKeyField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.DOCUMENT));
         keyPanel.add(documentKeyField, gbc);
         
         gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 2;
@@ -473,13 +563,23 @@ public class QueryBuilderPanel {
         documentValueArea = new JBTextArea(6, 40);
         documentValueArea.setToolTipText("Enter JSON document value");
         documentValueArea.setText("{\n  \n}");
-        documentValueArea.getDocument().addDocumentListener(createUpdateListener());
+        documentValueArea.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.DOCUMENT));
         JBScrollPane scrollPane = new JBScrollPane(documentValueArea);
         keyPanel.add(scrollPane, gbc);
         
         panel.add(keyPanel);
         panel.add(Box.createVerticalStrut(10));
         
+        // Many documents at once, from a file
+        JPanel bulkPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bulkPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
+        JButton bulkButton = new JButton("📦 Bulk Load from File...");
+        bulkButton.setToolTipText("Generate multi-row statements from a JSON or NDJSON file");
+        bulkButton.addActionListener(e -> showBulkInsert());
+        bulkPanel.add(bulkButton);
+        panel.add(bulkPanel);
+        panel.add(Box.createVerticalStrut(10));
+        
         // RETURNING section
         panel.add(createReturningPanel());
         
@@ -493,7 +593,7 @@ public class QueryBuilderPanel {
         // SET clause
         setClausePanel = new SetClausePanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.SET);
         });
         panel.add(setClausePanel);
         panel.add(Box.createVerticalStrut(10));
@@ -501,7 +601,7 @@ public class QueryBuilderPanel {
         // WHERE clause
         updateWherePanel = new WhereClausePanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.WHERE);
         });
         updateWherePanel.setBorder(createTitledBorder("WHERE Conditions (Important!)"));
         panel.add(updateWherePanel);
@@ -529,7 +629,7 @@ public class QueryBuilderPanel {
         // WHERE clause
         deleteWherePanel = new WhereClausePanel(() -> {
             exitTemplateMode();
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.WHERE);
         });
         deleteWherePanel.setBorder(createTitledBorder("WHERE Conditions (Required!)"));
         panel.add(deleteWherePanel);
@@ -553,16 +653,15 @@ public class QueryBuilderPanel {
         
         returningAllCheckbox = new JBCheckBox("RETURNING *");
         returningAllCheckbox.addActionListener(e -> {
-            model.setReturningAll(returningAllCheckbox.isSelected());
             returningFieldsField.setEnabled(!returningAllCheckbox.isSelected());
-            updateQueryPreview();
+            sectionChanged(QueryModel.Section.RETURNING);
         });
         panel.add(returningAllCheckbox);
         
         panel.add(new JBLabel("or fields:"));
         returningFieldsField = new JBTextField(20);
         returningFieldsField.setToolTipText("Comma-separated field names");
-        returningFieldsField.getDocument().addDocumentListener(createUpdateListener());
+        returningFieldsField.getDocument().addDocumentListener(createUpdateListener(QueryModel.Section.RETURNING));
         panel.add(returningFieldsField);
         
         return panel;
@@ -618,7 +717,29 @@ public class QueryBuilderPanel {
         highlightCheckbox.addActionListener(e -> updateQueryPreview());
         optionsPanel.add(highlightCheckbox);
         
-        queryPreviewPanel.add(optionsPanel, BorderLayout.SOUTH);
+        optionsPanel.add(new JBLabel("Values:"));
+        parameterStyleCombo = new ComboBox<>(ParameterStyle.values());
+        parameterStyleCombo.setToolTipText("Use placeholders so one prepared statement serves every value");
+        parameterStyleCombo.addActionListener(e -> updateQueryPreview());
+        optionsPanel.add(parameterStyleCombo);
+        
+        // Parameters bound to the placeholders, in query service request format
+        parametersArea = new JBTextArea(4, 0);
+        parametersArea.setEditable(false);
+        parametersArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        parametersScrollPane = new JBScrollPane(parametersArea);
+        parametersScrollPane.setBorder(createTitledBorder("Parameters"));
+        parametersScrollPane.setVisible(false);
+        
+        coverageLabel = new JBLabel();
+        coverageLabel.setBorder(JBUI.Borders.empty(2, 5));
+        coverageLabel.setVisible(false);
+        
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(coverageLabel, BorderLayout.NORTH);
+        southPanel.add(parametersScrollPane, BorderLayout.CENTER);
+        southPanel.add(optionsPanel, BorderLayout.SOUTH);
+        queryPreviewPanel.add(southPanel, BorderLayout.SOUTH);
         
         return queryPreviewPanel;
     }
@@ -637,6 +758,16 @@ public class QueryBuilderPanel {
         insertButton.addActionListener(e -> insertAtCursor());
         panel.add(insertButton);
         
+        JButton indexAdviceButton = new JButton("🗂 Index Advice");
+        indexAdviceButton.setToolTipText("Suggest CREATE INDEX statements that serve this query");
+        indexAdviceButton.addActionListener(e -> showIndexAdvice());
+        panel.add(indexAdviceButton);
+        
+        JButton runSampleButton = new JButton("▶ Run on Sample");
+        runSampleButton.setToolTipText("Run the query in memory on a local JSON or NDJSON sample file");
+        runSampleButton.addActionListener(e -> runOnSample());
+        panel.add(runSampleButton);
+        
         JButton saveTemplateButton = new JButton("💾 Save as Template");
         saveTemplateButton.setToolTipText("Save the current query as a template");
         saveTemplateButton.addActionListener(e -> saveAsTemplate());
@@ -659,17 +790,25 @@ public class QueryBuilderPanel {
         return border;
     }
 
-    private DocumentListener createUpdateListener() {
+    private DocumentListener createUpdateListener(QueryModel.Section section) {
         return new DocumentListener() {
             @Override
-            public void insertUpdate(DocumentEvent e) { updateQueryPreview(); }
+            public void insertUpdate(DocumentEvent e) { sectionChanged(section); }
             @Override
-            public void removeUpdate(DocumentEvent e) { updateQueryPreview(); }
+            public void removeUpdate(DocumentEvent e) { sectionChanged(section); }
             @Override
-            public void changedUpdate(DocumentEvent e) { updateQueryPreview(); }
+            public void changedUpdate(DocumentEvent e) { sectionChanged(section); }
         };
     }
 
+    /**
+     * Marks a section to be read back from its inputs on the next render, and requests one.
+     */
+    private void sectionChanged(QueryModel.Section section) {
+        dirtySections.add(section);
+        updateQueryPreview();
+    }
+
     private void updateQueryPreviewTitle() {
         if (queryPreviewPanel != null) {
             String title = isManuallyEdited ? "Generated Query (Manually Edited)" : "Generated Query";
@@ -683,134 +822,222 @@ public class QueryBuilderPanel {
             return;
         }
         
+        previewScheduler.request();
+    }
+
+    /**
+     * Renders any pending preview update immediately so actions read the current query.
+     */
+    private void flushQueryPreview() {
+        if (previewScheduler.isPending()) {
+            previewScheduler.flush();
+        }
+    }
+
+    /**
+     * Captures the UI state on the EDT and returns the render task for the background thread.
+     */
+    private Callable<RenderedPreview> snapshotPreview() {
+        if (isManuallyEdited) {
+            return null;
+        }
+        
+        if (isTemplateMode && loadedTemplate != null) {
+            // Template mode: fill placeholders from the keyspace fields and template variables
+            Map<String, String> variables = new HashMap<>(templateVariables);
+            variables.put(CompiledTemplate.KEYSPACE, buildTemplateKeyspace());
+            CompiledTemplate template = loadedTemplate;
+            return () -> RenderedPreview.of(template.render(variables));
+        }
+        
+        // Normal mode: build from an immutable snapshot, reusing clauses whose sections are unchanged
+        updateModelFromUI();
+        QueryModel snapshot = model.snapshot();
+        boolean formatOutput = formatCheckbox.isSelected();
+        ParameterStyle parameterStyle = (ParameterStyle) parameterStyleCombo.getSelectedItem();
+        List<IndexDefinition> declaredIndexes = indexCatalog.getIndexes();
+        return () -> {
+            IndexCoverage coverage = declaredIndexes.isEmpty() ? null : CoverageChecker.check(snapshot, declaredIndexes);
+            N1QLQueryBuilder builder = new N1QLQueryBuilder(snapshot);
+            builder.setClauseCache(clauseCache);
+            builder.setFormatOutput(formatOutput);
+            if (parameterStyle == null || parameterStyle == ParameterStyle.INLINE) {
+                return RenderedPreview.of(builder.build(), null, coverage);
+            }
+            builder.setParameterStyle(parameterStyle);
+            ParameterizedQuery query = builder.buildParameterized();
+            return RenderedPreview.of(query.getStatement(), query.formatParameters(), coverage);
+        };
+    }
+
+    private void applyPreview(RenderedPreview preview) {
+        if (preview == null || isManuallyEdited) {
+            return;
+        }
+        
         isUpdatingPreview = true;
         try {
-            if (isTemplateMode && loadedTemplateQuery != null) {
-            // Template mode: replace bucket placeholder with full keyspace
-            String bucket = bucketField.getText().trim();
-            String scope = scopeField.getText().trim();
-            String collection = collectionField.getText().trim();
-            
-            // Build the full keyspace
-            StringBuilder keyspace = new StringBuilder();
-            if (!bucket.isEmpty()) {
-                keyspace.append("`").append(bucket).append("`");
-                
-                if (!scope.isEmpty()) {
-                    keyspace.append(".`").append(scope).append("`");
-                    if (!collection.isEmpty()) {
-                        keyspace.append(".`").append(collection).append("`");
-                    }
-                } else if (!collection.isEmpty()) {
-                    // Collection without scope uses _default scope
-                    keyspace.append(".`_default`.`").append(collection).append("`");
-                }
-            } else {
-                keyspace.append("`bucket`"); // Keep placeholder if no bucket entered
-            }
-            
-            String query = loadedTemplateQuery.replaceAll("`bucket`", keyspace.toString());
-            
-                queryPreviewPane.setText(query);
-                syntaxHighlighter.highlight(queryPreviewPane);
-                queryPreviewPane.setCaretPosition(0);
-            } else {
-                // Normal mode: build from model
-                updateModelFromUI();
-                
-                N1QLQueryBuilder builder = new N1QLQueryBuilder(model);
-                builder.setFormatOutput(formatCheckbox.isSelected());
-                String query = builder.build();
-                
-                // Update preview with syntax highlighting
-                queryPreviewPane.setText(query);
-                syntaxHighlighter.highlight(queryPreviewPane);
-                queryPreviewPane.setCaretPosition(0);
-            }
+            // Update preview with syntax highlighting, restyling only the lines that changed
+            syntaxHighlighter.setText(queryPreviewPane, preview.query(), preview.tokens());
+            queryPreviewPane.setCaretPosition(0);
+            showParameters(preview.parameters());
+            showCoverage(preview.coverage());
         } finally {
             isUpdatingPreview = false;
         }
     }
 
+    private void showParameters(String parameters) {
+        boolean visible = parameters != null;
+        if (visible) {
+            parametersArea.setText(parameters);
+            parametersArea.setCaretPosition(0);
+        }
+        if (parametersScrollPane.isVisible() != visible) {
+            parametersScrollPane.setVisible(visible);
+            queryPreviewPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, visible ? 300 : 200));
+            queryPreviewPanel.setPreferredSize(new Dimension(0, visible ? 250 : 150));
+            queryPreviewPanel.revalidate();
+        }
+    }
+
+    private void showCoverage(IndexCoverage coverage) {
+        if (coverage == null || coverage.getStatus() == IndexCoverage.Status.NOT_APPLICABLE) {
+            coverageLabel.setVisible(false);
+            return;
+        }
+        boolean covered = coverage.isCovered();
+        coverageLabel.setText((covered ? "✔ " : "⚠ ") + coverage.getSummary());
+        coverageLabel.setForeground(covered ? JBColor.GREEN.darker() : JBColor.ORANGE);
+        coverageLabel.setToolTipText(coverage.getSuggestedIndexes().isEmpty() ? null
+            : "<html>" + StringUtil.escapeXmlEntities(coverage.getSuggestedIndexes().get(0).toCreateStatement()) + "</html>");
+        coverageLabel.setVisible(true);
+    }
+
+    /**
+     * Query text, its tokens, the formatted parameters (null when values are inlined) and the
+     * covering status (null without declared indexes), produced off the EDT.
+     */
+    private record RenderedPreview(String query, List<N1QLToken> tokens, String parameters, IndexCoverage coverage) {
+        static RenderedPreview of(String query) {
+            return of(query, null, null);
+        }
+
+        static RenderedPreview of(String query, String parameters, IndexCoverage coverage) {
+            return new RenderedPreview(query, N1QLLexer.tokenize(query), parameters, coverage);
+        }
+    }
+
+    /**
+     * Reads the sections whose inputs changed since the last call back into the model.
+     * Sections of other operations stay dirty until that operation is selected.
+     */
     private void updateModelFromUI() {
         // Keyspace
-        model.setBucket(bucketField.getText().trim());
-        model.setScope(scopeField.getText().trim());
-        model.setCollection(collectionField.getText().trim());
+        if (dirtySections.remove(QueryModel.Section.KEYSPACE)) {
+            model.setBucket(bucketField.getText().trim());
+            model.setScope(scopeField.getText().trim());
+            model.setCollection(collectionField.getText().trim());
+        }
         
         // Operation-specific updates
         QueryOperation operation = model.getOperation();
         
         switch (operation) {
             case SELECT -> {
-                model.setSelectAll(selectAllCheckbox.isSelected());
-                model.setDistinct(distinctCheckbox.isSelected());
-                
-                if (!selectAllCheckbox.isSelected()) {
-                    String fields = fieldsField.getText().trim();
-                    if (!fields.isEmpty()) {
-                        model.setSelectFields(Arrays.asList(fields.split("\\s*,\\s*")));
-                    } else {
-                        model.getSelectFields().clear();
+                if (dirtySections.remove(QueryModel.Section.PROJECTION)) {
+                    model.setSelectAll(selectAllCheckbox.isSelected());
+                    model.setDistinct(distinctCheckbox.isSelected());
+                    if (!selectAllCheckbox.isSelected()) {
+                        model.setSelectFields(splitFieldList(fieldsField.getText()));
                     }
                 }
                 
                 // WHERE conditions
-                model.setWhereConditions(whereClausePanel.getConditions());
+                if (dirtySections.remove(QueryModel.Section.WHERE)) {
+                    model.setWhereConditions(whereClausePanel.getConditions());
+                }
                 
                 // Aggregation
-                model.setAggregations(aggregationPanel.getAggregations());
-                model.setGroupByFields(aggregationPanel.getGroupByFields());
-                model.setHavingConditions(aggregationPanel.getHavingConditions());
+                if (dirtySections.remove(QueryModel.Section.AGGREGATION)) {
+                    model.setAggregations(aggregationPanel.getAggregations());
+                    model.setGroupByFields(aggregationPanel.getGroupByFields());
+                    model.setHavingConditions(aggregationPanel.getHavingConditions());
+                }
                 
                 // ORDER BY
-                model.setOrderByClauses(orderByPanel.getOrderByClauses());
-                
-                // LIMIT/OFFSET
-                try {
-                    String limitText = limitField.getText().trim();
-                    model.setLimit(limitText.isEmpty() ? null : Integer.parseInt(limitText));
-                } catch (NumberFormatException e) {
-                    model.setLimit(null);
+                if (dirtySections.remove(QueryModel.Section.ORDER_BY)) {
+                    model.setOrderByClauses(orderByPanel.getOrderByClauses());
                 }
                 
-                try {
-                    String offsetText = offsetField.getText().trim();
-                    model.setOffset(offsetText.isEmpty() ? null : Integer.parseInt(offsetText));
-                } catch (NumberFormatException e) {
-                    model.setOffset(null);
+                // LIMIT/OFFSET and keyset cursor
+                if (dirtySections.remove(QueryModel.Section.PAGINATION)) {
+                    updatePaginationFromUI();
                 }
             }
             case INSERT, UPSERT -> {
-                model.setDocumentKey(documentKeyField.getText().trim());
-                model.setDocumentValue(documentValueArea.getText().trim());
+                if (dirtySections.remove(QueryModel.Section.DOCUMENT)) {
+                    model.setDocumentKey(documentKeyField.getText().trim());
+                    model.setDocumentValue(documentValueArea.getText().trim());
+                }
                 updateReturningFromUI();
             }
             case UPDATE -> {
-                model.setSetClauses(setClausePanel.getSetClauses());
-                model.setWhereConditions(updateWherePanel.getConditions());
+                if (dirtySections.remove(QueryModel.Section.SET)) {
+                    model.setSetClauses(setClausePanel.getSetClauses());
+                }
+                if (dirtySections.remove(QueryModel.Section.WHERE)) {
+                    model.setWhereConditions(updateWherePanel.getConditions());
+                }
                 updateReturningFromUI();
             }
             case DELETE -> {
-                model.setWhereConditions(deleteWherePanel.getConditions());
+                if (dirtySections.remove(QueryModel.Section.WHERE)) {
+                    model.setWhereConditions(deleteWherePanel.getConditions());
+                }
                 updateReturningFromUI();
             }
         }
     }
 
+    private void updatePaginationFromUI() {
+        try {
+            String limitText = limitField.getText().trim();
+            model.setLimit(limitText.isEmpty() ? null : Integer.parseInt(limitText));
+        } catch (NumberFormatException e) {
+            model.setLimit(null);
+        }
+        
+        try {
+            String offsetText = offsetField.getText().trim();
+            model.setOffset(offsetText.isEmpty() ? null : Integer.parseInt(offsetText));
+        } catch (NumberFormatException e) {
+            model.setOffset(null);
+        }
+        
+        // Keyset cursor
+        model.setKeysetPagination(keysetCheckbox.isSelected());
+        model.setKeysetAfterValues(parseKeysetValues(keysetAfterValuesField.getText().trim()));
+        model.setKeysetAfterId(keysetAfterIdField.getText().trim());
+    }
+
     private void updateReturningFromUI() {
+        if (!dirtySections.remove(QueryModel.Section.RETURNING)) {
+            return;
+        }
         model.setReturningAll(returningAllCheckbox.isSelected());
         if (!returningAllCheckbox.isSelected()) {
-            String fields = returningFieldsField.getText().trim();
-            if (!fields.isEmpty()) {
-                model.setReturningFields(Arrays.asList(fields.split("\\s*,\\s*")));
-            } else {
-                model.getReturningFields().clear();
-            }
+            model.setReturningFields(splitFieldList(returningFieldsField.getText()));
         }
     }
 
+    private static List<String> splitFieldList(String text) {
+        String fields = text.trim();
+        return fields.isEmpty() ? new ArrayList<>() : Arrays.asList(fields.split("\\s*,\\s*"));
+    }
+
     private void copyToClipboard() {
+        flushQueryPreview();
         String query = queryPreviewPane.getText();
         StringSelection selection = new StringSelection(query);
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
@@ -836,6 +1063,7 @@ public class QueryBuilderPanel {
             return;
         }
         
+        flushQueryPreview();
         String query = queryPreviewPane.getText();
         
         // Add to history
@@ -847,7 +1075,37 @@ public class QueryBuilderPanel {
         });
     }
 
+    private void showIndexAdvice() {
+        // Advice is derived from the form, so it ignores template mode and manual edits
+        updateModelFromUI();
+        new IndexAdviceDialog(mainPanel, model.snapshot(), indexCatalog).show();
+    }
+
+    private void showBulkInsert() {
+        updateModelFromUI();
+        new BulkInsertDialog(mainPanel, model.snapshot()).show();
+    }
+
+    private void runOnSample() {
+        // Like index advice, this evaluates the form rather than the preview text
+        updateModelFromUI();
+        new SampleRunDialog(mainPanel, model.snapshot(), sample, this::showKeysetCursor).show();
+    }
+
+    /**
+     * Fills the keyset cursor fields from a page the sample run stepped to.
+     */
+    private void showKeysetCursor(QueryModel page) {
+        List<String> values = new ArrayList<>();
+        for (String value : page.getKeysetAfterValues()) {
+            values.add(value != null ? value : MISSING_CURSOR_VALUE);
+        }
+        keysetAfterValuesField.setText("[" + String.join(", ", values) + "]");
+        keysetAfterIdField.setText(page.getKeysetAfterId());
+    }
+
     private void saveAsTemplate() {
+        flushQueryPreview();
         String query = queryPreviewPane.getText();
         if (query == null || query.trim().isEmpty()) {
             JOptionPane.showMessageDialog(mainPanel,
@@ -879,8 +1137,11 @@ public class QueryBuilderPanel {
 
     private void loadQueryFromHistory(String query) {
         // Parse and load query into the form (simplified - just show in preview)
+        previewScheduler.cancel();
         queryPreviewPane.setText(query);
         syntaxHighlighter.highlight(queryPreviewPane);
+        showParameters(null);
+        showCoverage(null);
         JOptionPane.showMessageDialog(mainPanel,
             "Query loaded from history. You can copy or insert it.",
             "Query Loaded",
@@ -888,45 +1149,164 @@ public class QueryBuilderPanel {
     }
 
     private void loadQueryFromTemplate(String query) {
-        // Store template and enable template mode
-        loadedTemplateQuery = query;
+        // Compile the template once; edits to the keyspace and variables only re-render it
+        loadedTemplate = CompiledTemplate.compile(query);
         isTemplateMode = true;
+        isManuallyEdited = false;
+        updateQueryPreviewTitle();
+        showTemplateVariables(loadedTemplate);
+        previewScheduler.flush();
         
-        // Apply current keyspace if already entered
+        JOptionPane.showMessageDialog(mainPanel,
+            "Template loaded. Enter/update bucket/scope/collection and template variables to customize.",
+            "Template Loaded",
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Returns the keyspace for template placeholders, or an empty string to keep the placeholder.
+     */
+    private String buildTemplateKeyspace() {
         String bucket = bucketField.getText().trim();
         String scope = scopeField.getText().trim();
         String collection = collectionField.getText().trim();
+        if (bucket.isEmpty()) {
+            return "";
+        }
         
-        String displayQuery = query;
-        if (!bucket.isEmpty()) {
-            // Build the full keyspace
-            StringBuilder keyspace = new StringBuilder();
-            keyspace.append("`").append(bucket).append("`");
-            
-            if (!scope.isEmpty()) {
-                keyspace.append(".`").append(scope).append("`");
-                if (!collection.isEmpty()) {
-                    keyspace.append(".`").append(collection).append("`");
+        StringBuilder keyspace = new StringBuilder();
+        keyspace.append("`").append(bucket).append("`");
+        if (!scope.isEmpty()) {
+            keyspace.append(".`").append(scope).append("`");
+            if (!collection.isEmpty()) {
+                keyspace.append(".`").append(collection).append("`");
+            }
+        } else if (!collection.isEmpty()) {
+            // Collection without scope uses _default scope
+            keyspace.append(".`_default`.`").append(collection).append("`");
+        }
+        return keyspace.toString();
+    }
+    
+    /**
+     * Shows an input row per template variable other than the keyspace, or hides the panel.
+     */
+    private void showTemplateVariables(CompiledTemplate template) {
+        templateVariablesPanel.removeAll();
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = JBUI.insets(4);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        int row = 0;
+        if (template != null) {
+            for (CompiledTemplate.Placeholder placeholder : template.getPlaceholders()) {
+                if (placeholder.type() == CompiledTemplate.PlaceholderType.KEYSPACE
+                        && placeholder.name().equals(CompiledTemplate.KEYSPACE)) {
+                    continue;
                 }
-            } else if (!collection.isEmpty()) {
-                keyspace.append(".`_default`.`").append(collection).append("`");
+                gbc.gridx = 0; gbc.gridy = row; gbc.weightx = 0;
+                templateVariablesPanel.add(new JBLabel(placeholder.name() + " ("
+                    + placeholder.type().name().toLowerCase(Locale.ROOT) + "):"), gbc);
+                gbc.gridx = 1; gbc.weightx = 1;
+                JBTextField field = new JBTextField(templateVariables.getOrDefault(placeholder.name(), ""));
+                if (placeholder.defaultValue() != null) {
+                    field.getEmptyText().setText(placeholder.defaultValue());
+                }
+                field.getDocument().addDocumentListener(new DocumentListener() {
+                    @Override
+                    public void insertUpdate(DocumentEvent e) { onTemplateVariableChanged(placeholder.name(), field); }
+                    @Override
+                    public void removeUpdate(DocumentEvent e) { onTemplateVariableChanged(placeholder.name(), field); }
+                    @Override
+                    public void changedUpdate(DocumentEvent e) { }
+                });
+                templateVariablesPanel.add(field, gbc);
+                row++;
             }
-            
-            displayQuery = query.replaceAll("`bucket`", keyspace.toString());
         }
-        
-        queryPreviewPane.setText(displayQuery);
-        syntaxHighlighter.highlight(queryPreviewPane);
-        
-        JOptionPane.showMessageDialog(mainPanel,
-            "Template loaded. Enter/update bucket/scope/collection to customize.",
-            "Template Loaded",
-            JOptionPane.INFORMATION_MESSAGE);
+        templateVariablesPanel.setVisible(row > 0);
+        templateVariablesPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40 * row + 30));
+        templateVariablesPanel.revalidate();
+        templateVariablesPanel.repaint();
+    }
+    
+    private void onTemplateVariableChanged(String name, JBTextField field) {
+        templateVariables.put(name, field.getText().trim());
+        updateQueryPreview();
     }
     
     private void exitTemplateMode() {
         isTemplateMode = false;
-        loadedTemplateQuery = null;
+        loadedTemplate = null;
+        if (templateVariablesPanel.isVisible()) {
+            showTemplateVariables(null);
+        }
+    }
+
+    private void updateKeysetFieldsEnabled() {
+        boolean keyset = keysetCheckbox.isSelected();
+        offsetField.setEnabled(!keyset);
+        keysetAfterValuesField.setEnabled(keyset);
+        keysetAfterIdField.setEnabled(keyset);
+    }
+
+    /**
+     * Splits the "After values" JSON array into one JSON value per ORDER BY field, with a null
+     * entry for each bare {@code MISSING}. A single value may be entered without brackets;
+     * unparseable text gives no cursor.
+     */
+    private static List<String> parseKeysetValues(String text) {
+        List<String> values = new ArrayList<>();
+        if (text.isEmpty()) {
+            return values;
+        }
+        // MISSING isn't JSON, so split the array by hand and parse each value on its own
+        String elements = text.startsWith("[") && text.endsWith("]") ? text.substring(1, text.length() - 1) : text;
+        try {
+            for (String element : splitTopLevel(elements)) {
+                values.add(element.equals(MISSING_CURSOR_VALUE) ? null : JsonParser.parseString(element).toString());
+            }
+        } catch (JsonParseException e) {
+            values.clear();
+        }
+        return values;
+    }
+
+    /**
+     * Splits comma-separated JSON values at the commas outside strings, arrays and objects.
+     * @throws JsonParseException If a value is empty
+     */
+    private static List<String> splitTopLevel(String text) {
+        List<String> parts = new ArrayList<>();
+        if (text.isBlank()) {
+            return parts;
+        }
+        int depth = 0;
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start).trim());
+        if (parts.contains("")) {
+            throw new JsonParseException("Empty value in \"" + text + "\"");
+        }
+        return parts;
     }
 
     private void resetForm() {
@@ -947,6 +1327,10 @@ public class QueryBuilderPanel {
         orderByPanel.reset();
         limitField.setText("");
         offsetField.setText("");
+        keysetCheckbox.setSelected(false);
+        keysetAfterValuesField.setText("");
+        keysetAfterIdField.setText("");
+        updateKeysetFieldsEnabled();
         documentKeyField.setText("");
         documentValueArea.setText("{\n  \n}");
         setClausePanel.reset();
@@ -954,6 +1338,7 @@ public class QueryBuilderPanel {
         deleteWherePanel.reset();
         returningAllCheckbox.setSelected(false);
         returningFieldsField.setText("");
+        dirtySections.addAll(EnumSet.allOf(QueryModel.Section.class));
         
         // Clear manual edit flag to allow regeneration
         isManuallyEdited = false;
@@ -964,4 +1349,10 @@ public class QueryBuilderPanel {
     public JComponent getContent() {
         return mainPanel;
     }
+
+    @Override
+    public void dispose() {
+        indexCatalog.removeListener(catalogListener);
+        previewScheduler.cancel();
+    }
 }
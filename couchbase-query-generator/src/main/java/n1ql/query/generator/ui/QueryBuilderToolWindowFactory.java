@@ -17,6 +17,7 @@ public class QueryBuilderToolWindowFactory implements ToolWindowFactory {
         QueryBuilderPanel queryBuilderPanel = new QueryBuilderPanel(project);
         ContentFactory contentFactory = ContentFactory.getInstance();
         Content content = contentFactory.createContent(queryBuilderPanel.getContent(), "", false);
+        content.setDisposer(queryBuilderPanel);
         toolWindow.getContentManager().addContent(content);
     }
 }
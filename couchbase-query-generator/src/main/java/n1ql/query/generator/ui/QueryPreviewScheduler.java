@@ -0,0 +1,130 @@
+package n1ql.query.generator.ui;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces preview update requests and renders them off the EDT.
+ * <p>
+ * Requests restart a debounce timer; when it fires, a snapshot task is taken on the EDT,
+ * executed on a background thread, and its result is applied back on the EDT. A newer
+ * request cancels any render still in flight, and results of superseded renders are dropped.
+ */
+public class QueryPreviewScheduler<T> {
+
+    private static final Logger LOG = Logger.getInstance(QueryPreviewScheduler.class);
+
+    // Runs renders one at a time on the application pool, which owns the threads
+    private static final ExecutorService RENDER_EXECUTOR =
+        AppExecutorUtil.createBoundedApplicationPoolExecutor("N1QL Query Preview", 1);
+
+    private final Supplier<Callable<T>> snapshotter;
+    private final Consumer<T> applier;
+    private final Timer debounceTimer;
+    private Future<?> inFlight;
+    private long generation = 0;
+
+    /**
+     * @param delayMillis Quiet period after the last request before rendering starts
+     * @param snapshotter Called on the EDT; captures UI state and returns the background render task
+     * @param applier     Called on the EDT with the result of the latest render
+     */
+    public QueryPreviewScheduler(int delayMillis, Supplier<Callable<T>> snapshotter, Consumer<T> applier) {
+        this.snapshotter = snapshotter;
+        this.applier = applier;
+        this.debounceTimer = new Timer(delayMillis, e -> startRender());
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * Schedules a render once input has been quiet for the debounce delay.
+     */
+    public void request() {
+        generation++;
+        cancelInFlight();
+        debounceTimer.restart();
+    }
+
+    /**
+     * Renders synchronously on the calling thread (the EDT), superseding any pending or
+     * in-flight render. Used before actions that read the preview, so they never see stale
+     * text. A failed render is logged and leaves the previous preview in place.
+     */
+    public void flush() {
+        debounceTimer.stop();
+        generation++;
+        cancelInFlight();
+
+        Callable<T> task = snapshotter.get();
+        if (task == null) {
+            return;
+        }
+        T result;
+        try {
+            result = task.call();
+        } catch (Exception e) {
+            LOG.error("Failed to render query preview", e);
+            return;
+        }
+        applier.accept(result);
+    }
+
+    /**
+     * Returns true while a render is waiting for the debounce timer or running in the background.
+     */
+    public boolean isPending() {
+        return debounceTimer.isRunning() || (inFlight != null && !inFlight.isDone());
+    }
+
+    public void cancel() {
+        debounceTimer.stop();
+        generation++;
+        cancelInFlight();
+    }
+
+    private void startRender() {
+        Callable<T> task = snapshotter.get();
+        if (task == null) {
+            return;
+        }
+
+        long expected = ++generation;
+        inFlight = RENDER_EXECUTOR.submit(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                // The future is discarded, so report the failure here rather than lose it
+                if (!Thread.currentThread().isInterrupted()) {
+                    LOG.error("Failed to render query preview", e);
+                }
+                return null;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // Drop results superseded by a newer request
+                if (expected == generation) {
+                    inFlight = null;
+                    applier.accept(result);
+                }
+            });
+            return null;
+        });
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+}
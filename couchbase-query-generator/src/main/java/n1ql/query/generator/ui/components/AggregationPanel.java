@@ -1,6 +1,7 @@
 package n1ql.query.generator.ui.components;
 
 import n1ql.query.generator.model.*;
+import n1ql.query.generator.services.SuggestionIndex;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
@@ -27,7 +28,7 @@ public class AggregationPanel extends JBPanel<AggregationPanel> {
     private final JPanel havingContainer;
     private final Runnable onChangeCallback;
     private final JBCheckBox enableAggregationCheckbox;
-    private List<String> fieldSuggestions = new ArrayList<>();
+    private SuggestionIndex fieldSuggestions = SuggestionIndex.EMPTY;
 
     public AggregationPanel(Runnable onChangeCallback) {
         super(new BorderLayout());
@@ -236,8 +237,8 @@ public class AggregationPanel extends JBPanel<AggregationPanel> {
     /**
      * Updates field suggestions for all aggregation and having rows.
      */
-    public void updateFieldSuggestions(List<String> suggestions) {
-        this.fieldSuggestions = suggestions != null ? new ArrayList<>(suggestions) : new ArrayList<>();
+    public void updateFieldSuggestions(SuggestionIndex suggestions) {
+        this.fieldSuggestions = suggestions != null ? suggestions : SuggestionIndex.EMPTY;
         for (AggregationRow row : aggregationRows) {
             row.updateFieldSuggestions(this.fieldSuggestions);
         }
@@ -307,7 +308,7 @@ public class AggregationPanel extends JBPanel<AggregationPanel> {
             add(removeButton);
         }
         
-        public void updateFieldSuggestions(List<String> suggestions) {
+        public void updateFieldSuggestions(SuggestionIndex suggestions) {
             fieldField.setSuggestions(suggestions);
         }
 
@@ -375,7 +376,7 @@ public class AggregationPanel extends JBPanel<AggregationPanel> {
             add(removeButton);
         }
         
-        public void updateFieldSuggestions(List<String> suggestions) {
+        public void updateFieldSuggestions(SuggestionIndex suggestions) {
             fieldField.setSuggestions(suggestions);
         }
 
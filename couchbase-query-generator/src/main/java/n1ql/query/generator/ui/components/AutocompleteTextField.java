@@ -1,5 +1,6 @@
 package n1ql.query.generator.ui.components;
 
+import n1ql.query.generator.services.SuggestionIndex;
 import com.intellij.ui.components.JBTextField;
 
 import javax.swing.*;
@@ -7,25 +8,25 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * TextField with autocomplete dropdown for field suggestions.
  */
 public class AutocompleteTextField extends JBTextField {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final JPopupMenu suggestionPopup;
     private final JList<String> suggestionList;
     private final DefaultListModel<String> listModel;
-    private List<String> allSuggestions;
+    private SuggestionIndex suggestionIndex;
     private boolean isPopupVisible = false;
     private boolean isInternalUpdate = false;
 
     public AutocompleteTextField(int columns) {
         super(columns);
-        this.allSuggestions = new ArrayList<>();
+        this.suggestionIndex = SuggestionIndex.EMPTY;
         this.listModel = new DefaultListModel<>();
         this.suggestionList = new JList<>(listModel);
         this.suggestionPopup = new JPopupMenu();
@@ -33,7 +34,7 @@ public class AutocompleteTextField extends JBTextField {
         setupAutocomplete();
     }
 
-    public AutocompleteTextField(int columns, List<String> suggestions) {
+    public AutocompleteTextField(int columns, SuggestionIndex suggestions) {
         this(columns);
         setSuggestions(suggestions);
     }
@@ -74,7 +75,7 @@ public class AutocompleteTextField extends JBTextField {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (!isPopupVisible) {
-                    if (e.getKeyCode() == KeyEvent.VK_DOWN && !allSuggestions.isEmpty()) {
+                    if (e.getKeyCode() == KeyEvent.VK_DOWN && !suggestionIndex.isEmpty()) {
                         showSuggestions();
                         e.consume();
                     }
@@ -144,11 +145,18 @@ public class AutocompleteTextField extends JBTextField {
         });
     }
 
+    /**
+     * Sets the suggestion index. Indexes are immutable, so one instance is shared by all fields.
+     */
+    public void setSuggestions(SuggestionIndex suggestions) {
+        this.suggestionIndex = suggestions != null ? suggestions : SuggestionIndex.EMPTY;
+    }
+
     public void setSuggestions(List<String> suggestions) {
-        this.allSuggestions = suggestions != null ? new ArrayList<>(suggestions) : new ArrayList<>();
+        setSuggestions(SuggestionIndex.of(suggestions));
     }
 
-    public void updateSuggestions(List<String> suggestions) {
+    public void updateSuggestions(SuggestionIndex suggestions) {
         setSuggestions(suggestions);
         updateSuggestions();
     }
@@ -156,25 +164,13 @@ public class AutocompleteTextField extends JBTextField {
     private void updateSuggestions() {
         String input = getText().trim();
         
-        if (input.isEmpty() || allSuggestions.isEmpty()) {
+        if (input.isEmpty() || suggestionIndex.isEmpty()) {
             hideSuggestions();
             return;
         }
         
-        // Filter suggestions based on input
-        String lowerInput = input.toLowerCase();
-        List<String> filtered = allSuggestions.stream()
-            .filter(s -> s.toLowerCase().contains(lowerInput))
-            .sorted((a, b) -> {
-                // Prioritize prefix matches
-                boolean aStarts = a.toLowerCase().startsWith(lowerInput);
-                boolean bStarts = b.toLowerCase().startsWith(lowerInput);
-                if (aStarts && !bStarts) return -1;
-                if (!aStarts && bStarts) return 1;
-                return a.compareToIgnoreCase(b);
-            })
-            .limit(50) // Limit results
-            .collect(Collectors.toList());
+        // Prefix matches first, then the caller's order (e.g. most common fields first)
+        List<String> filtered = suggestionIndex.search(input, MAX_SUGGESTIONS);
         
         if (filtered.isEmpty()) {
             hideSuggestions();
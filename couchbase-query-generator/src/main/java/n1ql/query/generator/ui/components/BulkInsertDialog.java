@@ -0,0 +1,194 @@
+package n1ql.query.generator.ui.components;
+
+import n1ql.query.generator.builder.BulkInsertGenerator;
+import n1ql.query.generator.model.QueryModel;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.components.*;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Dialog generating a script of multi-row INSERT or UPSERT statements from a JSON or NDJSON
+ * file, for the keyspace and operation of the current query.
+ */
+public class BulkInsertDialog extends DialogWrapper {
+
+    private final QueryModel model;
+
+    private File sourceFile;
+    private JBLabel sourceLabel;
+    private JBTextField keyExpressionField;
+    private JSpinner batchSizeSpinner;
+    private JBCheckBox formatCheckBox;
+    private JButton generateButton;
+    private JBLabel statusLabel;
+    private JProgressBar progressBar;
+    private SwingWorker<BulkInsertGenerator.Result, Integer> worker;
+
+    public BulkInsertDialog(Component parent, QueryModel model) {
+        super(parent, true);
+        this.model = model;
+        setTitle("Bulk " + model.getOperation() + " from File");
+        setSize(560, 260);
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(JBUI.Borders.empty(10));
+
+        JPanel form = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = JBUI.insets(4);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        gbc.gridx = 0; gbc.gridy = 0; gbc.weightx = 0;
+        JButton chooseButton = new JButton("📂 Source File...");
+        chooseButton.addActionListener(e -> chooseSource());
+        form.add(chooseButton, gbc);
+        gbc.gridx = 1; gbc.weightx = 1;
+        sourceLabel = new JBLabel("JSON array or NDJSON of documents");
+        sourceLabel.setForeground(JBColor.GRAY);
+        form.add(sourceLabel, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1; gbc.weightx = 0;
+        form.add(new JBLabel("Key Expression:"), gbc);
+        gbc.gridx = 1; gbc.weightx = 1;
+        // The form's document key names a single document, so it is no default for many
+        keyExpressionField = new JBTextField();
+        keyExpressionField.setToolTipText("e.g. user::${id}; ${field} inserts a field, ${#} the document number; empty uses UUID()");
+        form.add(keyExpressionField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2; gbc.weightx = 0;
+        form.add(new JBLabel("Rows per Statement:"), gbc);
+        gbc.gridx = 1; gbc.weightx = 1; gbc.fill = GridBagConstraints.NONE; gbc.anchor = GridBagConstraints.WEST;
+        batchSizeSpinner = new JSpinner(new SpinnerNumberModel(BulkInsertGenerator.DEFAULT_BATCH_SIZE, 1, 100_000, 100));
+        form.add(batchSizeSpinner, gbc);
+
+        gbc.gridx = 1; gbc.gridy = 3;
+        formatCheckBox = new JBCheckBox("One row per line", true);
+        form.add(formatCheckBox, gbc);
+        mainPanel.add(form, BorderLayout.CENTER);
+
+        // Status panel
+        JPanel statusPanel = new JPanel(new BorderLayout(10, 0));
+        generateButton = new JButton("💾 Generate Script...");
+        generateButton.setEnabled(false);
+        generateButton.addActionListener(e -> generate());
+        statusPanel.add(generateButton, BorderLayout.WEST);
+        statusLabel = new JBLabel(" ");
+        statusLabel.setForeground(JBColor.GRAY);
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+        mainPanel.add(statusPanel, BorderLayout.SOUTH);
+
+        return mainPanel;
+    }
+
+    private void chooseSource() {
+        JFileChooser chooser = new JFileChooser(sourceFile);
+        chooser.setDialogTitle("Choose JSON or NDJSON Documents");
+        if (chooser.showOpenDialog(getContentPanel()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        sourceFile = chooser.getSelectedFile();
+        sourceLabel.setText(sourceFile.getName());
+        sourceLabel.setForeground(JBColor.foreground());
+        generateButton.setEnabled(true);
+    }
+
+    /**
+     * Streams the source into the chosen script file on a background thread.
+     */
+    private void generate() {
+        JFileChooser chooser = new JFileChooser(sourceFile.getParentFile());
+        chooser.setDialogTitle("Save N1QL Script");
+        chooser.setSelectedFile(new File(sourceFile.getParentFile(), baseName(sourceFile) + ".n1ql"));
+        if (chooser.showSaveDialog(getContentPanel()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File source = sourceFile;
+        File target = chooser.getSelectedFile();
+        String keyExpression = keyExpressionField.getText().trim();
+        int batchSize = (Integer) batchSizeSpinner.getValue();
+        boolean formatOutput = formatCheckBox.isSelected();
+
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        statusLabel.setText("Writing " + target.getName() + "...");
+        statusLabel.setForeground(JBColor.GRAY);
+
+        worker = new SwingWorker<>() {
+            @Override
+            protected BulkInsertGenerator.Result doInBackground() throws IOException {
+                return BulkInsertGenerator.generate(model, keyExpression, batchSize, source.toPath(), target.toPath(),
+                    formatOutput, (read, total) -> {
+                        if (total > 0) {
+                            publish((int) Math.min(100, read * 100 / total));
+                        }
+                    });
+            }
+
+            @Override
+            protected void process(List<Integer> percentages) {
+                progressBar.setValue(percentages.get(percentages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                if (worker != this) {
+                    return;
+                }
+                worker = null;
+                progressBar.setVisible(false);
+                try {
+                    statusLabel.setText(get().toString());
+                    statusLabel.setForeground(JBColor.foreground());
+                } catch (CancellationException | InterruptedException e) {
+                    statusLabel.setText("Generation cancelled");
+                    statusLabel.setForeground(JBColor.GRAY);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("⚠️ " + cause.getMessage());
+                    statusLabel.setForeground(JBColor.RED);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Override
+    protected void dispose() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        super.dispose();
+    }
+
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{getOKAction()};
+    }
+}
@@ -0,0 +1,68 @@
+package n1ql.query.generator.ui.components;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * List model that replaces its contents by diffing against the previous items.
+ * <p>
+ * Unchanged leading and trailing rows are kept and only the differing middle range is
+ * reported to listeners, so typical refreshes (one entry added, removed, moved to the top or
+ * toggled) repaint a handful of rows and keep the selection stable.
+ */
+public class IncrementalListModel<T> extends AbstractListModel<T> {
+
+    private final BiPredicate<T, T> sameRow;
+    private List<T> items = new ArrayList<>();
+
+    /**
+     * @param sameRow Returns true if two items would render identically
+     */
+    public IncrementalListModel(BiPredicate<T, T> sameRow) {
+        this.sameRow = sameRow;
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public T getElementAt(int index) {
+        return items.get(index);
+    }
+
+    /**
+     * Replaces the contents, firing events only for the range that changed.
+     */
+    public void setItems(List<T> newItems) {
+        List<T> oldItems = items;
+        items = new ArrayList<>(newItems);
+
+        int oldSize = oldItems.size();
+        int newSize = items.size();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && sameRow.test(oldItems.get(prefix), items.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && sameRow.test(oldItems.get(oldSize - 1 - suffix), items.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        int oldMiddle = oldSize - prefix - suffix;
+        int newMiddle = newSize - prefix - suffix;
+        int changed = Math.min(oldMiddle, newMiddle);
+        if (changed > 0) {
+            fireContentsChanged(this, prefix, prefix + changed - 1);
+        }
+        if (newMiddle > oldMiddle) {
+            fireIntervalAdded(this, prefix + changed, prefix + newMiddle - 1);
+        } else if (oldMiddle > newMiddle) {
+            fireIntervalRemoved(this, prefix + changed, prefix + oldMiddle - 1);
+        }
+    }
+}
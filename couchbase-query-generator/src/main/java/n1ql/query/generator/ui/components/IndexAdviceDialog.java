@@ -0,0 +1,151 @@
+package n1ql.query.generator.ui.components;
+
+import n1ql.query.generator.advisor.CoverageChecker;
+import n1ql.query.generator.advisor.IndexAdvice;
+import n1ql.query.generator.advisor.IndexAdvisor;
+import n1ql.query.generator.advisor.IndexCoverage;
+import n1ql.query.generator.advisor.IndexDefinition;
+import n1ql.query.generator.model.QueryModel;
+import n1ql.query.generator.services.IndexCatalogManager;
+import n1ql.query.generator.ui.highlighting.N1QLSyntaxHighlighter;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.components.*;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.util.List;
+
+/**
+ * Dialog showing index advice and covering status for the current query, with an editor for
+ * the project's declared indexes.
+ */
+public class IndexAdviceDialog extends DialogWrapper {
+
+    private final QueryModel model;
+    private final IndexCatalogManager catalog;
+    private final N1QLSyntaxHighlighter highlighter = new N1QLSyntaxHighlighter();
+
+    private JBLabel summaryLabel;
+    private JBLabel coverageLabel;
+    private JTextPane scriptPane;
+    private JButton copyButton;
+    private JBTextArea catalogArea;
+    private JBLabel catalogStatusLabel;
+    private String script = "";
+
+    public IndexAdviceDialog(Component parent, QueryModel model, IndexCatalogManager catalog) {
+        super(parent, true);
+        this.model = model;
+        this.catalog = catalog;
+        setTitle("Index Advice");
+        setSize(750, 450);
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Advice", createAdvicePanel());
+        tabs.addTab("Declared Indexes", createCatalogPanel());
+        refreshAdvice();
+        return tabs;
+    }
+
+    private JPanel createAdvicePanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(JBUI.Borders.empty(10));
+
+        JPanel labels = new JPanel(new GridLayout(0, 1));
+        summaryLabel = new JBLabel();
+        coverageLabel = new JBLabel();
+        labels.add(summaryLabel);
+        labels.add(coverageLabel);
+        panel.add(labels, BorderLayout.NORTH);
+
+        scriptPane = N1QLSyntaxHighlighter.createHighlightedTextPane();
+        scriptPane.setEditable(false);
+        panel.add(new JBScrollPane(scriptPane), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        copyButton = new JButton("📋 Copy Script");
+        copyButton.addActionListener(e -> Toolkit.getDefaultToolkit().getSystemClipboard()
+            .setContents(new StringSelection(script), null));
+        buttonPanel.add(copyButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    private JPanel createCatalogPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(JBUI.Borders.empty(10));
+
+        panel.add(new JBLabel("<html>CREATE INDEX statements of this project, separated by semicolons.<br>" +
+            "They are used to check whether generated queries are covered.</html>"), BorderLayout.NORTH);
+
+        catalogArea = new JBTextArea(catalog.getScript());
+        catalogArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        panel.add(new JBScrollPane(catalogArea), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton applyButton = new JButton("Apply");
+        applyButton.addActionListener(e -> applyCatalog());
+        buttonPanel.add(applyButton);
+        catalogStatusLabel = new JBLabel(catalog.getIndexes().size() + " indexes declared");
+        buttonPanel.add(catalogStatusLabel);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    private void applyCatalog() {
+        try {
+            catalog.setScript(catalogArea.getText());
+            catalogStatusLabel.setForeground(JBColor.foreground());
+            catalogStatusLabel.setText(catalog.getIndexes().size() + " indexes declared");
+            refreshAdvice();
+        } catch (IllegalArgumentException e) {
+            catalogStatusLabel.setForeground(JBColor.RED);
+            catalogStatusLabel.setText(e.getMessage());
+        }
+    }
+
+    private void refreshAdvice() {
+        List<IndexDefinition> declared = catalog.getIndexes();
+        IndexAdvice advice = IndexAdvisor.advise(model, declared);
+        if (advice.isServedByExisting()) {
+            summaryLabel.setText("Declared indexes already serve this query.");
+        } else if (advice.getRecommendations().isEmpty()) {
+            summaryLabel.setText("No secondary index can serve this query.");
+        } else {
+            summaryLabel.setText("Create these indexes to avoid a primary index scan:");
+        }
+
+        StringBuilder sb = new StringBuilder(advice.toScript());
+        if (declared.isEmpty()) {
+            coverageLabel.setText("Declare the project's indexes to check whether the query is covered.");
+        } else {
+            IndexCoverage coverage = CoverageChecker.check(model, declared);
+            coverageLabel.setText(coverage.getSummary());
+            for (IndexDefinition index : coverage.getSuggestedIndexes()) {
+                sb.append("\n-- Covering variant of ").append(index.getName()).append(":\n")
+                    .append(index.toCreateStatement()).append(";\n");
+            }
+        }
+
+        script = sb.toString();
+        scriptPane.setText(script);
+        highlighter.highlight(scriptPane);
+        scriptPane.setCaretPosition(0);
+        copyButton.setEnabled(!script.isBlank());
+    }
+
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{getOKAction()};
+    }
+}
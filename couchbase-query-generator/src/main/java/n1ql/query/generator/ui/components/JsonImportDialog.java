@@ -1,6 +1,8 @@
 package n1ql.query.generator.ui.components;
 
+import n1ql.query.generator.services.DocumentSchema;
 import n1ql.query.generator.services.JsonSchemaParser;
+import n1ql.query.generator.services.NdjsonSchemaSampler;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
@@ -9,8 +11,12 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Dialog for importing JSON sample documents to extract field suggestions.
@@ -21,6 +27,8 @@ public class JsonImportDialog extends DialogWrapper {
     private JBTextArea fieldsOutputArea;
     private List<String> extractedFields;
     private JBLabel statusLabel;
+    private JProgressBar progressBar;
+    private SwingWorker<DocumentSchema, Integer> fileImportWorker;
 
     public JsonImportDialog(Component parent) {
         super(parent, true);
@@ -37,7 +45,8 @@ public class JsonImportDialog extends DialogWrapper {
         // Instructions
         JPanel instructionPanel = new JPanel(new BorderLayout());
         JBLabel instructionLabel = new JBLabel(
-            "<html>Paste a sample JSON document to automatically extract field names.<br>" +
+            "<html>Paste sample JSON documents (one document, an array or NDJSON), or import an export file,<br>" +
+            "to automatically extract field names. Fields found in more documents are suggested first.<br>" +
             "These fields will be available as suggestions in the query builder.</html>"
         );
         instructionLabel.setBorder(JBUI.Borders.emptyBottom(10));
@@ -72,6 +81,11 @@ public class JsonImportDialog extends DialogWrapper {
         minifyButton.addActionListener(e -> minifyJson());
         buttonPanel.add(minifyButton);
 
+        JButton importFileButton = new JButton("Import File...");
+        importFileButton.setToolTipText("Sample an NDJSON (JSON lines) or JSON array export without loading it into the editor");
+        importFileButton.addActionListener(e -> importFromFile());
+        buttonPanel.add(importFileButton);
+
         inputPanel.add(buttonPanel, BorderLayout.SOUTH);
         splitPane.setLeftComponent(inputPanel);
 
@@ -93,6 +107,10 @@ public class JsonImportDialog extends DialogWrapper {
         statusLabel = new JBLabel(" ");
         statusLabel.setForeground(JBColor.GRAY);
         statusPanel.add(statusLabel, BorderLayout.WEST);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        statusPanel.add(progressBar, BorderLayout.EAST);
         mainPanel.add(statusPanel, BorderLayout.SOUTH);
 
         // Initial parse
@@ -104,7 +122,8 @@ public class JsonImportDialog extends DialogWrapper {
     private void parseJson() {
         String json = jsonInputArea.getText();
         
-        if (!JsonSchemaParser.isValidJson(json)) {
+        DocumentSchema schema = JsonSchemaParser.sampleSchema(json);
+        if (schema == null) {
             statusLabel.setText("⚠️ Invalid JSON syntax");
             statusLabel.setForeground(JBColor.RED);
             fieldsOutputArea.setText("");
@@ -112,24 +131,118 @@ public class JsonImportDialog extends DialogWrapper {
             return;
         }
 
-        Map<String, String> fieldsWithTypes = JsonSchemaParser.extractFieldsWithTypes(json);
-        extractedFields = JsonSchemaParser.extractFieldPaths(json);
+        showFields(schema, "Parsed successfully");
+    }
+
+    private void showFields(DocumentSchema schema, String statusPrefix) {
+        extractedFields = schema.getPathsByFrequency();
+        boolean multipleDocuments = schema.getDocumentCount() > 1;
 
         StringBuilder sb = new StringBuilder();
-        sb.append("Found ").append(extractedFields.size()).append(" fields:\n\n");
+        sb.append("Found ").append(extractedFields.size()).append(" fields");
+        if (multipleDocuments) {
+            sb.append(" in ").append(schema.getDocumentCount()).append(" documents");
+        }
+        sb.append(":\n\n");
         
-        for (Map.Entry<String, String> entry : fieldsWithTypes.entrySet()) {
-            sb.append(entry.getKey())
+        for (String path : extractedFields) {
+            DocumentSchema.FieldStats stats = schema.getField(path);
+            sb.append(path)
               .append(" : ")
-              .append(entry.getValue())
-              .append("\n");
+              .append(stats.getType());
+            if (stats.getType().equals("mixed")) {
+                sb.append(' ').append(formatHistogram(stats.getTypeHistogram()));
+            }
+            if (multipleDocuments) {
+                sb.append(String.format(" (%.0f%% present", schema.getPresence(path) * 100));
+                if (stats.getNullRatio() > 0) {
+                    sb.append(String.format(", %.0f%% null", stats.getNullRatio() * 100));
+                }
+                sb.append(')');
+            }
+            sb.append("\n");
         }
 
         fieldsOutputArea.setText(sb.toString());
-        statusLabel.setText("✓ Parsed successfully - " + extractedFields.size() + " fields found");
+        statusLabel.setText("✓ " + statusPrefix + " - " + extractedFields.size() + " fields found");
         statusLabel.setForeground(JBColor.GREEN.darker());
     }
 
+    private static String formatHistogram(Map<String, Long> histogram) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Map.Entry<String, Long> entry : histogram.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(' ').append(entry.getValue());
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Streams a sample file on a background thread, showing progress in the status bar.
+     */
+    private void importFromFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import JSON or NDJSON Export");
+        if (chooser.showOpenDialog(getContentPanel()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+
+        if (fileImportWorker != null) {
+            fileImportWorker.cancel(true);
+        }
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        statusLabel.setText("Reading " + file.getName() + "...");
+        statusLabel.setForeground(JBColor.GRAY);
+
+        fileImportWorker = new SwingWorker<>() {
+            @Override
+            protected DocumentSchema doInBackground() throws IOException {
+                return NdjsonSchemaSampler.sample(file.toPath(), (read, total) -> {
+                    if (total > 0) {
+                        publish((int) Math.min(100, read * 100 / total));
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<Integer> percentages) {
+                progressBar.setValue(percentages.get(percentages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                if (fileImportWorker != this) {
+                    return;
+                }
+                fileImportWorker = null;
+                progressBar.setVisible(false);
+                try {
+                    showFields(get(), "Imported " + file.getName());
+                } catch (CancellationException | InterruptedException e) {
+                    statusLabel.setText("Import cancelled");
+                    statusLabel.setForeground(JBColor.GRAY);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    statusLabel.setText("⚠️ Failed to import " + file.getName() + ": " + cause.getMessage());
+                    statusLabel.setForeground(JBColor.RED);
+                }
+            }
+        };
+        fileImportWorker.execute();
+    }
+
+    @Override
+    protected void dispose() {
+        if (fileImportWorker != null) {
+            fileImportWorker.cancel(true);
+        }
+        super.dispose();
+    }
+
     private void formatJson() {
         String json = jsonInputArea.getText();
         String formatted = JsonSchemaParser.formatJson(json);
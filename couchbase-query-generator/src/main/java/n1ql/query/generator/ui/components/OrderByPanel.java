@@ -2,6 +2,7 @@ package n1ql.query.generator.ui.components;
 
 import n1ql.query.generator.model.OrderByClause;
 import n1ql.query.generator.model.SortOrder;
+import n1ql.query.generator.services.SuggestionIndex;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBPanel;
@@ -23,7 +24,7 @@ public class OrderByPanel extends JBPanel<OrderByPanel> {
     private final List<OrderByRow> orderByRows;
     private final JPanel rowsContainer;
     private final Runnable onChangeCallback;
-    private List<String> fieldSuggestions = new ArrayList<>();
+    private SuggestionIndex fieldSuggestions = SuggestionIndex.EMPTY;
 
     public OrderByPanel(Runnable onChangeCallback) {
         super(new BorderLayout());
@@ -99,8 +100,8 @@ public class OrderByPanel extends JBPanel<OrderByPanel> {
     /**
      * Updates field suggestions for all order by rows.
      */
-    public void updateFieldSuggestions(List<String> suggestions) {
-        this.fieldSuggestions = suggestions != null ? new ArrayList<>(suggestions) : new ArrayList<>();
+    public void updateFieldSuggestions(SuggestionIndex suggestions) {
+        this.fieldSuggestions = suggestions != null ? suggestions : SuggestionIndex.EMPTY;
         for (OrderByRow row : orderByRows) {
             row.updateFieldSuggestions(this.fieldSuggestions);
         }
@@ -151,7 +152,7 @@ public class OrderByPanel extends JBPanel<OrderByPanel> {
             add(removeButton);
         }
         
-        public void updateFieldSuggestions(List<String> suggestions) {
+        public void updateFieldSuggestions(SuggestionIndex suggestions) {
             fieldField.setSuggestions(suggestions);
         }
 
@@ -1,7 +1,9 @@
 package n1ql.query.generator.ui.components;
 
 import n1ql.query.generator.model.QueryHistoryEntry;
+import n1ql.query.generator.model.QueryOperation;
 import n1ql.query.generator.services.QueryHistoryManager;
+import n1ql.query.generator.services.QueryShape;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
 import com.intellij.util.ui.JBUI;
@@ -14,6 +16,7 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 /**
@@ -23,9 +26,14 @@ public class QueryHistoryPanel extends JBPanel<QueryHistoryPanel> {
 
     private final QueryHistoryManager historyManager;
     private final Consumer<String> onQuerySelected;
+    private static final int ACTION_WIDTH = 30;
+    private static final int ROW_INSET = 8;
+
     private final JBTextField searchField;
-    private final JPanel historyListPanel;
+    private final IncrementalListModel<QueryHistoryEntry> historyModel;
+    private final JBList<QueryHistoryEntry> historyList;
     private final JBCheckBox showFavoritesOnly;
+    private int hoveredIndex = -1;
 
     public QueryHistoryPanel(Consumer<String> onQuerySelected) {
         super(new BorderLayout());
@@ -53,11 +61,40 @@ public class QueryHistoryPanel extends JBPanel<QueryHistoryPanel> {
         
         add(searchPanel, BorderLayout.NORTH);
 
-        // History list
-        historyListPanel = new JPanel();
-        historyListPanel.setLayout(new BoxLayout(historyListPanel, BoxLayout.Y_AXIS));
+        // History list: only visible rows are rendered, through a single shared renderer
+        historyModel = new IncrementalListModel<>((a, b) -> Objects.equals(a.getId(), b.getId())
+            && a.isFavorite() == b.isFavorite()
+            && Objects.equals(a.getTimestamp(), b.getTimestamp())
+            && Objects.equals(a.getQuery(), b.getQuery()));
+        historyList = new JBList<>(historyModel) {
+            @Override
+            public String getToolTipText(MouseEvent e) {
+                // Tooltip with full query and its earlier variants, built only for the hovered row
+                int index = rowAt(e);
+                if (index < 0) {
+                    return null;
+                }
+                QueryHistoryEntry entry = historyModel.getElementAt(index);
+                StringBuilder tooltip = new StringBuilder("<html><pre>").append(escapeHtml(entry.getQuery())).append("</pre>");
+                if (!entry.getVariants().isEmpty()) {
+                    tooltip.append("<b>Earlier values:</b><pre>");
+                    for (String variant : entry.getVariants()) {
+                        tooltip.append(escapeHtml(String.join(", ", QueryShape.of(variant).getLiterals()))).append('\n');
+                    }
+                    tooltip.append("</pre>");
+                }
+                return tooltip.append("</html>").toString();
+            }
+        };
+        historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        historyList.setCellRenderer(new HistoryEntryRenderer());
+        historyList.setPrototypeCellValue(new QueryHistoryEntry("SELECT", QueryOperation.SELECT, "bucket"));
+        historyList.setFixedCellWidth(100); // Cells still stretch to the viewport width
+        historyList.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        historyList.getEmptyText().setText("No history entries");
+        installListMouseHandling();
         
-        JBScrollPane scrollPane = new JBScrollPane(historyListPanel);
+        JBScrollPane scrollPane = new JBScrollPane(historyList);
         scrollPane.setBorder(JBUI.Borders.empty());
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         add(scrollPane, BorderLayout.CENTER);
@@ -72,6 +109,25 @@ public class QueryHistoryPanel extends JBPanel<QueryHistoryPanel> {
         bottomPanel.add(filterPanel, BorderLayout.WEST);
 
         JPanel actionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 2));
+        JBCheckBox journalStorage = new JBCheckBox("Journal", historyManager.isJournalStorage());
+        journalStorage.setToolTipText("Store history in an append-only journal that loads query text on demand");
+        journalStorage.addActionListener(e -> {
+            try {
+                historyManager.setJournalStorage(journalStorage.isSelected());
+            } catch (IllegalStateException ex) {
+                journalStorage.setSelected(historyManager.isJournalStorage());
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Query History", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        actionsPanel.add(journalStorage);
+        actionsPanel.add(new JBLabel("Keep:"));
+        JSpinner capacitySpinner = new JSpinner(new SpinnerNumberModel(historyManager.getMaxHistorySize(),
+            QueryHistoryManager.MIN_HISTORY_SIZE, QueryHistoryManager.MAX_HISTORY_SIZE, 100));
+        capacitySpinner.setToolTipText("Maximum number of history entries (favorites are always kept)");
+        capacitySpinner.addChangeListener(e ->
+            historyManager.setMaxHistorySize((Integer) capacitySpinner.getValue()));
+        actionsPanel.add(capacitySpinner);
+
         JButton clearButton = new JButton("Clear");
         clearButton.setToolTipText("Clear non-favorite history");
         clearButton.addActionListener(e -> {
@@ -106,135 +162,145 @@ public class QueryHistoryPanel extends JBPanel<QueryHistoryPanel> {
     }
 
     public void refreshHistory() {
-        historyListPanel.removeAll();
-
         String searchTerm = searchField.getText();
         List<QueryHistoryEntry> entries;
         
-        if (showFavoritesOnly.isSelected()) {
-            entries = historyManager.getFavorites();
-        } else if (searchTerm != null && !searchTerm.isEmpty()) {
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
             entries = historyManager.search(searchTerm);
+            if (showFavoritesOnly.isSelected()) {
+                entries.removeIf(entry -> !entry.isFavorite());
+            }
+        } else if (showFavoritesOnly.isSelected()) {
+            entries = historyManager.getFavorites();
         } else {
             entries = historyManager.getHistory();
         }
 
-        if (entries.isEmpty()) {
-            JBLabel emptyLabel = new JBLabel("No history entries");
-            emptyLabel.setForeground(JBColor.GRAY);
-            emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            emptyLabel.setBorder(JBUI.Borders.empty(20));
-            historyListPanel.add(emptyLabel);
-        } else {
-            for (QueryHistoryEntry entry : entries) {
-                historyListPanel.add(new HistoryEntryRow(entry));
-                historyListPanel.add(Box.createVerticalStrut(2));
+        historyModel.setItems(entries);
+    }
+
+    private void installListMouseHandling() {
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoveredIndex(rowAt(e));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoveredIndex(-1);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = rowAt(e);
+                if (index < 0) {
+                    return;
+                }
+                QueryHistoryEntry entry = historyModel.getElementAt(index);
+                Rectangle bounds = historyList.getCellBounds(index, index);
+                int actionsRight = bounds.x + bounds.width - ROW_INSET;
+
+                if (e.getX() >= actionsRight - ACTION_WIDTH && e.getX() < actionsRight) {
+                    historyManager.removeEntry(entry.getId());
+                    refreshHistory();
+                } else if (e.getX() >= actionsRight - 2 * ACTION_WIDTH && e.getX() < actionsRight - ACTION_WIDTH) {
+                    historyManager.toggleFavorite(entry.getId());
+                    refreshHistory();
+                } else if (e.getClickCount() == 2 && onQuerySelected != null && entry.getQuery() != null) {
+                    onQuerySelected.accept(entry.getQuery());
+                }
             }
+        };
+        historyList.addMouseListener(mouseHandler);
+        historyList.addMouseMotionListener(mouseHandler);
+    }
+
+    private int rowAt(MouseEvent e) {
+        int index = historyList.locationToIndex(e.getPoint());
+        if (index < 0) {
+            return -1;
         }
+        Rectangle bounds = historyList.getCellBounds(index, index);
+        return bounds != null && bounds.contains(e.getPoint()) ? index : -1;
+    }
 
-        historyListPanel.add(Box.createVerticalGlue());
-        historyListPanel.revalidate();
-        historyListPanel.repaint();
+    private void setHoveredIndex(int index) {
+        if (index == hoveredIndex) {
+            return;
+        }
+        repaintRow(hoveredIndex);
+        hoveredIndex = index;
+        repaintRow(hoveredIndex);
+    }
+
+    private void repaintRow(int index) {
+        if (index >= 0 && index < historyModel.getSize()) {
+            Rectangle bounds = historyList.getCellBounds(index, index);
+            if (bounds != null) {
+                historyList.repaint(bounds);
+            }
+        }
     }
 
     /**
-     * Row representing a single history entry.
+     * Renders a history entry: query preview and metadata, with favorite and remove actions on the right.
+     * One instance paints every visible row.
      */
-    private class HistoryEntryRow extends JPanel {
-        private final QueryHistoryEntry entry;
-        private boolean isHovered = false;
+    private class HistoryEntryRenderer extends JPanel implements ListCellRenderer<QueryHistoryEntry> {
+        private final JBLabel previewLabel = new JBLabel();
+        private final JBLabel metaLabel = new JBLabel();
+        private final JBLabel favoriteLabel = new JBLabel("", SwingConstants.CENTER);
+        private final JBLabel deleteLabel = new JBLabel("✕", SwingConstants.CENTER);
 
-        public HistoryEntryRow(QueryHistoryEntry entry) {
+        HistoryEntryRenderer() {
             super(new BorderLayout(5, 2));
-            this.entry = entry;
-            
-            setBorder(JBUI.Borders.empty(5, 8));
-            setMaximumSize(new Dimension(Integer.MAX_VALUE, 60));
-            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            setBorder(JBUI.Borders.empty(5, ROW_INSET));
 
             // Left side - query info
             JPanel infoPanel = new JPanel();
             infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
             infoPanel.setOpaque(false);
-
-            JBLabel previewLabel = new JBLabel(entry.getQueryPreview());
             previewLabel.setFont(previewLabel.getFont().deriveFont(Font.PLAIN, 11f));
             infoPanel.add(previewLabel);
-
-            JBLabel metaLabel = new JBLabel(entry.toString());
             metaLabel.setFont(metaLabel.getFont().deriveFont(Font.ITALIC, 9f));
             metaLabel.setForeground(JBColor.GRAY);
             infoPanel.add(metaLabel);
-
             add(infoPanel, BorderLayout.CENTER);
 
-            // Right side - favorite button
-            JPanel actionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 2, 0));
+            // Right side - favorite and remove actions, hit-tested by the list's mouse handler
+            JPanel actionsPanel = new JPanel(new GridLayout(1, 2));
             actionsPanel.setOpaque(false);
-
-            JButton favoriteButton = new JButton(entry.isFavorite() ? "★" : "☆");
-            favoriteButton.setPreferredSize(new Dimension(30, 25));
-            favoriteButton.setToolTipText(entry.isFavorite() ? "Remove from favorites" : "Add to favorites");
-            favoriteButton.addActionListener(e -> {
-                historyManager.toggleFavorite(entry.getId());
-                refreshHistory();
-            });
-            actionsPanel.add(favoriteButton);
-
-            JButton deleteButton = new JButton("✕");
-            deleteButton.setPreferredSize(new Dimension(30, 25));
-            deleteButton.setToolTipText("Remove from history");
-            deleteButton.addActionListener(e -> {
-                historyManager.removeEntry(entry.getId());
-                refreshHistory();
-            });
-            actionsPanel.add(deleteButton);
-
+            actionsPanel.setPreferredSize(new Dimension(2 * ACTION_WIDTH, 25));
+            actionsPanel.add(favoriteLabel);
+            actionsPanel.add(deleteLabel);
             add(actionsPanel, BorderLayout.EAST);
-
-            // Hover effect
-            addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    isHovered = true;
-                    setBackground(JBColor.background().brighter());
-                    repaint();
-                }
-
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    isHovered = false;
-                    setBackground(null);
-                    repaint();
-                }
-
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if (e.getClickCount() == 2 && onQuerySelected != null) {
-                        onQuerySelected.accept(entry.getQuery());
-                    }
-                }
-            });
-
-            // Tooltip with full query
-            setToolTipText("<html><pre>" + escapeHtml(entry.getQuery()) + "</pre></html>");
         }
 
         @Override
-        protected void paintComponent(Graphics g) {
-            if (isHovered) {
-                g.setColor(JBColor.background().brighter());
-                g.fillRect(0, 0, getWidth(), getHeight());
+        public Component getListCellRendererComponent(JList<? extends QueryHistoryEntry> list, QueryHistoryEntry entry,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            // Journal-backed entries are listed before their query text has loaded
+            previewLabel.setText(entry.getQuery() != null ? entry.getQueryPreview() : "Loading…");
+            metaLabel.setText(entry.toString());
+            favoriteLabel.setText(entry.isFavorite() ? "★" : "☆");
+
+            if (isSelected) {
+                setBackground(list.getSelectionBackground());
+                previewLabel.setForeground(list.getSelectionForeground());
+            } else {
+                setBackground(index == hoveredIndex ? JBColor.background().brighter() : list.getBackground());
+                previewLabel.setForeground(list.getForeground());
             }
-            super.paintComponent(g);
+            return this;
         }
+    }
 
-        private String escapeHtml(String text) {
-            if (text == null) return "";
-            return text.replace("&", "&amp;")
-                      .replace("<", "&lt;")
-                      .replace(">", "&gt;")
-                      .replace("\n", "<br>");
-        }
+    private static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                  .replace("<", "&lt;")
+                  .replace(">", "&gt;")
+                  .replace("\n", "<br>");
     }
 }
@@ -0,0 +1,253 @@
+package n1ql.query.generator.ui.components;
+
+import n1ql.query.generator.builder.KeysetPagination;
+import n1ql.query.generator.engine.ColumnStore;
+import n1ql.query.generator.engine.ExecutionResult;
+import n1ql.query.generator.engine.LocalQueryEngine;
+import n1ql.query.generator.model.QueryModel;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.components.*;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Dialog running the current query on a local JSON or NDJSON sample file, showing the rows it
+ * returns and how many documents it scanned and matched. Keyset queries can step to the next
+ * page, which runs it here and hands its cursor back to the caller.
+ */
+public class SampleRunDialog extends DialogWrapper {
+
+    private static final int MAX_ROWS_SHOWN = 100;
+
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * The last sample loaded, kept by the caller so reopening the dialog doesn't reload it.
+     */
+    public static class Sample {
+        private File file;
+        private String keyField;
+        private ColumnStore store;
+    }
+
+    private final Sample sample;
+    private final Consumer<QueryModel> onNextPage;
+    private QueryModel model;
+    // Cursor for the next page: the last row of a keyset run, or null
+    private JsonObject lastRow;
+
+    private JBLabel fileLabel;
+    private JBTextField keyFieldField;
+    private JButton runButton;
+    private JButton nextPageButton;
+    private JBTextArea resultArea;
+    private JBLabel statusLabel;
+    private JProgressBar progressBar;
+    private SwingWorker<ExecutionResult, Integer> worker;
+
+    /**
+     * @param onNextPage Called with the model of the page after the last row shown, when the user
+     *                   steps to it
+     */
+    public SampleRunDialog(Component parent, QueryModel model, Sample sample, Consumer<QueryModel> onNextPage) {
+        super(parent, true);
+        this.model = model;
+        this.sample = sample;
+        this.onNextPage = onNextPage;
+        setTitle("Run on Sample Data");
+        setSize(700, 500);
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(JBUI.Borders.empty(10));
+
+        // File and document key selection
+        JPanel filePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton chooseButton = new JButton("📂 Choose File...");
+        chooseButton.addActionListener(e -> chooseFile());
+        filePanel.add(chooseButton);
+        fileLabel = new JBLabel(sample.file != null ? sample.file.getName() : "No sample file");
+        filePanel.add(fileLabel);
+        filePanel.add(new JBLabel("Key field:"));
+        keyFieldField = new JBTextField(sample.keyField != null ? sample.keyField : "", 10);
+        keyFieldField.setToolTipText("Field holding the document key for META().id; empty numbers the documents");
+        filePanel.add(keyFieldField);
+        runButton = new JButton("▶ Run");
+        runButton.setEnabled(sample.file != null);
+        runButton.addActionListener(e -> run(sample.file));
+        filePanel.add(runButton);
+        nextPageButton = new JButton("⏭ Next Page");
+        nextPageButton.setToolTipText("Run the page after the last row and fill in the keyset cursor");
+        nextPageButton.setEnabled(false);
+        nextPageButton.addActionListener(e -> nextPage());
+        filePanel.add(nextPageButton);
+        mainPanel.add(filePanel, BorderLayout.NORTH);
+
+        resultArea = new JBTextArea();
+        resultArea.setEditable(false);
+        resultArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        mainPanel.add(new JBScrollPane(resultArea), BorderLayout.CENTER);
+
+        // Status panel
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusLabel = new JBLabel("Choose a JSON array or NDJSON file of sample documents.");
+        statusLabel.setForeground(JBColor.GRAY);
+        statusPanel.add(statusLabel, BorderLayout.WEST);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+        mainPanel.add(statusPanel, BorderLayout.SOUTH);
+
+        if (sample.file != null) {
+            run(sample.file);
+        }
+        return mainPanel;
+    }
+
+    private void chooseFile() {
+        JFileChooser chooser = new JFileChooser(sample.file);
+        chooser.setDialogTitle("Choose JSON or NDJSON Sample");
+        if (chooser.showOpenDialog(getContentPanel()) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        fileLabel.setText(file.getName());
+        runButton.setEnabled(true);
+        run(file);
+    }
+
+    /**
+     * Loads the file unless it is already loaded with the same key field, then runs the query,
+     * both on a background thread.
+     */
+    private void run(File file) {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        String keyField = keyFieldField.getText().trim();
+        QueryModel query = model;
+        ColumnStore cached = file.equals(sample.file) && keyField.equals(sample.keyField) ? sample.store : null;
+
+        progressBar.setValue(0);
+        progressBar.setVisible(cached == null);
+        statusLabel.setText(cached == null ? "Reading " + file.getName() + "..." : "Running...");
+        statusLabel.setForeground(JBColor.GRAY);
+        lastRow = null;
+        nextPageButton.setEnabled(false);
+
+        worker = new SwingWorker<>() {
+            @Override
+            protected ExecutionResult doInBackground() throws IOException {
+                ColumnStore store = cached;
+                if (store == null) {
+                    store = ColumnStore.load(file.toPath(), keyField.isEmpty() ? null : keyField, (read, total) -> {
+                        if (total > 0) {
+                            publish((int) Math.min(100, read * 100 / total));
+                        }
+                    });
+                    ColumnStore loaded = store;
+                    SwingUtilities.invokeLater(() -> {
+                        sample.file = file;
+                        sample.keyField = keyField;
+                        sample.store = loaded;
+                    });
+                }
+                return LocalQueryEngine.execute(query, store);
+            }
+
+            @Override
+            protected void process(List<Integer> percentages) {
+                progressBar.setValue(percentages.get(percentages.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                if (worker != this) {
+                    return;
+                }
+                worker = null;
+                progressBar.setVisible(false);
+                try {
+                    showResult(get());
+                } catch (CancellationException | InterruptedException e) {
+                    statusLabel.setText("Run cancelled");
+                    statusLabel.setForeground(JBColor.GRAY);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    String prefix = cause instanceof UnsupportedOperationException
+                        ? "⚠️ Can't run locally: " : "⚠️ Failed to read " + file.getName() + ": ";
+                    statusLabel.setText(prefix + cause.getMessage());
+                    statusLabel.setForeground(JBColor.RED);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showResult(ExecutionResult result) {
+        List<JsonObject> rows = result.rows();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows.size() && i < MAX_ROWS_SHOWN; i++) {
+            sb.append(PRETTY_GSON.toJson(rows.get(i))).append('\n');
+        }
+        if (rows.size() > MAX_ROWS_SHOWN) {
+            sb.append("... ").append(rows.size() - MAX_ROWS_SHOWN).append(" more rows\n");
+        }
+        resultArea.setText(sb.toString());
+        resultArea.setCaretPosition(0);
+        statusLabel.setText(result.toString());
+        statusLabel.setForeground(JBColor.foreground());
+        // An empty page is the last one
+        lastRow = model.isKeysetPagination() && !rows.isEmpty() ? rows.get(rows.size() - 1) : null;
+        nextPageButton.setEnabled(lastRow != null);
+    }
+
+    /**
+     * Seeks past the last row shown and runs the next page on the same sample.
+     */
+    private void nextPage() {
+        QueryModel next;
+        try {
+            next = KeysetPagination.nextPage(model, lastRow);
+        } catch (IllegalArgumentException e) {
+            // Aggregating queries return no cursor members
+            statusLabel.setText("⚠️ Can't page: " + e.getMessage());
+            statusLabel.setForeground(JBColor.RED);
+            nextPageButton.setEnabled(false);
+            return;
+        }
+        model = next;
+        onNextPage.accept(next);
+        run(sample.file);
+    }
+
+    @Override
+    protected void dispose() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+        super.dispose();
+    }
+
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{getOKAction()};
+    }
+}
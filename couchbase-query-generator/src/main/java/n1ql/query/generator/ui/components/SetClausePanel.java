@@ -1,6 +1,7 @@
 package n1ql.query.generator.ui.components;
 
 import n1ql.query.generator.model.SetClause;
+import n1ql.query.generator.services.SuggestionIndex;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBPanel;
@@ -23,7 +24,7 @@ public class SetClausePanel extends JBPanel<SetClausePanel> {
     private final List<SetClauseRow> setClauseRows;
     private final JPanel rowsContainer;
     private final Runnable onChangeCallback;
-    private List<String> fieldSuggestions = new ArrayList<>();
+    private SuggestionIndex fieldSuggestions = SuggestionIndex.EMPTY;
 
     public SetClausePanel(Runnable onChangeCallback) {
         super(new BorderLayout());
@@ -99,8 +100,8 @@ public class SetClausePanel extends JBPanel<SetClausePanel> {
     /**
      * Updates field suggestions for all set clause rows.
      */
-    public void updateFieldSuggestions(List<String> suggestions) {
-        this.fieldSuggestions = suggestions != null ? new ArrayList<>(suggestions) : new ArrayList<>();
+    public void updateFieldSuggestions(SuggestionIndex suggestions) {
+        this.fieldSuggestions = suggestions != null ? suggestions : SuggestionIndex.EMPTY;
         for (SetClauseRow row : setClauseRows) {
             row.updateFieldSuggestions(this.fieldSuggestions);
         }
@@ -164,7 +165,7 @@ public class SetClausePanel extends JBPanel<SetClausePanel> {
             };
         }
         
-        public void updateFieldSuggestions(List<String> suggestions) {
+        public void updateFieldSuggestions(SuggestionIndex suggestions) {
             fieldField.setSuggestions(suggestions);
         }
 
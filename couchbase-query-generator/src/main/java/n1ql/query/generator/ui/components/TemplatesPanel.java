@@ -9,10 +9,14 @@ import com.intellij.util.ui.JBUI;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 /**
@@ -23,7 +27,31 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
     private final TemplatesManager templatesManager;
     private final Consumer<String> onTemplateSelected;
     private final ComboBox<String> categoryFilter;
-    private final JPanel templatesListPanel;
+    private static final int ACTION_WIDTH = 30;
+    private static final int ROW_INSET = 8;
+
+    private final JBTextField searchField;
+    private final IncrementalListModel<TemplateListItem> templatesModel;
+    private final JBList<TemplateListItem> templatesList;
+    private int hoveredIndex = -1;
+
+    /**
+     * A list row: either a category header or a template.
+     */
+    private record TemplateListItem(String header, QueryTemplate template) {
+        boolean isHeader() {
+            return template == null;
+        }
+
+        boolean sameRow(TemplateListItem other) {
+            if (isHeader() || other.isHeader()) {
+                return isHeader() && other.isHeader() && header.equals(other.header);
+            }
+            return Objects.equals(template.getId(), other.template.getId())
+                && Objects.equals(template.getName(), other.template.getName())
+                && Objects.equals(template.getDescription(), other.template.getDescription());
+        }
+    }
 
     public TemplatesPanel(Consumer<String> onTemplateSelected) {
         super(new BorderLayout());
@@ -33,10 +61,23 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
         setBorder(createTitledBorder("Query Templates"));
         setPreferredSize(new Dimension(300, 400));
 
-        // Top panel with category filter
+        // Top panel with search and category filter
+        JPanel topPanel = new JPanel(new BorderLayout(0, 5));
+        topPanel.setBorder(JBUI.Borders.empty(5));
+
+        searchField = new JBTextField();
+        searchField.getEmptyText().setText("Search templates...");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { refreshTemplates(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { refreshTemplates(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { refreshTemplates(); }
+        });
+        topPanel.add(searchField, BorderLayout.NORTH);
+
         JPanel filterPanel = new JPanel(new BorderLayout(5, 0));
-        filterPanel.setBorder(JBUI.Borders.empty(5));
-        
         filterPanel.add(new JBLabel("Category:"), BorderLayout.WEST);
         categoryFilter = new ComboBox<>();
         categoryFilter.addItem("All");
@@ -45,14 +86,33 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
         }
         categoryFilter.addActionListener(e -> refreshTemplates());
         filterPanel.add(categoryFilter, BorderLayout.CENTER);
+        topPanel.add(filterPanel, BorderLayout.CENTER);
         
-        add(filterPanel, BorderLayout.NORTH);
-
-        // Templates list
-        templatesListPanel = new JPanel();
-        templatesListPanel.setLayout(new BoxLayout(templatesListPanel, BoxLayout.Y_AXIS));
+        add(topPanel, BorderLayout.NORTH);
+
+        // Templates list: only visible rows are rendered, through a single shared renderer
+        templatesModel = new IncrementalListModel<>(TemplateListItem::sameRow);
+        templatesList = new JBList<>(templatesModel) {
+            @Override
+            public String getToolTipText(MouseEvent e) {
+                // Tooltip with query preview, built only for the hovered row
+                int index = rowAt(e);
+                if (index < 0 || templatesModel.getElementAt(index).isHeader()) {
+                    return null;
+                }
+                return "<html><pre>" + escapeHtml(templatesModel.getElementAt(index).template().getQuery()) + "</pre></html>";
+            }
+        };
+        templatesList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        templatesList.setCellRenderer(new TemplateRenderer());
+        templatesList.setPrototypeCellValue(new TemplateListItem(null,
+            new QueryTemplate("Template", "SELECT", "Description", "Category", false)));
+        templatesList.setFixedCellWidth(100); // Cells still stretch to the viewport width
+        templatesList.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        templatesList.getEmptyText().setText("No templates available");
+        installListMouseHandling();
         
-        JBScrollPane scrollPane = new JBScrollPane(templatesListPanel);
+        JBScrollPane scrollPane = new JBScrollPane(templatesList);
         scrollPane.setBorder(JBUI.Borders.empty());
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         add(scrollPane, BorderLayout.CENTER);
@@ -83,50 +143,105 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
     }
 
     public void refreshTemplates() {
-        templatesListPanel.removeAll();
-
         String selectedCategory = (String) categoryFilter.getSelectedItem();
+        String searchTerm = searchField.getText();
+        boolean searching = searchTerm != null && !searchTerm.trim().isEmpty();
         List<QueryTemplate> templates;
         
-        if ("All".equals(selectedCategory) || selectedCategory == null) {
+        if (searching) {
+            // Ranked results, restricted to the selected category
+            templates = templatesManager.search(searchTerm);
+            if (selectedCategory != null && !"All".equals(selectedCategory)) {
+                templates.removeIf(t -> !selectedCategory.equals(t.getCategory()));
+            }
+        } else if ("All".equals(selectedCategory) || selectedCategory == null) {
             templates = templatesManager.getAllTemplates();
         } else {
             templates = templatesManager.getTemplatesByCategory(selectedCategory);
         }
 
-        if (templates.isEmpty()) {
-            JBLabel emptyLabel = new JBLabel("No templates available");
-            emptyLabel.setForeground(JBColor.GRAY);
-            emptyLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            emptyLabel.setBorder(JBUI.Borders.empty(20));
-            templatesListPanel.add(emptyLabel);
-        } else {
-            String currentCategory = null;
-            for (QueryTemplate template : templates) {
-                // Category header
-                if ("All".equals(selectedCategory) && 
-                    (currentCategory == null || !currentCategory.equals(template.getCategory()))) {
-                    currentCategory = template.getCategory();
-                    if (currentCategory != null) {
-                        JBLabel categoryLabel = new JBLabel(currentCategory);
-                        categoryLabel.setFont(categoryLabel.getFont().deriveFont(Font.BOLD, 11f));
-                        categoryLabel.setForeground(JBColor.GRAY);
-                        categoryLabel.setBorder(JBUI.Borders.empty(10, 5, 5, 5));
-                        categoryLabel.setAlignmentX(LEFT_ALIGNMENT);
-                        templatesListPanel.add(categoryLabel);
+        List<TemplateListItem> items = new ArrayList<>(templates.size() + 8);
+        String currentCategory = null;
+        for (QueryTemplate template : templates) {
+            // Category header
+            if (!searching && "All".equals(selectedCategory) && 
+                (currentCategory == null || !currentCategory.equals(template.getCategory()))) {
+                currentCategory = template.getCategory();
+                if (currentCategory != null) {
+                    items.add(new TemplateListItem(currentCategory, null));
+                }
+            }
+            items.add(new TemplateListItem(null, template));
+        }
+        templatesModel.setItems(items);
+    }
+
+    private void installListMouseHandling() {
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoveredIndex(rowAt(e));
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoveredIndex(-1);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = rowAt(e);
+                if (index < 0 || templatesModel.getElementAt(index).isHeader()) {
+                    return;
+                }
+                QueryTemplate template = templatesModel.getElementAt(index).template();
+                Rectangle bounds = templatesList.getCellBounds(index, index);
+                int actionsRight = bounds.x + bounds.width - ROW_INSET;
+
+                if (!template.isBuiltIn() && e.getX() >= actionsRight - ACTION_WIDTH && e.getX() < actionsRight) {
+                    int confirm = JOptionPane.showConfirmDialog(TemplatesPanel.this,
+                        "Delete template '" + template.getName() + "'?",
+                        "Confirm Delete",
+                        JOptionPane.YES_NO_OPTION);
+                    if (confirm == JOptionPane.YES_OPTION) {
+                        templatesManager.deleteTemplate(template.getId());
+                        refreshTemplates();
                     }
+                } else if (e.getClickCount() == 2 && onTemplateSelected != null) {
+                    templatesManager.recordUsage(template.getId());
+                    onTemplateSelected.accept(template.getQuery());
                 }
-                
-                TemplateRow row = new TemplateRow(template);
-                row.setAlignmentX(LEFT_ALIGNMENT);
-                templatesListPanel.add(row);
-                templatesListPanel.add(Box.createVerticalStrut(2));
             }
+        };
+        templatesList.addMouseListener(mouseHandler);
+        templatesList.addMouseMotionListener(mouseHandler);
+    }
+
+    private int rowAt(MouseEvent e) {
+        int index = templatesList.locationToIndex(e.getPoint());
+        if (index < 0) {
+            return -1;
         }
+        Rectangle bounds = templatesList.getCellBounds(index, index);
+        return bounds != null && bounds.contains(e.getPoint()) ? index : -1;
+    }
 
-        templatesListPanel.add(Box.createVerticalGlue());
-        templatesListPanel.revalidate();
-        templatesListPanel.repaint();
+    private void setHoveredIndex(int index) {
+        if (index == hoveredIndex) {
+            return;
+        }
+        repaintRow(hoveredIndex);
+        hoveredIndex = index;
+        repaintRow(hoveredIndex);
+    }
+
+    private void repaintRow(int index) {
+        if (index >= 0 && index < templatesModel.getSize()) {
+            Rectangle bounds = templatesList.getCellBounds(index, index);
+            if (bounds != null) {
+                templatesList.repaint(bounds);
+            }
+        }
     }
 
     private void showAddTemplateDialog() {
@@ -189,19 +304,21 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
     }
 
     /**
-     * Row representing a single template.
+     * Renders a category header or a template: name, built-in marker and description, with a
+     * delete action on the right for custom templates. One instance paints every visible row.
      */
-    private class TemplateRow extends JPanel {
-        private final QueryTemplate template;
-        private boolean isHovered = false;
-
-        public TemplateRow(QueryTemplate template) {
+    private class TemplateRenderer extends JPanel implements ListCellRenderer<TemplateListItem> {
+        private final JBLabel nameLabel = new JBLabel();
+        private final JBLabel builtInLabel = new JBLabel("[built-in]");
+        private final JBLabel descLabel = new JBLabel();
+        private final JBLabel deleteLabel = new JBLabel("✕", SwingConstants.CENTER);
+        private final JPanel actionsPanel = new JPanel(new BorderLayout());
+        private final Font nameFont;
+        private final Font headerFont;
+
+        TemplateRenderer() {
             super(new BorderLayout(5, 2));
-            this.template = template;
-            
-            setBorder(JBUI.Borders.empty(5, 8));
-            setMaximumSize(new Dimension(Integer.MAX_VALUE, 50));
-            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            setBorder(JBUI.Borders.empty(5, ROW_INSET));
 
             // Left side - template info
             JPanel infoPanel = new JPanel();
@@ -210,96 +327,66 @@ public class TemplatesPanel extends JBPanel<TemplatesPanel> {
 
             JPanel namePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
             namePanel.setOpaque(false);
-            
-            JBLabel nameLabel = new JBLabel(template.getName());
-            nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD, 12f));
+            namePanel.setAlignmentX(LEFT_ALIGNMENT);
+            nameFont = nameLabel.getFont().deriveFont(Font.BOLD, 12f);
+            headerFont = nameLabel.getFont().deriveFont(Font.BOLD, 11f);
             namePanel.add(nameLabel);
-            
-            if (template.isBuiltIn()) {
-                JBLabel builtInLabel = new JBLabel("[built-in]");
-                builtInLabel.setFont(builtInLabel.getFont().deriveFont(Font.ITALIC, 9f));
-                builtInLabel.setForeground(JBColor.GRAY);
-                namePanel.add(builtInLabel);
-            }
-            
+            builtInLabel.setFont(builtInLabel.getFont().deriveFont(Font.ITALIC, 9f));
+            builtInLabel.setForeground(JBColor.GRAY);
+            namePanel.add(builtInLabel);
             infoPanel.add(namePanel);
 
-            if (template.getDescription() != null && !template.getDescription().isEmpty()) {
-                JBLabel descLabel = new JBLabel(template.getDescription());
-                descLabel.setFont(descLabel.getFont().deriveFont(Font.PLAIN, 10f));
-                descLabel.setForeground(JBColor.GRAY);
-                infoPanel.add(descLabel);
-            }
-
+            descLabel.setFont(descLabel.getFont().deriveFont(Font.PLAIN, 10f));
+            descLabel.setForeground(JBColor.GRAY);
+            descLabel.setAlignmentX(LEFT_ALIGNMENT);
+            infoPanel.add(descLabel);
             add(infoPanel, BorderLayout.CENTER);
 
-            // Right side - actions (only for custom templates)
-            if (!template.isBuiltIn()) {
-                JPanel actionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 2, 0));
-                actionsPanel.setOpaque(false);
-
-                JButton deleteButton = new JButton("✕");
-                deleteButton.setPreferredSize(new Dimension(30, 25));
-                deleteButton.setToolTipText("Delete template");
-                deleteButton.addActionListener(e -> {
-                    int confirm = JOptionPane.showConfirmDialog(this,
-                        "Delete template '" + template.getName() + "'?",
-                        "Confirm Delete",
-                        JOptionPane.YES_NO_OPTION);
-                    if (confirm == JOptionPane.YES_OPTION) {
-                        templatesManager.deleteTemplate(template.getId());
-                        refreshTemplates();
-                    }
-                });
-                actionsPanel.add(deleteButton);
-
-                add(actionsPanel, BorderLayout.EAST);
-            }
-
-            // Hover effect and click
-            addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    isHovered = true;
-                    setBackground(JBColor.background().brighter());
-                    repaint();
-                }
-
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    isHovered = false;
-                    setBackground(null);
-                    repaint();
-                }
-
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if (e.getClickCount() == 2 && onTemplateSelected != null) {
-                        templatesManager.recordUsage(template.getId());
-                        onTemplateSelected.accept(template.getQuery());
-                    }
-                }
-            });
-
-            // Tooltip with query preview
-            setToolTipText("<html><pre>" + escapeHtml(template.getQuery()) + "</pre></html>");
+            // Right side - delete action, hit-tested by the list's mouse handler
+            actionsPanel.setOpaque(false);
+            actionsPanel.setPreferredSize(new Dimension(ACTION_WIDTH, 25));
+            actionsPanel.add(deleteLabel, BorderLayout.CENTER);
+            add(actionsPanel, BorderLayout.EAST);
         }
 
         @Override
-        protected void paintComponent(Graphics g) {
-            if (isHovered) {
-                g.setColor(JBColor.background().brighter());
-                g.fillRect(0, 0, getWidth(), getHeight());
+        public Component getListCellRendererComponent(JList<? extends TemplateListItem> list, TemplateListItem item,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            if (item.isHeader()) {
+                nameLabel.setText(item.header());
+                nameLabel.setFont(headerFont);
+                nameLabel.setForeground(JBColor.GRAY);
+                builtInLabel.setVisible(false);
+                descLabel.setText(" ");
+                actionsPanel.setVisible(false);
+                setBackground(list.getBackground());
+                return this;
             }
-            super.paintComponent(g);
-        }
 
-        private String escapeHtml(String text) {
-            if (text == null) return "";
-            return text.replace("&", "&amp;")
-                      .replace("<", "&lt;")
-                      .replace(">", "&gt;")
-                      .replace("\n", "<br>");
+            QueryTemplate template = item.template();
+            nameLabel.setText(template.getName());
+            nameLabel.setFont(nameFont);
+            builtInLabel.setVisible(template.isBuiltIn());
+            String description = template.getDescription();
+            descLabel.setText(description != null && !description.isEmpty() ? description : " ");
+            actionsPanel.setVisible(!template.isBuiltIn());
+
+            if (isSelected) {
+                setBackground(list.getSelectionBackground());
+                nameLabel.setForeground(list.getSelectionForeground());
+            } else {
+                setBackground(index == hoveredIndex ? JBColor.background().brighter() : list.getBackground());
+                nameLabel.setForeground(list.getForeground());
+            }
+            return this;
         }
     }
+
+    private static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                  .replace("<", "&lt;")
+                  .replace(">", "&gt;")
+                  .replace("\n", "<br>");
+    }
 }
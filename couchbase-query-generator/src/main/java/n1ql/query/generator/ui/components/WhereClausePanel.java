@@ -3,6 +3,7 @@ package n1ql.query.generator.ui.components;
 import n1ql.query.generator.model.LogicalOperator;
 import n1ql.query.generator.model.WhereCondition;
 import n1ql.query.generator.model.WhereOperator;
+import n1ql.query.generator.services.SuggestionIndex;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBLabel;
@@ -26,7 +27,7 @@ public class WhereClausePanel extends JBPanel<WhereClausePanel> {
     private final List<ConditionRow> conditionRows;
     private final JPanel conditionsContainer;
     private final Runnable onChangeCallback;
-    private List<String> fieldSuggestions = new ArrayList<>();
+    private SuggestionIndex fieldSuggestions = SuggestionIndex.EMPTY;
 
     public WhereClausePanel(Runnable onChangeCallback) {
         super(new BorderLayout());
@@ -116,8 +117,8 @@ public class WhereClausePanel extends JBPanel<WhereClausePanel> {
     /**
      * Updates field suggestions for all condition rows.
      */
-    public void updateFieldSuggestions(List<String> suggestions) {
-        this.fieldSuggestions = suggestions != null ? new ArrayList<>(suggestions) : new ArrayList<>();
+    public void updateFieldSuggestions(SuggestionIndex suggestions) {
+        this.fieldSuggestions = suggestions != null ? suggestions : SuggestionIndex.EMPTY;
         // Update existing rows
         for (ConditionRow row : conditionRows) {
             row.updateFieldSuggestions(this.fieldSuggestions);
@@ -260,7 +261,7 @@ public class WhereClausePanel extends JBPanel<WhereClausePanel> {
             };
         }
         
-        public void updateFieldSuggestions(List<String> suggestions) {
+        public void updateFieldSuggestions(SuggestionIndex suggestions) {
             fieldField.setSuggestions(suggestions);
         }
 
@@ -1,158 +1,26 @@
 package n1ql.query.generator.ui.highlighting;
 
+import n1ql.query.generator.lexer.N1QLLexer;
+import n1ql.query.generator.lexer.N1QLToken;
+import n1ql.query.generator.lexer.N1QLTokenType;
 import com.intellij.ui.JBColor;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.*;
 import java.awt.*;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * Syntax highlighter for N1QL queries.
  * Provides color-coded highlighting for keywords, strings, numbers, and comments.
+ * <p>
+ * Styles are created once per document, and later highlights of the same document restyle only
+ * the lines whose text or token styles changed.
  */
 public class N1QLSyntaxHighlighter {
 
-    // N1QL Keywords
-    private static final Set<String> KEYWORDS = new HashSet<>();
-    private static final Set<String> FUNCTIONS = new HashSet<>();
-    private static final Set<String> OPERATORS = new HashSet<>();
-
-    static {
-        // DML Keywords
-        KEYWORDS.add("SELECT");
-        KEYWORDS.add("FROM");
-        KEYWORDS.add("WHERE");
-        KEYWORDS.add("AND");
-        KEYWORDS.add("OR");
-        KEYWORDS.add("NOT");
-        KEYWORDS.add("IN");
-        KEYWORDS.add("LIKE");
-        KEYWORDS.add("BETWEEN");
-        KEYWORDS.add("IS");
-        KEYWORDS.add("NULL");
-        KEYWORDS.add("TRUE");
-        KEYWORDS.add("FALSE");
-        KEYWORDS.add("AS");
-        KEYWORDS.add("ORDER");
-        KEYWORDS.add("BY");
-        KEYWORDS.add("ASC");
-        KEYWORDS.add("DESC");
-        KEYWORDS.add("LIMIT");
-        KEYWORDS.add("OFFSET");
-        KEYWORDS.add("GROUP");
-        KEYWORDS.add("HAVING");
-        KEYWORDS.add("DISTINCT");
-        KEYWORDS.add("ALL");
-        KEYWORDS.add("JOIN");
-        KEYWORDS.add("LEFT");
-        KEYWORDS.add("RIGHT");
-        KEYWORDS.add("INNER");
-        KEYWORDS.add("OUTER");
-        KEYWORDS.add("ON");
-        KEYWORDS.add("INSERT");
-        KEYWORDS.add("INTO");
-        KEYWORDS.add("VALUES");
-        KEYWORDS.add("UPDATE");
-        KEYWORDS.add("SET");
-        KEYWORDS.add("DELETE");
-        KEYWORDS.add("UPSERT");
-        KEYWORDS.add("MERGE");
-        KEYWORDS.add("RETURNING");
-        KEYWORDS.add("KEY");
-        KEYWORDS.add("VALUE");
-        KEYWORDS.add("USE");
-        KEYWORDS.add("KEYS");
-        KEYWORDS.add("NEST");
-        KEYWORDS.add("UNNEST");
-        KEYWORDS.add("LET");
-        KEYWORDS.add("LETTING");
-        KEYWORDS.add("WITH");
-        KEYWORDS.add("UNION");
-        KEYWORDS.add("INTERSECT");
-        KEYWORDS.add("EXCEPT");
-        KEYWORDS.add("ANY");
-        KEYWORDS.add("EVERY");
-        KEYWORDS.add("SATISFIES");
-        KEYWORDS.add("END");
-        KEYWORDS.add("WHEN");
-        KEYWORDS.add("THEN");
-        KEYWORDS.add("ELSE");
-        KEYWORDS.add("CASE");
-        KEYWORDS.add("EXISTS");
-        KEYWORDS.add("MISSING");
-        KEYWORDS.add("CONTAINS");
-
-        // Aggregate Functions
-        FUNCTIONS.add("COUNT");
-        FUNCTIONS.add("SUM");
-        FUNCTIONS.add("AVG");
-        FUNCTIONS.add("MIN");
-        FUNCTIONS.add("MAX");
-        FUNCTIONS.add("ARRAY_AGG");
-        FUNCTIONS.add("ARRAY_LENGTH");
-        FUNCTIONS.add("ARRAY_CONCAT");
-        FUNCTIONS.add("ARRAY_CONTAINS");
-        FUNCTIONS.add("ARRAY_DISTINCT");
-        FUNCTIONS.add("ARRAY_FLATTEN");
-
-        // String Functions
-        FUNCTIONS.add("LOWER");
-        FUNCTIONS.add("UPPER");
-        FUNCTIONS.add("TRIM");
-        FUNCTIONS.add("LTRIM");
-        FUNCTIONS.add("RTRIM");
-        FUNCTIONS.add("LENGTH");
-        FUNCTIONS.add("SUBSTR");
-        FUNCTIONS.add("CONCAT");
-        FUNCTIONS.add("REPLACE");
-        FUNCTIONS.add("SPLIT");
-        FUNCTIONS.add("REGEXP_LIKE");
-        FUNCTIONS.add("REGEXP_CONTAINS");
-
-        // Type Functions
-        FUNCTIONS.add("TYPE");
-        FUNCTIONS.add("TOSTRING");
-        FUNCTIONS.add("TONUMBER");
-        FUNCTIONS.add("TOBOOLEAN");
-        FUNCTIONS.add("TOARRAY");
-        FUNCTIONS.add("TOOBJECT");
-
-        // Date Functions
-        FUNCTIONS.add("NOW_STR");
-        FUNCTIONS.add("NOW_MILLIS");
-        FUNCTIONS.add("DATE_ADD_STR");
-        FUNCTIONS.add("DATE_DIFF_STR");
-        FUNCTIONS.add("DATE_PART_STR");
-        FUNCTIONS.add("STR_TO_MILLIS");
-        FUNCTIONS.add("MILLIS_TO_STR");
-
-        // Other Functions
-        FUNCTIONS.add("META");
-        FUNCTIONS.add("UUID");
-        FUNCTIONS.add("IFNULL");
-        FUNCTIONS.add("IFMISSING");
-        FUNCTIONS.add("IFMISSINGORNULL");
-        FUNCTIONS.add("COALESCE");
-        FUNCTIONS.add("NULLIF");
-        FUNCTIONS.add("OBJECT_LENGTH");
-        FUNCTIONS.add("OBJECT_NAMES");
-        FUNCTIONS.add("OBJECT_VALUES");
-        FUNCTIONS.add("OBJECT_PAIRS");
-
-        // Operators
-        OPERATORS.add("=");
-        OPERATORS.add("!=");
-        OPERATORS.add("<>");
-        OPERATORS.add(">");
-        OPERATORS.add("<");
-        OPERATORS.add(">=");
-        OPERATORS.add("<=");
-    }
-
     // Colors for different token types
     private final Color keywordColor;
     private final Color functionColor;
@@ -162,6 +30,7 @@ public class N1QLSyntaxHighlighter {
     private final Color operatorColor;
     private final Color defaultColor;
     private final Color bucketColor;
+    private final Color parameterColor;
 
     public N1QLSyntaxHighlighter() {
         // Define colors that work in both light and dark themes
@@ -173,180 +42,231 @@ public class N1QLSyntaxHighlighter {
         this.operatorColor = new JBColor(new Color(0, 128, 128), new Color(169, 183, 198)); // Teal / Light gray
         this.defaultColor = JBColor.foreground();
         this.bucketColor = new JBColor(new Color(139, 69, 19), new Color(152, 118, 170));   // Brown / Light purple
+        this.parameterColor = new JBColor(new Color(0, 102, 153), new Color(102, 204, 204)); // Steel blue / Cyan
     }
 
     /**
      * Applies syntax highlighting to a JTextPane.
      */
     public void highlight(JTextPane textPane) {
-        StyledDocument doc = textPane.getStyledDocument();
-        String text = textPane.getText();
+        highlight(textPane, N1QLLexer.tokenize(textPane.getText()));
+    }
 
-        // Clear existing styles
-        Style defaultStyle = createStyle(doc, "default", defaultColor, false, false);
-        doc.setCharacterAttributes(0, text.length(), defaultStyle, true);
+    /**
+     * Applies syntax highlighting using tokens lexed ahead of time (e.g. off the EDT).
+     * The tokens must describe the pane's current text.
+     * <p>
+     * Only the lines around text changed since the last call, widened to every token whose
+     * style differs from the last call's, are restyled; the first call styles the whole text.
+     */
+    public void highlight(JTextPane textPane, List<N1QLToken> tokens) {
+        StyledDocument doc = textPane.getStyledDocument();
+        HighlightState state = (HighlightState) doc.getProperty(HighlightState.class);
+        if (state == null) {
+            state = new HighlightState(doc);
+            doc.putProperty(HighlightState.class, state);
+        }
+        state.restyle(tokens);
 
-        // Apply highlighting in order
-        highlightComments(doc, text);
-        highlightStrings(doc, text);
-        highlightBucketNames(doc, text);
-        highlightKeywords(doc, text);
-        highlightFunctions(doc, text);
-        highlightNumbers(doc, text);
-        
         // Ensure editability is preserved after highlighting
         textPane.setEditable(true);
     }
 
-    private Style createStyle(StyledDocument doc, String name, Color color, boolean bold, boolean italic) {
-        Style style = doc.addStyle(name, null);
-        StyleConstants.setForeground(style, color);
-        StyleConstants.setBold(style, bold);
-        StyleConstants.setItalic(style, italic);
-        return style;
-    }
-
-    private void highlightComments(StyledDocument doc, String text) {
-        Style commentStyle = createStyle(doc, "comment", commentColor, false, true);
-
-        // Single-line comments: -- or //
-        Pattern singleLinePattern = Pattern.compile("(--|//).*$", Pattern.MULTILINE);
-        Matcher matcher = singleLinePattern.matcher(text);
-        while (matcher.find()) {
-            doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), commentStyle, true);
-        }
-
-        // Multi-line comments: /* */
-        Pattern multiLinePattern = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
-        matcher = multiLinePattern.matcher(text);
-        while (matcher.find()) {
-            doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), commentStyle, true);
+    /**
+     * Replaces the pane's text and highlights it. Only the span between the longest common
+     * prefix and suffix of the old and new text is replaced, so the unchanged rest keeps its
+     * styling and a small change to a long query restyles only a few lines.
+     * @param tokens Tokens of {@code text}
+     */
+    public void setText(JTextPane textPane, String text, List<N1QLToken> tokens) {
+        Document doc = textPane.getDocument();
+        String old = textPane.getText();
+        int prefix = 0;
+        int max = Math.min(old.length(), text.length());
+        while (prefix < max && old.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
         }
-    }
-
-    private void highlightStrings(StyledDocument doc, String text) {
-        Style stringStyle = createStyle(doc, "string", stringColor, false, false);
-
-        // Double-quoted strings
-        Pattern doubleQuotePattern = Pattern.compile("\"([^\"\\\\]|\\\\.)*\"");
-        Matcher matcher = doubleQuotePattern.matcher(text);
-        while (matcher.find()) {
-            doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), stringStyle, true);
+        int suffix = 0;
+        while (suffix < max - prefix
+                && old.charAt(old.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
         }
-
-        // Single-quoted strings
-        Pattern singleQuotePattern = Pattern.compile("'([^'\\\\]|\\\\.)*'");
-        matcher = singleQuotePattern.matcher(text);
-        while (matcher.find()) {
-            doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), stringStyle, true);
+        try {
+            if (old.length() - prefix - suffix > 0) {
+                doc.remove(prefix, old.length() - prefix - suffix);
+            }
+            if (text.length() - prefix - suffix > 0) {
+                doc.insertString(prefix, text.substring(prefix, text.length() - suffix), null);
+            }
+        } catch (BadLocationException e) {
+            // Offsets are within the text just read from the document
+            textPane.setText(text);
         }
+        highlight(textPane, tokens);
     }
 
-    private void highlightBucketNames(StyledDocument doc, String text) {
-        Style bucketStyle = createStyle(doc, "bucket", bucketColor, false, false);
-
-        // Backtick-quoted identifiers (bucket/scope/collection names)
-        Pattern backtickPattern = Pattern.compile("`[^`]+`");
-        Matcher matcher = backtickPattern.matcher(text);
-        while (matcher.find()) {
-            doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), bucketStyle, true);
+    /**
+     * Styles of one document and the styled runs of its last highlight. A document listener
+     * tracks the span edited since then; text outside it kept its styling.
+     */
+    private final class HighlightState implements DocumentListener {
+
+        private final StyledDocument doc;
+        private final Style defaultStyle;
+        private final Style[] styleByType = new Style[N1QLTokenType.values().length];
+
+        // Styled token runs of the last highlight, in document order
+        private int[] runStarts = new int[0];
+        private int[] runEnds = new int[0];
+        private Style[] runStyles = new Style[0];
+        private int runCount;
+
+        // Span edited since the last highlight, in current offsets; empty when start > end
+        private int dirtyStart;
+        private int dirtyEnd;
+        // Length change since the last highlight
+        private int delta;
+
+        HighlightState(StyledDocument doc) {
+            this.doc = doc;
+            // Not named "default", which would replace the style paragraphs resolve against
+            defaultStyle = createStyle(doc, "plain", defaultColor, false, false);
+            Style commentStyle = createStyle(doc, "comment", commentColor, false, true);
+            styleByType[N1QLTokenType.LINE_COMMENT.ordinal()] = commentStyle;
+            styleByType[N1QLTokenType.BLOCK_COMMENT.ordinal()] = commentStyle;
+            styleByType[N1QLTokenType.STRING.ordinal()] = createStyle(doc, "string", stringColor, false, false);
+            styleByType[N1QLTokenType.QUOTED_IDENTIFIER.ordinal()] = createStyle(doc, "bucket", bucketColor, false, false);
+            styleByType[N1QLTokenType.KEYWORD.ordinal()] = createStyle(doc, "keyword", keywordColor, true, false);
+            styleByType[N1QLTokenType.FUNCTION.ordinal()] = createStyle(doc, "function", functionColor, false, false);
+            styleByType[N1QLTokenType.NUMBER.ordinal()] = createStyle(doc, "number", numberColor, false, false);
+            styleByType[N1QLTokenType.PARAMETER.ordinal()] = createStyle(doc, "parameter", parameterColor, false, true);
+
+            // Nothing is styled yet
+            dirtyStart = 0;
+            dirtyEnd = doc.getLength();
+            doc.addDocumentListener(this);
         }
-    }
-
-    private void highlightKeywords(StyledDocument doc, String text) {
-        Style keywordStyle = createStyle(doc, "keyword", keywordColor, true, false);
 
-        for (String keyword : KEYWORDS) {
-            Pattern pattern = Pattern.compile("\\b" + keyword + "\\b", Pattern.CASE_INSENSITIVE);
-            Matcher matcher = pattern.matcher(text);
-            while (matcher.find()) {
-                // Don't highlight if inside a string or comment
-                if (!isInsideStringOrComment(text, matcher.start())) {
-                    doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), keywordStyle, true);
+        void restyle(List<N1QLToken> tokens) {
+            int[] starts = new int[tokens.size()];
+            int[] ends = new int[tokens.size()];
+            Style[] styles = new Style[tokens.size()];
+            int count = 0;
+            for (N1QLToken token : tokens) {
+                Style style = styleByType[token.getType().ordinal()];
+                if (style != null) {
+                    starts[count] = token.getStart();
+                    ends[count] = token.getEnd();
+                    styles[count++] = style;
                 }
             }
-        }
-    }
 
-    private void highlightFunctions(StyledDocument doc, String text) {
-        Style functionStyle = createStyle(doc, "function", functionColor, false, false);
+            if (dirtyStart <= dirtyEnd) {
+                // Runs before the edit are unchanged unless one reaches into it
+                int front = 0;
+                while (front < count && front < runCount && ends[front] <= dirtyStart
+                        && runEnds[front] <= dirtyStart && sameRun(front, starts, ends, styles, front, 0)) {
+                    front++;
+                }
+                // Runs after it moved by delta; the edit may restyle up to the last one that differs
+                int back = 0;
+                while (back < count - front && back < runCount - front
+                        && starts[count - 1 - back] >= dirtyEnd
+                        && sameRun(runCount - 1 - back, starts, ends, styles, count - 1 - back, delta)) {
+                    back++;
+                }
 
-        for (String function : FUNCTIONS) {
-            // Match function name followed by opening parenthesis
-            Pattern pattern = Pattern.compile("\\b" + function + "\\s*\\(", Pattern.CASE_INSENSITIVE);
-            Matcher matcher = pattern.matcher(text);
-            while (matcher.find()) {
-                if (!isInsideStringOrComment(text, matcher.start())) {
-                    // Highlight only the function name, not the parenthesis
-                    int endPos = matcher.end() - 1;
-                    while (endPos > matcher.start() && (text.charAt(endPos) == '(' || Character.isWhitespace(text.charAt(endPos)))) {
-                        endPos--;
-                    }
-                    doc.setCharacterAttributes(matcher.start(), endPos - matcher.start() + 1, functionStyle, true);
+                int from = dirtyStart;
+                int to = dirtyEnd;
+                if (front < count - back) {
+                    from = Math.min(from, starts[front]);
+                    to = Math.max(to, ends[count - 1 - back]);
                 }
+                if (front < runCount - back) {
+                    from = Math.min(from, runStarts[front]);
+                    to = Math.max(to, runEnds[runCount - 1 - back] + delta);
+                }
+                applyStyles(lineStart(from), lineEnd(to), starts, ends, styles, count, front);
             }
-        }
-    }
-
-    private void highlightNumbers(StyledDocument doc, String text) {
-        Style numberStyle = createStyle(doc, "number", numberColor, false, false);
 
-        // Match integers and decimals
-        Pattern pattern = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
-        Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            if (!isInsideStringOrComment(text, matcher.start())) {
-                doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), numberStyle, true);
-            }
+            runStarts = starts;
+            runEnds = ends;
+            runStyles = styles;
+            runCount = count;
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = Integer.MIN_VALUE;
+            delta = 0;
         }
-    }
-
-    private boolean isInsideStringOrComment(String text, int position) {
-        // Simple check - count quotes before position
-        int doubleQuotes = 0;
-        int singleQuotes = 0;
-        boolean inLineComment = false;
-        boolean inBlockComment = false;
 
-        for (int i = 0; i < position && i < text.length(); i++) {
-            char c = text.charAt(i);
-            char next = (i + 1 < text.length()) ? text.charAt(i + 1) : 0;
+        private boolean sameRun(int old, int[] starts, int[] ends, Style[] styles, int run, int shift) {
+            return runStarts[old] + shift == starts[run] && runEnds[old] + shift == ends[run]
+                && runStyles[old] == styles[run];
+        }
 
-            if (inBlockComment) {
-                if (c == '*' && next == '/') {
-                    inBlockComment = false;
-                    i++;
-                }
-                continue;
+        /**
+         * Resets {@code [from, to)} to the default style, then styles the runs that overlap it.
+         * @param first Index of the first run that changed
+         */
+        private void applyStyles(int from, int to, int[] starts, int[] ends, Style[] styles, int count, int first) {
+            if (from >= to) {
+                return;
             }
-
-            if (inLineComment) {
-                if (c == '\n') {
-                    inLineComment = false;
+            doc.setCharacterAttributes(from, to - from, defaultStyle, true);
+            // Widening to whole lines may take in runs before the first one that changed
+            int i = first;
+            while (i > 0 && ends[i - 1] > from) {
+                i--;
+            }
+            for (; i < count && starts[i] < to; i++) {
+                int start = Math.max(starts[i], from);
+                int end = Math.min(ends[i], to);
+                if (start < end) {
+                    doc.setCharacterAttributes(start, end - start, styles[i], true);
                 }
-                continue;
             }
+        }
 
-            if (c == '/' && next == '*') {
-                inBlockComment = true;
-                i++;
-                continue;
-            }
+        private int lineStart(int offset) {
+            Element root = doc.getDefaultRootElement();
+            return root.getElement(root.getElementIndex(Math.max(0, offset))).getStartOffset();
+        }
 
-            if ((c == '-' && next == '-') || (c == '/' && next == '/')) {
-                inLineComment = true;
-                i++;
-                continue;
-            }
+        private int lineEnd(int offset) {
+            Element root = doc.getDefaultRootElement();
+            int end = root.getElement(root.getElementIndex(Math.min(offset, doc.getLength()))).getEndOffset();
+            return Math.min(end, doc.getLength());
+        }
 
-            if (c == '"' && (i == 0 || text.charAt(i - 1) != '\\')) {
-                doubleQuotes++;
-            } else if (c == '\'' && (i == 0 || text.charAt(i - 1) != '\\')) {
-                singleQuotes++;
-            }
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            int offset = e.getOffset();
+            int length = e.getLength();
+            dirtyEnd = dirtyEnd > offset ? dirtyEnd + length : offset + length;
+            dirtyStart = Math.min(dirtyStart, offset);
+            delta += length;
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            int offset = e.getOffset();
+            int length = e.getLength();
+            dirtyEnd = dirtyEnd >= offset + length ? dirtyEnd - length : offset;
+            dirtyStart = Math.min(dirtyStart, offset);
+            delta -= length;
         }
 
-        return (doubleQuotes % 2 == 1) || (singleQuotes % 2 == 1) || inBlockComment || inLineComment;
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+            // Attribute changes, including our own, leave the text as it was
+        }
+    }
+
+    private Style createStyle(StyledDocument doc, String name, Color color, boolean bold, boolean italic) {
+        Style style = doc.addStyle(name, null);
+        StyleConstants.setForeground(style, color);
+        StyleConstants.setBold(style, bold);
+        StyleConstants.setItalic(style, italic);
+        return style;
     }
 
     /**